@@ -40,5 +40,9 @@ public abstract class BaseProcessInstanceListener implements ProcessInstance.Lis
   @Override
   public void onError(DataException ex) {
   }
+
+  @Override
+  public void onCheckpoint(String cursor) {
+  }
   
 }
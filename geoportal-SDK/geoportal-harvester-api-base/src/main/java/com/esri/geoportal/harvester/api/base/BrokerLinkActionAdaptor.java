@@ -63,6 +63,19 @@ public final class BrokerLinkActionAdaptor implements LinkAction {
   public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
     return broker.publish(dataRef);
   }
+
+  @Override
+  public boolean supportsBatch() {
+    return broker.supportsBatch();
+  }
+
+  @Override
+  public List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    if (broker.supportsBatch()) {
+      return broker.publishBatch(dataRefs);
+    }
+    return LinkAction.super.pushBatch(dataRefs);
+  }
   
   @Override
   public String toString() {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content buffer.
+ * <p>
+ * Output stream collecting content to be added to the data reference. Content 
+ * is kept in memory up to the spill threshold; once exceeded, content is moved
+ * to a temporary file and the rest is written directly to that file, so 
+ * producing large content does not require memory proportional to its size.
+ * 
+ * @see SimpleDataReference#addContext(com.esri.geoportal.commons.constants.MimeType, com.esri.geoportal.harvester.api.base.ContentBuffer) 
+ * @see DataReferenceWrapper#addContext(com.esri.geoportal.commons.constants.MimeType, com.esri.geoportal.harvester.api.base.ContentBuffer) 
+ */
+public class ContentBuffer extends OutputStream {
+  private final long threshold;
+  private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+  private ContentPayload.FilePayload filePayload;
+  private OutputStream fileOutput;
+  private long size;
+
+  /**
+   * Creates instance of the buffer with the default spill threshold.
+   * @see SimpleDataReference#SPILL_THRESHOLD_PROPERTY
+   */
+  public ContentBuffer() {
+    this(SimpleDataReference.SPILL_THRESHOLD);
+  }
+
+  /**
+   * Creates instance of the buffer.
+   * @param threshold spill threshold (in bytes)
+   */
+  public ContentBuffer(long threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Gets number of bytes written so far.
+   * @return number of bytes
+   */
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte)b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (fileOutput == null && memory.size() + len > threshold) {
+      Path file = Files.createTempFile("harvester-", ".tmp");
+      filePayload = new ContentPayload.FilePayload(file, true);
+      fileOutput = Files.newOutputStream(file);
+      memory.writeTo(fileOutput);
+      memory.reset();
+    }
+    if (fileOutput != null) {
+      fileOutput.write(b, off, len);
+    } else {
+      memory.write(b, off, len);
+    }
+    size += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (fileOutput != null) {
+      fileOutput.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (fileOutput != null) {
+      fileOutput.close();
+    }
+  }
+  
+  /**
+   * Closes buffer and converts it to payload.
+   * @return payload
+   * @throws IOException if closing buffer fails
+   */
+  /*package*/ ContentPayload toPayload() throws IOException {
+    close();
+    return filePayload != null? filePayload: new ContentPayload.MemoryPayload(memory.toByteArray());
+  }
+}
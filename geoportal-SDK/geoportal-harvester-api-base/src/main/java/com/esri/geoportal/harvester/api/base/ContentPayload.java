@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content payload.
+ */
+/*package*/ abstract class ContentPayload implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final Cleaner CLEANER = Cleaner.create();
+  
+  /**
+   * Gets content as bytes.
+   * @return content
+   * @throws IOException if reading content fails
+   */
+  public abstract byte[] getBytes() throws IOException;
+  
+  /**
+   * Gets content as stream.
+   * @return content stream
+   * @throws IOException if reading content fails
+   */
+  public abstract InputStream getStream() throws IOException;
+  
+  /**
+   * Gets content length.
+   * @return length in bytes
+   * @throws IOException if reading content length fails
+   */
+  public abstract long getLength() throws IOException;
+  
+  /**
+   * Releases resources held by the payload. Content is unavailable afterwards,
+   * although its length remains known.
+   */
+  public void release() {
+  }
+  
+  /**
+   * Payload kept in memory.
+   */
+  public static final class MemoryPayload extends ContentPayload {
+    private static final long serialVersionUID = 1L;
+    private final byte[] bytes;
+
+    public MemoryPayload(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public byte[] getBytes() {
+      return bytes;
+    }
+
+    @Override
+    public InputStream getStream() {
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public long getLength() {
+      return bytes.length;
+    }
+  }
+  
+  /**
+   * Payload kept in a file. Temporary file is deleted once the payload is
+   * released or unreachable. Serialized as a memory payload.
+   */
+  public static final class FilePayload extends ContentPayload {
+    private static final long serialVersionUID = 1L;
+    private final transient Path file;
+    private final transient Cleaner.Cleanable cleanable;
+    private transient volatile long releasedLength = -1;
+
+    public FilePayload(Path file, boolean temporary) {
+      this.file = file;
+      this.cleanable = temporary? CLEANER.register(this, new FileDeleter(file)): null;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+      return Files.readAllBytes(file);
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+      return Files.newInputStream(file);
+    }
+
+    @Override
+    public long getLength() throws IOException {
+      long length = releasedLength;
+      return length>=0? length: Files.size(file);
+    }
+
+    @Override
+    public synchronized void release() {
+      if (cleanable!=null && releasedLength<0) {
+        try {
+          releasedLength = Files.size(file);
+        } catch (IOException ex) {
+          releasedLength = 0;
+        }
+        cleanable.clean();
+      }
+    }
+    
+    private Object writeReplace() throws ObjectStreamException {
+      try {
+        return new MemoryPayload(getBytes());
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+  }
+  
+  /**
+   * Temporary file deleter.
+   */
+  private static final class FileDeleter implements Runnable {
+    private final Path file;
+
+    public FileDeleter(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ex) {
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+}
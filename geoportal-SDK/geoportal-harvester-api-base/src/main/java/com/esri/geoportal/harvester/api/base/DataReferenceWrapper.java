@@ -18,6 +18,7 @@ package com.esri.geoportal.harvester.api.base;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.commons.constants.MimeType;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
 import java.util.HashMap;
@@ -34,7 +35,7 @@ public class DataReferenceWrapper implements DataReference {
   private final DataReference baseRef;
   
   // data
-  private final Map<MimeType,byte []> content = new HashMap<>();
+  private final Map<MimeType,ContentPayload> content = new HashMap<>();
   
   /**
    * Creates instance of the data reference.
@@ -50,17 +51,80 @@ public class DataReferenceWrapper implements DataReference {
    * @param content content
    */
   public void addContext(MimeType mimeType, byte [] content) {
-    this.content.put(mimeType, content);
+    this.content.put(mimeType, content!=null? new ContentPayload.MemoryPayload(content): null);
+  }
+  
+  /**
+   * Adds content of a particular type to the reference from the buffer. Buffer
+   * is closed.
+   * @param mimeType mime type
+   * @param buffer content buffer
+   * @throws IOException if closing buffer fails
+   */
+  public void addContext(MimeType mimeType, ContentBuffer buffer) throws IOException {
+    this.content.put(mimeType, buffer!=null? buffer.toPayload(): null);
   }
   
 
   @Override
   public byte[] getContent(MimeType...mimeType) throws IOException {
-    byte [] data =  content.get(mimeType);
-    if (data==null) {
-      data = baseRef.getContent(mimeType);
+    ContentPayload payload = findContent(mimeType);
+    return payload!=null? payload.getBytes(): baseRef.getContent(mimeType);
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType... mimeType) throws IOException {
+    ContentPayload payload = findContent(mimeType);
+    return payload!=null? payload.getStream(): baseRef.getContentStream(mimeType);
+  }
+  
+  private ContentPayload findContent(MimeType...mimeType) {
+    for (MimeType mt: mimeType) {
+      ContentPayload payload = content.get(mt);
+      if (payload!=null) {
+        return payload;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets content length. Length of the added content is known without reading
+   * it; content of the base reference is counted as a whole if any of its
+   * types has not been replaced.
+   * @return length in bytes or <code>-1</code> if unknown
+   * @throws IOException if getting content length fails
+   */
+  @Override
+  public long getContentLength() throws IOException {
+    long length = 0;
+    Set<MimeType> replaced = new HashSet<>();
+    for (Map.Entry<MimeType,ContentPayload> e: content.entrySet()) {
+      if (e.getValue()!=null) {
+        length += e.getValue().getLength();
+        replaced.add(e.getKey());
+      }
+    }
+    if (!replaced.containsAll(baseRef.getContentType())) {
+      long baseLength = baseRef.getContentLength();
+      if (baseLength<0) {
+        return -1;
+      }
+      length += baseLength;
+    }
+    return length;
+  }
+
+  /**
+   * Releases content added to the wrapper. Base reference is not released.
+   */
+  @Override
+  public void release() {
+    for (ContentPayload payload: content.values()) {
+      if (payload!=null) {
+        payload.release();
+      }
     }
-    return data;
   }
 
   @Override
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.base;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Lazy data reference.
+ * <p>
+ * Record information (id, source URI, etc.) is available immediately, while
+ * content is loaded by the loader only when first requested, so records
+ * rejected by the filters are never fetched. Last modified date and content
+ * type are known only after the content has been loaded, thus requesting them
+ * loads the content as well. Content is loaded at most once.
+ */
+public class LazyDataReference implements DataReference {
+  private static final long serialVersionUID = 1L;
+  
+  // info
+  private final URI brokerUri;
+  private final String brokerName;
+  private final String id;
+  private final URI sourceUri;
+  private final String inputBrokerRef;
+  private final String taskRef;
+  private final HashMap<String,Object> attributesMap = new HashMap<>();
+  
+  // data
+  private final transient Loader loader;
+  private SimpleDataReference loaded;
+  private IOException failure;
+
+  /**
+   * Creates instance of the data reference.
+   * @param brokerUri broker URI
+   * @param brokerName broker name
+   * @param id record id
+   * @param sourceUri source URI
+   * @param inputBrokerRef input broker reference or <code>null</code> if ad-hoc
+   * @param taskRef task reference of <code>null</code> if ad-hoc
+   * @param loader content loader
+   */
+  public LazyDataReference(URI brokerUri, String brokerName, String id, URI sourceUri, String inputBrokerRef, String taskRef, Loader loader) {
+    this.brokerUri = brokerUri;
+    this.brokerName = brokerName;
+    this.id = id;
+    this.sourceUri = sourceUri;
+    this.inputBrokerRef = inputBrokerRef;
+    this.taskRef = taskRef;
+    this.loader = loader;
+  }
+
+  /**
+   * Checks if content has been loaded already.
+   * @return <code>true</code> if content has been loaded
+   */
+  public synchronized boolean isLoaded() {
+    return loaded!=null;
+  }
+  
+  /**
+   * Loads content unless already loaded. Attributes of the loaded reference are
+   * merged into attributes of this reference.
+   * @return loaded reference
+   * @throws IOException if loading content fails
+   */
+  private synchronized SimpleDataReference load() throws IOException {
+    if (loaded==null) {
+      if (failure!=null) {
+        throw new IOException(String.format("Error loading content of: %s", id), failure);
+      }
+      try {
+        loaded = loader.load();
+        loaded.getAttributesMap().forEach(attributesMap::putIfAbsent);
+      } catch (IOException ex) {
+        failure = ex;
+        throw ex;
+      }
+    }
+    return loaded;
+  }
+
+  @Override
+  public URI getBrokerUri() {
+    return brokerUri;
+  }
+
+  @Override
+  public String getBrokerName() {
+    return brokerName;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public String getFetchableId() {
+    return id;
+  }
+
+  @Override
+  public Date getLastModifiedDate() {
+    try {
+      return load().getLastModifiedDate();
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  @Override
+  public URI getSourceUri() {
+    return sourceUri;
+  }
+
+  @Override
+  public String getTitle() {
+    return "";
+  }
+
+  @Override
+  public byte[] getContent(MimeType... mimeType) throws IOException {
+    return load().getContent(mimeType);
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType... mimeType) throws IOException {
+    return load().getContentStream(mimeType);
+  }
+
+  @Override
+  public Set<MimeType> getContentType() {
+    try {
+      return load().getContentType();
+    } catch (IOException ex) {
+      return Collections.emptySet();
+    }
+  }
+
+  /**
+   * Gets content length. Content is not loaded if not loaded yet.
+   * @return length in bytes or <code>-1</code> if content has not been loaded
+   * @throws IOException if getting content length fails
+   */
+  @Override
+  public long getContentLength() throws IOException {
+    SimpleDataReference ref;
+    synchronized (this) {
+      ref = loaded;
+    }
+    return ref!=null? ref.getContentLength(): -1;
+  }
+
+  @Override
+  public void release() {
+    SimpleDataReference ref;
+    synchronized (this) {
+      ref = loaded;
+    }
+    if (ref!=null) {
+      ref.release();
+    }
+  }
+
+  @Override
+  public HashMap<String, Object> getAttributesMap() {
+    return attributesMap;
+  }
+
+  @Override
+  public DataReference getOriginDataReference() {
+    return null;
+  }
+
+  @Override
+  public String getInputBrokerRef() {
+    return inputBrokerRef;
+  }
+
+  @Override
+  public String getTaskRef() {
+    return taskRef;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("id: %s, source URI: %s, broker URI: %s", id, sourceUri, brokerUri);
+  }
+  
+  private Object writeReplace() throws ObjectStreamException {
+    try {
+      load();
+      return this;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+  
+  /**
+   * Content loader.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Loads content.
+     * @return data reference with the content
+     * @throws IOException if loading content fails
+     */
+    SimpleDataReference load() throws IOException;
+  }
+}
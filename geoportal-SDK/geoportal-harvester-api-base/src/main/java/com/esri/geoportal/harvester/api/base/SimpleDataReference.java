@@ -18,7 +18,9 @@ package com.esri.geoportal.harvester.api.base;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.commons.constants.MimeType;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,10 +28,27 @@ import java.util.Set;
 
 /**
  * Simple data reference.
+ * <p>
+ * Content added as a stream is kept in memory up to the spill threshold; larger
+ * content is written to a temporary file deleted once the reference is no
+ * longer in use. Threshold (in bytes) may be set with the system property
+ * {@link #SPILL_THRESHOLD_PROPERTY}.
  */
 public class SimpleDataReference implements DataReference {
   private static final long serialVersionUID = 1L;
   
+  /**
+   * Name of the system property with the spill threshold.
+   */
+  public static final String SPILL_THRESHOLD_PROPERTY = "geoportal.harvester.spillThreshold";
+  
+  /**
+   * Default spill threshold (in bytes).
+   */
+  public static final long DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+  
+  /*package*/ static final long SPILL_THRESHOLD = Long.getLong(SPILL_THRESHOLD_PROPERTY, DEFAULT_SPILL_THRESHOLD);
+  
   // info
   private final URI brokerUri;
   private final String brokerName;
@@ -41,7 +60,7 @@ public class SimpleDataReference implements DataReference {
   private final String taskRef;
   
   // data
-  private final Map<MimeType,byte []> content = new HashMap<>();
+  private final Map<MimeType,ContentPayload> content = new HashMap<>();
   private final HashMap<String,Object> attributesMap = new HashMap<>();
 
   /**
@@ -81,7 +100,40 @@ public class SimpleDataReference implements DataReference {
    * @param content content
    */
   public void addContext(MimeType mimeType, byte [] content) {
-    this.content.put(mimeType, content);
+    this.content.put(mimeType, content!=null? new ContentPayload.MemoryPayload(content): null);
+  }
+  
+  /**
+   * Adds content of a particular type to the reference reading it from the 
+   * stream. Content larger than spill threshold is stored in a temporary file.
+   * Stream is read fully but not closed.
+   * @param mimeType mime type
+   * @param input input stream
+   * @throws IOException if reading content fails
+   */
+  public void addContext(MimeType mimeType, InputStream input) throws IOException {
+    this.content.put(mimeType, input!=null? readPayload(input, SPILL_THRESHOLD): null);
+  }
+  
+  /**
+   * Adds content of a particular type to the reference from the buffer. Buffer
+   * is closed.
+   * @param mimeType mime type
+   * @param buffer content buffer
+   * @throws IOException if closing buffer fails
+   */
+  public void addContext(MimeType mimeType, ContentBuffer buffer) throws IOException {
+    this.content.put(mimeType, buffer!=null? buffer.toPayload(): null);
+  }
+  
+  /**
+   * Adds content of a particular type to the reference as a file. File is read
+   * only when content is requested and it is never deleted.
+   * @param mimeType mime type
+   * @param file file
+   */
+  public void addContext(MimeType mimeType, Path file) {
+    this.content.put(mimeType, file!=null? new ContentPayload.FilePayload(file, false): null);
   }
   
   @Override
@@ -121,10 +173,21 @@ public class SimpleDataReference implements DataReference {
 
   @Override
   public byte[] getContent(MimeType...mimeType) throws IOException {
+    ContentPayload payload = findPayload(mimeType);
+    return payload!=null? payload.getBytes(): null;
+  }
+
+  @Override
+  public InputStream getContentStream(MimeType... mimeType) throws IOException {
+    ContentPayload payload = findPayload(mimeType);
+    return payload!=null? payload.getStream(): null;
+  }
+  
+  private ContentPayload findPayload(MimeType...mimeType) {
     for (MimeType mt: mimeType) {
-      byte [] bytes = content.get(mt);
-      if (bytes!=null) {
-        return bytes;
+      ContentPayload payload = content.get(mt);
+      if (payload!=null) {
+        return payload;
       }
     }
     return null;
@@ -135,6 +198,24 @@ public class SimpleDataReference implements DataReference {
     return content.keySet();
   }
 
+  @Override
+  public long getContentLength() throws IOException {
+    long length = 0;
+    for (ContentPayload payload: content.values()) {
+      length += payload!=null? payload.getLength(): 0;
+    }
+    return length;
+  }
+
+  @Override
+  public void release() {
+    for (ContentPayload payload: content.values()) {
+      if (payload!=null) {
+        payload.release();
+      }
+    }
+  }
+
   @Override
   public HashMap<String, Object> getAttributesMap() {
     return attributesMap;
@@ -159,4 +240,17 @@ public class SimpleDataReference implements DataReference {
   public String toString() {
     return String.format("id: %s, modified: %s, source URI: %s, broker URI: %s", id, lastModifiedDate, sourceUri, brokerUri);
   }
+  
+  /**
+   * Reads payload from the stream.
+   * @param input input stream
+   * @param threshold spill threshold
+   * @return payload
+   * @throws IOException if reading payload fails
+   */
+  private static ContentPayload readPayload(InputStream input, long threshold) throws IOException {
+    ContentBuffer buffer = new ContentBuffer(threshold);
+    input.transferTo(buffer);
+    return buffer.toPayload();
+  }
 }
@@ -23,6 +23,7 @@ import java.util.Date;
  */
 public class SimpleIteratorContext implements IteratorContext {
   private Date lastHarvestDate;
+  private String cursor;
 
   @Override
   public Date getLastHarvestDate() {
@@ -32,5 +33,14 @@ public class SimpleIteratorContext implements IteratorContext {
   public void setLastHarvest(Date lastHarvestDate) {
     this.lastHarvestDate = lastHarvestDate;
   }
+
+  @Override
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
   
 }
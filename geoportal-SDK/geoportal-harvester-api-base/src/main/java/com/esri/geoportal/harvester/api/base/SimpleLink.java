@@ -18,10 +18,14 @@ package com.esri.geoportal.harvester.api.base;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.defs.LinkDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataBatchException;
+import com.esri.geoportal.harvester.api.ex.DataException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.general.Link;
 import com.esri.geoportal.harvester.api.general.LinkAction;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -68,16 +72,167 @@ public class SimpleLink implements Link {
 
   @Override
   public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
-    PublishingStatus status = action.push(dataRef);
+    PublishingStatus status = PublishingStatus.emptyStatus().collect(action.push(dataRef));
     for (DataReference dr: action.execute(dataRef)) {
-      if (drains!=null) {
-        for (Link l: drains) {
-          status = status.collect(l.push(dr));
+      try {
+        if (drains!=null) {
+          for (Link l: drains) {
+            status = status.collect(l.push(dr));
+          }
         }
+      } finally {
+        release(dr, dataRef);
       }
     }
     return status;
   }
+
+  @Override
+  public boolean supportsBatch() {
+    return action.supportsBatch() || (drains!=null && drains.stream().anyMatch(Link::supportsBatch));
+  }
+
+  /**
+   * Pushes batch of data references through the link.
+   * <p>
+   * Batch is pushed at once only to the action or drains supporting batches;
+   * others receive data references one by one. If batch fails as a whole, it 
+   * is pushed one by one again only to the action or drain which has failed, 
+   * thus each data reference is executed and published at most once.
+   * @param dataRefs list of data references
+   * @return list of publishing statuses; one for each data reference in the same order
+   * @throws DataBatchException if some of the data references fail
+   * @throws DataProcessorException if processing fails
+   * @throws DataOutputException if sending to the output fails
+   */
+  @Override
+  public List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    List<PublishingStatus> statuses = new ArrayList<>();
+    List<DataException> errors = new ArrayList<>(Collections.nCopies(dataRefs.size(), null));
+    for (PublishingStatus st: pushBatch(action, dataRefs, errors)) {
+      statuses.add(st!=null? PublishingStatus.emptyStatus().collect(st): null);
+    }
+    if (drains!=null && !drains.isEmpty()) {
+      // outcome of the action for all the data references, along with the index of the source data reference
+      List<DataReference> results = new ArrayList<>();
+      List<Integer> sources = new ArrayList<>();
+      for (int i=0; i<dataRefs.size(); i++) {
+        if (errors.get(i)==null) {
+          try {
+            for (DataReference dr: action.execute(dataRefs.get(i))) {
+              results.add(dr);
+              sources.add(i);
+            }
+          } catch (DataProcessorException|DataOutputException ex) {
+            errors.set(i, ex);
+          }
+        }
+      }
+      try {
+        if (!results.isEmpty()) {
+          for (Link l: drains) {
+            List<DataException> drainErrors = new ArrayList<>(Collections.nCopies(results.size(), null));
+            List<PublishingStatus> drainStatuses = pushBatch(l, results, drainErrors);
+            for (int j=0; j<results.size(); j++) {
+              int i = sources.get(j);
+              if (drainErrors.get(j)!=null) {
+                if (errors.get(i)==null) {
+                  errors.set(i, drainErrors.get(j));
+                }
+              } else if (statuses.get(i)!=null) {
+                statuses.set(i, statuses.get(i).collect(drainStatuses.get(j)));
+              }
+            }
+          }
+        }
+      } finally {
+        for (int j=0; j<results.size(); j++) {
+          release(results.get(j), dataRefs.get(sources.get(j)));
+        }
+      }
+    }
+    if (errors.stream().anyMatch(e -> e!=null)) {
+      for (int i=0; i<dataRefs.size(); i++) {
+        if (errors.get(i)!=null) {
+          statuses.set(i, null);
+        }
+      }
+      throw new DataBatchException(statuses, errors);
+    }
+    return statuses;
+  }
+  
+  /**
+   * Releases outcome of the action once it has been pushed to all the drains.
+   * @param result outcome of the action
+   * @param source source data reference; owned by the caller thus not released
+   */
+  private static void release(DataReference result, DataReference source) {
+    if (result!=source) {
+      result.release();
+    }
+  }
+  
+  /**
+   * Pushes batch of data references through the action.
+   * @param action action
+   * @param dataRefs data references
+   * @param errors list of errors to update; one for each data reference
+   * @return list of statuses; <code>null</code> for each failed data reference
+   */
+  private static List<PublishingStatus> pushBatch(LinkAction action, List<DataReference> dataRefs, List<DataException> errors) {
+    if (action.supportsBatch()) {
+      try {
+        return action.pushBatch(dataRefs);
+      } catch (DataProcessorException|DataOutputException ex) {
+        // batch failed as a whole; publishing each data reference separately
+      }
+    }
+    List<PublishingStatus> statuses = new ArrayList<>();
+    for (int i=0; i<dataRefs.size(); i++) {
+      PublishingStatus st = null;
+      try {
+        st = action.push(dataRefs.get(i));
+      } catch (DataProcessorException|DataOutputException ex) {
+        errors.set(i, ex);
+      }
+      statuses.add(st);
+    }
+    return statuses;
+  }
+  
+  /**
+   * Pushes batch of data references through the drain.
+   * @param drain drain
+   * @param dataRefs data references
+   * @param errors list of errors to update; one for each data reference
+   * @return list of statuses; <code>null</code> for each failed data reference
+   */
+  private static List<PublishingStatus> pushBatch(Link drain, List<DataReference> dataRefs, List<DataException> errors) {
+    if (drain.supportsBatch()) {
+      try {
+        return drain.pushBatch(dataRefs);
+      } catch (DataBatchException ex) {
+        for (int i=0; i<dataRefs.size(); i++) {
+          errors.set(i, ex.getErrors().get(i));
+        }
+        return new ArrayList<>(ex.getStatuses());
+      } catch (DataProcessorException|DataOutputException ex) {
+        // batch failed as a whole; publishing each data reference separately
+      }
+    }
+    List<PublishingStatus> statuses = new ArrayList<>();
+    for (int i=0; i<dataRefs.size(); i++) {
+      PublishingStatus st = null;
+      try {
+        st = drain.push(dataRefs.get(i));
+      } catch (DataProcessorException|DataOutputException ex) {
+        errors.set(i, ex);
+      }
+      statuses.add(st);
+    }
+    return statuses;
+  }
   
   @Override
   public String toString() {
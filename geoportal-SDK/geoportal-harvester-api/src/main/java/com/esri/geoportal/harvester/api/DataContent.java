@@ -16,7 +16,9 @@
 package com.esri.geoportal.harvester.api;
 
 import com.esri.geoportal.commons.constants.MimeType;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 
 /**
@@ -32,9 +34,43 @@ public interface DataContent {
    */
   byte[] getContent(MimeType... mimeType) throws IOException;
 
+  /**
+   * Gets content as a stream. Preferred over {@link #getContent(MimeType...)}
+   * for large content since it doesn't require the whole content to be kept
+   * in memory. Caller is responsible for closing the stream.
+   * @param mimeType required mime type
+   * @return content stream or <code>null</code> if content by the mime type unavailable
+   * @throws IOException if getting content fails
+   */
+  default InputStream getContentStream(MimeType... mimeType) throws IOException {
+    byte[] content = getContent(mimeType);
+    return content!=null? new ByteArrayInputStream(content): null;
+  }
+
   /**
    * Gets content type.
    * @return content type variances
    */
   Set<MimeType> getContentType();
+
+  /**
+   * Gets total length of the content of all the types.
+   * @return length in bytes or <code>-1</code> if unknown
+   * @throws IOException if getting content fails
+   */
+  default long getContentLength() throws IOException {
+    long length = 0;
+    for (MimeType mimeType: getContentType()) {
+      byte[] content = getContent(mimeType);
+      length += content!=null? content.length: 0;
+    }
+    return length;
+  }
+
+  /**
+   * Releases resources held by the content, i.e. temporary files. Content is
+   * unavailable afterwards, although its length remains known.
+   */
+  default void release() {
+  }
 }
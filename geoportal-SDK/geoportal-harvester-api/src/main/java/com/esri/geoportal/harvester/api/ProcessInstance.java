@@ -73,6 +73,10 @@ public interface ProcessInstance {
      * just submitted
      */
     submitted,
+    /**
+     * begun but waiting for the scheduler to let it run
+     */
+    queued,
     /**
      * currently being executing
      */
@@ -119,6 +123,15 @@ public interface ProcessInstance {
      * @param ex onError
      */
     public void onError(DataException ex);
+    
+    /**
+     * Called when process reached a checkpoint.
+     * 
+     * @param cursor iterator cursor to resume from or <code>null</code> if 
+     * there is nothing to resume (process completed iteration)
+     */
+    default void onCheckpoint(String cursor) {
+    }
   }
   
 }
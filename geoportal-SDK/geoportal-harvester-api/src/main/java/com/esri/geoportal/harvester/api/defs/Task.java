@@ -30,6 +30,7 @@ import java.util.stream.Collectors;
 public final class Task {
   private final String name;
   private final Processor processor;
+  private final EntityDefinition processorDefinition;
   private final InputBroker dataSource;
   private final List<Link> dataDestinations;
   private final List<String> keywords;
@@ -42,16 +43,18 @@ public final class Task {
    * @param name name
    * @param ref task reference
    * @param processor processor
+   * @param processorDefinition processor definition or <code>null</code> to use processor own definition
    * @param dataSource data source
    * @param dataDestinations data destination
    * @param keyywords keywords
    * @param incremental incremental flag
    * @param ignoreRobotsTxt ignore robots flag
    */
-  public Task(String name, String ref, Processor processor, InputBroker dataSource, List<Link> dataDestinations, List<String> keyywords, boolean incremental, boolean ignoreRobotsTxt) {
+  public Task(String name, String ref, Processor processor, EntityDefinition processorDefinition, InputBroker dataSource, List<Link> dataDestinations, List<String> keyywords, boolean incremental, boolean ignoreRobotsTxt) {
     this.name = name;
     this.ref = ref;
     this.processor = processor;
+    this.processorDefinition = processorDefinition;
     this.dataSource = dataSource;
     this.dataDestinations = dataDestinations;
     this.keywords = keyywords;
@@ -59,6 +62,21 @@ public final class Task {
     this.ignoreRobotsTxt = ignoreRobotsTxt;
   }
   
+  /**
+   * Creates instance of the task.
+   * @param name name
+   * @param ref task reference
+   * @param processor processor
+   * @param dataSource data source
+   * @param dataDestinations data destination
+   * @param keyywords keywords
+   * @param incremental incremental flag
+   * @param ignoreRobotsTxt ignore robots flag
+   */
+  public Task(String name, String ref, Processor processor, InputBroker dataSource, List<Link> dataDestinations, List<String> keyywords, boolean incremental, boolean ignoreRobotsTxt) {
+    this(name, ref, processor, null, dataSource, dataDestinations, keyywords, incremental, ignoreRobotsTxt);
+  }
+  
   /**
    * Creates instance of the task.
    * @param name name
@@ -102,7 +120,7 @@ public final class Task {
   public TaskDefinition getTaskDefinition() {
     TaskDefinition taskDefinition = new TaskDefinition();
     taskDefinition.setName(name);
-    taskDefinition.setProcessor(processor!=null? processor.getEntityDefinition(): null);
+    taskDefinition.setProcessor(getProcessorDefinition());
     taskDefinition.setSource(dataSource!=null? dataSource.getEntityDefinition(): null);
     taskDefinition.setDestinations(dataDestinations!=null? dataDestinations.stream().map(d->d.getLinkDefinition()).collect(Collectors.toList()): null);
     taskDefinition.setKeywords(keywords);
@@ -120,6 +138,14 @@ public final class Task {
     return processor;
   }
 
+  /**
+   * Gets processor definition.
+   * @return processor definition or <code>null</code> if no processor
+   */
+  public EntityDefinition getProcessorDefinition() {
+    return processorDefinition!=null? processorDefinition: processor!=null? processor.getEntityDefinition(): null;
+  }
+
   /**
    * Gets data source.
    * @return data source
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.ex;
+
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data batch exception.
+ * <p>
+ * Indicates that some data references of the batch have been published and
+ * some have failed. Data references which have been published shall not be
+ * published again.
+ */
+public class DataBatchException extends DataProcessorException {
+  private final List<PublishingStatus> statuses;
+  private final List<DataException> errors;
+
+  /**
+   * Constructs an instance of <code>DataBatchException</code>.
+   *
+   * @param statuses publishing statuses; one for each data reference of the
+   * batch or <code>null</code> if data reference failed
+   * @param errors errors; one for each data reference of the batch or
+   * <code>null</code> if data reference has been published
+   */
+  public DataBatchException(List<PublishingStatus> statuses, List<DataException> errors) {
+    super(String.format("Failed publishing %d of %d data references in a batch", errors.stream().filter(e -> e!=null).count(), errors.size()));
+    this.statuses = Collections.unmodifiableList(statuses);
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Gets publishing statuses.
+   * @return list of statuses; <code>null</code> for each failed data reference
+   */
+  public List<PublishingStatus> getStatuses() {
+    return statuses;
+  }
+
+  /**
+   * Gets errors.
+   * @return list of errors; <code>null</code> for each published data reference
+   */
+  public List<DataException> getErrors() {
+    return errors;
+  }
+}
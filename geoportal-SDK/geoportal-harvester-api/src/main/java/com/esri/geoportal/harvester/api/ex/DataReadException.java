@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.api.ex;
+
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+
+/**
+ * Data read exception.
+ * <p>
+ * Thrown by {@link InputBroker.Iterator#next()} if a single data can not be
+ * read; iteration may continue past it.
+ */
+public class DataReadException extends DataInputException {
+  private final String fetchableDataId;
+
+  /**
+   * Constructs an instance of <code>DataReadException</code> with the
+   * specified detail message.
+   *
+   * @param inputBroker input broker
+   * @param fetchableDataId fetchable id of the data
+   * @param msg the detail message.
+   */
+  public DataReadException(InputBroker inputBroker, String fetchableDataId, String msg) {
+    super(inputBroker, msg);
+    this.fetchableDataId = fetchableDataId;
+  }
+
+  /**
+   * Constructs an instance of <code>DataReadException</code> with the
+   * specified detail message.
+   *
+   * @param inputBroker input broker
+   * @param fetchableDataId fetchable id of the data
+   * @param msg the detail message.
+   * @param t cause
+   */
+  public DataReadException(InputBroker inputBroker, String fetchableDataId, String msg, Throwable t) {
+    super(inputBroker, msg, t);
+    this.fetchableDataId = fetchableDataId;
+  }
+
+  /**
+   * Gets fetchable data id.
+   * Fetchable data id is a convenient id used to fetch a single data from the source.
+   * @return fetchable data id
+   */
+  public String getFetchableDataId() {
+    return fetchableDataId;
+  }
+}
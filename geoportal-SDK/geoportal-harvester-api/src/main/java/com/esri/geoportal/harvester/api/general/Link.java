@@ -18,9 +18,13 @@ package com.esri.geoportal.harvester.api.general;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.defs.LinkDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataBatchException;
+import com.esri.geoportal.harvester.api.ex.DataException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.Initializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Link.
@@ -41,4 +45,46 @@ public interface Link extends Initializable {
    * @throws DataOutputException if sending to the output fails
    */
   PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException;
+  
+  /**
+   * Checks if the link publishes batch of data references in fewer requests 
+   * than pushing them one by one (see {@link com.esri.geoportal.harvester.api.specs.OutputBroker#supportsBatch()}).
+   * @return <code>true</code> if link supports batch publishing
+   */
+  default boolean supportsBatch() {
+    return false;
+  }
+  
+  /**
+   * Pushes batch of data references through the link.
+   * <p>
+   * If only some of the data references fail, {@link DataBatchException} is 
+   * thrown telling which data references have been published; any other 
+   * exception means none of the data references has been published.
+   * Default implementation pushes each data reference separately.
+   * @param dataRefs list of data references
+   * @return list of publishing statuses; one for each data reference in the same order
+   * @throws DataBatchException if some of the data references fail
+   * @throws DataProcessorException if processing fails
+   * @throws DataOutputException if sending to the output fails
+   */
+  default List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    List<PublishingStatus> statuses = new ArrayList<>();
+    List<DataException> errors = new ArrayList<>();
+    boolean failed = false;
+    for (DataReference dataRef: dataRefs) {
+      try {
+        statuses.add(push(dataRef));
+        errors.add(null);
+      } catch (DataProcessorException|DataOutputException ex) {
+        statuses.add(null);
+        errors.add(ex);
+        failed = true;
+      }
+    }
+    if (failed) {
+      throw new DataBatchException(statuses, errors);
+    }
+    return statuses;
+  }
 }
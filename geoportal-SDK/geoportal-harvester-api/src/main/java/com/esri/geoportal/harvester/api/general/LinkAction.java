@@ -20,6 +20,7 @@ import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import java.util.ArrayList;
 import java.util.List;
 import com.esri.geoportal.harvester.api.Initializable;
 
@@ -50,4 +51,32 @@ public interface LinkAction extends Initializable {
    * @throws DataOutputException if sending to the output fails
    */
   PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException;
+  
+  /**
+   * Checks if the action publishes batch of data references in fewer requests 
+   * than pushing them one by one (see {@link com.esri.geoportal.harvester.api.specs.OutputBroker#supportsBatch()}).
+   * @return <code>true</code> if action supports batch publishing
+   */
+  default boolean supportsBatch() {
+    return false;
+  }
+  
+  /**
+   * Pushes batch of data references through the link.
+   * <p>
+   * Default implementation pushes each data reference separately thus it fails
+   * at the first failing data reference; callers should use it only if 
+   * {@link #supportsBatch()} is <code>true</code>.
+   * @param dataRefs list of data references
+   * @return list of publishing statuses; one for each data reference in the same order
+   * @throws DataProcessorException if processing fails
+   * @throws DataOutputException if sending to the output fails
+   */
+  default List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    List<PublishingStatus> statuses = new ArrayList<>();
+    for (DataReference dataRef: dataRefs) {
+      statuses.add(push(dataRef));
+    }
+    return statuses;
+  }
 }
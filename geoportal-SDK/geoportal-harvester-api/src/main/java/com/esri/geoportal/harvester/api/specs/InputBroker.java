@@ -55,6 +55,18 @@ public interface InputBroker extends Broker<InputConnector> {
    */
   DataContent readContent(String id) throws DataInputException;
   
+  /**
+   * Checks if broker is able to read content by id.
+   * <p>
+   * Harvesting selected data only (for example the data which failed during the
+   * earlier harvest) relies on {@link #readContent(java.lang.String)}; brokers
+   * which can only iterate over the source should override it.
+   * @return <code>true</code> if broker supports reading content by id
+   */
+  default boolean supportsReadContent() {
+    return true;
+  }
+  
   /**
    * Iterator.
    */
@@ -72,6 +84,21 @@ public interface InputBroker extends Broker<InputConnector> {
      * @throws DataInputException if getting next data reference fails
      */
     DataReference next() throws DataInputException;
+    
+    /**
+     * Gets cursor.
+     * <p>
+     * Cursor is an opaque string describing position of the iterator. It is 
+     * valid after {@link #hasNext()} returned <code>true</code>; iterator created
+     * with the cursor (see {@link IteratorContext#getCursor()}) continues from
+     * the data reference to be returned by the next call to {@link #next()}. 
+     * Iterator may go back further (for example to the beginning of the current
+     * page) but never skips data.
+     * @return cursor or <code>null</code> if iterator doesn't support cursors
+     */
+    default String getCursor() {
+      return null;
+    }
   }
   
   /**
@@ -83,5 +110,14 @@ public interface InputBroker extends Broker<InputConnector> {
      * @return last harvest date or <code>null</code> if no last harvest date available
      */
     Date getLastHarvestDate();
+    
+    /**
+     * Gets cursor to resume iteration from.
+     * @return cursor or <code>null</code> to iterate from the beginning
+     * @see Iterator#getCursor() 
+     */
+    default String getCursor() {
+      return null;
+    }
   }
 }
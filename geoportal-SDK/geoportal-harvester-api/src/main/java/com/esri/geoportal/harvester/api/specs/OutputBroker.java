@@ -19,6 +19,8 @@ import com.esri.geoportal.harvester.api.Broker;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Output broker.
@@ -36,4 +38,30 @@ public interface OutputBroker extends Broker<OutputConnector> {
    * @throws DataOutputException if publishing data fails
    */
   PublishingStatus publish(DataReference ref) throws DataOutputException;
+  
+  /**
+   * Checks if broker is able to publish many data references in a single request.
+   * @return <code>true</code> if broker supports batch publishing
+   */
+  default boolean supportsBatch() {
+    return false;
+  }
+  
+  /**
+   * Publishes batch of data.
+   * <p>
+   * Default implementation publishes each data reference separately. Brokers 
+   * supporting batch publishing should override it together with {@link #supportsBatch()}.
+   * If batch fails as a whole, the caller is free to publish each data reference separately.
+   * @param refs list of data references
+   * @return list of publishing statuses; one for each data reference in the same order
+   * @throws DataOutputException if publishing data fails
+   */
+  default List<PublishingStatus> publishBatch(List<DataReference> refs) throws DataOutputException {
+    List<PublishingStatus> statuses = new ArrayList<>();
+    for (DataReference ref: refs) {
+      statuses.add(publish(ref));
+    }
+    return statuses;
+  }
 }
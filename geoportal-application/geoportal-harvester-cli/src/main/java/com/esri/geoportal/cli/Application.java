@@ -23,12 +23,18 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import com.esri.geoportal.harvester.engine.services.Engine;
+import com.esri.geoportal.harvester.engine.utils.FailedDataInputBroker;
 import static com.esri.geoportal.harvester.engine.utils.JsonSerializer.deserialize;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import javax.xml.parsers.ParserConfigurationException;
@@ -40,6 +46,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.xml.sax.SAXException;
 
 /**
@@ -51,6 +58,8 @@ public class Application {
 
   private String geometryServiceUrl = DEFAULT_GEOMETRY_SERVICE;
   private String cswProfilesFolder = null;
+  private List<String> failedIds = null;
+  private int parallelism = FailedDataInputBroker.DEFAULT_PARALLELISM;
 
   public static void main(String[] args) {
     Application app = new Application();
@@ -83,6 +92,11 @@ public class Application {
           this.cswProfilesFolder = cswProfilesFolder;
         }
 
+        if (cli.hasOption('r')) {
+          this.failedIds = readIds(new File(cli.getOptionValue('r')));
+          this.parallelism = Math.min(NumberUtils.toInt(cli.getOptionValue('P'), FailedDataInputBroker.DEFAULT_PARALLELISM), FailedDataInputBroker.DEFAULT_MAX_PARALLELISM);
+        }
+
         if (cli.hasOption('f')) {
           String fileName = cli.getOptionValue('f');
           File file = new File(fileName);
@@ -129,7 +143,11 @@ public class Application {
     Option task = new Option("t", "task", true, "executes task defined as JSON");
     Option geo = new Option("g", "geometry", true, "url to accessible geometry service");
     Option csw = new Option("p", "profiles", true, "location of the profiles");
+    Option retry = new Option("r", "retry", true, "harvests again only the failed data listed in the file (JSON array or one id per line)");
+    Option parallel = new Option("P", "parallelism", true, String.format("number of failed data read concurrently (default: %d, at most: %d)", FailedDataInputBroker.DEFAULT_PARALLELISM, FailedDataInputBroker.DEFAULT_MAX_PARALLELISM));
     geo.setArgName("url");
+    retry.setArgName("file");
+    parallel.setArgName("number");
     
     Options options = new Options();
     options.addOption(help);
@@ -139,6 +157,8 @@ public class Application {
     options.addOption(task);
     options.addOption(geo);
     options.addOption(csw);
+    options.addOption(retry);
+    options.addOption(parallel);
     
     return options;
   }
@@ -149,7 +169,24 @@ public class Application {
     Engine engine = boot.createEngine();
     IteratorContext iterCtx = new SimpleIteratorContext();
 
-    ProcessReference processRef = engine.getExecutionService().execute(taskDefinition, iterCtx);
+    ProcessReference processRef = failedIds != null
+            ? engine.getExecutionService().execute(taskDefinition, failedIds, parallelism)
+            : engine.getExecutionService().execute(taskDefinition, iterCtx);
     processRef.getProcess().begin();
   }
+  
+  /**
+   * Reads ids of the failed data. File is either JSON array as returned by 
+   * <i>/rest/harvester/tasks/failed/{eventId}</i> or a list of ids, one per line.
+   * @param file file
+   * @return list of ids
+   * @throws IOException if reading file fails
+   */
+  private List<String> readIds(File file) throws IOException {
+    String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+    if (content.startsWith("[")) {
+      return Arrays.asList(deserialize(content, String[].class));
+    }
+    return Arrays.stream(content.split("\\r?\\n")).map(String::trim).filter(StringUtils::isNotEmpty).collect(Collectors.toList());
+  }
 }
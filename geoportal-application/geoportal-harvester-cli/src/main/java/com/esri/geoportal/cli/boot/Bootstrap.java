@@ -48,6 +48,7 @@ import com.esri.geoportal.harvester.engine.managers.ReportManager;
 import com.esri.geoportal.harvester.engine.managers.TaskManager;
 import com.esri.geoportal.harvester.engine.managers.TriggerInstanceManager;
 import com.esri.geoportal.harvester.engine.managers.TriggerManager;
+import com.esri.geoportal.harvester.engine.processors.PipelinedProcessor;
 import com.esri.geoportal.harvester.engine.registers.FilterRegistry;
 import com.esri.geoportal.harvester.engine.registers.InboundConnectorRegistry;
 import com.esri.geoportal.harvester.engine.registers.OutboundConnectorRegistry;
@@ -144,6 +145,7 @@ public class Bootstrap {
               createTriggersService(), 
               createExecutionService());
       processorRegistry.setDefaultProcessor(new DefaultProcessor());
+      processorRegistry.register(new PipelinedProcessor());
       engine.init();
       return engine;
     } catch (IOException|TransformerConfigurationException|XPathExpressionException ex) {
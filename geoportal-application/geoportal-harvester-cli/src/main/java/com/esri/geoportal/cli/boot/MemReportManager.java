@@ -21,6 +21,7 @@ import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.engine.managers.ReportManager;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilder;
 import java.util.UUID;
 
@@ -45,6 +46,10 @@ public class MemReportManager implements ReportManager {
       public void completed(ProcessInstance process) {
         System.out.println(String.format("Completed harvesting of %s", processInstance.getTask().getTaskDefinition()));
         System.out.println(String.format("Acquired: %d, published: %d, failed: %d", acquired, published, failed));
+        ProcessMetrics metrics = ProcessMetrics.of(processInstance);
+        if (metrics!=null) {
+          metrics.getSummary().forEach(System.out::println);
+        }
       }
 
       @Override
@@ -15,6 +15,7 @@
  */
 package com.esri.geoportal.harvester.engine.defaults;
 
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
 import com.esri.geoportal.harvester.api.defs.Task;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
@@ -23,7 +24,9 @@ import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import com.esri.geoportal.harvester.engine.services.ExecutionService;
 import com.esri.geoportal.harvester.engine.services.ProcessesService;
 import com.esri.geoportal.harvester.engine.services.TasksService;
+import com.esri.geoportal.harvester.engine.utils.FailedDataInputBroker;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
@@ -52,4 +55,23 @@ public class DefaultExecutionService implements ExecutionService {
     Task task = tasksService.createTask(taskDefinition);
     return processesService.createProcess(task, iteratorContext);
   }
+
+  @Override
+  public ProcessReference execute(TaskDefinition taskDefinition, List<String> dataIds, int parallelism) throws InvalidDefinitionException, DataProcessorException,TimeoutException,ExecutionException,InterruptedException {
+    Task task = tasksService.createTask(taskDefinition);
+    if (!task.getDataSource().supportsReadContent()) {
+      throw new InvalidDefinitionException(String.format("Source %s doesn't support reading data by id", task.getDataSource()));
+    }
+    Task failedDataTask = new Task(
+            task.getName(), 
+            task.getRef(), 
+            task.getProcessor(), 
+            task.getProcessorDefinition(), 
+            new FailedDataInputBroker(task.getDataSource(), dataIds, parallelism), 
+            task.getDataDestinations(), 
+            taskDefinition.getKeywords(), 
+            false, 
+            taskDefinition.isIgnoreRobotsTxt());
+    return processesService.createProcess(failedDataTask, new SimpleIteratorContext());
+  }
 }
@@ -25,6 +25,8 @@ import com.esri.geoportal.harvester.engine.managers.ProcessManager;
 import com.esri.geoportal.harvester.engine.managers.ReportManager;
 import com.esri.geoportal.harvester.engine.registers.StatisticsRegistry;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.ProcessScheduler;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilder;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilderAdaptor;
@@ -42,17 +44,30 @@ public class DefaultProcessesService implements ProcessesService {
   protected final ProcessManager processManager;
   protected final ReportManager reportManager;
   protected final StatisticsRegistry statisticsRegistry;
+  protected final ProcessScheduler processScheduler;
 
   /**
    * Creates instance of the service.
    * @param processManager process manager
    * @param reportManager report manager
    * @param statisticsRegistry statistics registry
+   * @param processScheduler process scheduler
    */
-  public DefaultProcessesService(ProcessManager processManager, ReportManager reportManager, StatisticsRegistry statisticsRegistry) {
+  public DefaultProcessesService(ProcessManager processManager, ReportManager reportManager, StatisticsRegistry statisticsRegistry, ProcessScheduler processScheduler) {
     this.processManager = processManager;
     this.reportManager = reportManager;
     this.statisticsRegistry = statisticsRegistry;
+    this.processScheduler = processScheduler;
+  }
+
+  /**
+   * Creates instance of the service with no limits on running processes.
+   * @param processManager process manager
+   * @param reportManager report manager
+   * @param statisticsRegistry statistics registry
+   */
+  public DefaultProcessesService(ProcessManager processManager, ReportManager reportManager, StatisticsRegistry statisticsRegistry) {
+    this(processManager, reportManager, statisticsRegistry, new ProcessScheduler());
   }
 
   @Override
@@ -69,6 +84,12 @@ public class DefaultProcessesService implements ProcessesService {
     return statisticsRegistry.get(processId);
   }
 
+  @Override
+  public ProcessMetrics getMetrics(UUID processId) throws DataProcessorException {
+    ProcessInstance process = getProcess(processId);
+    return process!=null? ProcessMetrics.of(process): null;
+  }
+
   @Override
   public List<Map.Entry<UUID, ProcessInstance>> selectProcesses(Predicate<? super Map.Entry<UUID, ProcessInstance>> predicate) throws DataProcessorException {
     try {
@@ -81,7 +102,7 @@ public class DefaultProcessesService implements ProcessesService {
   @Override
   public ProcessReference createProcess(Task task, IteratorContext iteratorContext) throws InvalidDefinitionException, DataProcessorException {
     try {
-      ProcessInstance process = task.getProcessor().createProcess(task,iteratorContext);
+      ProcessInstance process = processScheduler.schedule(task.getProcessor().createProcess(task,iteratorContext));
       UUID uuid = processManager.create(process);
       ReportBuilder reportBuilder = reportManager.createReportBuilder(uuid, process);
       process.addListener(new ReportBuilderAdaptor(uuid, process, reportBuilder));
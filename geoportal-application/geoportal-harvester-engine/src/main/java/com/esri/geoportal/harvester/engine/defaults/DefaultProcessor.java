@@ -20,23 +20,38 @@ import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.Initializable.InitContext;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.Processor;
-import com.esri.geoportal.harvester.api.base.SimpleInitContext;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.defs.Task;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
+import com.esri.geoportal.harvester.api.ex.DataBatchException;
+import com.esri.geoportal.harvester.api.ex.DataException;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
 import com.esri.geoportal.harvester.api.general.Link;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import com.esri.geoportal.harvester.engine.utils.ChangeDetector;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.ListenerEventBus;
+import com.esri.geoportal.harvester.engine.utils.MeteredInitContext;
+import com.esri.geoportal.harvester.engine.utils.PrefetchingIterator;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.ProcessScheduler;
+import com.esri.geoportal.harvester.engine.utils.ResilientLinkAction;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.ResourceBundle;
 import java.util.UUID;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.owasp.esapi.ESAPI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,9 +62,36 @@ import org.slf4j.LoggerFactory;
 public class DefaultProcessor implements Processor {
 
   public static final String TYPE = "DEFAULT";
+  public static final String P_PREFETCH = "p-prefetch";
+  public static final String P_EVENTS_BUFFER = "p-events-buffer";
+  public static final String P_EVENTS_LOSSY = "p-events-lossy";
+  public static final String P_CHECKPOINT_INTERVAL = "p-checkpoint-interval";
+  public static final String P_SKIP_UNCHANGED = "p-skip-unchanged";
+  
+  public static final int DEFAULT_EVENTS_BUFFER = 1024;
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+  private static final int EVENTS_BATCH_SIZE = 100;
+  private static final int CURSOR_CAPTURES = 10;
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProcessor.class);
   
+  private final FingerprintManager fingerprintManager;
+
+  /**
+   * Creates instance of the processor.
+   * @param fingerprintManager fingerprint manager
+   */
+  public DefaultProcessor(FingerprintManager fingerprintManager) {
+    this.fingerprintManager = fingerprintManager;
+  }
+
+  /**
+   * Creates instance of the processor without change detection.
+   */
+  public DefaultProcessor() {
+    this(null);
+  }
+  
   @Override
   public String getType() {
     return TYPE;
@@ -57,7 +99,20 @@ public class DefaultProcessor implements Processor {
 
   @Override
   public UITemplate getTemplate(Locale locale) {
-    UITemplate uiTemplate = new UITemplate(getType(), "Default processor", null);
+    ResourceBundle bundle = ResourceBundle.getBundle("EngineResource", locale);
+    List<UITemplate.Argument> arguments = new ArrayList<>();
+    arguments.add(new UITemplate.IntegerArgument(P_PREFETCH, bundle.getString("engine.processors.prefetch"), false, 0));
+    arguments.add(new UITemplate.IntegerArgument(ProcessScheduler.P_PRIORITY, bundle.getString("engine.processors.priority"), false, 0));
+    arguments.add(new UITemplate.IntegerArgument(P_EVENTS_BUFFER, bundle.getString("engine.processors.eventsBuffer"), false, DEFAULT_EVENTS_BUFFER));
+    arguments.add(new UITemplate.BooleanArgument(P_EVENTS_LOSSY, bundle.getString("engine.processors.eventsLossy")));
+    arguments.add(new UITemplate.IntegerArgument(P_CHECKPOINT_INTERVAL, bundle.getString("engine.processors.checkpointInterval"), false, DEFAULT_CHECKPOINT_INTERVAL));
+    arguments.add(new UITemplate.BooleanArgument(P_SKIP_UNCHANGED, bundle.getString("engine.processors.skipUnchanged")));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_MAX, bundle.getString("engine.processors.retryMax"), false, ResilientLinkAction.DEFAULT_RETRY_MAX));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_BACKOFF, bundle.getString("engine.processors.retryBackoff"), false, ResilientLinkAction.DEFAULT_RETRY_BACKOFF));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_BUDGET, bundle.getString("engine.processors.retryBudget"), false, ResilientLinkAction.DEFAULT_RETRY_BUDGET));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_BREAKER_THRESHOLD, bundle.getString("engine.processors.breakerThreshold"), false, ResilientLinkAction.DEFAULT_BREAKER_THRESHOLD));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_BREAKER_PAUSE, bundle.getString("engine.processors.breakerPause"), false, ResilientLinkAction.DEFAULT_BREAKER_PAUSE));
+    UITemplate uiTemplate = new UITemplate(getType(), "Default processor", arguments);
     return uiTemplate;
   }
 
@@ -72,7 +127,7 @@ public class DefaultProcessor implements Processor {
   @Override
   public ProcessInstance createProcess(Task task, IteratorContext iteratorContext) {
     LOG.info(ESAPI.encoder().encodeForHTML(String.format("SUBMITTING: %s", task)));
-    return new DefaultProcess(task, iteratorContext);
+    return new DefaultProcess(task, iteratorContext, fingerprintManager);
   }
 
   /**
@@ -84,12 +139,23 @@ public class DefaultProcessor implements Processor {
     private final List<ProcessInstance.Listener> listeners = Collections.synchronizedList(new ArrayList<>());
 
     final Task task;
+    final IteratorContext iteratorContext;
+    final int prefetch;
+    final int eventsBuffer;
+    final boolean eventsLossy;
+    final ListenerEventBus eventBus;
+    final long checkpointInterval;
+    final boolean skipUnchanged;
+    final FingerprintManager fingerprintManager;
+    final ProcessMetrics metrics;
     final Thread thread;
 
     private volatile boolean completed;
     private volatile boolean aborting;
+    private long lastCheckpointTime = System.currentTimeMillis();
+    private ChangeDetector changeDetector;
 
-    private String getTitle() {
+    protected String getTitle() {
       return task.getTaskDefinition().toString();
     }
     
@@ -126,6 +192,35 @@ public class DefaultProcessor implements Processor {
       }
     }
     
+    /**
+     * Opens change detector if skipping unchanged records has been requested.
+     * @return change detector or <code>null</code> if no change detection
+     */
+    private ChangeDetector openChangeDetector() {
+      if (!skipUnchanged || fingerprintManager == null) {
+        return null;
+      }
+      UUID taskId = parseUUID(task.getRef());
+      if (taskId == null) {
+        LOG.debug(formatForLog("Change detection not available for ad-hoc task: %s", getTitle()));
+        return null;
+      }
+      try {
+        return new ChangeDetector(fingerprintManager.open(taskId), String.format("%s", task.getTaskDefinition().getDestinations()));
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error opening fingerprints of %s; change detection disabled", getTitle()), ex);
+        return null;
+      }
+    }
+    
+    private static UUID parseUUID(String uuid) {
+      try {
+        return uuid != null? UUID.fromString(uuid): null;
+      } catch (IllegalArgumentException ex) {
+        return null;
+      }
+    }
+    
     /**
      * Creates instance of the process.
      *
@@ -133,57 +228,318 @@ public class DefaultProcessor implements Processor {
      * @param iteratorContext iteration context
      */
     public DefaultProcess(Task task, IteratorContext iteratorContext) {
+      this(task, iteratorContext, null);
+    }
+    
+    /**
+     * Creates instance of the process.
+     *
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param fingerprintManager fingerprint manager or <code>null</code> if no change detection
+     */
+    public DefaultProcess(Task task, IteratorContext iteratorContext, FingerprintManager fingerprintManager) {
       this.task = task;
-      this.thread = new Thread(() -> {
-        InitContext initContext = new SimpleInitContext(task,listeners);
-        LOG.info(formatForLog("Started harvest: %s", getTitle()));
-        
-        initializeRefs();
-        
-        if (!task.getDataDestinations().isEmpty()) {
-          try {
-            initialize(initContext);
-            onStatusChange();
-            
-            InputBroker.Iterator iterator = task.getDataSource().iterator(iteratorContext);
-            while (iterator.hasNext()) {
-              if (Thread.currentThread().isInterrupted()) {
-                break;
-              }
-              
-              DataReference dataReference = iterator.next();
-              onAcquire(dataReference);
-              
-              task.getDataDestinations().stream().forEach((d) -> {
-                try {
-                  PublishingStatus status = d.push(dataReference);
-                  LOG.debug(formatForLog("Harvested %s during %s", dataReference, getTitle()));
-                  onSuccess(dataReference, status);
-                } catch (DataProcessorException ex) {
-                  LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
-                  onError(ex);
-                } catch (DataOutputException ex) {
-                  LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
-                  onError(ex);
-                }
-              });
+      this.iteratorContext = iteratorContext;
+      this.prefetch = NumberUtils.toInt(getProperty(P_PREFETCH), 0);
+      this.eventsBuffer = NumberUtils.toInt(getProperty(P_EVENTS_BUFFER), DEFAULT_EVENTS_BUFFER);
+      this.eventsLossy = Boolean.parseBoolean(getProperty(P_EVENTS_LOSSY));
+      this.eventBus = new ListenerEventBus(listeners, eventsBuffer, EVENTS_BATCH_SIZE);
+      this.checkpointInterval = NumberUtils.toLong(getProperty(P_CHECKPOINT_INTERVAL), DEFAULT_CHECKPOINT_INTERVAL);
+      this.skipUnchanged = Boolean.parseBoolean(getProperty(P_SKIP_UNCHANGED));
+      this.fingerprintManager = fingerprintManager;
+      this.metrics = new ProcessMetrics(task.getTaskDefinition().getSource()!=null? task.getTaskDefinition().getSource().getType(): null);
+      this.thread = new Thread(this::run, "HARVESTING");
+    }
+    
+    /**
+     * Gets processor property.
+     * @param name property name
+     * @return property value or <code>null</code> if no property
+     */
+    protected String getProperty(String name) {
+      return task.getProcessorDefinition()!=null? task.getProcessorDefinition().getProperties().get(name): null;
+    }
+    
+    /**
+     * Runs the harvest.
+     */
+    private void run() {
+      InitContext initContext = new MeteredInitContext(task,listeners,metrics);
+      LOG.info(formatForLog("Started harvest: %s", getTitle()));
+
+      initializeRefs();
+      metrics.started();
+
+      if (!task.getDataDestinations().isEmpty()) {
+        if (eventsBuffer > 0) {
+          eventBus.start("HARVESTING-EVENTS");
+        }
+        try {
+          changeDetector = openChangeDetector();
+          if (changeDetector != null) {
+            // skipped records never reach output brokers, so cleanup would remove them
+            LOG.info(formatForLog("Cleanup disabled for %s since unchanged records are skipped", getTitle()));
+            initContext.preventCleanup();
+          }
+          if (iteratorContext != null && iteratorContext.getCursor() != null) {
+            // records preceding the cursor are not published again, so cleanup would remove them
+            LOG.info(formatForLog("Cleanup disabled for %s since harvest is resumed from a checkpoint", getTitle()));
+            initContext.preventCleanup();
+          }
+          initialize(initContext);
+          onStatusChange();
+
+          InputBroker.Iterator iterator = task.getDataSource().iterator(iteratorContext);
+          if (prefetch > 0) {
+            try (PrefetchingIterator prefetchingIterator = new PrefetchingIterator(task.getDataSource(), iterator, prefetch, "HARVESTING-PREFETCH", checkpointInterval > 0? checkpointInterval / CURSOR_CAPTURES: -1).start()) {
+              harvest(prefetchingIterator);
             }
-            
-          } catch (DataInputException ex) {
-            LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
-            onError(ex);
-          } catch (DataProcessorException ex) {
-            LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
-            onError(ex);
-          } finally {
-            terminate();
-            completed = true;
-            aborting = false;
-            Thread.interrupted();
-            onStatusChange();
+          } else {
+            harvest(iterator);
+          }
+
+        } catch (DataInputException ex) {
+          LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
+          onError(ex);
+        } catch (DataProcessorException ex) {
+          LOG.error(formatForLog("Error harvesting of %s", getTitle()), ex);
+          onError(ex);
+        } finally {
+          if (changeDetector != null) {
+            changeDetector.close();
+          }
+          terminate();
+          metrics.completed();
+          completed = true;
+          aborting = false;
+          Thread.interrupted();
+          onStatusChange();
+          eventBus.close();
+        }
+      }
+    }
+    
+    /**
+     * Harvests all data available through the iterator.
+     * @param iterator input iterator
+     * @throws DataInputException if reading data fails
+     */
+    protected void harvest(InputBroker.Iterator iterator) throws DataInputException {
+      long acquireStart = System.nanoTime();
+      while (iterator.hasNext()) {
+        if (Thread.currentThread().isInterrupted()) {
+          checkpoint(iterator.getCursor());
+          return;
+        }
+        if (isCheckpointDue()) {
+          checkpoint(iterator.getCursor());
+        }
+
+        DataReference dataReference;
+        try {
+          dataReference = iterator.next();
+        } catch (DataReadException ex) {
+          LOG.warn(formatForLog("Failed reading %s during %s", ex.getFetchableDataId(), getTitle()));
+          onError(ex);
+          acquireStart = System.nanoTime();
+          continue;
+        }
+        metrics.acquired(System.nanoTime() - acquireStart);
+        try {
+          onAcquire(dataReference);
+          String fingerprint = fingerprint(dataReference);
+          if (isUnchanged(dataReference, fingerprint)) {
+            onSkip(dataReference);
+          } else if (publish(dataReference)) {
+            commitFingerprint(dataReference, fingerprint);
+          }
+          countBytes(dataReference);
+        } finally {
+          dataReference.release();
+        }
+        acquireStart = System.nanoTime();
+      }
+      if (!Thread.currentThread().isInterrupted() && !isAborting()) {
+        clearCheckpoint();
+      }
+    }
+    
+    /**
+     * Adds length of the loaded content of the data to the process metrics.
+     * @param dataReference data reference
+     */
+    protected void countBytes(DataReference dataReference) {
+      try {
+        metrics.bytes(dataReference.getContentLength());
+      } catch (IOException ex) {
+        LOG.trace(formatForLog("Unable to get content length of %s", dataReference), ex);
+      }
+    }
+    
+    /**
+     * Checks if it is time to make a checkpoint.
+     * @return <code>true</code> if it is time to make a checkpoint
+     */
+    protected boolean isCheckpointDue() {
+      return checkpointInterval > 0 && System.currentTimeMillis() - lastCheckpointTime >= checkpointInterval;
+    }
+    
+    /**
+     * Makes a checkpoint. Cursor has to point at the data not fully processed 
+     * yet. Ignored if cursor is <code>null</code>.
+     * @param cursor iterator cursor
+     */
+    protected void checkpoint(String cursor) {
+      lastCheckpointTime = System.currentTimeMillis();
+      if (checkpointInterval > 0 && cursor != null) {
+        eventBus.publish(l -> l.onCheckpoint(cursor));
+      }
+    }
+    
+    /**
+     * Clears checkpoint once iteration has been completed.
+     */
+    protected void clearCheckpoint() {
+      if (checkpointInterval > 0) {
+        eventBus.publish(l -> l.onCheckpoint(null));
+      }
+    }
+    
+    /**
+     * Calculates fingerprint of the data if change detection is enabled.
+     * @param dataReference data reference
+     * @return fingerprint or <code>null</code> if no change detection
+     */
+    protected String fingerprint(DataReference dataReference) {
+      return changeDetector != null? changeDetector.fingerprint(dataReference): null;
+    }
+    
+    /**
+     * Checks if data is unchanged since the previous harvest.
+     * @param dataReference data reference
+     * @param fingerprint fingerprint of the data
+     * @return <code>true</code> if data is unchanged and may be skipped
+     */
+    protected boolean isUnchanged(DataReference dataReference, String fingerprint) {
+      return changeDetector != null && changeDetector.isUnchanged(dataReference, fingerprint);
+    }
+    
+    /**
+     * Stores fingerprint of the data published to all the destinations.
+     * @param dataReference data reference
+     * @param fingerprint fingerprint of the data
+     */
+    protected void commitFingerprint(DataReference dataReference, String fingerprint) {
+      if (changeDetector != null) {
+        changeDetector.commit(dataReference, fingerprint);
+      }
+    }
+    
+    /**
+     * Reports unchanged data as skipped by all the destinations.
+     * @param dataReference data reference
+     */
+    protected void onSkip(DataReference dataReference) {
+      LOG.debug(formatForLog("Skipped unchanged %s during %s", dataReference, getTitle()));
+      task.getDataDestinations().forEach(d -> onSuccess(dataReference, PublishingStatus.SKIPPED));
+    }
+    
+    /**
+     * Pushes single data reference through all the destinations.
+     * @param dataReference data reference
+     * @return <code>true</code> if data has been published to all the destinations
+     */
+    protected boolean publish(DataReference dataReference) {
+      boolean success = true;
+      for (Link destination: task.getDataDestinations()) {
+        success &= publish(dataReference, destination);
+      }
+      return success;
+    }
+    
+    /**
+     * Pushes single data reference through a single destination.
+     * @param dataReference data reference
+     * @param destination destination
+     * @return <code>true</code> if data has been published
+     */
+    protected boolean publish(DataReference dataReference, Link destination) {
+      try {
+        PublishingStatus status = destination.push(dataReference);
+        LOG.debug(formatForLog("Harvested %s during %s", dataReference, getTitle()));
+        onSuccess(dataReference, status);
+        return true;
+      } catch (DataProcessorException ex) {
+        LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
+        onError(ex);
+      } catch (DataOutputException ex) {
+        LOG.warn(formatForLog("Failed harvesting %s during %s", dataReference, getTitle()));
+        onError(ex);
+      }
+      return false;
+    }
+
+    /**
+     * Pushes batch of data references through a single destination.
+     * Batch is pushed at once only if the destination supports batches; 
+     * otherwise, or if the batch fails as a whole, each data reference is 
+     * pushed separately. Data references already published by a partially 
+     * failed batch are never pushed again.
+     * @param dataReferences list of data references
+     * @param destination destination
+     * @return array of flags telling which data references have been published
+     */
+    protected boolean[] publish(List<DataReference> dataReferences, Link destination) {
+      boolean[] published = new boolean[dataReferences.size()];
+      if (!destination.supportsBatch()) {
+        for (int i=0; i<dataReferences.size(); i++) {
+          published[i] = publish(dataReferences.get(i), destination);
+        }
+        return published;
+      }
+      try {
+        List<PublishingStatus> statuses = destination.pushBatch(dataReferences);
+        for (int i=0; i<dataReferences.size(); i++) {
+          LOG.debug(formatForLog("Harvested %s during %s", dataReferences.get(i), getTitle()));
+          onSuccess(dataReferences.get(i), statuses.get(i));
+          published[i] = true;
+        }
+      } catch (DataBatchException ex) {
+        for (int i=0; i<dataReferences.size(); i++) {
+          DataException error = ex.getErrors().get(i);
+          if (error!=null) {
+            LOG.warn(formatForLog("Failed harvesting %s during %s", dataReferences.get(i), getTitle()));
+            eventBus.publish(l -> l.onError(error));
+          } else {
+            LOG.debug(formatForLog("Harvested %s during %s", dataReferences.get(i), getTitle()));
+            onSuccess(dataReferences.get(i), ex.getStatuses().get(i));
+            published[i] = true;
           }
         }
-      }, "HARVESTING");
+      } catch (DataProcessorException|DataOutputException ex) {
+        LOG.warn(formatForLog("Failed harvesting batch of %d records during %s; publishing one by one", dataReferences.size(), getTitle()), ex);
+        for (int i=0; i<dataReferences.size(); i++) {
+          published[i] = publish(dataReferences.get(i), destination);
+        }
+      }
+      return published;
+    }
+
+    /**
+     * Checks if process is being aborted.
+     * @return <code>true</code> if process is being aborted
+     */
+    protected boolean isAborting() {
+      return aborting;
+    }
+
+    /**
+     * Gets process metrics.
+     * @return process metrics
+     */
+    public ProcessMetrics getMetrics() {
+      return metrics;
     }
 
     @Override
@@ -235,12 +591,14 @@ public class DefaultProcessor implements Processor {
      * Aborts the process.
      */
     @Override
-    public synchronized void abort() {
-      if (getStatus() != ProcessInstance.Status.working) {
-        throw new IllegalStateException(formatForLog("Error aborting the process: process is in %s state", getStatus()));
+    public void abort() {
+      synchronized (this) {
+        if (getStatus() != ProcessInstance.Status.working) {
+          throw new IllegalStateException(formatForLog("Error aborting the process: process is in %s state", getStatus()));
+        }
+        LOG.info(formatForLog("Aborting process: %s", getTitle()));
+        aborting = true;
       }
-      LOG.info(formatForLog("Aborting process: %s", getTitle()));
-      aborting = true;
       onStatusChange();
       thread.interrupt();
     }
@@ -250,10 +608,8 @@ public class DefaultProcessor implements Processor {
      *
      * @param ex output exception
      */
-    private void onError(DataOutputException ex) {
-      listeners.forEach(l -> {
-        l.onError(ex);
-      });
+    protected void onError(DataOutputException ex) {
+      eventBus.publish(l -> l.onError(ex));
     }
 
     /**
@@ -261,10 +617,8 @@ public class DefaultProcessor implements Processor {
      *
      * @param ex processor exception
      */
-    private void onError(DataProcessorException ex) {
-      listeners.forEach(l -> {
-        l.onError(ex);
-      });
+    protected void onError(DataProcessorException ex) {
+      eventBus.publish(l -> l.onError(ex));
     }
 
     /**
@@ -272,8 +626,8 @@ public class DefaultProcessor implements Processor {
      *
      * @param ex input exception
      */
-    private void onError(DataInputException ex) {
-      listeners.forEach(l -> l.onError(ex));
+    protected void onError(DataInputException ex) {
+      eventBus.publish(l -> l.onError(ex));
     }
 
     /**
@@ -282,8 +636,8 @@ public class DefaultProcessor implements Processor {
      * @param dataRef data reference
      * @param status publishing status
      */
-    private void onSuccess(DataReference dataRef, PublishingStatus status) {
-      listeners.forEach(l -> l.onDataProcessed(dataRef, status));
+    protected void onSuccess(DataReference dataRef, PublishingStatus status) {
+      onProgress(l -> l.onDataProcessed(dataRef, status));
     }
 
     /**
@@ -291,8 +645,22 @@ public class DefaultProcessor implements Processor {
      *
      * @param dataRef data reference
      */
-    private void onAcquire(DataReference dataRef) {
-      listeners.forEach(l -> l.onDataAcquired(dataRef));
+    protected void onAcquire(DataReference dataRef) {
+      onProgress(l -> l.onDataAcquired(dataRef));
+    }
+    
+    /**
+     * Publishes progress event. Progress event may be dropped if processor is
+     * configured to use lossy events and events buffer is full.
+     * 
+     * @param event event
+     */
+    private void onProgress(Consumer<ProcessInstance.Listener> event) {
+      if (eventsLossy) {
+        eventBus.offer(event);
+      } else {
+        eventBus.publish(event);
+      }
     }
 
     /**
@@ -300,7 +668,7 @@ public class DefaultProcessor implements Processor {
      */
     private void onStatusChange() {
       Status status = getStatus();
-      listeners.forEach(l -> l.onStatusChange(status));
+      eventBus.publish(l -> l.onStatusChange(status));
     }
 
     @Override
@@ -22,7 +22,6 @@ import com.esri.geoportal.harvester.api.FilterInstance;
 import com.esri.geoportal.harvester.api.Processor;
 import com.esri.geoportal.harvester.api.Transformer;
 import com.esri.geoportal.harvester.api.TransformerInstance;
-import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
 import com.esri.geoportal.harvester.api.base.FilterLinkActionAdaptor;
 import com.esri.geoportal.harvester.api.base.SimpleInitContext;
 import com.esri.geoportal.harvester.api.base.SimpleLink;
@@ -49,8 +48,13 @@ import com.esri.geoportal.harvester.engine.registers.InboundConnectorRegistry;
 import com.esri.geoportal.harvester.engine.registers.OutboundConnectorRegistry;
 import com.esri.geoportal.harvester.engine.registers.ProcessorRegistry;
 import com.esri.geoportal.harvester.engine.registers.TransformerRegistry;
+import com.esri.geoportal.harvester.engine.transformers.XsltTransformer;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.MeteredLinkAction;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.ResilientLinkAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -61,11 +65,14 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Default tasks service.
  */
 public class DefaultTasksService implements TasksService {
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultTasksService.class);
   protected final InboundConnectorRegistry inboundConnectorRegistry;
   protected final OutboundConnectorRegistry outboundConnectorRegistry;
   protected final TransformerRegistry transformerRegistry;
@@ -221,7 +228,7 @@ public class DefaultTasksService implements TasksService {
     
     Processor processor = newProcessor(taskDefinition.getProcessor());
     
-    return new Task(taskDefinition.getName(), taskDefinition.getRef(), processor, dataSource, dataDestinations, taskDefinition.getKeywords(), taskDefinition.isIncremental(), taskDefinition.isIgnoreRobotsTxt());
+    return new Task(taskDefinition.getName(), taskDefinition.getRef(), processor, taskDefinition.getProcessor(), dataSource, dataDestinations, taskDefinition.getKeywords(), taskDefinition.isIncremental(), taskDefinition.isIgnoreRobotsTxt());
   }
   
   /**
@@ -231,7 +238,7 @@ public class DefaultTasksService implements TasksService {
    * @throws InvalidDefinitionException if invalid definition
    */
   private Processor newProcessor(EntityDefinition processorDefinition) throws InvalidDefinitionException {
-    Processor processor = processorDefinition == null
+    Processor processor = processorDefinition == null || DefaultProcessor.TYPE.equals(processorDefinition.getType())
             ? processorRegistry.getDefaultProcessor()
             : processorRegistry.get(processorDefinition.getType()) != null
             ? processorRegistry.get(processorDefinition.getType())
@@ -265,14 +272,84 @@ public class DefaultTasksService implements TasksService {
    * @throws InvalidDefinitionException if invalid definition
    */
   private Link newLink(LinkDefinition linkDefinition) throws InvalidDefinitionException,TimeoutException,ExecutionException,InterruptedException {
+    Link chainLink = newChainLink(linkDefinition);
+    if (chainLink!=null) {
+      return chainLink;
+    }
     LinkAction linkAction = newLinkAction(linkDefinition.getAction());
+    return new SimpleLink(linkAction, newDrains(linkDefinition));
+  }
+  
+  /**
+   * Creates drains of the link.
+   * @param linkDefinition link definition
+   * @return list of drains
+   * @throws InvalidDefinitionException if invalid definition
+   */
+  private List<Link> newDrains(LinkDefinition linkDefinition) throws InvalidDefinitionException,TimeoutException,ExecutionException,InterruptedException {
     ArrayList<Link> drains = new ArrayList<>();
     if (linkDefinition.getDrains()!=null) {
       for (LinkDefinition drainDef: linkDefinition.getDrains()) {
         drains.add(newLink(drainDef));
       }
     }
-    return new SimpleLink(linkAction, drains);
+    return drains;
+  }
+  
+  /**
+   * Creates link executing consecutive XSLT transformations as a single 
+   * transformation. Link qualifies if its action is XSLT transformation with a 
+   * single drain being XSLT transformation as well.
+   * @param linkDefinition link definition
+   * @return chain link or <code>null</code> if link doesn't start a chain of transformations
+   * @throws InvalidDefinitionException if invalid definition
+   */
+  private Link newChainLink(LinkDefinition linkDefinition) throws InvalidDefinitionException,TimeoutException,ExecutionException,InterruptedException {
+    XsltTransformer xsltTransformer = getXsltTransformer(linkDefinition.getAction());
+    if (xsltTransformer==null) {
+      return null;
+    }
+    List<EntityDefinition> chain = new ArrayList<>();
+    chain.add(linkDefinition.getAction());
+    LinkDefinition tail = linkDefinition;
+    while (tail.getDrains()!=null && tail.getDrains().size()==1 && getXsltTransformer(tail.getDrains().get(0).getAction())!=null) {
+      tail = tail.getDrains().get(0);
+      chain.add(tail.getAction());
+    }
+    if (chain.size()<2) {
+      return null;
+    }
+    TransformerInstance transformerInstance;
+    try {
+      transformerInstance = xsltTransformer.createChainInstance(chain);
+    } catch (InvalidDefinitionException ex) {
+      LOG.debug(String.format("Unable to chain transformations; executing them one by one."), ex);
+      return null;
+    }
+    String name = chain.stream().map(this::getActionName).collect(Collectors.joining(" --> "));
+    return new ChainLink(new MeteredLinkAction(new TransformerLinkActionAdaptor(transformerInstance), ProcessMetrics.Stage.transform, name), newDrains(tail), chain);
+  }
+  
+  /**
+   * Gets name of the action used to report metrics.
+   * @param actionDefinition action definition
+   * @return action name
+   */
+  private String getActionName(EntityDefinition actionDefinition) {
+    return StringUtils.isNotBlank(actionDefinition.getLabel())? actionDefinition.getLabel(): actionDefinition.getType();
+  }
+  
+  /**
+   * Gets XSLT transformer for the action definition.
+   * @param actionDefinition action definition
+   * @return XSLT transformer or <code>null</code> if action is not XSLT transformation
+   */
+  private XsltTransformer getXsltTransformer(EntityDefinition actionDefinition) {
+    if (actionDefinition==null || outboundConnectorRegistry.get(actionDefinition.getType())!=null || filterRegistry.get(actionDefinition.getType())!=null) {
+      return null;
+    }
+    Transformer transformer = transformerRegistry.get(actionDefinition.getType());
+    return transformer instanceof XsltTransformer? (XsltTransformer)transformer: null;
   }
   
   /**
@@ -285,19 +362,19 @@ public class DefaultTasksService implements TasksService {
     OutputConnector<OutputBroker> outputConnector = outboundConnectorRegistry.get(actionDefinition.getType());
     if (outputConnector!=null) {
       OutputBroker broker = outputConnector.createBroker(actionDefinition);
-      return new BrokerLinkActionAdaptor(broker);
+      return new MeteredLinkAction(new ResilientLinkAction(broker, getActionName(actionDefinition)), ProcessMetrics.Stage.publish, getActionName(actionDefinition));
     }
     
     Filter filter = filterRegistry.get(actionDefinition.getType());
     if (filter!=null) {
       FilterInstance filterInstance = filter.createInstance(actionDefinition);
-      return new FilterLinkActionAdaptor(filterInstance);
+      return new MeteredLinkAction(new FilterLinkActionAdaptor(filterInstance), ProcessMetrics.Stage.filter, getActionName(actionDefinition));
     }
     
     Transformer transformer = transformerRegistry.get(actionDefinition.getType());
     if (transformer!=null) {
       TransformerInstance transformerInstance = transformer.createInstance(actionDefinition);
-      return new TransformerLinkActionAdaptor(transformerInstance);
+      return new MeteredLinkAction(new TransformerLinkActionAdaptor(transformerInstance), ProcessMetrics.Stage.transform, getActionName(actionDefinition));
     }
     
     throw new InvalidDefinitionException(String.format("Error creating link action for: %s", actionDefinition.getType()));
@@ -346,4 +423,39 @@ public class DefaultTasksService implements TasksService {
     
     return updated;
   }
+
+  /**
+   * Chain link. Executes chain of transformations as a single action while 
+   * exposing link definition of each transformation.
+   */
+  private static class ChainLink extends SimpleLink {
+    private final List<Link> drains;
+    private final List<EntityDefinition> chain;
+
+    /**
+     * Creates instance of the link.
+     * @param action action executing chain of transformations
+     * @param drains drains of the last transformation
+     * @param chain definitions of the transformations
+     */
+    public ChainLink(LinkAction action, List<Link> drains, List<EntityDefinition> chain) {
+      super(action, drains);
+      this.drains = drains;
+      this.chain = chain;
+    }
+
+    @Override
+    public LinkDefinition getLinkDefinition() {
+      LinkDefinition linkDef = new LinkDefinition();
+      linkDef.setAction(chain.get(chain.size()-1));
+      linkDef.setDrains(drains.stream().map(d->d.getLinkDefinition()).collect(Collectors.toList()));
+      for (int i=chain.size()-2; i>=0; i--) {
+        LinkDefinition prevDef = new LinkDefinition();
+        prevDef.setAction(chain.get(i));
+        prevDef.setDrains(new ArrayList<>(Arrays.asList(linkDef)));
+        linkDef = prevDef;
+      }
+      return linkDef;
+    }
+  }
 }
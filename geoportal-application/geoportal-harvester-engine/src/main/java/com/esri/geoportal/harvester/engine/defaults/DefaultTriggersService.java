@@ -26,6 +26,8 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.engine.managers.History;
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager;
+import com.esri.geoportal.harvester.engine.managers.ClusterManager;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
 import com.esri.geoportal.harvester.engine.services.ExecutionService;
 import com.esri.geoportal.harvester.engine.services.TriggersService;
@@ -34,9 +36,12 @@ import com.esri.geoportal.harvester.engine.managers.TriggerInstanceManager.TaskU
 import com.esri.geoportal.harvester.engine.managers.TriggerManager;
 import com.esri.geoportal.harvester.engine.registers.TriggerRegistry;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.CheckpointManagerAdaptor;
 import com.esri.geoportal.harvester.engine.utils.HistoryManagerAdaptor;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import com.esri.geoportal.harvester.engine.utils.ScheduleReference;
 import com.esri.geoportal.harvester.engine.utils.TriggerReference;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -51,15 +56,24 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Default triggers service.
+ * <p>
+ * Owns a single {@link TriggerScheduler} shared by all the trigger instances
+ * it activates. With {@link ClusterManager} each trigger instance is leased to
+ * a single node of the cluster; other nodes skip its occurrences until the
+ * lease expires.
  */
 public class DefaultTriggersService implements TriggersService {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultTriggersService.class);
+  private static final long DEFAULT_CLAIM_RETRY_DELAY = 120000;
   
   protected final TriggerRegistry triggerRegistry;
   protected final TriggerManager triggerManager;
   protected final HistoryManager historyManager;
   protected final TriggerInstanceManager triggerInstanceManager;
   protected final ExecutionService executionService;
+  protected final CheckpointManager checkpointManager;
+  protected final TriggerScheduler triggerScheduler;
+  protected final ClusterManager clusterManager;
 
   /**
    * Creates instance of the service.
@@ -68,13 +82,58 @@ public class DefaultTriggersService implements TriggersService {
    * @param historyManager history manager
    * @param triggerInstanceManager trigger instance manager
    * @param executionService execution service
+   * @param checkpointManager checkpoint manager (optional)
+   * @param triggerScheduler trigger scheduler
+   * @param clusterManager cluster manager (optional)
    */
-  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService) {
+  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService, CheckpointManager checkpointManager, TriggerScheduler triggerScheduler, ClusterManager clusterManager) {
     this.triggerRegistry = triggerRegistry;
     this.triggerManager = triggerManager;
     this.historyManager = historyManager;
     this.triggerInstanceManager = triggerInstanceManager;
     this.executionService = executionService;
+    this.checkpointManager = checkpointManager;
+    this.triggerScheduler = triggerScheduler;
+    this.clusterManager = clusterManager;
+  }
+
+  /**
+   * Creates instance of the service.
+   * @param triggerRegistry trigger registry
+   * @param triggerManager trigger manager
+   * @param historyManager history manager
+   * @param triggerInstanceManager trigger instance manager
+   * @param executionService execution service
+   * @param checkpointManager checkpoint manager (optional)
+   * @param triggerScheduler trigger scheduler
+   */
+  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService, CheckpointManager checkpointManager, TriggerScheduler triggerScheduler) {
+    this(triggerRegistry, triggerManager, historyManager, triggerInstanceManager, executionService, checkpointManager, triggerScheduler, null);
+  }
+
+  /**
+   * Creates instance of the service.
+   * @param triggerRegistry trigger registry
+   * @param triggerManager trigger manager
+   * @param historyManager history manager
+   * @param triggerInstanceManager trigger instance manager
+   * @param executionService execution service
+   * @param checkpointManager checkpoint manager (optional)
+   */
+  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService, CheckpointManager checkpointManager) {
+    this(triggerRegistry, triggerManager, historyManager, triggerInstanceManager, executionService, checkpointManager, new TriggerScheduler());
+  }
+
+  /**
+   * Creates instance of the service.
+   * @param triggerRegistry trigger registry
+   * @param triggerManager trigger manager
+   * @param historyManager history manager
+   * @param triggerInstanceManager trigger instance manager
+   * @param executionService execution service
+   */
+  public DefaultTriggersService(TriggerRegistry triggerRegistry, TriggerManager triggerManager, HistoryManager historyManager, TriggerInstanceManager triggerInstanceManager, ExecutionService executionService) {
+    this(triggerRegistry, triggerManager, historyManager, triggerInstanceManager, executionService, null);
   }
 
   @Override
@@ -111,6 +170,13 @@ public class DefaultTriggersService implements TriggersService {
       } catch (CrudlException ex) {
         LOG.warn(formatForLog("Error deleting trigger: %s", triggerInstanceUuid), ex);
       }
+      if (clusterManager!=null) {
+        try {
+          clusterManager.release(leaseKey(triggerInstanceUuid));
+        } catch (CrudlException ex) {
+          LOG.warn(formatForLog("Error releasing trigger lease: %s", triggerInstanceUuid), ex);
+        }
+      }
     }
   }
 
@@ -128,6 +194,14 @@ public class DefaultTriggersService implements TriggersService {
             .map(e->new TriggerReference(e.getKey(), e.getValue().getTaskId(), e.getValue().getTriggerInstance().getTriggerDefinition()))
             .collect(Collectors.toList());
   }
+
+  @Override
+  public List<ScheduleReference> listScheduled() {
+    return triggerScheduler.list().stream()
+            .filter(t->t.getAttachment() instanceof TriggerReference)
+            .map(t->new ScheduleReference((TriggerReference)t.getAttachment(), new Date(t.getFireTime())))
+            .collect(Collectors.toList());
+  }
   
   
   @Override
@@ -149,7 +223,7 @@ public class DefaultTriggersService implements TriggersService {
           pair2.setTriggerInstance(triggerInstance);
           triggerInstanceManager.put(uuid, pair2);
           
-          TriggerInstance.Context context = new TriggerContext(definition.getTaskUuid());
+          TriggerInstance.Context context = new TriggerContext(uuid, definition.getTaskUuid(), definition.getTriggerDefinition());
           triggerInstance.activate(context);
         } catch (DataProcessorException|InvalidDefinitionException ex) {
           LOG.warn(formatForLog("Error creating and activating trigger instance: %s -> %s", uuid, definition), ex);
@@ -189,7 +263,7 @@ public class DefaultTriggersService implements TriggersService {
       pair2.setTriggerInstance(triggerInstance);
       triggerInstanceManager.put(uuid, pair2);
       
-      TriggerContext context = new TriggerContext(taskId);
+      TriggerContext context = new TriggerContext(uuid, taskId, trigDef);
       triggerInstance.activate(context);
       return new TriggerReference(uuid, taskId, trigDef);
     } catch (CrudlException ex) {
@@ -201,20 +275,56 @@ public class DefaultTriggersService implements TriggersService {
     }
   }
   
+  /**
+   * Gets key of the trigger instance lease.
+   * @param triggerInstanceUuid trigger instance uuid
+   * @return lease key
+   */
+  private static String leaseKey(UUID triggerInstanceUuid) {
+    return String.format("trigger:%s", triggerInstanceUuid);
+  }
+  
   /**
    * DefaultEngine-bound trigger context.
    */
-  private class TriggerContext implements TriggerInstance.Context {
+  private class TriggerContext implements TriggerScheduler.Context {
+    private final TriggerReference triggerReference;
     private final UUID taskId;
     
     /**
      * Creates instance of the context.
+     * @param uuid trigger instance uuid
      * @param taskId task id
+     * @param trigDef trigger instance definition
      */
-    public TriggerContext(UUID taskId) {
+    public TriggerContext(UUID uuid, UUID taskId, TriggerDefinition trigDef) {
+      this.triggerReference = new TriggerReference(uuid, taskId, trigDef);
       this.taskId = taskId;
     }
 
+    @Override
+    public TriggerScheduler.Timeout schedule(Runnable action, Date fireTime) {
+      return triggerScheduler.schedule(action, fireTime, triggerReference);
+    }
+
+    @Override
+    public boolean claim() {
+      if (clusterManager==null) {
+        return true;
+      }
+      try {
+        return clusterManager.acquire(leaseKey(triggerReference.getUuid()));
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error acquiring trigger lease; occurrence skipped: %s", triggerReference.getUuid()), ex);
+        return false;
+      }
+    }
+
+    @Override
+    public long getClaimRetryDelay() {
+      return clusterManager!=null? clusterManager.getLeaseTime(): DEFAULT_CLAIM_RETRY_DELAY;
+    }
+
     @Override
     public synchronized ProcessInstance execute(TaskDefinition taskDefinition) throws DataProcessorException, InvalidDefinitionException,TimeoutException,ExecutionException,InterruptedException {
       SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
@@ -222,6 +332,9 @@ public class DefaultTriggersService implements TriggersService {
       ProcessReference ref = executionService.execute(taskDefinition,iteratorContext);
       if (taskId!=null) {
         ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref, historyManager));
+        if (checkpointManager!=null) {
+          ref.getProcess().addListener(new CheckpointManagerAdaptor(taskId, ref, iteratorContext.getLastHarvestDate(), checkpointManager));
+        }
       }
       ref.getProcess().init();
       return ref.getProcess();
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Checkpoint manager.
+ * <p>
+ * Keeps the last checkpoint of the process executing a task, so the task can
+ * be resumed instead of being started from the beginning.
+ */
+public interface CheckpointManager {
+
+  /**
+   * Stores checkpoint for the task replacing previous one.
+   * @param taskId task id
+   * @param checkpoint checkpoint
+   * @throws CrudlException if storing checkpoint fails
+   */
+  void store(UUID taskId, Checkpoint checkpoint) throws CrudlException;
+
+  /**
+   * Reads checkpoint of the task.
+   * @param taskId task id
+   * @return checkpoint or <code>null</code> if no checkpoint
+   * @throws CrudlException if reading checkpoint fails
+   */
+  Checkpoint read(UUID taskId) throws CrudlException;
+
+  /**
+   * Deletes checkpoint of the task.
+   * @param taskId task id
+   * @return <code>true</code> if checkpoint has been deleted
+   * @throws CrudlException if deleting checkpoint fails
+   */
+  boolean delete(UUID taskId) throws CrudlException;
+
+  /**
+   * Checkpoint.
+   */
+  final class Checkpoint {
+    private UUID processId;
+    private String cursor;
+    private Date lastHarvestDate;
+    private Date timestamp;
+
+    /**
+     * Gets process id.
+     * @return process id
+     */
+    public UUID getProcessId() {
+      return processId;
+    }
+
+    /**
+     * Sets process id.
+     * @param processId process id
+     */
+    public void setProcessId(UUID processId) {
+      this.processId = processId;
+    }
+
+    /**
+     * Gets iterator cursor.
+     * @return iterator cursor
+     */
+    public String getCursor() {
+      return cursor;
+    }
+
+    /**
+     * Sets iterator cursor.
+     * @param cursor iterator cursor
+     */
+    public void setCursor(String cursor) {
+      this.cursor = cursor;
+    }
+
+    /**
+     * Gets last harvest date used by the process.
+     * @return last harvest date or <code>null</code> if full harvest
+     */
+    public Date getLastHarvestDate() {
+      return lastHarvestDate;
+    }
+
+    /**
+     * Sets last harvest date used by the process.
+     * @param lastHarvestDate last harvest date
+     */
+    public void setLastHarvestDate(Date lastHarvestDate) {
+      this.lastHarvestDate = lastHarvestDate;
+    }
+
+    /**
+     * Gets checkpoint timestamp.
+     * @return checkpoint timestamp
+     */
+    public Date getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * Sets checkpoint timestamp.
+     * @param timestamp checkpoint timestamp
+     */
+    public void setTimestamp(Date timestamp) {
+      this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("CHECKPOINT :: process: %s, timestamp: %s", processId, timestamp);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cluster manager.
+ * <p>
+ * Coordinates nodes sharing the same storage. A lease is held by a single node
+ * as long as the node is alive; once the node stops renewing it, the lease
+ * expires and any other node may acquire it. Each node also publishes its
+ * running processes, so they are visible from any node.
+ */
+public interface ClusterManager {
+
+  /**
+   * Gets id of this node.
+   * @return node id
+   */
+  String getNodeId();
+
+  /**
+   * Gets lease time; lease of a node which stopped renewing it expires after
+   * this time.
+   * @return lease time (ms)
+   */
+  long getLeaseTime();
+
+  /**
+   * Acquires lease for this node. Lease already held by this node is renewed.
+   * @param key lease key
+   * @return <code>true</code> if lease is held by this node
+   * @throws CrudlException if acquiring lease fails
+   */
+  boolean acquire(String key) throws CrudlException;
+
+  /**
+   * Releases lease held by this node.
+   * @param key lease key
+   * @throws CrudlException if releasing lease fails
+   */
+  void release(String key) throws CrudlException;
+
+  /**
+   * Lists running processes of all the nodes.
+   * @return list of processes
+   * @throws CrudlException if listing processes fails
+   */
+  List<NodeProcess> listProcesses() throws CrudlException;
+
+  /**
+   * Process running on a node.
+   */
+  final class NodeProcess {
+    private UUID uuid;
+    private String nodeId;
+    private String taskId;
+    private String name;
+    private ProcessInstance.Status status;
+    private Date updated;
+
+    /**
+     * Gets process id.
+     * @return process id
+     */
+    public UUID getUuid() {
+      return uuid;
+    }
+
+    /**
+     * Sets process id.
+     * @param uuid process id
+     */
+    public void setUuid(UUID uuid) {
+      this.uuid = uuid;
+    }
+
+    /**
+     * Gets id of the node running the process.
+     * @return node id
+     */
+    public String getNodeId() {
+      return nodeId;
+    }
+
+    /**
+     * Sets id of the node running the process.
+     * @param nodeId node id
+     */
+    public void setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+    }
+
+    /**
+     * Gets task id.
+     * @return task id or <code>null</code> if no task id
+     */
+    public String getTaskId() {
+      return taskId;
+    }
+
+    /**
+     * Sets task id.
+     * @param taskId task id
+     */
+    public void setTaskId(String taskId) {
+      this.taskId = taskId;
+    }
+
+    /**
+     * Gets task name.
+     * @return task name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Sets task name.
+     * @param name task name
+     */
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Gets process status.
+     * @return process status
+     */
+    public ProcessInstance.Status getStatus() {
+      return status;
+    }
+
+    /**
+     * Sets process status.
+     * @param status process status
+     */
+    public void setStatus(ProcessInstance.Status status) {
+      this.status = status;
+    }
+
+    /**
+     * Gets time when the process has been published last time.
+     * @return update time
+     */
+    public Date getUpdated() {
+      return updated;
+    }
+
+    /**
+     * Sets time when the process has been published last time.
+     * @param updated update time
+     */
+    public void setUpdated(Date updated) {
+      this.updated = updated;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("NODE PROCESS :: uuid: %s, node: %s, task: %s, status: %s, updated: %s", uuid, nodeId, taskId, status, updated);
+    }
+  }
+}
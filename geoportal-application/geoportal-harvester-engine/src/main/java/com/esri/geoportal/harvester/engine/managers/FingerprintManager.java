@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.UUID;
+
+/**
+ * Fingerprint manager.
+ * <p>
+ * Keeps fingerprint of the content of each record published by the task, so
+ * the records which didn't change since the last harvest can be skipped.
+ */
+public interface FingerprintManager {
+
+  /**
+   * Opens session for the task. Session is used by a single process.
+   * @param taskId task id
+   * @return session
+   * @throws CrudlException if opening session fails
+   */
+  Session open(UUID taskId) throws CrudlException;
+
+  /**
+   * Deletes all fingerprints of the task.
+   * @param taskId task id
+   * @throws CrudlException if deleting fingerprints fails
+   */
+  void purge(UUID taskId) throws CrudlException;
+
+  /**
+   * Fingerprints session.
+   */
+  interface Session extends AutoCloseable {
+
+    /**
+     * Reads fingerprint of the record.
+     * @param recordId record id
+     * @return fingerprint or <code>null</code> if no fingerprint
+     * @throws CrudlException if reading fingerprint fails
+     */
+    String read(String recordId) throws CrudlException;
+
+    /**
+     * Stores fingerprint of the record and marks record as seen.
+     * @param recordId record id
+     * @param fingerprint fingerprint
+     * @throws CrudlException if storing fingerprint fails
+     */
+    void store(String recordId, String fingerprint) throws CrudlException;
+
+    /**
+     * Marks record as seen.
+     * @param recordId record id
+     * @throws CrudlException if updating fingerprint fails
+     */
+    void touch(String recordId) throws CrudlException;
+
+    /**
+     * Closes session. Writes all pending changes.
+     * @throws CrudlException if writing changes fails
+     */
+    @Override
+    void close() throws CrudlException;
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.managers;
+
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Work manager.
+ * <p>
+ * Keeps work shared by the nodes of the cluster: distributed jobs, each split
+ * into partitions of data ids, and the reports of the completed partitions.
+ */
+public interface WorkManager {
+
+  /**
+   * Creates job.
+   * @param job job
+   * @throws CrudlException if creating job fails
+   */
+  void createJob(Job job) throws CrudlException;
+
+  /**
+   * Reads job.
+   * @param jobId job id
+   * @return job or <code>null</code> if no job
+   * @throws CrudlException if reading job fails
+   */
+  Job readJob(UUID jobId) throws CrudlException;
+
+  /**
+   * Deletes job with all its partitions.
+   * @param jobId job id
+   * @throws CrudlException if deleting job fails
+   */
+  void deleteJob(UUID jobId) throws CrudlException;
+
+  /**
+   * Adds partition to the job.
+   * @param jobId job id
+   * @param index partition index
+   * @param ids fetchable data ids
+   * @throws CrudlException if adding partition fails
+   */
+  void addPartition(UUID jobId, int index, List<String> ids) throws CrudlException;
+
+  /**
+   * Reads data ids of the partition.
+   * @param jobId job id
+   * @param index partition index
+   * @return list of fetchable data ids
+   * @throws CrudlException if reading partition fails
+   */
+  List<String> readPartition(UUID jobId, int index) throws CrudlException;
+
+  /**
+   * Lists partitions not completed yet of all the jobs.
+   * @return list of partitions
+   * @throws CrudlException if listing partitions fails
+   */
+  List<Partition> listOpenPartitions() throws CrudlException;
+
+  /**
+   * Closes the job; no more partitions will be added.
+   * @param jobId job id
+   * @param partitions total number of partitions
+   * @return <code>true</code> if all the partitions are already completed and this call finished the job
+   * @throws CrudlException if closing job fails
+   */
+  boolean closeJob(UUID jobId, int partitions) throws CrudlException;
+
+  /**
+   * Completes partition.
+   * @param jobId job id
+   * @param index partition index
+   * @param report partition report
+   * @return <code>true</code> if job is closed and this call finished the job
+   * @throws CrudlException if completing partition fails
+   */
+  boolean completePartition(UUID jobId, int index, History.Report report) throws CrudlException;
+
+  /**
+   * Lists reports of the completed partitions of the job.
+   * @param jobId job id
+   * @return list of reports
+   * @throws CrudlException if listing reports fails
+   */
+  List<History.Report> listReports(UUID jobId) throws CrudlException;
+
+  /**
+   * Distributed job.
+   */
+  final class Job {
+    private UUID uuid;
+    private UUID taskId;
+    private TaskDefinition taskDefinition;
+    private Date startTimestamp;
+    private Integer partitions;
+    private int completed;
+
+    /**
+     * Gets job id; it is also id of the history event of the job.
+     * @return job id
+     */
+    public UUID getUuid() {
+      return uuid;
+    }
+
+    /**
+     * Sets job id.
+     * @param uuid job id
+     */
+    public void setUuid(UUID uuid) {
+      this.uuid = uuid;
+    }
+
+    /**
+     * Gets task id.
+     * @return task id
+     */
+    public UUID getTaskId() {
+      return taskId;
+    }
+
+    /**
+     * Sets task id.
+     * @param taskId task id
+     */
+    public void setTaskId(UUID taskId) {
+      this.taskId = taskId;
+    }
+
+    /**
+     * Gets task definition.
+     * @return task definition
+     */
+    public TaskDefinition getTaskDefinition() {
+      return taskDefinition;
+    }
+
+    /**
+     * Sets task definition.
+     * @param taskDefinition task definition
+     */
+    public void setTaskDefinition(TaskDefinition taskDefinition) {
+      this.taskDefinition = taskDefinition;
+    }
+
+    /**
+     * Gets start timestamp.
+     * @return start timestamp
+     */
+    public Date getStartTimestamp() {
+      return startTimestamp;
+    }
+
+    /**
+     * Sets start timestamp.
+     * @param startTimestamp start timestamp
+     */
+    public void setStartTimestamp(Date startTimestamp) {
+      this.startTimestamp = startTimestamp;
+    }
+
+    /**
+     * Gets total number of partitions.
+     * @return total number of partitions or <code>null</code> if the job is still being partitioned
+     */
+    public Integer getPartitions() {
+      return partitions;
+    }
+
+    /**
+     * Sets total number of partitions.
+     * @param partitions total number of partitions
+     */
+    public void setPartitions(Integer partitions) {
+      this.partitions = partitions;
+    }
+
+    /**
+     * Gets number of completed partitions.
+     * @return number of completed partitions
+     */
+    public int getCompleted() {
+      return completed;
+    }
+
+    /**
+     * Sets number of completed partitions.
+     * @param completed number of completed partitions
+     */
+    public void setCompleted(int completed) {
+      this.completed = completed;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("JOB :: uuid: %s, taskId: %s, partitions: %s, completed: %d", uuid, taskId, partitions, completed);
+    }
+  }
+
+  /**
+   * Partition of the job.
+   */
+  final class Partition {
+    private final UUID jobId;
+    private final int index;
+
+    /**
+     * Creates instance of the partition.
+     * @param jobId job id
+     * @param index partition index
+     */
+    public Partition(UUID jobId, int index) {
+      this.jobId = jobId;
+      this.index = index;
+    }
+
+    /**
+     * Gets job id.
+     * @return job id
+     */
+    public UUID getJobId() {
+      return jobId;
+    }
+
+    /**
+     * Gets partition index.
+     * @return partition index
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("PARTITION :: job: %s, index: %d", jobId, index);
+    }
+  }
+}
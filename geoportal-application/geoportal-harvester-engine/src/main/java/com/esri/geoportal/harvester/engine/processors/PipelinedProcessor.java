@@ -0,0 +1,513 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.processors;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.defs.UITemplate;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
+import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor;
+import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor.DefaultProcess;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import com.esri.geoportal.harvester.engine.utils.DestinationStatistics;
+import com.esri.geoportal.harvester.engine.utils.ProcessScheduler;
+import com.esri.geoportal.harvester.engine.utils.ResilientLinkAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.owasp.esapi.ESAPI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pipelined processor.
+ * <p>
+ * Reads data from the input broker on a single thread and hands it over through
+ * a bounded queue to a pool of workers pushing data to the destination. Each 
+ * destination has its own queue and workers. Number of workers and size of the 
+ * queue are taken from the processor definition within the task definition:
+   <pre><code>
+   "processor": {
+     "type": "PIPELINED",
+     "properties": {
+       "p-workers": "8",
+       "p-queue-size": "100",
+       "p-batch-size": "500",
+       "p-batch-timeout": "1000"
+     }
+   }
+   </code></pre>
+ * If batch size is greater than one, workers collect up to that many records,
+ * waiting no longer than batch timeout (in milliseconds), and push them as a
+ * single batch. Batches are collected only for destinations whose output 
+ * brokers support batches; other destinations publish records one by one.
+ */
+public class PipelinedProcessor implements Processor {
+  private static final Logger LOG = LoggerFactory.getLogger(PipelinedProcessor.class);
+
+  public static final String TYPE = "PIPELINED";
+  public static final String P_WORKERS = "p-workers";
+  public static final String P_QUEUE_SIZE = "p-queue-size";
+  public static final String P_BATCH_SIZE = "p-batch-size";
+  public static final String P_BATCH_TIMEOUT = "p-batch-timeout";
+
+  public static final int DEFAULT_WORKERS = 4;
+  public static final int DEFAULT_QUEUE_SIZE = 100;
+  public static final int DEFAULT_BATCH_SIZE = 1;
+  public static final int DEFAULT_BATCH_TIMEOUT = 1000;
+  
+  private final FingerprintManager fingerprintManager;
+
+  /**
+   * Creates instance of the processor.
+   * @param fingerprintManager fingerprint manager
+   */
+  public PipelinedProcessor(FingerprintManager fingerprintManager) {
+    this.fingerprintManager = fingerprintManager;
+  }
+
+  /**
+   * Creates instance of the processor without change detection.
+   */
+  public PipelinedProcessor() {
+    this(null);
+  }
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public UITemplate getTemplate(Locale locale) {
+    ResourceBundle bundle = ResourceBundle.getBundle("EngineResource", locale);
+    List<UITemplate.Argument> arguments = new ArrayList<>();
+    arguments.add(new UITemplate.IntegerArgument(P_WORKERS, bundle.getString("engine.processors.pipelined.workers"), false, DEFAULT_WORKERS));
+    arguments.add(new UITemplate.IntegerArgument(P_QUEUE_SIZE, bundle.getString("engine.processors.pipelined.queueSize"), false, DEFAULT_QUEUE_SIZE));
+    arguments.add(new UITemplate.IntegerArgument(P_BATCH_SIZE, bundle.getString("engine.processors.pipelined.batchSize"), false, DEFAULT_BATCH_SIZE));
+    arguments.add(new UITemplate.IntegerArgument(P_BATCH_TIMEOUT, bundle.getString("engine.processors.pipelined.batchTimeout"), false, DEFAULT_BATCH_TIMEOUT));
+    arguments.add(new UITemplate.IntegerArgument(DefaultProcessor.P_PREFETCH, bundle.getString("engine.processors.prefetch"), false, 0));
+    arguments.add(new UITemplate.IntegerArgument(ProcessScheduler.P_PRIORITY, bundle.getString("engine.processors.priority"), false, 0));
+    arguments.add(new UITemplate.IntegerArgument(DefaultProcessor.P_EVENTS_BUFFER, bundle.getString("engine.processors.eventsBuffer"), false, DefaultProcessor.DEFAULT_EVENTS_BUFFER));
+    arguments.add(new UITemplate.BooleanArgument(DefaultProcessor.P_EVENTS_LOSSY, bundle.getString("engine.processors.eventsLossy")));
+    arguments.add(new UITemplate.IntegerArgument(DefaultProcessor.P_CHECKPOINT_INTERVAL, bundle.getString("engine.processors.checkpointInterval"), false, DefaultProcessor.DEFAULT_CHECKPOINT_INTERVAL));
+    arguments.add(new UITemplate.BooleanArgument(DefaultProcessor.P_SKIP_UNCHANGED, bundle.getString("engine.processors.skipUnchanged")));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_MAX, bundle.getString("engine.processors.retryMax"), false, ResilientLinkAction.DEFAULT_RETRY_MAX));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_BACKOFF, bundle.getString("engine.processors.retryBackoff"), false, ResilientLinkAction.DEFAULT_RETRY_BACKOFF));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_RETRY_BUDGET, bundle.getString("engine.processors.retryBudget"), false, ResilientLinkAction.DEFAULT_RETRY_BUDGET));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_BREAKER_THRESHOLD, bundle.getString("engine.processors.breakerThreshold"), false, ResilientLinkAction.DEFAULT_BREAKER_THRESHOLD));
+    arguments.add(new UITemplate.IntegerArgument(ResilientLinkAction.P_BREAKER_PAUSE, bundle.getString("engine.processors.breakerPause"), false, ResilientLinkAction.DEFAULT_BREAKER_PAUSE));
+    UITemplate uiTemplate = new UITemplate(getType(), bundle.getString("engine.processors.pipelined"), arguments);
+    return uiTemplate;
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition entityDefiniton = new EntityDefinition();
+    entityDefiniton.setType(TYPE);
+    entityDefiniton.setLabel(TYPE);
+    return entityDefiniton;
+  }
+
+  @Override
+  public ProcessInstance createProcess(Task task, IteratorContext iteratorContext) {
+    LOG.info(ESAPI.encoder().encodeForHTML(String.format("SUBMITTING: %s", task)));
+    Map<String, String> properties = task.getProcessorDefinition()!=null? task.getProcessorDefinition().getProperties(): null;
+    int workers = readPositiveInt(properties, P_WORKERS, DEFAULT_WORKERS);
+    int queueSize = readPositiveInt(properties, P_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+    int batchSize = readPositiveInt(properties, P_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    int batchTimeout = readPositiveInt(properties, P_BATCH_TIMEOUT, DEFAULT_BATCH_TIMEOUT);
+    return new PipelinedProcess(task, iteratorContext, fingerprintManager, workers, queueSize, batchSize, batchTimeout);
+  }
+
+  /**
+   * Reads positive integer property.
+   * @param properties properties
+   * @param name property name
+   * @param defaultValue default value
+   * @return property value or default value if property missing or invalid
+   */
+  private static int readPositiveInt(Map<String, String> properties, String name, int defaultValue) {
+    int value = properties!=null? NumberUtils.toInt(properties.get(name), defaultValue): defaultValue;
+    return value > 0? value: defaultValue;
+  }
+
+  /**
+   * Pipelined process.
+   * <p>
+   * Each destination gets its own bounded queue and its own workers, thus a 
+   * slow destination does not hold back the others until its queue is full.
+   * <p>
+   * Since records are published out of order, a checkpoint taken by the reader
+   * becomes effective only after all the records read before it have been 
+   * published to all the destinations.
+   */
+  public static class PipelinedProcess extends DefaultProcess {
+    private static final Logger LOG = LoggerFactory.getLogger(PipelinedProcess.class);
+    private static final long POLL_TIMEOUT = 100;
+
+    private final int workers;
+    private final int batchSize;
+    private final long batchTimeout;
+    private final List<Channel> channels;
+    private final ConcurrentSkipListMap<Long, AtomicInteger> outstanding = new ConcurrentSkipListMap<>();
+    private final Deque<Barrier> barriers = new ArrayDeque<>();
+    private long sequence;
+
+    private volatile boolean exhausted;
+
+    /**
+     * Creates instance of the process.
+     *
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param workers number of publishing workers per destination
+     * @param queueSize size of the queue between the reader and the workers of each destination
+     * @param batchSize maximum number of records pushed at once
+     * @param batchTimeout maximum time (in milliseconds) to wait for a batch to fill up
+     */
+    public PipelinedProcess(Task task, IteratorContext iteratorContext, int workers, int queueSize, int batchSize, long batchTimeout) {
+      this(task, iteratorContext, null, workers, queueSize, batchSize, batchTimeout);
+    }
+
+    /**
+     * Creates instance of the process.
+     *
+     * @param task task
+     * @param iteratorContext iteration context
+     * @param fingerprintManager fingerprint manager or <code>null</code> if no change detection
+     * @param workers number of publishing workers per destination
+     * @param queueSize size of the queue between the reader and the workers of each destination
+     * @param batchSize maximum number of records pushed at once
+     * @param batchTimeout maximum time (in milliseconds) to wait for a batch to fill up
+     */
+    public PipelinedProcess(Task task, IteratorContext iteratorContext, FingerprintManager fingerprintManager, int workers, int queueSize, int batchSize, long batchTimeout) {
+      super(task, iteratorContext, fingerprintManager);
+      this.workers = workers;
+      this.batchSize = batchSize;
+      this.batchTimeout = batchTimeout;
+      this.channels = task.getDataDestinations().stream()
+              .map(d -> new Channel(d, queueSize))
+              .collect(Collectors.toList());
+      this.channels.forEach(getMetrics()::register);
+    }
+
+    @Override
+    protected void harvest(InputBroker.Iterator iterator) throws DataInputException {
+      channels.forEach(Channel::start);
+      try {
+        long acquireStart = System.nanoTime();
+        while (iterator.hasNext()) {
+          if (Thread.currentThread().isInterrupted()) {
+            break;
+          }
+          if (isCheckpointDue()) {
+            barriers.add(new Barrier(sequence, iterator.getCursor()));
+            commitBarriers();
+          }
+
+          DataReference dataReference;
+          try {
+            dataReference = iterator.next();
+          } catch (DataReadException ex) {
+            LOG.warn(formatForLog("Failed reading %s during %s", ex.getFetchableDataId(), getTitle()));
+            onError(ex);
+            acquireStart = System.nanoTime();
+            continue;
+          }
+          getMetrics().acquired(System.nanoTime() - acquireStart);
+          onAcquire(dataReference);
+          String fingerprint = fingerprint(dataReference);
+          if (isUnchanged(dataReference, fingerprint)) {
+            onSkip(dataReference);
+            countBytes(dataReference);
+            dataReference.release();
+          } else {
+            Entry entry = new Entry(dataReference, fingerprint, sequence++);
+            outstanding.put(entry.sequence, new AtomicInteger(channels.size()));
+            for (Channel channel: channels) {
+              channel.put(entry);
+            }
+          }
+          acquireStart = System.nanoTime();
+        }
+      } catch (InterruptedException ex) {
+        LOG.debug(formatForLog("Reading interrupted during %s", getTitle()));
+      } finally {
+        stopWorkers();
+      }
+      if (!isAborting() && !Thread.currentThread().isInterrupted() && outstanding.isEmpty()) {
+        clearCheckpoint();
+      } else {
+        commitBarriers();
+      }
+    }
+    
+    /**
+     * Makes a checkpoint of the latest barrier preceded by published records only.
+     */
+    private void commitBarriers() {
+      Long first = outstanding.isEmpty()? null: outstanding.firstKey();
+      Barrier committed = null;
+      while (!barriers.isEmpty() && (first==null || barriers.peek().sequence <= first)) {
+        committed = barriers.poll();
+      }
+      if (committed!=null) {
+        checkpoint(committed.cursor);
+      }
+    }
+    
+    /**
+     * Marks entry as processed by one destination. Fingerprint is stored and
+     * content released once the entry has been processed by all the destinations.
+     * @param entry entry
+     * @param published <code>true</code> if entry has been published
+     */
+    private void done(Entry entry, boolean published) {
+      if (!published) {
+        entry.failed = true;
+      }
+      AtomicInteger remaining = outstanding.get(entry.sequence);
+      if (remaining!=null && remaining.decrementAndGet()<=0) {
+        if (!entry.failed) {
+          commitFingerprint(entry.dataReference, entry.fingerprint);
+        }
+        countBytes(entry.dataReference);
+        entry.dataReference.release();
+        outstanding.remove(entry.sequence);
+      }
+    }
+
+    @Override
+    public void abort() {
+      super.abort();
+      channels.forEach(Channel::interrupt);
+    }
+
+    /**
+     * Waits until workers drain the queues or interrupts them if aborting.
+     */
+    private void stopWorkers() {
+      exhausted = true;
+      Thread.interrupted();
+      while (true) {
+        if (isAborting()) {
+          channels.forEach(Channel::clear);
+          channels.forEach(Channel::interrupt);
+        }
+        try {
+          for (Channel channel: channels) {
+            channel.join();
+          }
+          break;
+        } catch (InterruptedException ex) {
+          // aborted while waiting for workers; loop again to interrupt them
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format("PIPELINED PROCESS:: status: %s, title: %s, workers: %d", getStatus(), getTitle(), workers);
+    }
+    
+    /**
+     * Queued data reference.
+     */
+    private static final class Entry {
+      private final DataReference dataReference;
+      private final String fingerprint;
+      private final long sequence;
+      private final long timestamp = System.currentTimeMillis();
+      private volatile boolean failed;
+
+      public Entry(DataReference dataReference, String fingerprint, long sequence) {
+        this.dataReference = dataReference;
+        this.fingerprint = fingerprint;
+        this.sequence = sequence;
+      }
+    }
+    
+    /**
+     * Cursor taken before reading record of the given sequence number.
+     */
+    private static final class Barrier {
+      private final long sequence;
+      private final String cursor;
+
+      public Barrier(long sequence, String cursor) {
+        this.sequence = sequence;
+        this.cursor = cursor;
+      }
+    }
+    
+    /**
+     * Destination channel; a queue and workers serving a single destination.
+     */
+    private final class Channel implements DestinationStatistics {
+      private final Link destination;
+      private final BlockingQueue<Entry> queue;
+      private final List<Thread> threads = new CopyOnWriteArrayList<>();
+      private final AtomicLong queued = new AtomicLong();
+      private final AtomicLong processed = new AtomicLong();
+
+      public Channel(Link destination, int queueSize) {
+        this.destination = destination;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+      }
+
+      @Override
+      public String getName() {
+        return destination.toString();
+      }
+
+      @Override
+      public long getQueued() {
+        return queued.get();
+      }
+
+      @Override
+      public long getProcessed() {
+        return processed.get();
+      }
+
+      @Override
+      public long getLag() {
+        return queued.get() - processed.get();
+      }
+
+      @Override
+      public long getLagTime() {
+        Entry head = queue.peek();
+        return head!=null? System.currentTimeMillis() - head.timestamp: 0;
+      }
+      
+      public void put(Entry entry) throws InterruptedException {
+        queued.incrementAndGet();
+        try {
+          queue.put(entry);
+        } catch (InterruptedException ex) {
+          queued.decrementAndGet();
+          throw ex;
+        }
+      }
+      
+      public void start() {
+        int index = channels.indexOf(this) + 1;
+        for (int i=0; i<workers; i++) {
+          Thread worker = new Thread(this::work, String.format("HARVESTING-WORKER-%d-%d", index, i+1));
+          threads.add(worker);
+          worker.start();
+        }
+      }
+      
+      public void interrupt() {
+        threads.forEach(Thread::interrupt);
+      }
+      
+      public void clear() {
+        processed.addAndGet(queue.size());
+        queue.clear();
+      }
+      
+      public void join() throws InterruptedException {
+        for (Thread worker: threads) {
+          worker.join();
+        }
+      }
+
+      /**
+       * Worker loop.
+       */
+      private void work() {
+        while (!isAborting()) {
+          Entry entry;
+          try {
+            entry = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException ex) {
+            break;
+          }
+          if (entry!=null) {
+            if (batchSize > 1 && destination.supportsBatch()) {
+              List<Entry> batch = collectBatch(entry);
+              boolean[] published = publish(batch.stream().map(e -> e.dataReference).collect(Collectors.toList()), destination);
+              processed.addAndGet(batch.size());
+              for (int i=0; i<batch.size(); i++) {
+                done(batch.get(i), published[i]);
+              }
+            } else {
+              boolean published = publish(entry.dataReference, destination);
+              processed.incrementAndGet();
+              done(entry, published);
+            }
+          } else if (exhausted && queue.isEmpty()) {
+            break;
+          }
+        }
+      }
+      
+      /**
+       * Collects batch of records starting with the given entry.
+       * @param first first entry
+       * @return batch of entries
+       */
+      private List<Entry> collectBatch(Entry first) {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + batchTimeout;
+        try {
+          while (batch.size() < batchSize) {
+            long timeout = deadline - System.currentTimeMillis();
+            Entry entry = exhausted? queue.poll(): queue.poll(timeout, TimeUnit.MILLISECONDS);
+            if (entry==null) {
+              break;
+            }
+            batch.add(entry);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        return batch;
+      }
+      
+      @Override
+      public String toString() {
+        return String.format("DESTINATION:: name: %s, queued: %d, processed: %d", getName(), getQueued(), getProcessed());
+      }
+    }
+  }
+}
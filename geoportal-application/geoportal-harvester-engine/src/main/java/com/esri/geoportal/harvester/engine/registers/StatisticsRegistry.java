@@ -16,12 +16,15 @@
 package com.esri.geoportal.harvester.engine.registers;
 
 import com.esri.geoportal.harvester.engine.utils.Statistics;
-import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Statistics registry.
+ * <p>
+ * Processes register and remove their statistics while the REST layer reads
+ * them, thus the registry is concurrent.
  */
-public class StatisticsRegistry extends HashMap<UUID,Statistics> {
+public class StatisticsRegistry extends ConcurrentHashMap<UUID,Statistics> {
   
 }
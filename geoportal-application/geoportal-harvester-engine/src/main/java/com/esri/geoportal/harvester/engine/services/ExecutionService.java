@@ -20,6 +20,7 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
@@ -38,4 +39,18 @@ public interface ExecutionService {
    * @throws DataProcessorException if accessing repository fails
    */
   ProcessReference execute(TaskDefinition taskDefinition, IteratorContext iteratorContext) throws InvalidDefinitionException, DataProcessorException,TimeoutException,ExecutionException,InterruptedException;
+
+  /**
+   * Executes task harvesting only the selected data, typically the data which
+   * failed during the earlier harvest (see {@link TasksService#getFailedDocuments(java.util.UUID)}).
+   * Data is read by its id instead of iterating over the whole source.
+   *
+   * @param taskDefinition task definition
+   * @param dataIds fetchable ids of the data to harvest
+   * @param parallelism maximum number of data read concurrently
+   * @return process handle
+   * @throws InvalidDefinitionException invalid definition exception or source doesn't support reading data by id
+   * @throws DataProcessorException if accessing repository fails
+   */
+  ProcessReference execute(TaskDefinition taskDefinition, List<String> dataIds, int parallelism) throws InvalidDefinitionException, DataProcessorException,TimeoutException,ExecutionException,InterruptedException;
 }
@@ -21,6 +21,7 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker.IteratorContext;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
 import com.esri.geoportal.harvester.engine.utils.Statistics;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +61,14 @@ public interface ProcessesService {
    * @throws DataProcessorException if getting statistics fails
    */
   Statistics getStatistics(UUID processId) throws DataProcessorException;
+  
+  /**
+   * Gets process metrics.
+   * @param processId process id
+   * @return process metrics or <code>null</code> if no metrics available
+   * @throws DataProcessorException if getting metrics fails
+   */
+  ProcessMetrics getMetrics(UUID processId) throws DataProcessorException;
 
   /**
    * Selects processes by predicate.
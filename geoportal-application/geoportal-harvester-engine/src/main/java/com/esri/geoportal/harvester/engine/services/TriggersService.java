@@ -22,6 +22,7 @@ import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.engine.managers.TriggerManager;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.ScheduleReference;
 import com.esri.geoportal.harvester.engine.utils.TriggerReference;
 import java.util.Collection;
 import java.util.List;
@@ -74,6 +75,12 @@ public interface TriggersService {
    * @return list of all activated triggers
    */
   List<TriggerReference> listActivatedTriggers(UUID taskId);
+  
+  /**
+   * Lists upcoming fire times of all activated triggers.
+   * @return list of schedules ordered by fire time
+   */
+  List<ScheduleReference> listScheduled();
 
   /**
    * Schedules task with trigger.
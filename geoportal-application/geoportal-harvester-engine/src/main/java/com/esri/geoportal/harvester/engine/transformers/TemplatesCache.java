@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.transformers;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Templates cache.
+ * <p>
+ * Process-wide cache of the compiled stylesheets keyed by the hash of the
+ * stylesheet text, so the same stylesheet is compiled once regardless of how
+ * many task instances use it. Compiled templates are thread-safe; the least
+ * recently used ones are evicted when the cache exceeds {@link #MAX_ENTRIES}.
+ */
+public final class TemplatesCache {
+  /**
+   * Maximum number of cached templates.
+   */
+  public static final int MAX_ENTRIES = 100;
+  
+  private static final String ALGORITHM = "SHA-256";
+  private static final Map<String,Templates> CACHE = new LinkedHashMap<String,Templates>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Templates> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private TemplatesCache() {
+  }
+
+  /**
+   * Gets compiled templates of the stylesheet. Stylesheet is compiled unless
+   * found in the cache.
+   * @param xslt stylesheet text
+   * @return compiled templates
+   * @throws TransformerConfigurationException if stylesheet is invalid
+   */
+  public static Templates getTemplates(String xslt) throws TransformerConfigurationException {
+    String key = hash(xslt);
+    synchronized (CACHE) {
+      Templates templates = CACHE.get(key);
+      if (templates != null) {
+        return templates;
+      }
+    }
+    Templates templates = compile(xslt);
+    synchronized (CACHE) {
+      Templates cached = CACHE.putIfAbsent(key, templates);
+      return cached != null? cached: templates;
+    }
+  }
+
+  /**
+   * Clears cache.
+   */
+  public static void clear() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  /**
+   * Compiles stylesheet.
+   * @param xslt stylesheet text
+   * @return compiled templates
+   * @throws TransformerConfigurationException if stylesheet is invalid
+   */
+  private static Templates compile(String xslt) throws TransformerConfigurationException {
+    TransformerFactory factory = TransformerFactory.newInstance();
+    factory.setFeature(javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setAttribute(javax.xml.XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    factory.setAttribute(javax.xml.XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    return factory.newTemplates(new StreamSource(new StringReader(xslt)));
+  }
+
+  /**
+   * Calculates hash of the stylesheet.
+   * @param xslt stylesheet text
+   * @return hash
+   */
+  private static String hash(String xslt) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+      StringBuilder sb = new StringBuilder();
+      for (byte b: digest.digest(xslt.getBytes(StandardCharsets.UTF_8))) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(String.format("Missing %s algorithm", ALGORITHM), ex);
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.esri.geoportal.commons.constants.MimeType;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.Transformer;
 import com.esri.geoportal.harvester.api.TransformerInstance;
+import com.esri.geoportal.harvester.api.base.ContentBuffer;
 import com.esri.geoportal.harvester.api.base.DataReferenceWrapper;
 import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
@@ -26,34 +27,53 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.DataTransformerException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * XsltTransformer.
  * <p>
- * Transforms data based on xslt.
+ * Transforms data based on xslt. Input is read as a stream and the result is
+ * collected in a {@link ContentBuffer}, so large results are kept in a 
+ * temporary file rather than in memory. Since the input document has to be
+ * held in memory during transformation, records larger than the maximum size
+ * (see {@link #X_XSLT_MAX_SIZE}, in MB) are rejected as soon as the limit is 
+ * exceeded instead of being loaded.
  */
 public class XsltTransformer implements Transformer {
 
   private static final Logger LOG = LoggerFactory.getLogger(XsltTransformer.class);
   public static final String X_XSLT_XSLT = "x-xslt-xslt";
   public static final String X_XSLT_PROPS = "x-xslt-props";
+  public static final String X_XSLT_MAX_SIZE = "x-xslt-max-size";
   public static final String TYPE = "XSLT";
 
   @Override
@@ -72,17 +92,43 @@ public class XsltTransformer implements Transformer {
     List<UITemplate.Argument> arguments = new ArrayList<>();
     arguments.add(new UITemplate.TextArgument(X_XSLT_XSLT, bundle.getString("engine.transformers.xslttransformer.xslt"), true));
     arguments.add(new UITemplate.TextArgument(X_XSLT_PROPS, bundle.getString("engine.transformers.xslttransformer.properties"), false));
+    arguments.add(new UITemplate.IntegerArgument(X_XSLT_MAX_SIZE, bundle.getString("engine.transformers.xslttransformer.maxSize"), false, 0));
     UITemplate uiTemplate = new UITemplate(getType(), bundle.getString("engine.transformers.xslttransformer"), arguments);
     return uiTemplate;
   }
 
+  /**
+   * Creates instance of the transformer executing chain of the transformations
+   * as a single transformation. Each transformation feeds SAX events directly
+   * into the next one, so the input is parsed once and the final result is
+   * serialized once.
+   * @param transformerDefinitions definitions of the subsequent transformations
+   * @return transformer instance
+   * @throws InvalidDefinitionException if any of the definitions is invalid or chaining is not supported
+   */
+  public TransformerInstance createChainInstance(List<EntityDefinition> transformerDefinitions) throws InvalidDefinitionException {
+    List<XsltTransformerInstance> stages = new ArrayList<>();
+    for (EntityDefinition transformerDefinition: transformerDefinitions) {
+      stages.add(new XsltTransformerInstance(transformerDefinition));
+    }
+    return new XsltChainInstance(stages);
+  }
+
   /**
    * XSLT transformer instance.
+   * <p>
+   * Compiled stylesheet is obtained from {@link TemplatesCache}. Transformers
+   * are not thread-safe, thus each transformation borrows a transformer from
+   * the pool and returns it afterwards, so the instance can be used by many
+   * threads at once.
    */
   private class XsltTransformerInstance implements TransformerInstance {
 
     private final EntityDefinition definition;
-    private final javax.xml.transform.Transformer xsltTransformer;
+    private final Templates templates;
+    private final Properties parameters = new Properties();
+    private final long maxSize;
+    private final Queue<javax.xml.transform.Transformer> pool = new ConcurrentLinkedQueue<>();
 
     /**
      * Creates instance of the transformer instance.
@@ -97,24 +143,43 @@ public class XsltTransformer implements Transformer {
         throw new InvalidDefinitionException(String.format("No transformation defined"));
       }
       try {
-          
-         TransformerFactory factory = TransformerFactory.newInstance();
-         factory.setFeature(javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING, true);
-         factory.setAttribute(javax.xml.XMLConstants.ACCESS_EXTERNAL_DTD, "");
-         factory.setAttribute(javax.xml.XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-         xsltTransformer = factory.newTransformer(new StreamSource(new ByteArrayInputStream(strXslt.getBytes("UTF-8"))));          
+        templates = TemplatesCache.getTemplates(strXslt);
        
         String strProps = definition.getProperties().get(X_XSLT_PROPS);
         if (strProps != null) {
-          Properties props = new Properties();
-          props.load(new ByteArrayInputStream(strProps.getBytes("UTF-8")));
-          props.entrySet().stream().forEach(e -> xsltTransformer.setParameter(e.getKey().toString(), e.getValue()));
+          parameters.load(new ByteArrayInputStream(strProps.getBytes("UTF-8")));
         }
+        
+        maxSize = Math.max(NumberUtils.toLong(definition.getProperties().get(X_XSLT_MAX_SIZE), 0), 0) * 1024 * 1024;
       } catch (IOException | TransformerConfigurationException ex) {
         throw new InvalidDefinitionException(String.format("Invalid transformation: %s", strXslt), ex);
       }
     }
 
+    /**
+     * Borrows transformer from the pool; creates a new one if pool is empty.
+     * @return transformer
+     * @throws TransformerConfigurationException if creating transformer fails
+     */
+    private javax.xml.transform.Transformer borrow() throws TransformerConfigurationException {
+      javax.xml.transform.Transformer xsltTransformer = pool.poll();
+      if (xsltTransformer == null) {
+        xsltTransformer = templates.newTransformer();
+        setParameters(xsltTransformer);
+      }
+      return xsltTransformer;
+    }
+
+    /**
+     * Sets transformation parameters.
+     * @param xsltTransformer transformer
+     */
+    private void setParameters(javax.xml.transform.Transformer xsltTransformer) {
+      for (Map.Entry<Object,Object> e: parameters.entrySet()) {
+        xsltTransformer.setParameter(e.getKey().toString(), e.getValue());
+      }
+    }
+
     @Override
     public void initialize(InitContext context) throws DataProcessorException {
       // empty initialization
@@ -122,7 +187,7 @@ public class XsltTransformer implements Transformer {
 
     @Override
     public void terminate() {
-      // empty termination
+      pool.clear();
     }
 
     @Override
@@ -132,15 +197,175 @@ public class XsltTransformer implements Transformer {
 
     @Override
     public List<DataReference> transform(DataReference input) throws DataTransformerException {
-      ByteArrayOutputStream result = new ByteArrayOutputStream();
-      try {
-        xsltTransformer.transform(new StreamSource(new InputStreamReader(new ByteArrayInputStream(input.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML)), "UTF-8")), new StreamResult(new OutputStreamWriter(result, "UTF-8")));
-        DataReferenceWrapper dataRef = new DataReferenceWrapper(input);
-        dataRef.addContext(MimeType.APPLICATION_XML, result.toByteArray());
-        return Arrays.asList(new DataReference[]{dataRef});
+      return XsltTransformer.transform(input, maxSize, (source, result) -> {
+        javax.xml.transform.Transformer xsltTransformer = borrow();
+        xsltTransformer.transform(source, result);
+        pool.offer(xsltTransformer);
+      });
+    }
+  }
+
+  /**
+   * Transforms XML content of the data reference.
+   * @param input input data reference
+   * @param maxSize maximum size of the content (in bytes) or 0 if no limit
+   * @param transformation transformation
+   * @return transformed data
+   * @throws DataTransformerException if transformation fails
+   */
+  private static List<DataReference> transform(DataReference input, long maxSize, Transformation transformation) throws DataTransformerException {
+    try (InputStream content = input.getContentStream(MimeType.APPLICATION_XML, MimeType.TEXT_XML)) {
+      if (content == null) {
+        throw new DataTransformerException(String.format("No XML content to transform: %s", input.getSourceUri()));
+      }
+      SizeLimitInputStream limited = new SizeLimitInputStream(content, maxSize);
+      ContentBuffer buffer = new ContentBuffer();
+      try (Writer writer = new OutputStreamWriter(buffer, "UTF-8")) {
+        transformation.transform(new StreamSource(new InputStreamReader(limited, "UTF-8")), new StreamResult(writer));
       } catch (IOException | TransformerException ex) {
-        throw new DataTransformerException(String.format("Error transforming input: %s", input.getSourceUri()), ex);
+        if (limited.isExceeded()) {
+          throw new DataTransformerException(String.format("Input exceeds maximum size of %d MB: %s", maxSize / 1024 / 1024, input.getSourceUri()));
+        }
+        throw ex;
+      }
+      DataReferenceWrapper dataRef = new DataReferenceWrapper(input);
+      dataRef.addContext(MimeType.APPLICATION_XML, buffer);
+      return Arrays.asList(new DataReference[]{dataRef});
+    } catch (IOException | TransformerException ex) {
+      throw new DataTransformerException(String.format("Error transforming input: %s", input.getSourceUri()), ex);
+    }
+  }
+  
+  /**
+   * Transformation.
+   */
+  @FunctionalInterface
+  private interface Transformation {
+    void transform(Source source, Result result) throws TransformerException;
+  }
+  
+  /**
+   * Input stream failing once more than the maximum number of bytes is read.
+   */
+  private static final class SizeLimitInputStream extends FilterInputStream {
+    private final long maxSize;
+    private long count;
+    private boolean exceeded;
+
+    /**
+     * Creates instance of the stream.
+     * @param in underlying stream
+     * @param maxSize maximum size (in bytes) or 0 if no limit
+     */
+    public SizeLimitInputStream(InputStream in, long maxSize) {
+      super(in);
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks if maximum size has been exceeded.
+     * @return <code>true</code> if maximum size has been exceeded
+     */
+    public boolean isExceeded() {
+      return exceeded;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
       }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int length = super.read(b, off, len);
+      if (length > 0) {
+        count(length);
+      }
+      return length;
+    }
+
+    private void count(int length) throws IOException {
+      count += length;
+      if (maxSize > 0 && count > maxSize) {
+        exceeded = true;
+        throw new IOException(String.format("Maximum size of %d bytes exceeded", maxSize));
+      }
+    }
+  }
+
+  /**
+   * XSLT chain instance.
+   * <p>
+   * Input is parsed by the first stage; every stage passes its output as SAX
+   * events to the next one and only the last stage serializes the result. 
+   * Maximum size of the first stage applies to the input.
+   */
+  private class XsltChainInstance implements TransformerInstance {
+
+    private final List<XsltTransformerInstance> stages;
+    private final SAXTransformerFactory factory;
+
+    /**
+     * Creates instance of the chain.
+     * @param stages stages
+     * @throws InvalidDefinitionException if chaining is not supported
+     */
+    public XsltChainInstance(List<XsltTransformerInstance> stages) throws InvalidDefinitionException {
+      this.stages = stages;
+      TransformerFactory transformerFactory = TransformerFactory.newInstance();
+      if (stages.isEmpty() || !transformerFactory.getFeature(SAXTransformerFactory.FEATURE)) {
+        throw new InvalidDefinitionException(String.format("Chaining transformations not supported"));
+      }
+      try {
+        transformerFactory.setFeature(javax.xml.XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      } catch (TransformerConfigurationException ex) {
+        throw new InvalidDefinitionException(String.format("Chaining transformations not supported"), ex);
+      }
+      this.factory = (SAXTransformerFactory) transformerFactory;
+    }
+
+    @Override
+    public void initialize(InitContext context) throws DataProcessorException {
+      for (XsltTransformerInstance stage: stages) {
+        stage.initialize(context);
+      }
+    }
+
+    @Override
+    public void terminate() {
+      stages.forEach(XsltTransformerInstance::terminate);
+    }
+
+    @Override
+    public EntityDefinition getTransformerDefinition() {
+      return stages.get(0).getTransformerDefinition();
+    }
+
+    @Override
+    public List<DataReference> transform(DataReference input) throws DataTransformerException {
+      XsltTransformerInstance first = stages.get(0);
+      return XsltTransformer.transform(input, first.maxSize, (source, result) -> {
+        Result next = result;
+        for (int i = stages.size() - 1; i > 0; i--) {
+          XsltTransformerInstance stage = stages.get(i);
+          TransformerHandler handler = factory.newTransformerHandler(stage.templates);
+          stage.setParameters(handler.getTransformer());
+          handler.setResult(next);
+          next = new SAXResult(handler);
+        }
+        javax.xml.transform.Transformer xsltTransformer = first.borrow();
+        xsltTransformer.transform(source, next);
+        first.pool.offer(xsltTransformer);
+      });
+    }
+
+    @Override
+    public String toString() {
+      return stages.stream().map(Object::toString).collect(Collectors.joining(" --> "));
     }
   }
 }
@@ -32,15 +32,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.Objects;
 import java.util.WeakHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import org.owasp.esapi.ESAPI;
@@ -80,12 +79,15 @@ import org.owasp.esapi.ESAPI;
  * "03:30:2,4:2,4" - scheduled at 3:30 AM every Monday and Wednesday, but only on second and fourth week of the month<br>
  * "05:00:1:*:0" - scheduled at 5:00 AM every Sunday in January regardless of the week<br>
  * "12:00:1:1:1" - scheduled at noon first day of the year<br>
+ * <p>
+ * Trigger is scheduled through the {@link TriggerScheduler} of the triggers
+ * service, thus it requires {@link TriggerScheduler.Context} trigger context.
+ * Occurrence claimed by another node of the cluster is skipped.
  */
 public class AtTrigger implements Trigger {
   private static final Logger LOG = LoggerFactory.getLogger(AtTrigger.class);
   public static final String T_AT_TIME = "t-at-time";
   public static final String TYPE = "AT";
-  private static final ScheduledExecutorService service = Executors.newScheduledThreadPool(1000);
   private static final WeakHashMap<AtTriggerInstance,WeakReference<AtTriggerInstance>> weakMap = new WeakHashMap<>();
 
   @Override
@@ -114,10 +116,9 @@ public class AtTrigger implements Trigger {
 
   @Override
   public void close() throws Exception {
-    weakMap.values().stream().map(v->v.get()).forEach(i->{
+    weakMap.values().stream().map(v->v.get()).filter(Objects::nonNull).forEach(i->{
         i.deactivate();
     });
-    service.shutdownNow();
   }
   
   /**
@@ -125,7 +126,9 @@ public class AtTrigger implements Trigger {
    */
   private class AtTriggerInstance implements TriggerInstance {
     final TriggerDefinition triggerDefinition;
-    private ScheduledFuture<?> future;
+    private TriggerScheduler.Context context;
+    private TriggerScheduler.Timeout timeout;
+    private boolean active;
 
     /**
      * Creates instance of the trigger instance
@@ -142,9 +145,16 @@ public class AtTrigger implements Trigger {
 
     @Override
     public void activate(Context triggerContext) throws DataProcessorException, InvalidDefinitionException {
+      if (!(triggerContext instanceof TriggerScheduler.Context)) {
+        throw new DataProcessorException(String.format("Error activating trigger: %s requires scheduling context", getType()));
+      }
       try {
         Predicate<Date> predicate = parsePredicate(triggerDefinition.getProperties().get(T_AT_TIME));
-        schedule(newRunnable(triggerContext,predicate));
+        synchronized (this) {
+          context = (TriggerScheduler.Context)triggerContext;
+          active = true;
+        }
+        schedule(newRunnable(context,predicate));
       } catch (ParseException ex) {
         throw new InvalidDefinitionException(String.format("Invalid predicate definition: %s", triggerDefinition.getProperties().get(T_AT_TIME)), ex);
       }
@@ -152,15 +162,16 @@ public class AtTrigger implements Trigger {
 
     @Override
     public synchronized void deactivate() {
-      if (future!=null) {
-        future.cancel(true);
-        future = null;
+      active = false;
+      if (timeout!=null) {
+        timeout.cancel();
+        timeout = null;
       }
     }
     
-    private Runnable newRunnable(Context triggerContext, Predicate<Date> predicate) {
+    private Runnable newRunnable(TriggerScheduler.Context triggerContext, Predicate<Date> predicate) {
       return ()->{
-        if (predicate.test(new Date())) {
+        if (predicate.test(new Date()) && triggerContext.claim()) {
           try {
             ProcessInstance process = triggerContext.execute(triggerDefinition.getTaskDefinition());
             process.addListener(new BaseProcessInstanceListener() {
@@ -188,36 +199,41 @@ public class AtTrigger implements Trigger {
     }
     
     private synchronized void schedule(Runnable runnable) {
+      if (!active) {
+        return;
+      }
       try {
-        long delay = calcDelay();
-        LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is scheduled to be run in %d minues: %s", delay, triggerDefinition.getTaskDefinition())));
-        if(delay > 1439) //Delay should be less than 24*60
-        {
-             LOG.error("Error activating trigger. Delay is greater than 1 day");
+        int reqMinOfDay = getMinOfDay();
+        if (reqMinOfDay < 0 || reqMinOfDay >= 24*60) {
+          LOG.error(formatForLog("Error activating trigger. Invalid time of the day: %s", triggerDefinition.getProperties().get(T_AT_TIME)));
+          return;
         }
-        else
-        {
-            future = service.schedule(runnable, delay, TimeUnit.MINUTES);
-        }        
+        Date fireTime = calcFireTime(reqMinOfDay);
+        long delay = TimeUnit.MILLISECONDS.toMinutes(fireTime.getTime() - System.currentTimeMillis());
+        LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is scheduled to be run in %d minues: %s", delay, triggerDefinition.getTaskDefinition())));
+        timeout = context.schedule(runnable, fireTime);
       } catch (ParseException ex) {
         LOG.error(String.format("Error activating trigger: %s", getType()), ex);
       }
     }
     
     /**
-     * Calculates delay (in minutes)
-     * @return delay
-     * @throws ParseException if extracting minute of the day failed
+     * Calculates next fire time; it is today if requested minute of the day
+     * is still ahead, tomorrow otherwise.
+     * @param reqMinOfDay requested minute of the day
+     * @return fire time
      */
-    private long calcDelay() throws ParseException {
-      int reqMinOfDay = getMinOfDay();
+    private Date calcFireTime(int reqMinOfDay) {
       Calendar cal = Calendar.getInstance();
       int curMinOfDay = extractMinOfDay(cal);
-
-      int dif = reqMinOfDay - curMinOfDay;
-      long delay = dif>0? dif: (24*60)-curMinOfDay+reqMinOfDay; 
-
-      return delay;
+      cal.set(Calendar.HOUR_OF_DAY, reqMinOfDay / 60);
+      cal.set(Calendar.MINUTE, reqMinOfDay % 60);
+      cal.set(Calendar.SECOND, 0);
+      cal.set(Calendar.MILLISECOND, 0);
+      if (reqMinOfDay <= curMinOfDay) {
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+      }
+      return cal.getTime();
     }
     
     /**
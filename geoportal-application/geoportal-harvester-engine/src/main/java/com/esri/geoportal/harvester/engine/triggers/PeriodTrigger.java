@@ -23,6 +23,7 @@ import com.esri.geoportal.harvester.api.defs.UITemplate;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
 import java.lang.ref.WeakReference;
 import java.text.ParseException;
 import java.time.Duration;
@@ -36,11 +37,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.Objects;
 import java.util.WeakHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
@@ -66,12 +65,18 @@ import org.owasp.esapi.ESAPI;
  * "P1M" - monthly<br>
  * "P1D" - daily<br>
  * "P0.5M" - biweekly<br>
+ * <p>
+ * Next harvest is due one period after the last harvest. Trigger is scheduled
+ * through the {@link TriggerScheduler} of the triggers service, thus it
+ * requires {@link TriggerScheduler.Context} trigger context. Occurrence
+ * claimed by another node of the cluster is checked again once that claim
+ * could have expired; the next occurrence is then computed from the last 
+ * harvest of the task, whichever node has run it.
  */
 public class PeriodTrigger implements Trigger {
   private static final Logger LOG = LoggerFactory.getLogger(PeriodTrigger.class);
   public static final String T_PERIOD = "t-period";
   public static final String TYPE = "PERIOD";
-  private static final ScheduledExecutorService service = Executors.newScheduledThreadPool(1000);
   private static final WeakHashMap<PeriodTriggerInstance,WeakReference<PeriodTriggerInstance>> weakMap = new WeakHashMap<>();
 
   @Override
@@ -100,10 +105,9 @@ public class PeriodTrigger implements Trigger {
 
   @Override
   public void close() throws Exception {
-    weakMap.values().stream().map(v->v.get()).forEach(i->{
+    weakMap.values().stream().map(v->v.get()).filter(Objects::nonNull).forEach(i->{
         i.deactivate();
     });
-    service.shutdownNow();
   }
 
   /**
@@ -111,7 +115,9 @@ public class PeriodTrigger implements Trigger {
    */
   private class PeriodTriggerInstance implements TriggerInstance {
     final TriggerDefinition triggerDefinition;
-    private Future<?> future;
+    private TriggerScheduler.Context context;
+    private TriggerScheduler.Timeout timeout;
+    private boolean active;
 
     /**
      * Creates instance of the trigger instance
@@ -128,19 +134,33 @@ public class PeriodTrigger implements Trigger {
 
     @Override
     public void activate(Context triggerContext) throws DataProcessorException, InvalidDefinitionException {
-      schedule(triggerContext.lastHarvest(), newRunnable(triggerContext));
+      if (!(triggerContext instanceof TriggerScheduler.Context)) {
+        throw new DataProcessorException(String.format("Error activating trigger: %s requires scheduling context", getType()));
+      }
+      synchronized (this) {
+        context = (TriggerScheduler.Context)triggerContext;
+        active = true;
+      }
+      schedule(triggerContext.lastHarvest(), newRunnable(context));
     }
 
     @Override
     public synchronized void deactivate() {
-      if (future!=null) {
-        future.cancel(true);
-        future = null;
+      active = false;
+      if (timeout!=null) {
+        timeout.cancel();
+        timeout = null;
       }
     }
     
-      private Runnable newRunnable(Context triggerContext) {
+      private Runnable newRunnable(TriggerScheduler.Context triggerContext) {
           return () -> {
+              if (!triggerContext.claim()) {
+                  long delay = triggerContext.getClaimRetryDelay();
+                  LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is being run by another node; checking again in %d seconds: %s", TimeUnit.MILLISECONDS.toSeconds(delay), triggerDefinition.getTaskDefinition())));
+                  schedule(() -> reschedule(triggerContext), new Date(System.currentTimeMillis() + delay));
+                  return;
+              }
               ProcessInstance process;
               try {
                   process = triggerContext.execute(triggerDefinition.getTaskDefinition());
@@ -165,23 +185,47 @@ public class PeriodTrigger implements Trigger {
           };
     }
     
+    /**
+     * Schedules next occurrence based on the last harvest of the task.
+     * @param triggerContext trigger context
+     */
+    private void reschedule(TriggerScheduler.Context triggerContext) {
+      try {
+        schedule(triggerContext.lastHarvest(), newRunnable(triggerContext));
+      } catch (DataProcessorException ex) {
+        LOG.error(String.format("Error rescheduling trigger: %s", getType()), ex);
+        schedule(() -> reschedule(triggerContext), new Date(System.currentTimeMillis() + triggerContext.getClaimRetryDelay()));
+      }
+    }
+    
+    private synchronized void schedule(Runnable runnable, Date fireTime) {
+      if (!active) {
+        return;
+      }
+      timeout = context.schedule(runnable, fireTime);
+    }
+    
     private synchronized void schedule(Date lastHarvest, Runnable runnable) {
+      if (!active) {
+        return;
+      }
       try {
         if (lastHarvest==null) {
           LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is being submitted now: %s", triggerDefinition.getTaskDefinition())));
-          future = service.submit(runnable);
+          timeout = context.schedule(runnable, new Date());
         } else {
           TemporalAmount tempAmt = parseTemporalAmount(triggerDefinition.getProperties().get(T_PERIOD));
           LocalDateTime lh = LocalDateTime.ofInstant(lastHarvest.toInstant(), ZoneId.systemDefault() );
           LocalDateTime nh = lh.plus(tempAmt);
-          long delay = (nh.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - lh.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())/1000/60;
+          Date fireTime = Date.from(nh.atZone(ZoneId.systemDefault()).toInstant());
+          long delay = TimeUnit.MILLISECONDS.toMinutes(fireTime.getTime() - System.currentTimeMillis());
           
           if (delay>0) {
             LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is scheduled to be run in %d minutes: %s", delay, triggerDefinition.getTaskDefinition())));
-            future = service.schedule(runnable, delay, TimeUnit.MINUTES);
+            timeout = context.schedule(runnable, fireTime);
           } else {
             LOG.info(ESAPI.encoder().encodeForHTML(String.format("Task is being submitted now: %s", triggerDefinition.getTaskDefinition())));
-            future = service.submit(runnable);
+            timeout = context.schedule(runnable, new Date());
           }
         }
       } catch (ParseException ex) {
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Change detector.
+ * <p>
+ * Calculates fingerprint (SHA-256) of the content of the record and compares it
+ * with the fingerprint stored during the previous harvest. Fingerprint includes
+ * a salt, typically the definition of the destinations, so changing destinations
+ * makes all the records be published again.
+ * <p>
+ * Errors of the underlying store are logged and treated as "changed", so a
+ * failing store never prevents records from being published.
+ */
+public class ChangeDetector implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(ChangeDetector.class);
+  private static final String ALGORITHM = "SHA-256";
+
+  private final FingerprintManager.Session session;
+  private final byte[] salt;
+
+  /**
+   * Creates instance of the detector.
+   * @param session fingerprints session
+   * @param salt salt
+   */
+  public ChangeDetector(FingerprintManager.Session session, String salt) {
+    this.session = session;
+    this.salt = salt!=null? salt.getBytes(StandardCharsets.UTF_8): new byte[0];
+  }
+
+  /**
+   * Calculates fingerprint of the record.
+   * @param dataReference data reference
+   * @return fingerprint or <code>null</code> if fingerprint can not be calculated
+   */
+  public String fingerprint(DataReference dataReference) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+      digest.update(salt);
+      List<MimeType> mimeTypes = dataReference.getContentType().stream()
+              .sorted(Comparator.comparing(MimeType::getName))
+              .collect(Collectors.toList());
+      byte[] buffer = new byte[8192];
+      for (MimeType mimeType: mimeTypes) {
+        digest.update(mimeType.getName().getBytes(StandardCharsets.UTF_8));
+        try (InputStream content = dataReference.getContentStream(mimeType)) {
+          int length;
+          while (content!=null && (length = content.read(buffer)) >= 0) {
+            digest.update(buffer, 0, length);
+          }
+        }
+      }
+      StringBuilder sb = new StringBuilder();
+      for (byte b: digest.digest()) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (IOException|NoSuchAlgorithmException ex) {
+      LOG.debug(formatForLog("Unable to calculate fingerprint of %s", dataReference), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Checks if record is unchanged since the previous harvest. Unchanged record
+   * is marked as seen.
+   * @param dataReference data reference
+   * @param fingerprint fingerprint of the record
+   * @return <code>true</code> if record is unchanged
+   */
+  public synchronized boolean isUnchanged(DataReference dataReference, String fingerprint) {
+    if (fingerprint==null) {
+      return false;
+    }
+    try {
+      if (fingerprint.equals(session.read(dataReference.getId()))) {
+        session.touch(dataReference.getId());
+        return true;
+      }
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error reading fingerprint of %s", dataReference), ex);
+    }
+    return false;
+  }
+
+  /**
+   * Stores fingerprint of the successfully published record.
+   * @param dataReference data reference
+   * @param fingerprint fingerprint of the record
+   */
+  public synchronized void commit(DataReference dataReference, String fingerprint) {
+    if (fingerprint==null) {
+      return;
+    }
+    try {
+      session.store(dataReference.getId(), fingerprint);
+    } catch (CrudlException ex) {
+      LOG.warn(formatForLog("Error storing fingerprint of %s", dataReference), ex);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      session.close();
+    } catch (CrudlException ex) {
+      LOG.warn("Error closing fingerprints session", ex);
+    }
+  }
+}
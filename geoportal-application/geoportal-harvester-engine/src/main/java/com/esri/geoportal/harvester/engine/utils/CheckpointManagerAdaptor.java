@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager;
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager.Checkpoint;
+import java.util.Date;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checkpoint manager adaptor.
+ */
+public class CheckpointManagerAdaptor extends BaseProcessInstanceListener {
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointManagerAdaptor.class);
+  
+  private final UUID taskId;
+  private final ProcessReference processReference;
+  private final Date lastHarvestDate;
+  private final CheckpointManager checkpointManager;
+
+  /**
+   * Creates instance of the adaptor.
+   * @param taskId task id
+   * @param processReference process reference
+   * @param lastHarvestDate last harvest date used by the process
+   * @param checkpointManager checkpoint manager
+   */
+  public CheckpointManagerAdaptor(UUID taskId, ProcessReference processReference, Date lastHarvestDate, CheckpointManager checkpointManager) {
+    this.taskId = taskId;
+    this.processReference = processReference;
+    this.lastHarvestDate = lastHarvestDate;
+    this.checkpointManager = checkpointManager;
+  }
+
+  @Override
+  public void onCheckpoint(String cursor) {
+    try {
+      if (cursor != null) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setProcessId(processReference.getProcessId());
+        checkpoint.setCursor(cursor);
+        checkpoint.setLastHarvestDate(lastHarvestDate);
+        checkpoint.setTimestamp(new Date());
+        checkpointManager.store(taskId, checkpoint);
+      } else {
+        checkpointManager.delete(taskId);
+      }
+    } catch (CrudlException ex) {
+      LOG.error(formatForLog("Error storing checkpoint for: %s", taskId), ex);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker.
+ * <p>
+ * Single breaker is shared by all the processes publishing to the same
+ * destination (see {@link #of(String, String)}). Breaker opens after the
+ * number of consecutive transient failures reaches the threshold; while it is
+ * open no request is sent to the destination. Once the pause elapses a single
+ * trial request is allowed (half open state). Success closes the breaker,
+ * failure opens it again with the pause doubled up to {@link #MAX_PAUSE}.
+ * <p>
+ * State of each breaker is reported to the {@link MetricsRegistry}.
+ */
+public final class CircuitBreaker {
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+  private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+  /**
+   * Maximum pause (ms).
+   */
+  public static final long MAX_PAUSE = 10 * 60 * 1000;
+
+  /**
+   * Breaker state.
+   */
+  public enum State {
+    closed, open, half_open
+  }
+
+  private final String name;
+  private State state = State.closed;
+  private int failures;
+  private long pause;
+  private long openUntil;
+  private long trips;
+
+  /**
+   * Gets breaker of the destination.
+   * @param key destination key
+   * @param name destination name used to report the state
+   * @return circuit breaker
+   */
+  public static CircuitBreaker of(String key, String name) {
+    return BREAKERS.computeIfAbsent(key, k -> {
+      CircuitBreaker breaker = new CircuitBreaker(name);
+      MetricsRegistry.getInstance().gauge("harvester_circuit_breaker_state", "Circuit breaker state per destination (0 - closed, 1 - half open, 2 - open).",
+              () -> breaker.getState() == State.closed? 0: breaker.getState() == State.half_open? 1: 2, "destination", name);
+      return breaker;
+    });
+  }
+
+  /**
+   * Creates instance of the breaker.
+   * @param name destination name
+   */
+  private CircuitBreaker(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets breaker state.
+   * @return breaker state
+   */
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Gets number of times the breaker has been opened.
+   * @return number of trips
+   */
+  public synchronized long getTrips() {
+    return trips;
+  }
+
+  /**
+   * Checks if request may be sent to the destination. Once the pause elapses
+   * only the first caller is allowed to send a trial request.
+   * @return time (ms) to wait before asking again or <code>0</code> if request may be sent
+   */
+  public synchronized long acquire() {
+    if (state == State.closed) {
+      return 0;
+    }
+    long remaining = openUntil - System.currentTimeMillis();
+    if (remaining > 0) {
+      return remaining;
+    }
+    if (state == State.open) {
+      state = State.half_open;
+      return 0;
+    }
+    // half open with trial request pending
+    return Math.max(pause / 10, 100);
+  }
+
+  /**
+   * Records successful request.
+   */
+  public synchronized void onSuccess() {
+    if (state != State.closed) {
+      LOG.info(formatForLog("Circuit breaker closed for: %s", name));
+    }
+    state = State.closed;
+    failures = 0;
+    pause = 0;
+  }
+
+  /**
+   * Records transient failure.
+   * @param threshold number of consecutive failures opening the breaker
+   * @param initialPause pause (ms) after the breaker opens for the first time
+   */
+  public synchronized void onFailure(int threshold, long initialPause) {
+    failures++;
+    if (state == State.half_open) {
+      open(Math.min(Math.max(pause, initialPause) * 2, MAX_PAUSE));
+    } else if (state == State.closed && threshold > 0 && failures >= threshold) {
+      open(Math.min(initialPause, MAX_PAUSE));
+    }
+  }
+
+  private void open(long pause) {
+    this.state = State.open;
+    this.pause = pause;
+    this.openUntil = System.currentTimeMillis() + pause;
+    this.trips++;
+    LOG.warn(formatForLog("Circuit breaker opened for: %s after %d consecutive failures; pausing publishing for %d ms", name, failures, pause));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("CIRCUIT BREAKER :: destination: %s, state: %s, failures: %d, trips: %d", name, getState(), failures, trips);
+  }
+}
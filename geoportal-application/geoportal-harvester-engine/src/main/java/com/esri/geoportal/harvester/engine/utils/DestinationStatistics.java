@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Destination statistics.
+ * Describes how far a single destination lags behind the input.
+ */
+public interface DestinationStatistics {
+
+  /**
+   * Gets destination name.
+   * @return destination name
+   */
+  String getName();
+
+  /**
+   * Gets number of records handed over to the destination.
+   * @return number of records handed over to the destination
+   */
+  long getQueued();
+
+  /**
+   * Gets number of records already processed by the destination.
+   * @return number of records processed by the destination
+   */
+  long getProcessed();
+
+  /**
+   * Gets number of records waiting for the destination.
+   * @return number of records waiting for the destination
+   */
+  long getLag();
+
+  /**
+   * Gets age of the oldest record waiting for the destination.
+   * @return age in milliseconds or <code>0</code> if nothing is waiting
+   */
+  long getLagTime();
+}
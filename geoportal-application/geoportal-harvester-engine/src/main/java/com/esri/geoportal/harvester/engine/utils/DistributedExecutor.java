@@ -0,0 +1,367 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.SimpleInitContext;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.engine.managers.ClusterManager;
+import com.esri.geoportal.harvester.engine.managers.History;
+import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import com.esri.geoportal.harvester.engine.managers.WorkManager;
+import com.esri.geoportal.harvester.engine.managers.WorkManager.Job;
+import com.esri.geoportal.harvester.engine.managers.WorkManager.Partition;
+import com.esri.geoportal.harvester.engine.services.ExecutionService;
+import com.esri.geoportal.harvester.engine.services.TasksService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributed executor.
+ * <p>
+ * Harvests a single task with several nodes of the cluster. The node receiving
+ * the request (coordinator) iterates over the source of the task collecting
+ * fetchable data ids and splits them into partitions stored with the
+ * {@link WorkManager}; partitions are available to the workers as soon as they
+ * are stored. Each node (worker) polls for open partitions, claims a partition
+ * with a {@link ClusterManager} lease, and harvests data of the partition by
+ * their ids (see {@link ExecutionService#execute(TaskDefinition, List, int)}),
+ * publishing independently of other nodes. Partition of a node which stopped
+ * is claimed by another node once the lease expires.
+ * <p>
+ * Reports of the partitions are summed into a single history event of the
+ * task; the event id is the job id, thus failed data of all the partitions can
+ * be harvested again with a single request.
+ * <p>
+ * Only sources able to read data by id (see {@link InputBroker#supportsReadContent()})
+ * can be distributed. Note that the coordinator enumerates ids with the regular
+ * iterator of the source, thus for most of the sources it reads the content
+ * of each data as well; distributing pays off when publishing, not reading,
+ * dominates the harvest.
+ */
+public class DistributedExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(DistributedExecutor.class);
+
+  /**
+   * Default number of data ids in a partition.
+   */
+  public static final int DEFAULT_PARTITION_SIZE = 1000;
+
+  private static final long POLL_INTERVAL = 5000;
+
+  private final TasksService tasksService;
+  private final ExecutionService executionService;
+  private final HistoryManager historyManager;
+  private final WorkManager workManager;
+  private final ClusterManager clusterManager;
+  private final int maxPartitions;
+  private final int parallelism;
+  private final Set<String> running = Collections.synchronizedSet(new HashSet<>());
+
+  private ScheduledExecutorService poller;
+
+  /**
+   * Creates instance of the executor.
+   * @param tasksService tasks service
+   * @param executionService execution service
+   * @param historyManager history manager
+   * @param workManager work manager
+   * @param clusterManager cluster manager
+   * @param maxPartitions maximum number of partitions harvested by this node at once (0 - this node doesn't harvest partitions)
+   * @param parallelism number of concurrent reads within a partition
+   */
+  public DistributedExecutor(TasksService tasksService, ExecutionService executionService, HistoryManager historyManager, WorkManager workManager, ClusterManager clusterManager, int maxPartitions, int parallelism) {
+    this.tasksService = tasksService;
+    this.executionService = executionService;
+    this.historyManager = historyManager;
+    this.workManager = workManager;
+    this.clusterManager = clusterManager;
+    this.maxPartitions = Math.max(maxPartitions, 0);
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  /**
+   * Starts polling for partitions.
+   */
+  public synchronized void start() {
+    if (poller == null && maxPartitions > 0) {
+      poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DISTRIBUTED-WORKER");
+        thread.setDaemon(true);
+        return thread;
+      });
+      poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops polling for partitions. Partitions being harvested are left to
+   * complete; partitions of the processes aborted at shutdown are claimed by
+   * other nodes once the leases expire.
+   */
+  public synchronized void stop() {
+    if (poller != null) {
+      poller.shutdownNow();
+      poller = null;
+    }
+  }
+
+  /**
+   * Submits task for distributed execution. Source is partitioned in the
+   * background.
+   * @param taskId task id
+   * @param taskDefinition task definition
+   * @param partitionSize number of data ids in a partition
+   * @return job
+   * @throws InvalidDefinitionException if invalid task definition or source doesn't support reading data by id
+   * @throws DataProcessorException if submitting task fails
+   * @throws TimeoutException if creating task times out
+   * @throws ExecutionException if creating task fails
+   * @throws InterruptedException if creating task is interrupted
+   */
+  public Job submit(UUID taskId, TaskDefinition taskDefinition, int partitionSize) throws InvalidDefinitionException, DataProcessorException, TimeoutException, ExecutionException, InterruptedException {
+    Task task = tasksService.createTask(taskDefinition);
+    if (!task.getDataSource().supportsReadContent()) {
+      throw new InvalidDefinitionException(String.format("Source %s doesn't support reading data by id", task.getDataSource()));
+    }
+    Job job = new Job();
+    job.setUuid(UUID.randomUUID());
+    job.setTaskId(taskId);
+    job.setTaskDefinition(taskDefinition);
+    job.setStartTimestamp(new Date());
+    try {
+      workManager.createJob(job);
+    } catch (CrudlException ex) {
+      throw new DataProcessorException(formatForLog("Error creating distributed job for task: %s", taskId), ex);
+    }
+    Thread thread = new Thread(() -> partition(job, task.getDataSource(), task, Math.max(partitionSize, 1)), "DISTRIBUTING");
+    thread.setDaemon(true);
+    thread.start();
+    return job;
+  }
+
+  /**
+   * Reads job.
+   * @param jobId job id
+   * @return job or <code>null</code> if no such job in progress
+   * @throws DataProcessorException if reading job fails
+   */
+  public Job readJob(UUID jobId) throws DataProcessorException {
+    try {
+      return workManager.readJob(jobId);
+    } catch (CrudlException ex) {
+      throw new DataProcessorException(formatForLog("Error reading distributed job: %s", jobId), ex);
+    }
+  }
+
+  /**
+   * Iterates over the source storing partitions of fetchable data ids.
+   * @param job job
+   * @param broker input broker
+   * @param task task
+   * @param partitionSize partition size
+   */
+  private void partition(Job job, InputBroker broker, Task task, int partitionSize) {
+    int index = 0;
+    long total = 0;
+    List<String> ids = new ArrayList<>(partitionSize);
+    try {
+      broker.initialize(new SimpleInitContext(task, new ArrayList<>()));
+      InputBroker.Iterator iterator = broker.iterator(new SimpleIteratorContext());
+      while (iterator.hasNext()) {
+        DataReference dataReference = iterator.next();
+        ids.add(dataReference.getFetchableId());
+        total++;
+        if (ids.size() >= partitionSize) {
+          workManager.addPartition(job.getUuid(), index++, ids);
+          ids = new ArrayList<>(partitionSize);
+        }
+      }
+      if (!ids.isEmpty()) {
+        workManager.addPartition(job.getUuid(), index++, ids);
+      }
+      LOG.info(formatForLog("Task %s partitioned into %d partitions of %d data ids", job.getTaskId(), index, total));
+    } catch (Exception ex) {
+      LOG.error(formatForLog("Error partitioning task %s; harvesting %d partitions stored so far", job.getTaskId(), index), ex);
+    } finally {
+      broker.terminate();
+    }
+    try {
+      if (workManager.closeJob(job.getUuid(), index)) {
+        finish(job.getUuid());
+      }
+    } catch (CrudlException ex) {
+      LOG.error(formatForLog("Error closing distributed job: %s", job.getUuid()), ex);
+    }
+  }
+
+  /**
+   * Claims and starts open partitions up to the limit of this node.
+   */
+  private void poll() {
+    try {
+      for (Partition partition: workManager.listOpenPartitions()) {
+        if (running.size() >= maxPartitions) {
+          break;
+        }
+        String key = leaseKey(partition);
+        if (!running.contains(key) && clusterManager.acquire(key)) {
+          running.add(key);
+          run(partition, key);
+        }
+      }
+    } catch (CrudlException | RuntimeException ex) {
+      LOG.warn("Error polling for partitions", ex);
+    }
+  }
+
+  /**
+   * Harvests partition.
+   * @param partition partition
+   * @param key lease key
+   */
+  private void run(Partition partition, String key) {
+    try {
+      Job job = workManager.readJob(partition.getJobId());
+      if (job == null) {
+        throw new DataProcessorException(formatForLog("Missing distributed job: %s", partition.getJobId()));
+      }
+      List<String> ids = workManager.readPartition(partition.getJobId(), partition.getIndex());
+      ProcessReference ref = executionService.execute(job.getTaskDefinition(), ids, parallelism);
+      ref.getProcess().addListener(new PartitionAdaptor(this, job, partition, key, ref));
+      ref.getProcess().init();
+      ref.getProcess().begin();
+      LOG.info(formatForLog("Harvesting partition %d of task %s", partition.getIndex(), job.getTaskId()));
+    } catch (Exception ex) {
+      LOG.error(formatForLog("Error harvesting partition %d of job %s", partition.getIndex(), partition.getJobId()), ex);
+      History.Report report = new History.Report();
+      report.failedToHarvest = 0L;
+      report.failedToPublish = 0L;
+      report.details.put(String.valueOf(ex.getMessage()), 1);
+      complete(partition, key, report);
+    }
+  }
+
+  /**
+   * Completes partition; the last partition finishes the job.
+   * @param partition partition
+   * @param key lease key
+   * @param report partition report
+   */
+  private void complete(Partition partition, String key, History.Report report) {
+    try {
+      if (workManager.completePartition(partition.getJobId(), partition.getIndex(), report)) {
+        finish(partition.getJobId());
+      }
+    } catch (CrudlException ex) {
+      LOG.error(formatForLog("Error completing partition %d of job %s", partition.getIndex(), partition.getJobId()), ex);
+    } finally {
+      running.remove(key);
+      try {
+        clusterManager.release(key);
+      } catch (CrudlException ex) {
+        LOG.warn(formatForLog("Error releasing lease: %s", key), ex);
+      }
+    }
+  }
+
+  /**
+   * Stores history event summing reports of all the partitions and deletes the job.
+   * @param jobId job id
+   * @throws CrudlException if finishing job fails
+   */
+  private void finish(UUID jobId) throws CrudlException {
+    Job job = workManager.readJob(jobId);
+    if (job == null) {
+      return;
+    }
+    History.Report report = new History.Report();
+    report.failedToHarvest = 0L;
+    report.failedToPublish = 0L;
+    for (History.Report r: workManager.listReports(jobId)) {
+      report.acquired += r.acquired;
+      report.created += r.created;
+      report.updated += r.updated;
+      report.failed += r.failed;
+      report.failedToHarvest += r.failedToHarvest != null? r.failedToHarvest: 0L;
+      report.failedToPublish += r.failedToPublish != null? r.failedToPublish: 0L;
+      r.details.forEach((msg, count) -> report.details.merge(msg, count, Integer::sum));
+    }
+    History.Event event = new History.Event();
+    event.setUuid(jobId);
+    event.setTaskId(job.getTaskId());
+    event.setStartTimestamp(job.getStartTimestamp());
+    event.setEndTimestamp(new Date());
+    event.setReport(report);
+    if (job.getTaskId() != null) {
+      historyManager.create(event);
+    }
+    workManager.deleteJob(jobId);
+    LOG.info(formatForLog("Completed distributed harvesting of task %s: acquired: %d, created: %d, updated: %d, failed: %d",
+            job.getTaskId(), report.acquired, report.created, report.updated, report.failed));
+  }
+
+  private static String leaseKey(Partition partition) {
+    return String.format("partition:%s:%d", partition.getJobId(), partition.getIndex());
+  }
+
+  /**
+   * Partition adaptor. Collects report of the partition process and stores
+   * failed data under the job id.
+   */
+  private static final class PartitionAdaptor extends HistoryManagerAdaptor {
+    private final DistributedExecutor executor;
+    private final Job job;
+    private final Partition partition;
+    private final String key;
+
+    public PartitionAdaptor(DistributedExecutor executor, Job job, Partition partition, String key, ProcessReference processReference) {
+      super(job.getTaskId(), processReference, executor.historyManager);
+      this.executor = executor;
+      this.job = job;
+      this.partition = partition;
+      this.key = key;
+    }
+
+    @Override
+    protected UUID getEventId() {
+      return job.getUuid();
+    }
+
+    @Override
+    protected void store(History.Event event) {
+      executor.complete(partition, key, event.getReport());
+    }
+  }
+}
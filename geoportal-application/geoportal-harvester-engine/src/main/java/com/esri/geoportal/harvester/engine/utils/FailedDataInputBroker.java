@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataContent;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputConnector;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Failed data input broker.
+ * <p>
+ * Wraps input broker of the task so only the data which failed during the
+ * earlier harvest is harvested again. Instead of iterating over the source,
+ * each data is fetched by its id through {@link InputBroker#readContent(java.lang.String)}
+ * with up to the given number of concurrent reads; data is handed over in the
+ * order of the ids. Data which can not be read is reported with 
+ * {@link DataReadException}, so it stays on record as failed. Since
+ * only a part of the source is harvested, destinations are prevented from
+ * cleaning up the records not seen during the harvest.
+ */
+public class FailedDataInputBroker implements InputBroker {
+  private static final Logger LOG = LoggerFactory.getLogger(FailedDataInputBroker.class);
+
+  /**
+   * Default number of concurrent reads.
+   */
+  public static final int DEFAULT_PARALLELISM = 4;
+  
+  /**
+   * Default maximum number of concurrent reads a client may ask for.
+   */
+  public static final int DEFAULT_MAX_PARALLELISM = 32;
+
+  private final InputBroker broker;
+  private final List<String> ids;
+  private final int parallelism;
+  private final List<ThreadPoolExecutor> executors = new ArrayList<>();
+
+  /**
+   * Creates instance of the broker.
+   * @param broker input broker of the task
+   * @param ids fetchable ids of the data to harvest
+   * @param parallelism maximum number of concurrent reads
+   */
+  public FailedDataInputBroker(InputBroker broker, List<String> ids, int parallelism) {
+    this.broker = broker;
+    this.ids = new ArrayList<>(ids);
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  @Override
+  public URI getBrokerUri() throws URISyntaxException {
+    return broker.getBrokerUri();
+  }
+
+  @Override
+  public Iterator iterator(IteratorContext iteratorContext) throws DataInputException {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "HARVESTING-FAILED");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    synchronized (executors) {
+      executors.add(executor);
+    }
+    return new FailedDataIterator(executor);
+  }
+
+  @Override
+  public DataContent readContent(String id) throws DataInputException {
+    return broker.readContent(id);
+  }
+
+  @Override
+  public boolean supportsReadContent() {
+    return broker.supportsReadContent();
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    return broker.getEntityDefinition();
+  }
+
+  @Override
+  public InputConnector getConnector() {
+    return broker.getConnector();
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return broker.hasAccess(creds);
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    context.preventCleanup();
+    broker.initialize(context);
+  }
+
+  @Override
+  public void terminate() {
+    synchronized (executors) {
+      executors.forEach(ThreadPoolExecutor::shutdownNow);
+      executors.clear();
+    }
+    broker.terminate();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FAILED DATA [%d] OF %s", ids.size(), broker);
+  }
+
+  /**
+   * Iterator reading data by ids.
+   */
+  private final class FailedDataIterator implements InputBroker.Iterator {
+    private final ThreadPoolExecutor executor;
+    private final Deque<Future<DataContent>> pending = new ArrayDeque<>();
+    private final Deque<String> pendingIds = new ArrayDeque<>();
+    private int index;
+
+    public FailedDataIterator(ThreadPoolExecutor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() throws DataInputException {
+      while (index < ids.size() && pending.size() < 2 * parallelism) {
+        String id = ids.get(index++);
+        pendingIds.add(id);
+        pending.add(executor.submit(() -> broker.readContent(id)));
+      }
+      if (pending.isEmpty()) {
+        executor.shutdown();
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Gets next data.
+     * @return data reference
+     * @throws DataReadException if the data can not be read; iteration may continue
+     * @throws DataInputException if there is no more data or reading is interrupted
+     */
+    @Override
+    public DataReference next() throws DataInputException {
+      if (!hasNext()) {
+        throw new DataInputException(FailedDataInputBroker.this, "No more records.");
+      }
+      String id = pendingIds.poll();
+      try {
+        DataContent content = pending.poll().get();
+        if (content instanceof DataReference) {
+          return (DataReference) content;
+        }
+        LOG.warn(formatForLog("Unable to harvest failed data %s from %s: no data available", id, broker));
+        throw new DataReadException(FailedDataInputBroker.this, id, "Unable to harvest failed data: no data available");
+      } catch (ExecutionException ex) {
+        LOG.warn(formatForLog("Unable to harvest failed data %s from %s", id, broker), ex.getCause());
+        throw new DataReadException(FailedDataInputBroker.this, id, "Unable to harvest failed data", ex.getCause());
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        pending.forEach(f -> f.cancel(true));
+        pending.clear();
+        executor.shutdownNow();
+        throw new DataInputException(FailedDataInputBroker.this, "Reading failed data interrupted.", ex);
+      }
+    }
+  }
+}
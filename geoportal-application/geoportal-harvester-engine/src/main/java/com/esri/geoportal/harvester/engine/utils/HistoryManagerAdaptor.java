@@ -23,6 +23,7 @@ import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.defs.PublishingStatus;
 import com.esri.geoportal.harvester.api.ex.DataException;
 import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
 import java.util.Date;
@@ -32,14 +33,17 @@ import org.slf4j.LoggerFactory;
 
 /**
  * History manager adaptor.
+ * <p>
+ * Report is updated under the lock of the adaptor, since processes with
+ * several workers may notify listeners from more than one thread.
  */
 public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
 
   private static final Logger LOG = LoggerFactory.getLogger(HistoryManagerAdaptor.class);
 
-  private final UUID uuid;
-  private final ProcessReference processReference;
-  private final HistoryManager historyManager;
+  protected final UUID uuid;
+  protected final ProcessReference processReference;
+  protected final HistoryManager historyManager;
   private final History.Event event = new History.Event();
   private final History.Report report = new History.Report();
   private Date startDate;
@@ -59,10 +63,10 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
   }
 
   @Override
-  public void onStatusChange(ProcessInstance.Status status) {
+  public synchronized void onStatusChange(ProcessInstance.Status status) {
     switch (status) {
       case submitted:
-        event.setUuid(processReference.getProcessId());
+        event.setUuid(getEventId());
         event.setTaskId(uuid);
         report.failedToHarvest = 0L;
         report.failedToPublish = 0L;
@@ -84,7 +88,7 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
         }
         event.setReport(report);
         try {
-          historyManager.create(event);
+          store(event);
         } catch (CrudlException ex) {
           LOG.error(formatForLog("Error creating history event for: %s", uuid), ex);
         }
@@ -94,18 +98,35 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
   }
 
   @Override
-  public void onDataAcquired(DataReference dataReference) {
+  public synchronized void onDataAcquired(DataReference dataReference) {
     report.acquired++;
   }
 
+  /**
+   * Gets id of the history event; failed data are stored under that id.
+   * @return event id
+   */
+  protected UUID getEventId() {
+    return processReference.getProcessId();
+  }
+
+  /**
+   * Stores history event of the completed process.
+   * @param event history event
+   * @throws CrudlException if storing event fails
+   */
+  protected void store(History.Event event) throws CrudlException {
+    historyManager.create(event);
+  }
+
   @Override
-  public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+  public synchronized void onDataProcessed(DataReference dataReference, PublishingStatus status) {
     report.created += status.getCreated();
     report.updated += status.getUpdated();
   }
 
   @Override
-  public void onError(DataException ex) {
+  public synchronized void onError(DataException ex) {
     report.failed++;
     
     String msg = ex.getMessage();
@@ -122,6 +143,15 @@ public class HistoryManagerAdaptor extends BaseProcessInstanceListener {
       }
     } else {
       report.failedToHarvest ++;
+      if (ex instanceof DataReadException) {
+        // data which couldn't be read is harvested again with the failed data
+        DataReadException readex = (DataReadException) ex;
+        try {
+          historyManager.storeFailedDataId(event.getUuid(), readex.getFetchableDataId());
+        } catch (CrudlException ex2) {
+          LOG.error(formatForLog("Error storing failed data id: %s %s [%s]", uuid, event.getUuid(), readex.getFetchableDataId()), ex);
+        }
+      }
     }
   }
 
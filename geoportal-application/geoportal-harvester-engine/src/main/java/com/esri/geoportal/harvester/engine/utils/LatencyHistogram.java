@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram.
+ * <p>
+ * Thread-safe histogram of durations with logarithmic buckets; each bucket
+ * spans about 19% of its lower bound, which bounds the error of percentiles.
+ * Durations from 1 microsecond up to about an hour are distinguished.
+ */
+public class LatencyHistogram {
+  private static final int BUCKETS_PER_DOUBLING = 4;
+  private static final int BUCKETS = 32 * BUCKETS_PER_DOUBLING;
+  private static final long MIN_NANOS = 1000;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records duration.
+   * @param nanos duration in nanoseconds
+   */
+  public void record(long nanos) {
+    long duration = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucket(duration));
+    count.increment();
+    total.add(duration);
+    max.accumulateAndGet(duration, Math::max);
+  }
+
+  /**
+   * Gets number of recorded durations.
+   * @return number of recorded durations
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets total of the recorded durations.
+   * @return total in milliseconds
+   */
+  public double getTotal() {
+    return total.sum() / 1e6;
+  }
+
+  /**
+   * Gets mean duration.
+   * @return mean duration in milliseconds or <code>0</code> if nothing recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n > 0? total.sum() / 1e6 / n: 0;
+  }
+
+  /**
+   * Gets maximum duration.
+   * @return maximum duration in milliseconds
+   */
+  public double getMax() {
+    return max.get() / 1e6;
+  }
+
+  /**
+   * Gets percentile. Value is the upper bound of the bucket the percentile
+   * falls into, capped by the maximum recorded duration.
+   * @param percentile percentile (0-100)
+   * @return duration in milliseconds or <code>0</code> if nothing recorded
+   */
+  public double getPercentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      n += counts[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max((long) Math.ceil(n * Math.min(Math.max(percentile, 0), 100) / 100), 1);
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += counts[i];
+      if (cumulative >= rank) {
+        return Math.min(upperBound(i), max.get()) / 1e6;
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Finds bucket of the duration.
+   * @param nanos duration in nanoseconds
+   * @return bucket index
+   */
+  private static int bucket(long nanos) {
+    if (nanos <= MIN_NANOS) {
+      return 0;
+    }
+    int index = (int) Math.ceil(Math.log((double) nanos / MIN_NANOS) / Math.log(2) * BUCKETS_PER_DOUBLING);
+    return Math.min(index, BUCKETS - 1);
+  }
+
+  /**
+   * Gets upper bound of the bucket.
+   * @param index bucket index
+   * @return upper bound in nanoseconds
+   */
+  private static long upperBound(int index) {
+    return index < BUCKETS - 1? (long) (MIN_NANOS * Math.pow(2, (double) index / BUCKETS_PER_DOUBLING)): Long.MAX_VALUE;
+  }
+}
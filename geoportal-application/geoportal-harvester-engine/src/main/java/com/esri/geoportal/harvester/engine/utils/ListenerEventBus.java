@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener event bus.
+ * <p>
+ * Delivers process events to the listeners on a separate thread, so slow
+ * listeners (reporting, history) don't hold the harvesting thread. Events are
+ * kept in a bounded buffer and delivered in batches in the order they have been
+ * published.
+ * <p>
+ * Events published with {@link #publish(java.util.function.Consumer)} are never
+ * lost; publisher waits if buffer is full. Events published with
+ * {@link #offer(java.util.function.Consumer)} are dropped if buffer is full.
+ * Events published while the bus is not running are delivered synchronously,
+ * under the same lock as the batches, thus listeners never see concurrent events.
+ * Failure of a listener, including {@link Error}, never stops the delivery; 
+ * should the delivery thread die anyway, publishers deliver the buffered 
+ * events themselves rather than waiting for the buffer forever.
+ */
+public class ListenerEventBus {
+  private static final Logger LOG = LoggerFactory.getLogger(ListenerEventBus.class);
+  private static final Consumer<ProcessInstance.Listener> END = l -> {};
+  private static final long PUT_INTERVAL = 100;
+
+  private final List<ProcessInstance.Listener> listeners;
+  private final BlockingQueue<Consumer<ProcessInstance.Listener>> buffer;
+  private final int batchSize;
+  private final AtomicLong dropped = new AtomicLong();
+
+  private volatile Thread thread;
+
+  /**
+   * Creates instance of the bus.
+   * @param listeners listeners
+   * @param capacity buffer capacity
+   * @param batchSize maximum number of events delivered in a single batch
+   */
+  public ListenerEventBus(List<ProcessInstance.Listener> listeners, int capacity, int batchSize) {
+    this.listeners = listeners;
+    this.buffer = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+    this.batchSize = Math.max(batchSize, 1);
+  }
+
+  /**
+   * Starts delivery thread.
+   * @param name name of the delivery thread
+   */
+  public synchronized void start(String name) {
+    if (thread == null) {
+      thread = new Thread(this::deliver, name);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops delivery thread. All events published so far are delivered before this
+   * method returns.
+   */
+  public void close() {
+    Thread current;
+    synchronized (this) {
+      current = thread;
+      thread = null;
+    }
+    boolean interrupted = false;
+    if (current != null) {
+      put(END, current);
+      while (current.isAlive()) {
+        try {
+          current.join();
+        } catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+    }
+    List<Consumer<ProcessInstance.Listener>> remaining = new ArrayList<>();
+    buffer.drainTo(remaining);
+    remaining.remove(END);
+    deliver(remaining);
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (current != null && dropped.get() > 0) {
+      LOG.warn(String.format("Number of events dropped because of the full buffer: %d", dropped.get()));
+    }
+  }
+
+  /**
+   * Publishes event; waits if buffer is full.
+   * @param event event
+   */
+  public void publish(Consumer<ProcessInstance.Listener> event) {
+    Thread current = thread;
+    if (current != null) {
+      put(event, current);
+    } else {
+      deliver(event);
+    }
+  }
+
+  /**
+   * Publishes event; drops event if buffer is full.
+   * @param event event
+   * @return <code>true</code> if event has been accepted
+   */
+  public boolean offer(Consumer<ProcessInstance.Listener> event) {
+    if (thread != null) {
+      if (!buffer.offer(event)) {
+        dropped.incrementAndGet();
+        return false;
+      }
+    } else {
+      deliver(event);
+    }
+    return true;
+  }
+
+  /**
+   * Gets number of dropped events.
+   * @return number of dropped events
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * Puts event into the buffer regardless of the interruption. If the delivery
+   * thread is dead, buffered events and the event are delivered synchronously.
+   * @param event event
+   * @param consumer delivery thread
+   */
+  private void put(Consumer<ProcessInstance.Listener> event, Thread consumer) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (buffer.offer(event, PUT_INTERVAL, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+        if (!consumer.isAlive()) {
+          List<Consumer<ProcessInstance.Listener>> remaining = new ArrayList<>();
+          buffer.drainTo(remaining);
+          remaining.add(event);
+          remaining.remove(END);
+          deliver(remaining);
+          break;
+        }
+      } catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Delivery loop.
+   */
+  private void deliver() {
+    boolean end = false;
+    try {
+      List<Consumer<ProcessInstance.Listener>> batch = new ArrayList<>(batchSize);
+      while (!end) {
+        try {
+          batch.add(buffer.take());
+        } catch (InterruptedException ex) {
+          continue;
+        }
+        buffer.drainTo(batch, batchSize - 1);
+        end = batch.remove(END);
+        deliver(batch);
+        batch.clear();
+      }
+    } finally {
+      if (!end) {
+        LOG.error(String.format("Event delivery thread %s stopped unexpectedly; delivering events synchronously", Thread.currentThread().getName()));
+        synchronized (this) {
+          if (thread == Thread.currentThread()) {
+            thread = null;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers batch of events.
+   * @param batch batch of events
+   */
+  private void deliver(List<Consumer<ProcessInstance.Listener>> batch) {
+    synchronized (listeners) {
+      for (Consumer<ProcessInstance.Listener> event: batch) {
+        dispatch(event);
+      }
+    }
+  }
+
+  /**
+   * Delivers single event. Listeners are not thread safe, thus events published
+   * synchronously by concurrent workers are delivered one at a time, just like
+   * batches delivered by the delivery thread.
+   * @param event event
+   */
+  private void deliver(Consumer<ProcessInstance.Listener> event) {
+    synchronized (listeners) {
+      dispatch(event);
+    }
+  }
+
+  /**
+   * Delivers single event; caller has to hold lock on the listeners.
+   * @param event event
+   */
+  private void dispatch(Consumer<ProcessInstance.Listener> event) {
+    for (ProcessInstance.Listener listener: listeners) {
+      try {
+        event.accept(listener);
+      } catch (Throwable ex) {
+        // an error of a single listener must not stop the delivery to the others
+        LOG.warn(String.format("Error delivering event to the listener: %s", listener), ex);
+      }
+    }
+  }
+}
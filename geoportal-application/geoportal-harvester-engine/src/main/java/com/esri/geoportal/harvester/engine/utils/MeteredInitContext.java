@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ProcessInstance.Listener;
+import com.esri.geoportal.harvester.api.base.SimpleInitContext;
+import com.esri.geoportal.harvester.api.defs.Task;
+import java.util.List;
+
+/**
+ * Init context providing process metrics.
+ * @see MeteredLinkAction
+ */
+public class MeteredInitContext extends SimpleInitContext {
+  private final ProcessMetrics metrics;
+
+  /**
+   * Creates instance of the context.
+   * @param task task
+   * @param listeners listeners
+   * @param metrics process metrics
+   */
+  public MeteredInitContext(Task task, List<Listener> listeners, ProcessMetrics metrics) {
+    super(task, listeners);
+    this.metrics = metrics;
+  }
+
+  /**
+   * Gets process metrics.
+   * @return process metrics
+   */
+  public ProcessMetrics getMetrics() {
+    return metrics;
+  }
+}
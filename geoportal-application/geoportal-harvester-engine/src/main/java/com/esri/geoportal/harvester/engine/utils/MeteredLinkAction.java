@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import java.util.List;
+
+/**
+ * Metered link action.
+ * <p>
+ * Measures time spent by the link action and records it in the metrics of the
+ * process the action is initialized for (see {@link MeteredInitContext}).
+ * Publishing is measured on push, transforming and filtering on execute.
+ * Published records are also counted per output connector type in the
+ * {@link MetricsRegistry}.
+ */
+public class MeteredLinkAction implements LinkAction {
+  private final LinkAction action;
+  private final ProcessMetrics.Stage stage;
+  private final String name;
+  private volatile ProcessMetrics metrics;
+  private volatile String connector;
+
+  /**
+   * Creates instance of the action.
+   * @param action actual action
+   * @param stage stage the action belongs to
+   * @param name action name
+   */
+  public MeteredLinkAction(LinkAction action, ProcessMetrics.Stage stage, String name) {
+    this.action = action;
+    this.stage = stage;
+    this.name = name;
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    metrics = context instanceof MeteredInitContext? ((MeteredInitContext)context).getMetrics(): null;
+    EntityDefinition definition = action.getLinkActionDefinition();
+    connector = stage == ProcessMetrics.Stage.publish && definition != null? definition.getType(): null;
+    action.initialize(context);
+  }
+
+  @Override
+  public void terminate() {
+    action.terminate();
+  }
+
+  @Override
+  public EntityDefinition getLinkActionDefinition() {
+    return action.getLinkActionDefinition();
+  }
+
+  @Override
+  public List<DataReference> execute(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    if (metrics == null || stage == ProcessMetrics.Stage.publish) {
+      return action.execute(dataRef);
+    }
+    long start = System.nanoTime();
+    try {
+      return action.execute(dataRef);
+    } finally {
+      metrics.record(stage, name, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    long start = System.nanoTime();
+    try {
+      return published(action.push(dataRef));
+    } catch (DataProcessorException|DataOutputException|RuntimeException ex) {
+      failed(1);
+      throw ex;
+    } finally {
+      if (metrics != null && stage == ProcessMetrics.Stage.publish) {
+        metrics.record(stage, name, System.nanoTime() - start);
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsBatch() {
+    return action.supportsBatch();
+  }
+
+  @Override
+  public List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    if (!action.supportsBatch()) {
+      return LinkAction.super.pushBatch(dataRefs);
+    }
+    long start = System.nanoTime();
+    try {
+      List<PublishingStatus> statuses = action.pushBatch(dataRefs);
+      statuses.forEach(this::published);
+      return statuses;
+    } catch (DataProcessorException|DataOutputException|RuntimeException ex) {
+      failed(dataRefs.size());
+      throw ex;
+    } finally {
+      if (metrics != null && stage == ProcessMetrics.Stage.publish && !dataRefs.isEmpty()) {
+        // batch is accounted as equal share of each record
+        long share = (System.nanoTime() - start) / dataRefs.size();
+        for (int i = 0; i < dataRefs.size(); i++) {
+          metrics.record(stage, name, share);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts published records.
+   * @param status publishing status
+   * @return the same publishing status
+   */
+  private PublishingStatus published(PublishingStatus status) {
+    if (connector != null && status != null) {
+      count("created", status.getCreated());
+      count("updated", status.getUpdated());
+      count("skipped", status.getSkipped());
+    }
+    return status;
+  }
+
+  /**
+   * Counts records failed to publish.
+   * @param count number of records
+   */
+  private void failed(long count) {
+    if (connector != null) {
+      count("failed", count);
+    }
+  }
+
+  private void count(String outcome, long count) {
+    if (count > 0) {
+      MetricsRegistry.getInstance().counter("harvester_records_published_total", "Records published per output connector type.", "connector", connector, "outcome", outcome).add(count);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return action.toString();
+  }
+}
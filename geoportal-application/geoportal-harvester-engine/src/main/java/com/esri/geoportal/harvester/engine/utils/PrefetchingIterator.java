@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prefetching iterator.
+ * <p>
+ * Wraps iterator of the input broker and runs it on a separate thread keeping 
+ * up to the given number of data references ready to be consumed. This way 
+ * fetching next record overlaps with publishing the current one. Errors reported
+ * by the source iterator, including {@link Error}s, are rethrown from 
+ * {@link #hasNext()} at the same position within the sequence they occurred; 
+ * iteration ends afterwards. Only {@link DataReadException} is rethrown from
+ * {@link #next()} instead, so the iteration continues past it.
+ * Cursor of the source iterator is captured along with a data reference no
+ * more often than once per cursor interval, since computing the cursor may be
+ * expensive; {@link #getCursor()} returns the latest cursor captured at or 
+ * before the current data reference.
+ */
+public class PrefetchingIterator implements InputBroker.Iterator, AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PrefetchingIterator.class);
+  private static final Item END = new Item(null, null, null);
+  private static final long CLOSE_TIMEOUT = 10000;
+  
+  private final InputBroker broker;
+  private final InputBroker.Iterator source;
+  private final BlockingQueue<Item> buffer;
+  private final Thread thread;
+  
+  private final long cursorInterval;
+  
+  private Item current;
+  private String cursor;
+
+  /**
+   * Creates instance of the iterator capturing cursor of every data reference.
+   * @param broker input broker
+   * @param source source iterator
+   * @param size number of data references to prefetch
+   * @param name name of the prefetching thread
+   */
+  public PrefetchingIterator(InputBroker broker, InputBroker.Iterator source, int size, String name) {
+    this(broker, source, size, name, 0);
+  }
+
+  /**
+   * Creates instance of the iterator.
+   * @param broker input broker
+   * @param source source iterator
+   * @param size number of data references to prefetch
+   * @param name name of the prefetching thread
+   * @param cursorInterval minimal time (in milliseconds) between capturing cursors; negative to never capture cursor
+   */
+  public PrefetchingIterator(InputBroker broker, InputBroker.Iterator source, int size, String name, long cursorInterval) {
+    this.broker = broker;
+    this.source = source;
+    this.buffer = new ArrayBlockingQueue<>(Math.max(size, 1) + 1);
+    this.thread = new Thread(this::fetch, name);
+    this.thread.setDaemon(true);
+    this.cursorInterval = cursorInterval;
+  }
+  
+  /**
+   * Starts prefetching.
+   * @return this iterator
+   */
+  public PrefetchingIterator start() {
+    thread.start();
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() throws DataInputException {
+    if (current==null) {
+      try {
+        current = buffer.take();
+        if (current.cursor!=null) {
+          cursor = current.cursor;
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    if (current.error!=null && !(current.error instanceof DataReadException)) {
+      Throwable error = current.error;
+      current = END;
+      if (error instanceof DataInputException) {
+        throw (DataInputException)error;
+      }
+      if (error instanceof Error) {
+        throw (Error)error;
+      }
+      throw (RuntimeException)error;
+    }
+    return current!=END;
+  }
+
+  @Override
+  public DataReference next() throws DataInputException {
+    if (!hasNext()) {
+      throw new DataInputException(broker, "No more records.");
+    }
+    Item item = current;
+    current = null;
+    if (item.error!=null) {
+      throw (DataReadException)item.error;
+    }
+    return item.dataReference;
+  }
+
+  @Override
+  public String getCursor() {
+    return current!=null && current!=END? cursor: null;
+  }
+
+  /**
+   * Stops prefetching. Waits a limited time for the prefetching thread to stop;
+   * thread blocked reading the source (socket read does not react to 
+   * interruption) is abandoned.
+   */
+  @Override
+  public void close() {
+    close(CLOSE_TIMEOUT);
+  }
+  
+  /**
+   * Stops prefetching.
+   * @param timeout maximum time (in milliseconds) to wait for the prefetching thread
+   */
+  /*package*/ void close(long timeout) {
+    // interruption of the caller (process being aborted) must not cut the wait short
+    boolean interrupted = Thread.interrupted();
+    thread.interrupt();
+    buffer.clear();
+    try {
+      thread.join(timeout);
+    } catch (InterruptedException ex) {
+      interrupted = true;
+    }
+    if (thread.isAlive()) {
+      LOG.warn(String.format("Prefetching thread %s did not stop within %d ms; abandoning it", thread.getName(), timeout));
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+  
+  /**
+   * Prefetching loop.
+   */
+  private void fetch() {
+    try {
+      try {
+        long lastCapture = 0;
+        while (!Thread.currentThread().isInterrupted() && source.hasNext()) {
+          String cursor = null;
+          if (cursorInterval >= 0 && (lastCapture == 0 || System.currentTimeMillis() - lastCapture >= cursorInterval)) {
+            cursor = source.getCursor();
+            lastCapture = System.currentTimeMillis();
+          }
+          try {
+            buffer.put(new Item(source.next(), null, cursor));
+          } catch (DataReadException ex) {
+            buffer.put(new Item(null, ex, cursor));
+          }
+        }
+      } catch (InterruptedException ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        // any failure, including errors, must reach the consumer waiting for the next item
+        buffer.put(new Item(null, ex, null));
+      }
+      buffer.put(END);
+    } catch (InterruptedException ex) {
+      // closed by the consumer
+    }
+  }
+  
+  /**
+   * Buffered item; either data reference or an error.
+   */
+  private static final class Item {
+    private final DataReference dataReference;
+    private final Throwable error;
+    private final String cursor;
+
+    public Item(DataReference dataReference, Throwable error, String cursor) {
+      this.dataReference = dataReference;
+      this.error = error;
+      this.cursor = cursor;
+    }
+  }
+}
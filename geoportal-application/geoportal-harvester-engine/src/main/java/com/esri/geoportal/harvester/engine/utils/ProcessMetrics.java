@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor.DefaultProcess;
+import com.esri.geoportal.harvester.engine.utils.ProcessScheduler.ScheduledProcess;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process metrics.
+ * <p>
+ * Collects latency of each stage of processing a record (acquiring it from the
+ * source, transforming, filtering and publishing) as well as latency of each
+ * individual link, along with records and bytes throughput. Bytes are counted
+ * only for records which content has been actually loaded. Acquired records
+ * are also counted per source connector type in the {@link MetricsRegistry}.
+ * Retries and circuit breakers of the destinations are reported through
+ * {@link ResilienceStatistics}, lag of the destinations behind the input
+ * through {@link DestinationStatistics}.
+ */
+public class ProcessMetrics {
+
+  /**
+   * Processing stage.
+   */
+  public enum Stage {
+    acquire, transform, filter, publish
+  }
+
+  private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+  private final Map<String, LatencyHistogram> links = Collections.synchronizedMap(new LinkedHashMap<>());
+  private final List<ResilienceStatistics> resilience = new CopyOnWriteArrayList<>();
+  private final List<DestinationStatistics> destinations = new CopyOnWriteArrayList<>();
+  private final LongAdder records = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private volatile long startTime;
+  private volatile long endTime;
+  private final MetricsRegistry.Counter acquiredCounter;
+
+  /**
+   * Creates instance of the metrics.
+   */
+  public ProcessMetrics() {
+    this(null);
+  }
+
+  /**
+   * Creates instance of the metrics.
+   * @param connector source connector type or <code>null</code> if unknown
+   */
+  public ProcessMetrics(String connector) {
+    this.acquiredCounter = connector != null? MetricsRegistry.getInstance().counter("harvester_records_acquired_total", "Records acquired per source connector type.", "connector", connector): null;
+    for (Stage stage: Stage.values()) {
+      stages.put(stage, new LatencyHistogram());
+    }
+  }
+
+  /**
+   * Gets metrics of the process.
+   * @param process process
+   * @return metrics or <code>null</code> if process doesn't collect metrics
+   */
+  public static ProcessMetrics of(ProcessInstance process) {
+    ProcessInstance actual = process instanceof ScheduledProcess? ((ScheduledProcess)process).getProcess(): process;
+    return actual instanceof DefaultProcess? ((DefaultProcess)actual).getMetrics(): null;
+  }
+
+  /**
+   * Marks start of the process.
+   */
+  public void started() {
+    startTime = System.currentTimeMillis();
+    endTime = 0;
+  }
+
+  /**
+   * Marks completion of the process.
+   */
+  public void completed() {
+    endTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Records acquiring a record.
+   * @param nanos time spent acquiring the record (ns)
+   */
+  public void acquired(long nanos) {
+    records.increment();
+    stages.get(Stage.acquire).record(nanos);
+    if (acquiredCounter != null) {
+      acquiredCounter.inc();
+    }
+  }
+
+  /**
+   * Records size of the record content.
+   * @param length content length in bytes or negative if unknown
+   */
+  public void bytes(long length) {
+    if (length > 0) {
+      bytes.add(length);
+    }
+  }
+
+  /**
+   * Records time spent by a link.
+   * @param stage stage
+   * @param link link name
+   * @param nanos time spent (ns)
+   */
+  public void record(Stage stage, String link, long nanos) {
+    stages.get(stage).record(nanos);
+    links.computeIfAbsent(String.format("%s: %s", stage, link), k -> new LatencyHistogram()).record(nanos);
+  }
+
+  /**
+   * Gets stage latency.
+   * @param stage stage
+   * @return latency histogram
+   */
+  public LatencyHistogram getStage(Stage stage) {
+    return stages.get(stage);
+  }
+
+  /**
+   * Gets latency of each link.
+   * @return map of link name to the latency histogram
+   */
+  public Map<String, LatencyHistogram> getLinks() {
+    synchronized (links) {
+      return new LinkedHashMap<>(links);
+    }
+  }
+
+  /**
+   * Registers resilience statistics of a destination.
+   * @param statistics resilience statistics
+   */
+  public void register(ResilienceStatistics statistics) {
+    if (!resilience.contains(statistics)) {
+      resilience.add(statistics);
+    }
+  }
+
+  /**
+   * Gets resilience statistics of the destinations.
+   * @return list of resilience statistics
+   */
+  public List<ResilienceStatistics> getResilience() {
+    return new ArrayList<>(resilience);
+  }
+
+  /**
+   * Registers statistics of a destination.
+   * @param statistics destination statistics
+   */
+  public void register(DestinationStatistics statistics) {
+    if (!destinations.contains(statistics)) {
+      destinations.add(statistics);
+    }
+  }
+
+  /**
+   * Gets statistics of the destinations.
+   * @return list of destination statistics
+   */
+  public List<DestinationStatistics> getDestinations() {
+    return new ArrayList<>(destinations);
+  }
+
+  /**
+   * Gets number of acquired records.
+   * @return number of acquired records
+   */
+  public long getRecords() {
+    return records.sum();
+  }
+
+  /**
+   * Gets number of bytes of the records with the loaded content.
+   * @return number of bytes
+   */
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /**
+   * Gets elapsed time.
+   * @return elapsed time in milliseconds
+   */
+  public long getElapsed() {
+    long start = startTime;
+    if (start == 0) {
+      return 0;
+    }
+    long end = endTime;
+    return (end != 0? end: System.currentTimeMillis()) - start;
+  }
+
+  /**
+   * Gets records throughput.
+   * @return records per second
+   */
+  public double getRecordsPerSecond() {
+    long elapsed = getElapsed();
+    return elapsed > 0? getRecords() * 1000.0 / elapsed: 0;
+  }
+
+  /**
+   * Gets bytes throughput.
+   * @return bytes per second
+   */
+  public double getBytesPerSecond() {
+    long elapsed = getElapsed();
+    return elapsed > 0? getBytes() * 1000.0 / elapsed: 0;
+  }
+
+  /**
+   * Estimates time remaining to complete the process.
+   * @param expected expected total number of records
+   * @return remaining time in milliseconds or <code>-1</code> if unable to estimate
+   */
+  public long getEta(long expected) {
+    if (endTime != 0) {
+      return 0;
+    }
+    double rate = getRecordsPerSecond();
+    if (expected <= 0 || rate <= 0) {
+      return -1;
+    }
+    return Math.round(Math.max(expected - getRecords(), 0) * 1000.0 / rate);
+  }
+
+  /**
+   * Gets human readable summary.
+   * @return list of summary lines
+   */
+  public List<String> getSummary() {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format("Records: %d (%.1f/s), bytes: %d (%.1f/s), elapsed: %d ms", getRecords(), getRecordsPerSecond(), getBytes(), getBytesPerSecond(), getElapsed()));
+    for (Stage stage: Stage.values()) {
+      lines.add(format(stage.name(), stages.get(stage)));
+    }
+    getLinks().forEach((name, histogram) -> lines.add(format("  " + name, histogram)));
+    for (DestinationStatistics stats: destinations) {
+      lines.add(String.format("%s: queued: %d, processed: %d, lag: %d (%d ms)", 
+              stats.getName(), stats.getQueued(), stats.getProcessed(), stats.getLag(), stats.getLagTime()));
+    }
+    for (ResilienceStatistics stats: resilience) {
+      lines.add(String.format("%s: retries: %d, retries denied: %d, breaker: %s, trips: %d, paused: %d ms", 
+              stats.getName(), stats.getRetries(), stats.getRetriesDenied(), stats.getBreakerState(), stats.getBreakerTrips(), stats.getPausedTime()));
+    }
+    return lines;
+  }
+
+  private static String format(String name, LatencyHistogram histogram) {
+    return String.format("%s: count: %d, mean: %.2f ms, p50: %.2f ms, p95: %.2f ms, p99: %.2f ms, max: %.2f ms", 
+            name, histogram.getCount(), histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(95), histogram.getPercentile(99), histogram.getMax());
+  }
+}
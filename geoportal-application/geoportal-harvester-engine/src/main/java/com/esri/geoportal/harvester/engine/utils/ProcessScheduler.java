@@ -0,0 +1,423 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.LinkDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process scheduler.
+ * <p>
+ * Admits processes to run within the global limit of running processes, the
+ * limit of processes publishing to the same destination and the limit of
+ * processes harvesting the same host. Process which can not run yet is queued
+ * and reports {@link ProcessInstance.Status#queued} status until the limits
+ * allow to start it.
+ * <p>
+ * Queue is ordered by priority (see {@link #P_PRIORITY}), then incremental
+ * tasks go ahead of the full harvests, then by the order of submission. A full
+ * harvest waiting longer than the aging time is treated as incremental one so
+ * it is not starved. Processes blocked by the per-destination or per-host limits
+ * are skipped, so they don't hold the processes behind them.
+ * <p>
+ * Numbers of running, queued and completed processes are reported to the
+ * {@link MetricsRegistry}.
+ */
+public class ProcessScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessScheduler.class);
+
+  /**
+   * Priority of the process; property of the processor definition. Higher
+   * value means higher priority. Default: 0.
+   */
+  public static final String P_PRIORITY = "p-priority";
+
+  /**
+   * Default aging time (ms).
+   */
+  public static final long DEFAULT_AGING_TIME = TimeUnit.MINUTES.toMillis(30);
+
+  private final int maxProcesses;
+  private final int maxPerDestination;
+  private final int maxPerHost;
+  private final long agingTime;
+
+  private final List<ScheduledProcess> queue = new ArrayList<>();
+  private final List<ScheduledProcess> running = new ArrayList<>();
+  private final MetricsRegistry.Counter completed = MetricsRegistry.getInstance().counter("harvester_processes_completed_total", "Completed processes.");
+  private long sequence;
+
+  /**
+   * Creates instance of the scheduler with no limits.
+   */
+  public ProcessScheduler() {
+    this(0, 0, 0, DEFAULT_AGING_TIME);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param maxProcesses maximum number of running processes (0 - no limit)
+   * @param maxPerDestination maximum number of running processes publishing to the same destination (0 - no limit)
+   * @param maxPerHost maximum number of running processes harvesting the same host (0 - no limit)
+   * @param agingTime time (ms) after which queued full harvest is treated as incremental one
+   */
+  public ProcessScheduler(int maxProcesses, int maxPerDestination, int maxPerHost, long agingTime) {
+    this.maxProcesses = Math.max(maxProcesses, 0);
+    this.maxPerDestination = Math.max(maxPerDestination, 0);
+    this.maxPerHost = Math.max(maxPerHost, 0);
+    this.agingTime = agingTime;
+
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry.gauge("harvester_processes", "Number of processes.", this::getRunning, "state", "running");
+    registry.gauge("harvester_processes", "Number of processes.", this::getQueued, "state", "queued");
+  }
+
+  /**
+   * Puts process under control of the scheduler.
+   * @param process process
+   * @return scheduled process
+   */
+  public ScheduledProcess schedule(ProcessInstance process) {
+    return new ScheduledProcess(process);
+  }
+
+  /**
+   * Gets number of queued processes.
+   * @return number of queued processes
+   */
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Gets number of running processes.
+   * @return number of running processes
+   */
+  public synchronized int getRunning() {
+    return running.size();
+  }
+
+  /**
+   * Enqueues process.
+   * @param process process
+   */
+  private void enqueue(ScheduledProcess process) {
+    List<ScheduledProcess> failed;
+    synchronized (this) {
+      if (process.state != State.created) {
+        throw new IllegalStateException(formatForLog("Error begininig the process: process is in %s state", process.getStatus()));
+      }
+      process.sequence = sequence++;
+      process.queuedAt = System.currentTimeMillis();
+      process.state = State.queued;
+      queue.add(process);
+      failed = dispatch();
+      if (process.state == State.queued) {
+        LOG.info(formatForLog("Process queued: %s", process));
+      }
+    }
+    failed.forEach(ScheduledProcess::onFailed);
+  }
+
+  /**
+   * Cancels queued process.
+   * @param process process
+   * @return <code>true</code> if process has been cancelled
+   */
+  private synchronized boolean cancel(ScheduledProcess process) {
+    if (process.state == State.queued && queue.remove(process)) {
+      process.state = State.cancelled;
+      LOG.info(formatForLog("Queued process cancelled: %s", process));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Releases resources held by the completed process.
+   * @param process process
+   */
+  private void release(ScheduledProcess process) {
+    List<ScheduledProcess> failed = Collections.emptyList();
+    synchronized (this) {
+      if (running.remove(process)) {
+        completed.inc();
+        failed = dispatch();
+      }
+    }
+    failed.forEach(ScheduledProcess::onFailed);
+  }
+
+  /**
+   * Starts as many queued processes as the limits allow. Processes failing to
+   * start are marked as failed; caller has to notify their listeners once the 
+   * lock of the scheduler is released.
+   * @return list of processes failed to start
+   */
+  private List<ScheduledProcess> dispatch() {
+    List<ScheduledProcess> failed = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    List<ScheduledProcess> candidates = queue.stream()
+            .sorted(Comparator.comparingInt((ScheduledProcess p) -> -p.priority)
+                    .thenComparingInt(p -> p.incremental || now - p.queuedAt >= agingTime? 0: 1)
+                    .thenComparingLong(p -> p.sequence))
+            .collect(Collectors.toList());
+    for (ScheduledProcess process: candidates) {
+      if (maxProcesses > 0 && running.size() >= maxProcesses) {
+        break;
+      }
+      if (admits(process)) {
+        queue.remove(process);
+        running.add(process);
+        process.state = State.started;
+        try {
+          process.process.begin();
+        } catch (RuntimeException ex) {
+          LOG.error(formatForLog("Error starting process: %s", process), ex);
+          running.remove(process);
+          process.state = State.failed;
+          completed.inc();
+          failed.add(process);
+        }
+      }
+    }
+    return failed;
+  }
+
+  /**
+   * Checks if process can be started without exceeding per-destination or per-host limits.
+   * @param process process
+   * @return <code>true</code> if process can be started
+   */
+  private boolean admits(ScheduledProcess process) {
+    if (maxPerDestination > 0) {
+      for (String destination: process.destinations) {
+        if (running.stream().filter(p -> p.destinations.contains(destination)).count() >= maxPerDestination) {
+          return false;
+        }
+      }
+    }
+    if (maxPerHost > 0) {
+      for (String host: process.hosts) {
+        if (running.stream().filter(p -> p.hosts.contains(host)).count() >= maxPerHost) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects destination keys of the leaves of the link definitions.
+   * @param linkDefinitions link definitions
+   * @param destinations set of destination keys to populate
+   */
+  private static void collectDestinations(List<LinkDefinition> linkDefinitions, Set<String> destinations) {
+    if (linkDefinitions != null) {
+      for (LinkDefinition linkDefinition: linkDefinitions) {
+        if (linkDefinition.getDrains() != null && !linkDefinition.getDrains().isEmpty()) {
+          collectDestinations(linkDefinition.getDrains(), destinations);
+        } else if (linkDefinition.getAction() != null) {
+          EntityDefinition action = linkDefinition.getAction();
+          destinations.add(action.getRef() != null? action.getRef(): String.format("%s:%s", action.getType(), action.getProperties()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects host names referenced by the entity definition.
+   * @param entityDefinition entity definition
+   * @param hosts set of host names to populate
+   */
+  private static void collectHosts(EntityDefinition entityDefinition, Set<String> hosts) {
+    if (entityDefinition != null) {
+      for (String value: entityDefinition.getProperties().values()) {
+        if (value != null && value.trim().toLowerCase().matches("^https?://.+")) {
+          try {
+            hosts.add(new URL(value.trim()).getHost().toLowerCase());
+          } catch (MalformedURLException ex) {
+            // not a host url
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Scheduling state.
+   */
+  private enum State {
+    created, queued, started, cancelled, failed
+  }
+
+  /**
+   * Scheduled process.
+   * <p>
+   * Wraps actual process; {@link #begin()} submits the process to the scheduler
+   * instead of starting it right away.
+   */
+  public final class ScheduledProcess implements ProcessInstance {
+    private final ProcessInstance process;
+    private final List<ProcessInstance.Listener> listeners = Collections.synchronizedList(new ArrayList<>());
+    private final int priority;
+    private final boolean incremental;
+    private final Set<String> destinations = new HashSet<>();
+    private final Set<String> hosts = new HashSet<>();
+
+    private volatile State state = State.created;
+    private long sequence;
+    private long queuedAt;
+
+    /**
+     * Creates instance of the scheduled process.
+     * @param process actual process
+     */
+    private ScheduledProcess(ProcessInstance process) {
+      this.process = process;
+
+      Task task = process.getTask();
+      EntityDefinition processorDefinition = task.getProcessorDefinition();
+      this.priority = processorDefinition != null? NumberUtils.toInt(processorDefinition.getProperties().get(P_PRIORITY), 0): 0;
+      TaskDefinition taskDefinition = task.getTaskDefinition();
+      this.incremental = taskDefinition.isIncremental();
+      collectDestinations(taskDefinition.getDestinations(), destinations);
+      collectHosts(taskDefinition.getSource(), hosts);
+
+      process.addListener(new ProcessInstance.Listener() {
+        @Override
+        public void onStatusChange(ProcessInstance.Status status) {
+          if (status == ProcessInstance.Status.completed) {
+            release(ScheduledProcess.this);
+          }
+          listeners.forEach(l -> l.onStatusChange(status));
+        }
+
+        @Override
+        public void onDataAcquired(DataReference dataReference) {
+          listeners.forEach(l -> l.onDataAcquired(dataReference));
+        }
+
+        @Override
+        public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+          listeners.forEach(l -> l.onDataProcessed(dataReference, status));
+        }
+
+        @Override
+        public void onError(DataException ex) {
+          listeners.forEach(l -> l.onError(ex));
+        }
+
+        @Override
+        public void onCheckpoint(String cursor) {
+          listeners.forEach(l -> l.onCheckpoint(cursor));
+        }
+      });
+    }
+
+    /**
+     * Notifies listeners about the process which failed to start.
+     */
+    private void onFailed() {
+      listeners.forEach(l -> l.onStatusChange(ProcessInstance.Status.completed));
+    }
+
+    /**
+     * Gets actual process.
+     * @return actual process
+     */
+    public ProcessInstance getProcess() {
+      return process;
+    }
+
+    @Override
+    public Task getTask() {
+      return process.getTask();
+    }
+
+    @Override
+    public void init() {
+      process.init();
+    }
+
+    /**
+     * Submits the process to the scheduler.
+     */
+    @Override
+    public void begin() {
+      if (process.getStatus() != ProcessInstance.Status.submitted) {
+        throw new IllegalStateException(formatForLog("Error begininig the process: process is in %s state", process.getStatus()));
+      }
+      enqueue(this);
+    }
+
+    /**
+     * Aborts the process; queued process is removed from the queue.
+     */
+    @Override
+    public void abort() {
+      if (cancel(this)) {
+        listeners.forEach(l -> l.onStatusChange(ProcessInstance.Status.completed));
+      } else {
+        process.abort();
+      }
+    }
+
+    @Override
+    public ProcessInstance.Status getStatus() {
+      switch (state) {
+        case queued:
+          return ProcessInstance.Status.queued;
+        case cancelled:
+        case failed:
+          return ProcessInstance.Status.completed;
+        default:
+          return process.getStatus();
+      }
+    }
+
+    @Override
+    public void addListener(ProcessInstance.Listener listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public String toString() {
+      return process.toString();
+    }
+  }
+}
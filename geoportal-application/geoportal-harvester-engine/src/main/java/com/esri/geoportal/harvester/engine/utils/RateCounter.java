@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate counter.
+ * <p>
+ * Thread-safe counter keeping the total along with a sliding window of
+ * per-second buckets, so the rate over the last minutes is available without
+ * locking. Buckets are recycled as the time passes. Each bucket packs the
+ * second it belongs to (counted from creation of the counter) together with
+ * the count into a single value, so recycling a bucket and adding to it is a
+ * single compare-and-set and no count is lost. Seconds are measured with the
+ * monotonic {@link System#nanoTime()} clock; should the clock ever step 
+ * backwards, no time is considered to pass.
+ */
+public class RateCounter {
+  /**
+   * Default window (seconds).
+   */
+  public static final int DEFAULT_WINDOW = 300;
+
+  private static final int COUNT_BITS = 36;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  private final int window;
+  private final AtomicLongArray buckets;
+  private final LongAdder total = new LongAdder();
+  private final LongSupplier clock;
+  private final long start;
+  private final AtomicLong latest = new AtomicLong(1);
+
+  /**
+   * Creates instance of the counter with the default window.
+   */
+  public RateCounter() {
+    this(DEFAULT_WINDOW);
+  }
+
+  /**
+   * Creates instance of the counter.
+   * @param window longest window (seconds) the rate can be asked for
+   */
+  public RateCounter(int window) {
+    this(window, System::nanoTime);
+  }
+
+  /**
+   * Creates instance of the counter.
+   * @param window longest window (seconds) the rate can be asked for
+   * @param clock clock (nanoseconds)
+   */
+  /*package*/ RateCounter(int window, LongSupplier clock) {
+    this.window = Math.max(window, 1);
+    this.buckets = new AtomicLongArray(this.window);
+    this.clock = clock;
+    this.start = clock.getAsLong();
+  }
+
+  /**
+   * Increments the counter.
+   */
+  public void increment() {
+    add(1);
+  }
+
+  /**
+   * Adds to the counter.
+   * @param value value to add
+   */
+  public void add(long value) {
+    total.add(value);
+    long second = now();
+    int index = (int) Math.floorMod(second, (long) window);
+    while (true) {
+      long bucket = buckets.get(index);
+      long stamp = bucket >>> COUNT_BITS;
+      if (stamp > second) {
+        // bucket already recycled for a later second
+        return;
+      }
+      long count = stamp == second? bucket & COUNT_MASK: 0;
+      long updated = (second << COUNT_BITS) | Math.min(count + value, COUNT_MASK);
+      if (buckets.compareAndSet(index, bucket, updated)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Gets total.
+   * @return total
+   */
+  public long getTotal() {
+    return total.sum();
+  }
+
+  /**
+   * Gets sum over the last seconds.
+   * @param period period (seconds); limited to the window
+   * @return sum over the period
+   */
+  public long getSum(int period) {
+    long second = now();
+    long from = second - Math.min(Math.max(period, 1), window) + 1;
+    long sum = 0;
+    for (int i = 0; i < window; i++) {
+      long bucket = buckets.get(i);
+      long stamp = bucket >>> COUNT_BITS;
+      if (stamp >= from && stamp <= second) {
+        sum += bucket & COUNT_MASK;
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Gets average rate over the last seconds. Right after the counter has been
+   * created the rate is averaged over the time elapsed so far.
+   * @param period period (seconds); limited to the window
+   * @return rate per second
+   */
+  public double getRate(int period) {
+    long elapsed = now();
+    long span = Math.min(Math.min(Math.max(period, 1), window), elapsed);
+    return (double) getSum((int) span) / span;
+  }
+
+  /**
+   * Gets current second counted from creation of the counter.
+   * @return current second; never less than any second returned before
+   */
+  private long now() {
+    long second = Math.max(TimeUnit.NANOSECONDS.toSeconds(clock.getAsLong() - start), 0) + 1;
+    long last = latest.get();
+    while (second > last) {
+      if (latest.compareAndSet(last, second)) {
+        return second;
+      }
+      last = latest.get();
+    }
+    return last;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+/**
+ * Resilience statistics.
+ * Describes retries and circuit breaker of a single destination.
+ */
+public interface ResilienceStatistics {
+
+  /**
+   * Gets destination name.
+   * @return destination name
+   */
+  String getName();
+
+  /**
+   * Gets number of retried requests.
+   * @return number of retried requests
+   */
+  long getRetries();
+
+  /**
+   * Gets number of retries refused because retry budget has been exhausted.
+   * @return number of refused retries
+   */
+  long getRetriesDenied();
+
+  /**
+   * Gets circuit breaker state.
+   * @return circuit breaker state
+   */
+  CircuitBreaker.State getBreakerState();
+
+  /**
+   * Gets number of times the circuit breaker has been opened.
+   * @return number of trips
+   */
+  long getBreakerTrips();
+
+  /**
+   * Gets time spent waiting for the circuit breaker to close.
+   * @return paused time in milliseconds
+   */
+  long getPausedTime();
+}
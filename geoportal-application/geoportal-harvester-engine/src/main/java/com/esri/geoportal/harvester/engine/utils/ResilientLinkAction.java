@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resilient link action.
+ * <p>
+ * Publishes through the output broker retrying transient failures (timeouts,
+ * refused connections and HTTP 408, 429, 502, 503 and 504 responses) with
+ * exponential backoff and full jitter. Retries are limited by the retry budget:
+ * each request earns a fraction of a retry (see {@link #P_RETRY_BUDGET}) up to
+ * a small reserve, so a destination which is down doesn't get multiplied load.
+ * Consecutive transient failures open the {@link CircuitBreaker} of the
+ * destination; while it is open publishing is paused instead of failing each
+ * record.
+ * <p>
+ * Settings are read from the processor definition.
+ */
+public class ResilientLinkAction implements LinkAction {
+  private static final Logger LOG = LoggerFactory.getLogger(ResilientLinkAction.class);
+
+  /**
+   * Maximum number of retries of a single request. Default: 3.
+   */
+  public static final String P_RETRY_MAX = "p-retry-max";
+  /**
+   * Initial backoff (ms), doubled with each retry. Default: 1000.
+   */
+  public static final String P_RETRY_BACKOFF = "p-retry-backoff";
+  /**
+   * Retry budget as percentage of requests. Default: 10.
+   */
+  public static final String P_RETRY_BUDGET = "p-retry-budget";
+  /**
+   * Number of consecutive failures opening the circuit breaker (0 - no breaker). Default: 5.
+   */
+  public static final String P_BREAKER_THRESHOLD = "p-breaker-threshold";
+  /**
+   * Pause (ms) after the circuit breaker opens. Default: 30000.
+   */
+  public static final String P_BREAKER_PAUSE = "p-breaker-pause";
+
+  public static final int DEFAULT_RETRY_MAX = 3;
+  public static final int DEFAULT_RETRY_BACKOFF = 1000;
+  public static final int DEFAULT_RETRY_BUDGET = 10;
+  public static final int DEFAULT_BREAKER_THRESHOLD = 5;
+  public static final int DEFAULT_BREAKER_PAUSE = 30000;
+
+  private static final long MAX_BACKOFF = 60000;
+  private static final double BUDGET_CAPACITY = 10;
+
+  private final OutputBroker broker;
+  private final LinkAction action;
+  private final String name;
+  private final CircuitBreaker breaker;
+  private final Stats stats = new Stats();
+
+  private int retryMax = DEFAULT_RETRY_MAX;
+  private long retryBackoff = DEFAULT_RETRY_BACKOFF;
+  private double retryRatio = DEFAULT_RETRY_BUDGET / 100.0;
+  private int breakerThreshold = DEFAULT_BREAKER_THRESHOLD;
+  private long breakerPause = DEFAULT_BREAKER_PAUSE;
+  private double budget;
+
+  /**
+   * Creates instance of the action.
+   * @param broker output broker
+   * @param name destination name
+   */
+  public ResilientLinkAction(OutputBroker broker, String name) {
+    this.broker = broker;
+    this.action = new BrokerLinkActionAdaptor(broker);
+    this.name = name;
+    EntityDefinition definition = broker.getEntityDefinition();
+    String key = definition.getRef() != null? definition.getRef(): String.format("%s:%s", definition.getType(), definition.getProperties());
+    this.breaker = CircuitBreaker.of(key, name);
+  }
+
+  @Override
+  public void initialize(InitContext context) throws DataProcessorException {
+    EntityDefinition processorDefinition = context.getTask() != null? context.getTask().getProcessorDefinition(): null;
+    if (processorDefinition != null) {
+      Map<String, String> properties = processorDefinition.getProperties();
+      retryMax = Math.max(NumberUtils.toInt(properties.get(P_RETRY_MAX), DEFAULT_RETRY_MAX), 0);
+      retryBackoff = Math.max(NumberUtils.toLong(properties.get(P_RETRY_BACKOFF), DEFAULT_RETRY_BACKOFF), 0);
+      retryRatio = Math.max(NumberUtils.toInt(properties.get(P_RETRY_BUDGET), DEFAULT_RETRY_BUDGET), 0) / 100.0;
+      breakerThreshold = Math.max(NumberUtils.toInt(properties.get(P_BREAKER_THRESHOLD), DEFAULT_BREAKER_THRESHOLD), 0);
+      breakerPause = Math.max(NumberUtils.toLong(properties.get(P_BREAKER_PAUSE), DEFAULT_BREAKER_PAUSE), 0);
+    }
+    synchronized (this) {
+      budget = BUDGET_CAPACITY;
+    }
+    if (context instanceof MeteredInitContext && ((MeteredInitContext)context).getMetrics() != null) {
+      ((MeteredInitContext)context).getMetrics().register(stats);
+    }
+    action.initialize(context);
+  }
+
+  @Override
+  public void terminate() {
+    action.terminate();
+  }
+
+  @Override
+  public EntityDefinition getLinkActionDefinition() {
+    return action.getLinkActionDefinition();
+  }
+
+  @Override
+  public List<DataReference> execute(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    return action.execute(dataRef);
+  }
+
+  @Override
+  public PublishingStatus push(DataReference dataRef) throws DataProcessorException, DataOutputException {
+    return call(dataRef, () -> action.push(dataRef));
+  }
+
+  @Override
+  public boolean supportsBatch() {
+    return action.supportsBatch();
+  }
+
+  @Override
+  public List<PublishingStatus> pushBatch(List<DataReference> dataRefs) throws DataProcessorException, DataOutputException {
+    if (!action.supportsBatch()) {
+      return LinkAction.super.pushBatch(dataRefs);
+    }
+    return call(!dataRefs.isEmpty()? dataRefs.get(0): null, () -> action.pushBatch(dataRefs));
+  }
+
+  /**
+   * Calls the destination retrying transient failures.
+   * @param <T> type of the result
+   * @param dataRef data reference (used to report interruption)
+   * @param request request
+   * @return result of the request
+   * @throws DataProcessorException if processing fails
+   * @throws DataOutputException if publishing fails
+   */
+  private <T> T call(DataReference dataRef, Request<T> request) throws DataProcessorException, DataOutputException {
+    deposit();
+    for (int attempt = 0; ; attempt++) {
+      pause(dataRef);
+      try {
+        T result = request.call();
+        breaker.onSuccess();
+        return result;
+      } catch (DataOutputException ex) {
+        if (!isTransient(ex)) {
+          breaker.onSuccess();
+          throw ex;
+        }
+        breaker.onFailure(breakerThreshold, breakerPause);
+        if (attempt >= retryMax) {
+          throw ex;
+        }
+        if (!withdraw()) {
+          stats.retriesDenied.increment();
+          LOG.debug(formatForLog("Retry budget exhausted for: %s", name));
+          throw ex;
+        }
+        stats.retries.increment();
+        MetricsRegistry.getInstance().counter("harvester_publish_retries_total", "Retried publishing requests per destination.", "destination", name).inc();
+        long backoff = ThreadLocalRandom.current().nextLong(Math.min(retryBackoff << Math.min(attempt, 20), MAX_BACKOFF) + 1);
+        LOG.debug(formatForLog("Retrying publishing to %s in %d ms: %s", name, backoff, ex.getMessage()));
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException iex) {
+          Thread.currentThread().interrupt();
+          throw ex;
+        }
+      } catch (DataProcessorException|RuntimeException ex) {
+        breaker.onSuccess();
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Waits while the circuit breaker is open.
+   * @param dataRef data reference
+   * @throws DataOutputException if interrupted while waiting
+   */
+  private void pause(DataReference dataRef) throws DataOutputException {
+    long wait;
+    while ((wait = breaker.acquire()) > 0) {
+      long start = System.currentTimeMillis();
+      try {
+        Thread.sleep(Math.min(wait, 1000));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new DataOutputException(broker, dataRef, String.format("Publishing to %s interrupted while circuit breaker is open", name), ex);
+      } finally {
+        stats.paused.add(System.currentTimeMillis() - start);
+      }
+    }
+  }
+
+  private synchronized void deposit() {
+    budget = Math.min(budget + retryRatio, BUDGET_CAPACITY);
+  }
+
+  private synchronized boolean withdraw() {
+    if (budget >= 1) {
+      budget -= 1;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if failure is transient, thus worth retrying.
+   * @param ex exception
+   * @return <code>true</code> if failure is transient
+   */
+  private static boolean isTransient(DataOutputException ex) {
+    for (Throwable t = ex.getCause(); t != null; t = t.getCause()) {
+      if (t instanceof HttpResponseException) {
+        int status = ((HttpResponseException)t).getStatusCode();
+        return status == 408 || status == 429 || status == 502 || status == 503 || status == 504;
+      }
+      if (t instanceof ConnectException || t instanceof SocketTimeoutException || t instanceof ConnectTimeoutException || t instanceof NoHttpResponseException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return action.toString();
+  }
+
+  /**
+   * Request to the destination.
+   * @param <T> type of the result
+   */
+  @FunctionalInterface
+  private interface Request<T> {
+    T call() throws DataProcessorException, DataOutputException;
+  }
+
+  /**
+   * Retry and circuit breaker statistics.
+   */
+  private final class Stats implements ResilienceStatistics {
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder retriesDenied = new LongAdder();
+    private final LongAdder paused = new LongAdder();
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public long getRetries() {
+      return retries.sum();
+    }
+
+    @Override
+    public long getRetriesDenied() {
+      return retriesDenied.sum();
+    }
+
+    @Override
+    public CircuitBreaker.State getBreakerState() {
+      return breaker.getState();
+    }
+
+    @Override
+    public long getBreakerTrips() {
+      return breaker.getTrips();
+    }
+
+    @Override
+    public long getPausedTime() {
+      return paused.sum();
+    }
+  }
+}
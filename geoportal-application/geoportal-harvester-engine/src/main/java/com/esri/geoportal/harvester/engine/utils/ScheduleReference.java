@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.Date;
+
+/**
+ * Schedule reference. Tells when activated trigger fires next time.
+ */
+public final class ScheduleReference {
+  private final TriggerReference triggerReference;
+  private final Date fireTime;
+
+  /**
+   * Creates instance of the reference.
+   * @param triggerReference trigger reference
+   * @param fireTime fire time
+   */
+  public ScheduleReference(TriggerReference triggerReference, Date fireTime) {
+    this.triggerReference = triggerReference;
+    this.fireTime = fireTime;
+  }
+
+  /**
+   * Gets trigger reference.
+   * @return trigger reference
+   */
+  public TriggerReference getTriggerReference() {
+    return triggerReference;
+  }
+
+  /**
+   * Gets fire time.
+   * @return fire time
+   */
+  public Date getFireTime() {
+    return fireTime;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("SCHEDULE REF :: trigger: %s, fire time: %s", triggerReference, fireTime);
+  }
+}
@@ -16,6 +16,7 @@
 package com.esri.geoportal.harvester.engine.utils;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * Statistics.
@@ -58,10 +59,64 @@ public interface Statistics {
    */
   long getSucceeded();
 
+  /**
+   * Gets number of bytes of the successfully processed records.
+   * @return number of bytes
+   */
+  long getBytes();
+
+  /**
+   * Gets number of records processed per second over the last minute.
+   * @return records per second
+   */
+  double getRecordsPerSecond1m();
+
+  /**
+   * Gets number of records processed per second over the last five minutes.
+   * @return records per second
+   */
+  double getRecordsPerSecond5m();
+
+  /**
+   * Gets number of bytes processed per second over the last minute.
+   * @return bytes per second
+   */
+  double getBytesPerSecond1m();
+
+  /**
+   * Gets number of bytes processed per second over the last five minutes.
+   * @return bytes per second
+   */
+  double getBytesPerSecond5m();
+
+  /**
+   * Gets ratio of failed records to all the records processed over the last minute.
+   * @return failure rate (0 to 1)
+   */
+  double getFailureRate1m();
+
+  /**
+   * Gets ratio of failed records to all the records processed over the last five minutes.
+   * @return failure rate (0 to 1)
+   */
+  double getFailureRate5m();
+
   /**
    * Checks if there was a general error.
    * @return <code>true</code> if there was a general error
    */
   boolean isFailure();
   
+  /**
+   * Gets per destination statistics.
+   * @return list of destination statistics (empty if not tracked)
+   */
+  List<DestinationStatistics> getDestinations();
+  
+  /**
+   * Gets per destination retries and circuit breaker statistics.
+   * @return list of resilience statistics (empty if not tracked)
+   */
+  List<ResilienceStatistics> getResilience();
+  
 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import com.esri.geoportal.harvester.api.TriggerInstance;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trigger scheduler.
+ * <p>
+ * Single scheduler shared by all the trigger instances, implemented as a
+ * hierarchical timing wheel. The lowest wheel has a slot per tick, each next
+ * wheel has a slot per whole revolution of the wheel below it; actions due far
+ * ahead sit in the higher wheels and move down as the time approaches. Adding
+ * and cancelling an action costs the same regardless of the number of pending
+ * actions, and a single thread advances the wheels, so tens of thousands of
+ * schedules cost no more threads than one. The thread is started on demand and
+ * leaves once nothing is pending.
+ * <p>
+ * Due actions are handed over to a small pool of workers, so a slow action
+ * doesn't delay the others. Actions never fire early, but may fire up to a
+ * tick late.
+ */
+public class TriggerScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(TriggerScheduler.class);
+
+  /**
+   * Default tick (ms).
+   */
+  public static final long DEFAULT_TICK = 1000;
+  /**
+   * Default number of slots of each wheel.
+   */
+  public static final int DEFAULT_WHEEL_SIZE = 64;
+  /**
+   * Default number of workers.
+   */
+  public static final int DEFAULT_WORKERS = 4;
+
+  private static final int MAX_WHEELS = 6;
+
+  private final long tick;
+  private final int wheelSize;
+  private final Executor workers;
+  private final LongSupplier clock;
+  private final boolean ticking;
+  private final List<Set<Timeout>[]> wheels = new ArrayList<>();
+
+  private long currentTime;
+  private int pending;
+  private Thread ticker;
+  private boolean closed;
+
+  /**
+   * Creates instance of the scheduler with default settings.
+   */
+  public TriggerScheduler() {
+    this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, DEFAULT_WORKERS);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick duration (ms) of a single tick of the lowest wheel
+   * @param wheelSize number of slots of each wheel
+   * @param workers number of threads running due actions
+   */
+  public TriggerScheduler(long tick, int wheelSize, int workers) {
+    this(tick, wheelSize, createWorkers(workers), System::currentTimeMillis, true);
+  }
+
+  /**
+   * Creates instance of the scheduler.
+   * @param tick duration (ms) of a single tick of the lowest wheel
+   * @param wheelSize number of slots of each wheel
+   * @param workers executor running due actions
+   * @param clock clock (ms)
+   * @param ticking <code>true</code> to advance the wheels with a thread; 
+   * otherwise wheels advance only through {@link #advanceTo(long)}
+   */
+  /*package*/ TriggerScheduler(long tick, int wheelSize, Executor workers, LongSupplier clock, boolean ticking) {
+    this.tick = Math.max(tick, 1);
+    this.wheelSize = Math.max(wheelSize, 2);
+    this.workers = workers;
+    this.clock = clock;
+    this.ticking = ticking;
+
+    MetricsRegistry.getInstance().gauge("harvester_trigger_schedules", "Number of pending trigger schedules.", this::getPending);
+  }
+
+  /**
+   * Schedules action.
+   * @param action action to run
+   * @param fireTime time when to run the action; past time runs the action right away
+   * @param attachment object describing the action (see {@link Timeout#getAttachment()})
+   * @return timeout handle
+   */
+  public synchronized Timeout schedule(Runnable action, Date fireTime, Object attachment) {
+    if (closed) {
+      throw new IllegalStateException("Trigger scheduler has been closed.");
+    }
+    Timeout timeout = new Timeout(action, fireTime.getTime(), attachment);
+    if (pending == 0) {
+      currentTime = clock.getAsLong() / tick * tick;
+    }
+    place(timeout);
+    if (ticking && ticker == null && pending > 0) {
+      ticker = new Thread(this::run, "TRIGGER-WHEEL");
+      ticker.setDaemon(true);
+      ticker.start();
+    }
+    notifyAll();
+    return timeout;
+  }
+
+  /**
+   * Lists pending timeouts.
+   * @return list of pending timeouts ordered by fire time
+   */
+  public synchronized List<Timeout> list() {
+    List<Timeout> timeouts = new ArrayList<>(pending);
+    for (Set<Timeout>[] wheel: wheels) {
+      for (Set<Timeout> slot: wheel) {
+        if (slot != null) {
+          timeouts.addAll(slot);
+        }
+      }
+    }
+    timeouts.sort(Comparator.comparingLong(Timeout::getFireTime));
+    return timeouts;
+  }
+
+  /**
+   * Gets number of pending timeouts.
+   * @return number of pending timeouts
+   */
+  public synchronized int getPending() {
+    return pending;
+  }
+
+  /**
+   * Closes the scheduler. Pending timeouts are dropped.
+   */
+  public synchronized void close() {
+    closed = true;
+    wheels.clear();
+    pending = 0;
+    if (ticker != null) {
+      ticker.interrupt();
+      ticker = null;
+    }
+    if (workers instanceof ExecutorService) {
+      ((ExecutorService)workers).shutdownNow();
+    }
+  }
+
+  /**
+   * Advances the wheels until nothing is pending.
+   */
+  private void run() {
+    synchronized (this) {
+      while (!closed && ticker == Thread.currentThread()) {
+        if (pending == 0) {
+          ticker = null;
+          return;
+        }
+        long now = clock.getAsLong();
+        advanceTo(now);
+        try {
+          wait(currentTime + tick - now);
+        } catch (InterruptedException ex) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Advances the wheels up to the given time.
+   * @param now current time (ms)
+   */
+  /*package*/ synchronized void advanceTo(long now) {
+    while (currentTime + tick <= now) {
+      advance();
+    }
+  }
+
+  /**
+   * Gets level of the wheel holding the timeout.
+   * @param timeout timeout
+   * @return level of the wheel (0 - the lowest wheel) or <code>-1</code> if not pending
+   */
+  /*package*/ synchronized int getLevel(Timeout timeout) {
+    for (int level = 0; level < wheels.size(); level++) {
+      for (Set<Timeout> slot: wheels.get(level)) {
+        if (slot != null && slot == timeout.slot) {
+          return level;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Advances current time by a single tick. Slots of the higher wheels the
+   * time has reached are emptied and their timeouts placed again, which moves
+   * them down; then timeouts of the current slot of the lowest wheel expire.
+   */
+  private void advance() {
+    currentTime += tick;
+    long span = tick;
+    for (int level = 0; level < wheels.size() && currentTime % span == 0; level++) {
+      Set<Timeout>[] wheel = wheels.get(level);
+      int index = (int) ((currentTime / span) % wheelSize);
+      Set<Timeout> slot = wheel[index];
+      if (slot != null) {
+        wheel[index] = null;
+        for (Timeout timeout: slot) {
+          timeout.slot = null;
+          pending--;
+          place(timeout);
+        }
+      }
+      span *= wheelSize;
+    }
+  }
+
+  /**
+   * Places timeout in the wheel matching its distance from the current time or
+   * submits it to the workers if due. Fire time is rounded up to the tick, so
+   * timeout never fires early.
+   * @param timeout timeout
+   */
+  @SuppressWarnings("unchecked")
+  private void place(Timeout timeout) {
+    long expiry = (timeout.fireTime + tick - 1) / tick * tick;
+    long delta = expiry - currentTime;
+    if (delta <= 0) {
+      fire(timeout);
+      return;
+    }
+    int level = 0;
+    long span = tick;
+    while (level < MAX_WHEELS - 1 && delta >= span * wheelSize) {
+      span *= wheelSize;
+      level++;
+    }
+    while (wheels.size() <= level) {
+      wheels.add(new Set[wheelSize]);
+    }
+    Set<Timeout>[] wheel = wheels.get(level);
+    int index = (int) ((expiry / span) % wheelSize);
+    if (wheel[index] == null) {
+      wheel[index] = new HashSet<>();
+    }
+    wheel[index].add(timeout);
+    timeout.slot = wheel[index];
+    pending++;
+  }
+
+  /**
+   * Submits due timeout to the workers.
+   * @param timeout timeout
+   */
+  private void fire(Timeout timeout) {
+    timeout.expired = true;
+    try {
+      workers.execute(() -> {
+        try {
+          timeout.action.run();
+        } catch (RuntimeException ex) {
+          LOG.error(formatForLog("Error running scheduled action: %s", timeout.attachment), ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      LOG.debug(formatForLog("Scheduled action dropped: %s", timeout.attachment));
+    }
+  }
+
+  /**
+   * Creates pool of workers.
+   * @param workers number of workers
+   * @return pool of workers
+   */
+  private static ThreadPoolExecutor createWorkers(int workers) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(workers, 1), Math.max(workers, 1), 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "TRIGGER");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Cancels timeout.
+   * @param timeout timeout
+   * @return <code>true</code> if timeout has been cancelled before expiring
+   */
+  private synchronized boolean cancel(Timeout timeout) {
+    if (timeout.expired || timeout.cancelled) {
+      return false;
+    }
+    timeout.cancelled = true;
+    if (timeout.slot != null && timeout.slot.remove(timeout)) {
+      timeout.slot = null;
+      pending--;
+      notifyAll();
+    }
+    return true;
+  }
+
+  /**
+   * Scheduling trigger context.
+   * <p>
+   * Trigger context provided by the triggers service to the trigger instances
+   * which run on a schedule.
+   */
+  public interface Context extends TriggerInstance.Context {
+
+    /**
+     * Schedules action of the trigger instance.
+     * @param action action to run
+     * @param fireTime time when to run the action
+     * @return timeout handle
+     */
+    Timeout schedule(Runnable action, Date fireTime);
+
+    /**
+     * Claims occurrence of the trigger instance which is due. When several
+     * nodes share the same triggers only one of them gets the claim; others
+     * skip the occurrence and schedule the next one.
+     * @return <code>true</code> if this node is to run the occurrence
+     */
+    boolean claim();
+
+    /**
+     * Gets delay after which an occurrence claimed by another node is worth
+     * claiming again; claim of a node which stopped expires within this time.
+     * @return delay (ms)
+     */
+    long getClaimRetryDelay();
+  }
+
+  /**
+   * Timeout handle.
+   */
+  public final class Timeout {
+    private final Runnable action;
+    private final long fireTime;
+    private final Object attachment;
+    private Set<Timeout> slot;
+    private boolean expired;
+    private boolean cancelled;
+
+    /**
+     * Creates instance of the timeout.
+     * @param action action
+     * @param fireTime fire time
+     * @param attachment attachment
+     */
+    private Timeout(Runnable action, long fireTime, Object attachment) {
+      this.action = action;
+      this.fireTime = fireTime;
+      this.attachment = attachment;
+    }
+
+    /**
+     * Gets fire time.
+     * @return fire time (ms)
+     */
+    public long getFireTime() {
+      return fireTime;
+    }
+
+    /**
+     * Gets attachment.
+     * @return attachment or <code>null</code> if no attachment
+     */
+    public Object getAttachment() {
+      return attachment;
+    }
+
+    /**
+     * Checks if timeout is still pending.
+     * @return <code>true</code> if neither expired nor cancelled
+     */
+    public boolean isPending() {
+      synchronized (TriggerScheduler.this) {
+        return !expired && !cancelled;
+      }
+    }
+
+    /**
+     * Cancels the timeout.
+     * @return <code>true</code> if timeout has been cancelled before expiring
+     */
+    public boolean cancel() {
+      return TriggerScheduler.this.cancel(this);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("TIMEOUT :: fire time: %s, attachment: %s", new Date(fireTime), attachment);
+    }
+  }
+}
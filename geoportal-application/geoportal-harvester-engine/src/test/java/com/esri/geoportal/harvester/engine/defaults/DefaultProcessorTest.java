@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.defaults;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.ContentBuffer;
+import com.esri.geoportal.harvester.api.base.DataReferenceWrapper;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import com.esri.geoportal.harvester.engine.stubs.MemFingerprintManager;
+import com.esri.geoportal.harvester.engine.stubs.StubInputBroker;
+import com.esri.geoportal.harvester.engine.stubs.StubOutputBroker;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createLink;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createTask;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.execute;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Default processor test.
+ */
+public class DefaultProcessorTest {
+  
+  private static StubInputBroker createSource() {
+    return new StubInputBroker().add("a", "<a/>").add("b", "<b/>").add("c", "<c/>");
+  }
+
+  @Test
+  public void testCleanupRemovesRecordsNotHarvested() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(true);
+    destination.getStore().put("z", "z");
+    Task task = createTask(UUID.randomUUID().toString(), Collections.emptyMap(), createSource(), destination);
+    
+    execute(new DefaultProcessor().createProcess(task, new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("a", "b", "c"), destination.getPublished());
+    assertEquals(3, destination.getStore().size());
+    assertFalse(destination.getStore().containsKey("z"));
+  }
+
+  @Test
+  public void testSpilledContentReleasedAfterPublishing() throws Exception {
+    StubInputBroker source = createSource().spill();
+    StubOutputBroker destination = new StubOutputBroker(false);
+    List<DataReferenceWrapper> transformed = new CopyOnWriteArrayList<>();
+    LinkAction transform = new LinkAction() {
+      @Override
+      public EntityDefinition getLinkActionDefinition() {
+        return new EntityDefinition();
+      }
+
+      @Override
+      public List<DataReference> execute(DataReference dataRef) throws DataProcessorException {
+        DataReferenceWrapper wrapper = new DataReferenceWrapper(dataRef);
+        try (ContentBuffer buffer = new ContentBuffer(0)) {
+          buffer.write(dataRef.getContent(MimeType.APPLICATION_XML));
+          buffer.write(dataRef.getContent(MimeType.APPLICATION_XML));
+          wrapper.addContext(MimeType.APPLICATION_XML, buffer);
+        } catch (IOException ex) {
+          throw new DataProcessorException("Error transforming", ex);
+        }
+        transformed.add(wrapper);
+        return Collections.singletonList(wrapper);
+      }
+
+      @Override
+      public PublishingStatus push(DataReference dataRef) {
+        return PublishingStatus.emptyStatus();
+      }
+
+      @Override
+      public void initialize(InitContext context) {
+      }
+
+      @Override
+      public void terminate() {
+      }
+    };
+    Link link = new SimpleLink(transform, Collections.singletonList(createLink(destination)));
+    Task task = createTask(UUID.randomUUID().toString(), Collections.emptyMap(), false, source, Collections.singletonList(link));
+    
+    execute(new DefaultProcessor().createProcess(task, new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("a", "b", "c"), destination.getPublished());
+    assertEquals(3, source.getReferences().size());
+    assertEquals(3, transformed.size());
+    for (SimpleDataReference ref: source.getReferences()) {
+      assertEquals(4, ref.getContentLength());
+      assertReleased(ref);
+    }
+    for (DataReferenceWrapper ref: transformed) {
+      assertEquals(8, ref.getContentLength());
+      assertReleased(ref);
+    }
+  }
+  
+  private static void assertReleased(DataReference ref) {
+    try {
+      ref.getContent(MimeType.APPLICATION_XML);
+      fail(String.format("content of %s not released", ref));
+    } catch (IOException ex) {
+      // temporary file deleted
+    }
+  }
+
+  @Test
+  public void testSkippedRecordsSurviveCleanup() throws Exception {
+    MemFingerprintManager fingerprintManager = new MemFingerprintManager();
+    StubOutputBroker destination = new StubOutputBroker(true);
+    StubInputBroker source = createSource();
+    Map<String, String> properties = new HashMap<>();
+    properties.put(DefaultProcessor.P_SKIP_UNCHANGED, "true");
+    String ref = UUID.randomUUID().toString();
+    
+    execute(new DefaultProcessor(fingerprintManager).createProcess(createTask(ref, properties, source, destination), new SimpleIteratorContext()));
+    assertEquals(Arrays.asList("a", "b", "c"), destination.getPublished());
+    
+    source.add("d", "<d/>");
+    execute(new DefaultProcessor(fingerprintManager).createProcess(createTask(ref, properties, source, destination), new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("d"), destination.getPublished());
+    assertFalse(source.getContext().canCleanup());
+    assertEquals(4, destination.getStore().size());
+  }
+
+  @Test
+  public void testResumedHarvestKeepsRecordsBeforeCursor() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(true);
+    destination.getStore().put("a", "a");
+    destination.getStore().put("b", "b");
+    Task task = createTask(UUID.randomUUID().toString(), Collections.emptyMap(), createSource(), destination);
+    SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
+    iteratorContext.setCursor("2");
+    
+    execute(new DefaultProcessor().createProcess(task, iteratorContext));
+    
+    assertEquals(Arrays.asList("c"), destination.getPublished());
+    assertEquals(3, destination.getStore().size());
+  }
+}
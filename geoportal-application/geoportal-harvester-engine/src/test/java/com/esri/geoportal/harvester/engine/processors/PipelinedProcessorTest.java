@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.processors;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.general.LinkAction;
+import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor;
+import com.esri.geoportal.harvester.engine.stubs.StubInputBroker;
+import com.esri.geoportal.harvester.engine.stubs.StubOutputBroker;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createLink;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createTask;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.execute;
+import com.esri.geoportal.harvester.engine.utils.DestinationStatistics;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Pipelined processor test.
+ */
+public class PipelinedProcessorTest {
+  
+  private static StubInputBroker createSource() {
+    return new StubInputBroker().add("a", "<a/>").add("b", "<b/>").add("c", "<c/>").add("d", "<d/>").add("e", "<e/>");
+  }
+  
+  private static Map<String, String> createProperties(int workers, int batchSize) {
+    Map<String, String> properties = new HashMap<>();
+    properties.put(PipelinedProcessor.P_WORKERS, Integer.toString(workers));
+    properties.put(PipelinedProcessor.P_BATCH_SIZE, Integer.toString(batchSize));
+    properties.put(PipelinedProcessor.P_BATCH_TIMEOUT, "100");
+    return properties;
+  }
+
+  @Test
+  public void testBatchSizeWithoutBatchBrokerPublishesOneByOne() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false).fail("c");
+    Task task = createTask(UUID.randomUUID().toString(), createProperties(1, 3), createSource(), destination);
+    
+    execute(new PipelinedProcessor().createProcess(task, new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("a", "b", "d", "e"), destination.getPublished());
+    assertTrue(destination.getBatches().isEmpty());
+  }
+
+  @Test
+  public void testFailedBatchIsPublishedOneByOne() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false).batch().fail("c");
+    Task task = createTask(UUID.randomUUID().toString(), createProperties(1, 5), createSource(), destination);
+    
+    execute(new PipelinedProcessor().createProcess(task, new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("a", "b", "d", "e"), destination.getPublished());
+    assertTrue(destination.getBatches().isEmpty());
+  }
+
+  @Test
+  public void testBatchBrokerPublishesBatches() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false).batch();
+    Task task = createTask(UUID.randomUUID().toString(), createProperties(1, 5), createSource(), destination);
+    
+    execute(new PipelinedProcessor().createProcess(task, new SimpleIteratorContext()));
+    
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"), destination.getPublished());
+    assertEquals(5, destination.getBatches().stream().mapToInt(Integer::intValue).sum());
+  }
+
+  @Test
+  public void testMixedDrainsReceiveEachRecordOnce() throws Exception {
+    StubOutputBroker batchDrain = new StubOutputBroker(false).batch();
+    StubOutputBroker plainDrain = new StubOutputBroker(false).fail("c");
+    List<String> executed = new CopyOnWriteArrayList<>();
+    LinkAction transform = new LinkAction() {
+      @Override
+      public EntityDefinition getLinkActionDefinition() {
+        return new EntityDefinition();
+      }
+
+      @Override
+      public List<DataReference> execute(DataReference dataRef) {
+        executed.add(dataRef.getId());
+        return Collections.singletonList(dataRef);
+      }
+
+      @Override
+      public PublishingStatus push(DataReference dataRef) {
+        return PublishingStatus.emptyStatus();
+      }
+
+      @Override
+      public void initialize(InitContext context) {
+      }
+
+      @Override
+      public void terminate() {
+      }
+    };
+    Link destination = new SimpleLink(transform, Arrays.asList(createLink(batchDrain), createLink(plainDrain)));
+    Task task = createTask(UUID.randomUUID().toString(), createProperties(1, 5), false, createSource(), Collections.singletonList(destination));
+    ProcessInstance process = new PipelinedProcessor().createProcess(task, new SimpleIteratorContext());
+    List<DataException> errors = new CopyOnWriteArrayList<>();
+    process.addListener(new BaseProcessInstanceListener() {
+      @Override
+      public void onError(DataException ex) {
+        errors.add(ex);
+      }
+    });
+    
+    execute(process);
+    
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"), executed);
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"), batchDrain.getPublished());
+    assertEquals(5, batchDrain.getBatches().stream().mapToInt(Integer::intValue).sum());
+    assertEquals(Arrays.asList("a", "b", "d", "e"), plainDrain.getPublished());
+    assertTrue(plainDrain.getBatches().isEmpty());
+    assertEquals(1, errors.size());
+  }
+
+  @Test
+  public void testDestinationStatisticsAreExposedThroughMetrics() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false);
+    Task task = createTask(UUID.randomUUID().toString(), createProperties(2, 1), createSource(), destination);
+    ProcessInstance process = new PipelinedProcessor().createProcess(task, new SimpleIteratorContext());
+    
+    execute(process);
+    
+    List<DestinationStatistics> destinations = ProcessMetrics.of(process).getDestinations();
+    assertEquals(1, destinations.size());
+    assertEquals(5, destinations.get(0).getQueued());
+    assertEquals(5, destinations.get(0).getProcessed());
+    assertEquals(0, destinations.get(0).getLag());
+  }
+
+  @Test
+  public void testCheckpointNeverPassesUnpublishedRecord() throws Exception {
+    StubInputBroker source = new StubInputBroker().delay(2);
+    for (int i = 0; i < 20; i++) {
+      source.add(String.format("r%02d", i), String.format("<r%02d/>", i));
+    }
+    StubOutputBroker destination = new StubOutputBroker(false).block("r05");
+    Map<String, String> properties = createProperties(2, 1);
+    properties.put(DefaultProcessor.P_CHECKPOINT_INTERVAL, "1");
+    Task task = createTask(UUID.randomUUID().toString(), properties, source, destination);
+    ProcessInstance process = new PipelinedProcessor().createProcess(task, new SimpleIteratorContext());
+    List<String> checkpoints = new CopyOnWriteArrayList<>();
+    process.addListener(new BaseProcessInstanceListener() {
+      @Override
+      public void onCheckpoint(String cursor) {
+        checkpoints.add(String.valueOf(cursor));
+      }
+    });
+    
+    Thread harvest = new Thread(() -> {
+      try {
+        execute(process);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    harvest.start();
+    destination.awaitBlocked();
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (destination.getPublished().size() < 19 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(19, destination.getPublished().size());
+    destination.release();
+    harvest.join(TimeUnit.SECONDS.toMillis(30));
+    
+    // barriers taken after r05 are not committed until r05 is published
+    assertEquals(20, destination.getPublished().size());
+    assertFalse(checkpoints.isEmpty());
+    assertEquals("null", checkpoints.get(checkpoints.size() - 1));
+    int last = checkpoints.stream().filter(c -> !c.equals("null")).mapToInt(Integer::parseInt).max().orElse(-1);
+    assertEquals(5, last);
+  }
+}
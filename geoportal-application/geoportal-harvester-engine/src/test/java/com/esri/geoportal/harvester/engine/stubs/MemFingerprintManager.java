@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.stubs;
+
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprint manager keeping fingerprints in memory.
+ */
+public class MemFingerprintManager implements FingerprintManager {
+  private final Map<UUID, Map<String, String>> fingerprints = new ConcurrentHashMap<>();
+
+  @Override
+  public Session open(UUID taskId) {
+    Map<String, String> task = fingerprints.computeIfAbsent(taskId, id -> new ConcurrentHashMap<>());
+    return new Session() {
+      @Override
+      public String read(String recordId) {
+        return task.get(recordId);
+      }
+
+      @Override
+      public void store(String recordId, String fingerprint) {
+        task.put(recordId, fingerprint);
+      }
+
+      @Override
+      public void touch(String recordId) {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  @Override
+  public void purge(UUID taskId) {
+    fingerprints.remove(taskId);
+  }
+}
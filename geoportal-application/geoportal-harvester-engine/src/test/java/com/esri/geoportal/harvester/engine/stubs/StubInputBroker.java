@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.stubs;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataContent;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.ContentBuffer;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.InputConnector;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Input broker serving records from memory. Cursor is the index of the next
+ * record.
+ */
+public class StubInputBroker implements InputBroker {
+  private final Map<String, String> records = new LinkedHashMap<>();
+  private final Map<String, String> properties = new HashMap<>();
+  private volatile InitContext context;
+  private volatile long delay;
+  private volatile boolean spill;
+  private final List<SimpleDataReference> references = new CopyOnWriteArrayList<>();
+
+  /**
+   * Adds record.
+   * @param id record id
+   * @param content record content
+   * @return this broker
+   */
+  public StubInputBroker add(String id, String content) {
+    records.put(id, content);
+    return this;
+  }
+
+  /**
+   * Makes reading each record take at least the given time.
+   * @param delay delay (ms)
+   * @return this broker
+   */
+  public StubInputBroker delay(long delay) {
+    this.delay = delay;
+    return this;
+  }
+
+  /**
+   * Makes content of each record stored in a temporary file.
+   * @return this broker
+   */
+  public StubInputBroker spill() {
+    this.spill = true;
+    return this;
+  }
+
+  /**
+   * Gets data references created by the broker.
+   * @return list of data references
+   */
+  public List<SimpleDataReference> getReferences() {
+    return references;
+  }
+
+  /**
+   * Gets init context the broker has been initialized with.
+   * @return init context
+   */
+  public InitContext getContext() {
+    return context;
+  }
+
+  @Override
+  public URI getBrokerUri() {
+    return URI.create("stub://input");
+  }
+
+  @Override
+  public Iterator iterator(IteratorContext iteratorContext) {
+    List<String> ids = new ArrayList<>(records.keySet());
+    int start = iteratorContext!=null && iteratorContext.getCursor()!=null? Integer.parseInt(iteratorContext.getCursor()): 0;
+    return new Iterator() {
+      int index = start;
+
+      @Override
+      public boolean hasNext() {
+        return index < ids.size();
+      }
+
+      @Override
+      public DataReference next() throws DataInputException {
+        if (delay > 0) {
+          try {
+            Thread.sleep(delay);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataInputException(StubInputBroker.this, "Reading interrupted.", ex);
+          }
+        }
+        return createReference(ids.get(index++));
+      }
+
+      @Override
+      public String getCursor() {
+        return Integer.toString(index);
+      }
+    };
+  }
+
+  @Override
+  public DataContent readContent(String id) throws DataInputException {
+    return records.containsKey(id)? createReference(id): null;
+  }
+
+  private SimpleDataReference createReference(String id) throws DataInputException {
+    SimpleDataReference ref = new SimpleDataReference(getBrokerUri(), "stub", id, null, URI.create("stub://input/" + id), null, null);
+    byte[] content = records.get(id).getBytes(StandardCharsets.UTF_8);
+    if (spill) {
+      try (ContentBuffer buffer = new ContentBuffer(0)) {
+        buffer.write(content);
+        ref.addContext(MimeType.APPLICATION_XML, buffer);
+      } catch (IOException ex) {
+        throw new DataInputException(this, String.format("Error spilling record: %s", id), ex);
+      }
+    } else {
+      ref.addContext(MimeType.APPLICATION_XML, content);
+    }
+    references.add(ref);
+    return ref;
+  }
+
+  /**
+   * Sets property of the broker definition.
+   * @param name property name
+   * @param value property value
+   * @return this broker
+   */
+  public StubInputBroker property(String name, String value) {
+    properties.put(name, value);
+    return this;
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition definition = new EntityDefinition();
+    definition.setType("STUB");
+    definition.setProperties(new HashMap<>(properties));
+    return definition;
+  }
+
+  @Override
+  public InputConnector getConnector() {
+    return null;
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return true;
+  }
+
+  @Override
+  public void initialize(InitContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public void terminate() {
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.stubs;
+
+import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataOutputException;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputConnector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Output broker publishing records into memory. Cleanup follows the contract
+ * of the Geoportal broker: records existing before the harvest and not
+ * published during the harvest are deleted on termination, unless cleanup has
+ * been prevented.
+ */
+public class StubOutputBroker implements OutputBroker {
+  private final Map<String, String> store = new ConcurrentHashMap<>();
+  private final Map<String, String> properties = new HashMap<>();
+  private final List<String> published = new CopyOnWriteArrayList<>();
+  private final Set<String> failing = ConcurrentHashMap.newKeySet();
+  private final List<Integer> batches = new CopyOnWriteArrayList<>();
+  private volatile boolean batch;
+  private volatile String blocking;
+  private final CountDownLatch blocked = new CountDownLatch(1);
+  private final CountDownLatch released = new CountDownLatch(1);
+  private final boolean cleanup;
+  private final Set<String> existing = Collections.synchronizedSet(new HashSet<>());
+  private volatile boolean cleanupAllowed;
+
+  /**
+   * Creates instance of the broker.
+   * @param cleanup <code>true</code> to delete records not harvested
+   */
+  public StubOutputBroker(boolean cleanup) {
+    this.cleanup = cleanup;
+  }
+
+  /**
+   * Gets records stored in the broker.
+   * @return map of record contents by record ids
+   */
+  public Map<String, String> getStore() {
+    return store;
+  }
+
+  /**
+   * Gets ids of records published during the harvest, in order of publishing.
+   * @return list of record ids
+   */
+  public List<String> getPublished() {
+    return published;
+  }
+
+  /**
+   * Makes publishing the record fail.
+   * @param id record id
+   * @return this broker
+   */
+  public StubOutputBroker fail(String id) {
+    failing.add(id);
+    return this;
+  }
+
+  /**
+   * Makes publishing the record wait until {@link #release()} is called.
+   * @param id record id
+   * @return this broker
+   */
+  public StubOutputBroker block(String id) {
+    blocking = id;
+    return this;
+  }
+
+  /**
+   * Waits until publishing of the blocking record starts.
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void awaitBlocked() throws InterruptedException {
+    blocked.await();
+  }
+
+  /**
+   * Lets publishing of the blocking record continue.
+   */
+  public void release() {
+    released.countDown();
+  }
+
+  /**
+   * Makes the broker support batch publishing. A batch containing a failing 
+   * record fails as a whole.
+   * @return this broker
+   */
+  public StubOutputBroker batch() {
+    batch = true;
+    return this;
+  }
+
+  /**
+   * Gets sizes of the batches published successfully.
+   * @return list of batch sizes
+   */
+  public List<Integer> getBatches() {
+    return batches;
+  }
+
+  @Override
+  public boolean supportsBatch() {
+    return batch;
+  }
+
+  @Override
+  public List<PublishingStatus> publishBatch(List<DataReference> refs) throws DataOutputException {
+    for (DataReference ref: refs) {
+      if (failing.contains(ref.getId())) {
+        throw new DataOutputException(this, ref, String.format("Failing batch with record: %s", ref.getId()));
+      }
+    }
+    List<PublishingStatus> statuses = new ArrayList<>();
+    for (DataReference ref: refs) {
+      statuses.add(publish(ref));
+    }
+    batches.add(refs.size());
+    return statuses;
+  }
+
+  @Override
+  public PublishingStatus publish(DataReference ref) throws DataOutputException {
+    if (ref.getId().equals(blocking)) {
+      blocked.countDown();
+      try {
+        released.await();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new DataOutputException(this, ref, String.format("Publishing interrupted: %s", ref.getId()), ex);
+      }
+    }
+    if (failing.contains(ref.getId())) {
+      throw new DataOutputException(this, ref, String.format("Failing record: %s", ref.getId()));
+    }
+    existing.remove(ref.getId());
+    published.add(ref.getId());
+    String previous = store.put(ref.getId(), ref.getId());
+    return previous!=null? PublishingStatus.UPDATED: PublishingStatus.CREATED;
+  }
+
+  /**
+   * Sets property of the broker definition.
+   * @param name property name
+   * @param value property value
+   * @return this broker
+   */
+  public StubOutputBroker property(String name, String value) {
+    properties.put(name, value);
+    return this;
+  }
+
+  @Override
+  public EntityDefinition getEntityDefinition() {
+    EntityDefinition definition = new EntityDefinition();
+    definition.setType("STUB");
+    definition.setProperties(new HashMap<>(properties));
+    return definition;
+  }
+
+  @Override
+  public OutputConnector getConnector() {
+    return null;
+  }
+
+  @Override
+  public boolean hasAccess(SimpleCredentials creds) {
+    return true;
+  }
+
+  @Override
+  public void initialize(InitContext context) {
+    published.clear();
+    batches.clear();
+    cleanupAllowed = cleanup && context.canCleanup();
+    existing.clear();
+    if (cleanupAllowed) {
+      existing.addAll(store.keySet());
+    }
+  }
+
+  @Override
+  public void terminate() {
+    if (cleanupAllowed) {
+      synchronized (existing) {
+        existing.forEach(store::remove);
+      }
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return "STUB";
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.stubs;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.BrokerLinkActionAdaptor;
+import com.esri.geoportal.harvester.api.base.SimpleLink;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.general.Link;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.specs.OutputBroker;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Utilities to build and run tasks in tests.
+ */
+public final class StubTasks {
+  
+  private StubTasks() {
+  }
+
+  /**
+   * Creates task.
+   * @param ref task reference
+   * @param properties processor properties
+   * @param source data source
+   * @param destinations data destinations
+   * @return task
+   */
+  public static Task createTask(String ref, Map<String, String> properties, InputBroker source, OutputBroker...destinations) {
+    return createTask(ref, properties, false, source, destinations);
+  }
+
+  /**
+   * Creates task.
+   * @param ref task reference
+   * @param properties processor properties
+   * @param incremental <code>true</code> for incremental harvest
+   * @param source data source
+   * @param destinations data destinations
+   * @return task
+   */
+  public static Task createTask(String ref, Map<String, String> properties, boolean incremental, InputBroker source, OutputBroker...destinations) {
+    return createTask(ref, properties, incremental, source, Arrays.stream(destinations).map(StubTasks::createLink).collect(Collectors.toList()));
+  }
+
+  /**
+   * Creates task.
+   * @param ref task reference
+   * @param properties processor properties
+   * @param incremental <code>true</code> for incremental harvest
+   * @param source data source
+   * @param destinations data destinations
+   * @return task
+   */
+  public static Task createTask(String ref, Map<String, String> properties, boolean incremental, InputBroker source, List<Link> destinations) {
+    EntityDefinition processorDefinition = new EntityDefinition();
+    processorDefinition.setType("STUB");
+    processorDefinition.setProperties(new HashMap<>(properties));
+    return new Task("test", ref, null, processorDefinition, source, destinations, Collections.emptyList(), incremental, false);
+  }
+
+  /**
+   * Creates link publishing to the broker.
+   * @param destination data destination
+   * @return link
+   */
+  public static Link createLink(OutputBroker destination) {
+    return new SimpleLink(new BrokerLinkActionAdaptor(destination), Collections.emptyList());
+  }
+
+  /**
+   * Runs the process and waits until it completes.
+   * @param process process
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IllegalStateException if process didn't complete in time
+   */
+  public static void execute(ProcessInstance process) throws InterruptedException {
+    CountDownLatch completed = new CountDownLatch(1);
+    process.addListener(new ProcessInstance.Listener() {
+      @Override
+      public void onStatusChange(ProcessInstance.Status status) {
+        if (status == ProcessInstance.Status.completed) {
+          completed.countDown();
+        }
+      }
+
+      @Override
+      public void onDataAcquired(DataReference dataReference) {
+      }
+
+      @Override
+      public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+      }
+
+      @Override
+      public void onError(DataException ex) {
+      }
+    });
+    process.init();
+    process.begin();
+    if (!completed.await(30, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("Process did not complete in time.");
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.triggers;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.TriggerInstance;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Period trigger test.
+ */
+public class PeriodTriggerTest {
+  private static final long RETRY_DELAY = TimeUnit.MINUTES.toMillis(2);
+
+  @Test
+  public void testClaimedOccurrenceCheckedAgainAfterRetryDelay() throws Exception {
+    StubContext context = new StubContext(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+    TriggerInstance instance = new PeriodTrigger().createInstance(createDefinition("P1D"));
+    instance.activate(context);
+
+    // last harvest is older than the period, thus the occurrence is due now
+    assertEquals(1, context.scheduled.size());
+    context.claimed = false;
+    long start = System.currentTimeMillis();
+    context.fire();
+
+    // another node holds the claim; checked again once the claim could expire
+    assertEquals(1, context.scheduled.size());
+    long delay = context.fireTimes.get(0).getTime() - start;
+    assertTrue(delay >= RETRY_DELAY && delay < RETRY_DELAY + 5000);
+
+    // the other node died without harvesting; occurrence is still due
+    context.fire();
+    assertEquals(1, context.scheduled.size());
+    assertTrue(context.fireTimes.get(0).getTime() <= System.currentTimeMillis());
+    assertEquals(0, context.executed);
+
+    instance.deactivate();
+  }
+
+  @Test
+  public void testNextOccurrenceComputedFromHarvestOfAnotherNode() throws Exception {
+    StubContext context = new StubContext(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+    TriggerInstance instance = new PeriodTrigger().createInstance(createDefinition("P1D"));
+    instance.activate(context);
+    context.claimed = false;
+    context.fire();
+
+    // the other node has harvested in the meantime
+    Date harvested = new Date();
+    context.lastHarvest = harvested;
+    context.fire();
+
+    assertEquals(1, context.scheduled.size());
+    assertEquals(harvested.getTime() + TimeUnit.DAYS.toMillis(1), context.fireTimes.get(0).getTime(), TimeUnit.HOURS.toMillis(1));
+    assertEquals(0, context.executed);
+
+    instance.deactivate();
+  }
+
+  private static TriggerDefinition createDefinition(String period) {
+    Map<String, String> properties = new HashMap<>();
+    properties.put(PeriodTrigger.T_PERIOD, period);
+    TriggerDefinition definition = new TriggerDefinition();
+    definition.setType(PeriodTrigger.TYPE);
+    definition.setTaskDefinition(new TaskDefinition());
+    definition.setProperties(properties);
+    return definition;
+  }
+
+  /**
+   * Scheduling context keeping scheduled actions until fired by the test.
+   */
+  private static class StubContext implements TriggerScheduler.Context {
+    final List<Runnable> scheduled = new ArrayList<>();
+    final List<Date> fireTimes = new ArrayList<>();
+    volatile Date lastHarvest;
+    volatile boolean claimed = true;
+    volatile int executed;
+
+    StubContext(Date lastHarvest) {
+      this.lastHarvest = lastHarvest;
+    }
+
+    void fire() {
+      Runnable action = scheduled.remove(0);
+      fireTimes.remove(0);
+      action.run();
+    }
+
+    @Override
+    public TriggerScheduler.Timeout schedule(Runnable action, Date fireTime) {
+      scheduled.add(action);
+      fireTimes.add(fireTime);
+      return null;
+    }
+
+    @Override
+    public boolean claim() {
+      return claimed;
+    }
+
+    @Override
+    public long getClaimRetryDelay() {
+      return RETRY_DELAY;
+    }
+
+    @Override
+    public ProcessInstance execute(TaskDefinition taskDefinition) {
+      executed++;
+      throw new IllegalStateException("Unexpected execution.");
+    }
+
+    @Override
+    public Date lastHarvest() {
+      return lastHarvest;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.engine.utils.CircuitBreaker.State;
+import java.util.UUID;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Circuit breaker test.
+ */
+public class CircuitBreakerTest {
+  private static final int THRESHOLD = 3;
+  private static final long PAUSE = 200;
+  
+  private static CircuitBreaker createBreaker() {
+    return CircuitBreaker.of(UUID.randomUUID().toString(), "test");
+  }
+  
+  private static void fail(CircuitBreaker breaker, int times) {
+    for (int i = 0; i < times; i++) {
+      breaker.onFailure(THRESHOLD, PAUSE);
+    }
+  }
+
+  @Test
+  public void testSameBreakerForSameKey() {
+    String key = UUID.randomUUID().toString();
+    assertSame(CircuitBreaker.of(key, "test"), CircuitBreaker.of(key, "test"));
+  }
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    CircuitBreaker breaker = createBreaker();
+    fail(breaker, THRESHOLD - 1);
+    assertEquals(State.closed, breaker.getState());
+    assertEquals(0, breaker.acquire());
+    
+    fail(breaker, 1);
+    assertEquals(State.open, breaker.getState());
+    assertEquals(1, breaker.getTrips());
+    long remaining = breaker.acquire();
+    assertTrue(remaining > 0 && remaining <= PAUSE);
+  }
+
+  @Test
+  public void testSuccessResetsFailures() {
+    CircuitBreaker breaker = createBreaker();
+    fail(breaker, THRESHOLD - 1);
+    breaker.onSuccess();
+    fail(breaker, THRESHOLD - 1);
+    
+    assertEquals(State.closed, breaker.getState());
+    assertEquals(0, breaker.getTrips());
+  }
+
+  @Test
+  public void testNoThresholdNeverOpens() {
+    CircuitBreaker breaker = createBreaker();
+    for (int i = 0; i < 100; i++) {
+      breaker.onFailure(0, PAUSE);
+    }
+    
+    assertEquals(State.closed, breaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenAllowsSingleTrial() throws Exception {
+    CircuitBreaker breaker = createBreaker();
+    fail(breaker, THRESHOLD);
+    Thread.sleep(PAUSE + 50);
+    
+    assertEquals(0, breaker.acquire());
+    assertEquals(State.half_open, breaker.getState());
+    assertTrue(breaker.acquire() > 0);
+    
+    breaker.onSuccess();
+    assertEquals(State.closed, breaker.getState());
+    assertEquals(0, breaker.acquire());
+  }
+
+  @Test
+  public void testFailedTrialDoublesPause() throws Exception {
+    CircuitBreaker breaker = createBreaker();
+    fail(breaker, THRESHOLD);
+    Thread.sleep(PAUSE + 50);
+    assertEquals(0, breaker.acquire());
+    
+    fail(breaker, 1);
+    
+    assertEquals(State.open, breaker.getState());
+    assertEquals(2, breaker.getTrips());
+    long remaining = breaker.acquire();
+    assertTrue(remaining > PAUSE && remaining <= 2 * PAUSE);
+  }
+}
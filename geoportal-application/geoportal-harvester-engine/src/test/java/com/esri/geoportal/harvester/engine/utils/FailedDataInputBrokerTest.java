@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.Processor;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.api.ex.DataReadException;
+import com.esri.geoportal.harvester.engine.defaults.DefaultProcessor;
+import com.esri.geoportal.harvester.engine.processors.PipelinedProcessor;
+import com.esri.geoportal.harvester.engine.stubs.StubInputBroker;
+import com.esri.geoportal.harvester.engine.stubs.StubOutputBroker;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createTask;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.execute;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Failed data input broker test.
+ */
+public class FailedDataInputBrokerTest {
+
+  private static FailedDataInputBroker createSource() {
+    StubInputBroker broker = new StubInputBroker().add("a", "<a/>").add("b", "<b/>").add("c", "<c/>");
+    return new FailedDataInputBroker(broker, Arrays.asList("a", "x", "c", "y"), 2);
+  }
+
+  private static List<String> harvest(Processor processor, Map<String, String> properties, StubOutputBroker destination) throws Exception {
+    Task task = createTask(UUID.randomUUID().toString(), properties, createSource(), destination);
+    ProcessInstance process = processor.createProcess(task, new SimpleIteratorContext());
+    List<DataException> errors = new CopyOnWriteArrayList<>();
+    process.addListener(new BaseProcessInstanceListener() {
+      @Override
+      public void onError(DataException ex) {
+        errors.add(ex);
+      }
+    });
+    execute(process);
+    assertTrue(errors.stream().allMatch(e -> e instanceof DataReadException));
+    return errors.stream().map(e -> ((DataReadException) e).getFetchableDataId()).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testUnreadableDataReported() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false);
+
+    List<String> failed = harvest(new DefaultProcessor(), Collections.emptyMap(), destination);
+
+    assertEquals(Arrays.asList("a", "c"), destination.getPublished());
+    assertEquals(Arrays.asList("x", "y"), failed);
+  }
+
+  @Test
+  public void testUnreadableDataReportedWhenPrefetching() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false);
+
+    List<String> failed = harvest(new DefaultProcessor(), Collections.singletonMap(DefaultProcessor.P_PREFETCH, "2"), destination);
+
+    assertEquals(Arrays.asList("a", "c"), destination.getPublished());
+    assertEquals(Arrays.asList("x", "y"), failed);
+  }
+
+  @Test
+  public void testUnreadableDataReportedByPipelinedProcessor() throws Exception {
+    StubOutputBroker destination = new StubOutputBroker(false);
+
+    List<String> failed = harvest(new PipelinedProcessor(), Collections.singletonMap(PipelinedProcessor.P_WORKERS, "2"), destination);
+
+    assertEquals(Arrays.asList("a", "c"), destination.getPublished().stream().sorted().collect(Collectors.toList()));
+    assertEquals(Arrays.asList("x", "y"), failed);
+  }
+}
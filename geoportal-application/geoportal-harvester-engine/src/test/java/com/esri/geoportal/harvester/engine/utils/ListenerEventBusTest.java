@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Listener event bus test.
+ */
+public class ListenerEventBusTest {
+
+  @Test
+  public void testAsyncDeliveryKeepsOrder() {
+    CheckpointListener listener = new CheckpointListener();
+    ListenerEventBus bus = new ListenerEventBus(Collections.synchronizedList(new ArrayList<>(Collections.singletonList(listener))), 4, 3);
+    bus.start("TEST-EVENTS");
+    for (int i=0; i<100; i++) {
+      String cursor = Integer.toString(i);
+      bus.publish(l -> l.onCheckpoint(cursor));
+    }
+    bus.close();
+    
+    assertEquals(100, listener.cursors.size());
+    for (int i=0; i<100; i++) {
+      assertEquals(Integer.toString(i), listener.cursors.get(i));
+    }
+  }
+
+  @Test
+  public void testSyncDeliveryIsSerialized() throws InterruptedException {
+    CheckpointListener listener = new CheckpointListener();
+    ListenerEventBus bus = new ListenerEventBus(Collections.synchronizedList(new ArrayList<>(Collections.singletonList(listener))), 0, 1);
+    
+    List<Thread> threads = new ArrayList<>();
+    for (int t=0; t<8; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i=0; i<1000; i++) {
+          if (i%2==0) {
+            bus.publish(l -> l.onCheckpoint("x"));
+          } else {
+            bus.offer(l -> l.onCheckpoint("x"));
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    
+    assertEquals(8000, listener.cursors.size());
+    assertEquals(0, listener.overlaps.get());
+  }
+
+  @Test
+  public void testOfferDropsWhenBufferFull() throws InterruptedException {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CheckpointListener listener = new CheckpointListener() {
+      @Override
+      public void onCheckpoint(String cursor) {
+        if ("block".equals(cursor)) {
+          entered.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        super.onCheckpoint(cursor);
+      }
+    };
+    ListenerEventBus bus = new ListenerEventBus(Collections.synchronizedList(new ArrayList<>(Collections.singletonList(listener))), 1, 1);
+    bus.start("TEST-EVENTS");
+    bus.publish(l -> l.onCheckpoint("block"));
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    
+    assertTrue(bus.offer(l -> l.onCheckpoint("kept")));
+    assertFalse(bus.offer(l -> l.onCheckpoint("dropped")));
+    assertEquals(1, bus.getDropped());
+    
+    release.countDown();
+    bus.close();
+    assertEquals(2, listener.cursors.size());
+    assertEquals("kept", listener.cursors.get(1));
+  }
+  
+  @Test(timeout = 10000)
+  public void testErrorOfListenerDoesNotStopDelivery() {
+    CheckpointListener listener = new CheckpointListener() {
+      @Override
+      public void onCheckpoint(String cursor) {
+        if ("error".equals(cursor)) {
+          throw new StackOverflowError();
+        }
+        super.onCheckpoint(cursor);
+      }
+    };
+    ListenerEventBus bus = new ListenerEventBus(Collections.synchronizedList(new ArrayList<>(Collections.singletonList(listener))), 2, 1);
+    bus.start("TEST-EVENTS");
+    bus.publish(l -> l.onCheckpoint("error"));
+    for (int i=0; i<10; i++) {
+      String cursor = Integer.toString(i);
+      bus.publish(l -> l.onCheckpoint(cursor));
+    }
+    bus.close();
+    
+    assertEquals(10, listener.cursors.size());
+  }
+  
+  /**
+   * Listener recording checkpoints and detecting concurrent calls.
+   */
+  private static class CheckpointListener implements ProcessInstance.Listener {
+    final List<String> cursors = new ArrayList<>();
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+
+    @Override
+    public void onCheckpoint(String cursor) {
+      if (active.incrementAndGet() > 1) {
+        overlaps.incrementAndGet();
+      }
+      cursors.add(cursor);
+      Thread.yield();
+      active.decrementAndGet();
+    }
+
+    @Override
+    public void onStatusChange(ProcessInstance.Status status) {
+    }
+
+    @Override
+    public void onDataAcquired(DataReference dataReference) {
+    }
+
+    @Override
+    public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+    }
+
+    @Override
+    public void onError(DataException ex) {
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Prefetching iterator test.
+ */
+public class PrefetchingIteratorTest {
+
+  @Test
+  public void testCursorOfEveryRecord() throws Exception {
+    CountingIterator source = new CountingIterator(10);
+    List<String> cursors = new ArrayList<>();
+    try (PrefetchingIterator iterator = new PrefetchingIterator(null, source, 3, "TEST-PREFETCH").start()) {
+      while (iterator.hasNext()) {
+        cursors.add(iterator.getCursor());
+        iterator.next();
+      }
+    }
+    for (int i=0; i<10; i++) {
+      assertEquals(Integer.toString(i), cursors.get(i));
+    }
+    assertEquals(10, source.cursors.get());
+  }
+
+  @Test
+  public void testCursorCapturedOncePerInterval() throws Exception {
+    CountingIterator source = new CountingIterator(1000);
+    int count = 0;
+    try (PrefetchingIterator iterator = new PrefetchingIterator(null, source, 3, "TEST-PREFETCH", 60000).start()) {
+      while (iterator.hasNext()) {
+        // latest captured cursor never points past the current record
+        assertEquals("0", iterator.getCursor());
+        iterator.next();
+        count++;
+      }
+    }
+    assertEquals(1000, count);
+    assertEquals(1, source.cursors.get());
+  }
+
+  @Test
+  public void testNoCursorCaptured() throws Exception {
+    CountingIterator source = new CountingIterator(10);
+    try (PrefetchingIterator iterator = new PrefetchingIterator(null, source, 3, "TEST-PREFETCH", -1).start()) {
+      while (iterator.hasNext()) {
+        assertNull(iterator.getCursor());
+        iterator.next();
+      }
+    }
+    assertEquals(0, source.cursors.get());
+  }
+  
+  @Test
+  public void testErrorRethrownToConsumer() throws Exception {
+    CountingIterator source = new CountingIterator(10) {
+      @Override
+      public DataReference next() {
+        if (index == 3) {
+          throw new StackOverflowError();
+        }
+        return super.next();
+      }
+    };
+    int count = 0;
+    try (PrefetchingIterator iterator = new PrefetchingIterator(null, source, 3, "TEST-PREFETCH").start()) {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+      fail("error not rethrown");
+    } catch (StackOverflowError ex) {
+      assertEquals(3, count);
+    }
+  }
+  
+  @Test
+  public void testCloseWaitsWhenInterrupted() throws Exception {
+    BlockingIterator source = new BlockingIterator(300);
+    PrefetchingIterator iterator = new PrefetchingIterator(null, source, 1, "TEST-PREFETCH").start();
+    assertTrue(source.blocked.await(5, TimeUnit.SECONDS));
+    
+    Thread.currentThread().interrupt();
+    iterator.close();
+    
+    assertTrue("interruption not restored", Thread.interrupted());
+    assertTrue("source still in use after close", source.finished);
+  }
+
+  @Test
+  public void testCloseAbandonsBlockedThread() throws Exception {
+    BlockingIterator source = new BlockingIterator(60000);
+    try {
+      PrefetchingIterator iterator = new PrefetchingIterator(null, source, 1, "TEST-PREFETCH").start();
+      assertTrue(source.blocked.await(5, TimeUnit.SECONDS));
+      
+      long start = System.currentTimeMillis();
+      iterator.close(100);
+      
+      assertTrue(System.currentTimeMillis() - start < 5000);
+      assertFalse(source.finished);
+    } finally {
+      source.release.countDown();
+    }
+  }
+  
+  /**
+   * Iterator blocking in {@link #hasNext()} and ignoring interruption, just
+   * like a blocked socket read.
+   */
+  static class BlockingIterator implements InputBroker.Iterator {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final long blockTime;
+    volatile boolean finished;
+
+    BlockingIterator(long blockTime) {
+      this.blockTime = blockTime;
+    }
+
+    @Override
+    public boolean hasNext() {
+      blocked.countDown();
+      long end = System.currentTimeMillis() + blockTime;
+      while (System.currentTimeMillis() < end) {
+        try {
+          if (release.await(end - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+            break;
+          }
+        } catch (InterruptedException ex) {
+          // ignored like by a blocked socket read
+        }
+      }
+      finished = true;
+      return false;
+    }
+
+    @Override
+    public DataReference next() {
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Iterator counting requests for the cursor.
+   */
+  static class CountingIterator implements InputBroker.Iterator {
+    final AtomicInteger cursors = new AtomicInteger();
+    final int size;
+    int index;
+
+    CountingIterator(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < size;
+    }
+
+    @Override
+    public DataReference next() {
+      String id = Integer.toString(index++);
+      return new SimpleDataReference(null, "test", id, null, null, null, null);
+    }
+
+    @Override
+    public String getCursor() {
+      cursors.incrementAndGet();
+      return Integer.toString(index);
+    }
+  }
+}
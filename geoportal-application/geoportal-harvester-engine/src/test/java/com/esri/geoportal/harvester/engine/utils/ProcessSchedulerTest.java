@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.engine.stubs.StubInputBroker;
+import com.esri.geoportal.harvester.engine.stubs.StubOutputBroker;
+import static com.esri.geoportal.harvester.engine.stubs.StubTasks.createTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Process scheduler test.
+ */
+public class ProcessSchedulerTest {
+  private final List<String> started = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void testGlobalLimit() {
+    ProcessScheduler scheduler = new ProcessScheduler(2, 0, 0, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess a = submit(scheduler, new TestProcess("a", 0, false, "h1", "d1"));
+    TestProcess b = submit(scheduler, new TestProcess("b", 0, false, "h2", "d2"));
+    TestProcess c = submit(scheduler, new TestProcess("c", 0, false, "h3", "d3"));
+
+    assertEquals(Arrays.asList("a", "b"), started);
+    assertEquals(ProcessInstance.Status.queued, c.scheduled.getStatus());
+    assertEquals(2, scheduler.getRunning());
+    assertEquals(1, scheduler.getQueued());
+
+    a.complete();
+    assertEquals(Arrays.asList("a", "b", "c"), started);
+    assertEquals(ProcessInstance.Status.working, c.scheduled.getStatus());
+    b.complete();
+    c.complete();
+    assertEquals(0, scheduler.getRunning());
+  }
+
+  @Test
+  public void testDestinationLimitSkipsBlockedProcesses() {
+    ProcessScheduler scheduler = new ProcessScheduler(0, 1, 0, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess a = submit(scheduler, new TestProcess("a", 0, false, "h1", "d1"));
+    TestProcess b = submit(scheduler, new TestProcess("b", 0, false, "h2", "d1"));
+    submit(scheduler, new TestProcess("c", 0, false, "h3", "d2"));
+
+    assertEquals(Arrays.asList("a", "c"), started);
+    assertEquals(ProcessInstance.Status.queued, b.scheduled.getStatus());
+
+    a.complete();
+    assertEquals(Arrays.asList("a", "c", "b"), started);
+  }
+
+  @Test
+  public void testHostLimitSkipsBlockedProcesses() {
+    ProcessScheduler scheduler = new ProcessScheduler(0, 0, 1, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess a = submit(scheduler, new TestProcess("a", 0, false, "h1", "d1"));
+    TestProcess b = submit(scheduler, new TestProcess("b", 0, false, "h1", "d2"));
+    submit(scheduler, new TestProcess("c", 0, false, "h2", "d3"));
+
+    assertEquals(Arrays.asList("a", "c"), started);
+    assertEquals(ProcessInstance.Status.queued, b.scheduled.getStatus());
+
+    a.complete();
+    assertEquals(Arrays.asList("a", "c", "b"), started);
+  }
+
+  @Test
+  public void testPriorityThenIncrementalThenSubmission() {
+    ProcessScheduler scheduler = new ProcessScheduler(1, 0, 0, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess blocker = submit(scheduler, new TestProcess("blocker", 0, false, "h0", "d0"));
+    TestProcess full1 = submit(scheduler, new TestProcess("full1", 0, false, "h1", "d1"));
+    TestProcess full2 = submit(scheduler, new TestProcess("full2", 0, false, "h2", "d2"));
+    TestProcess incremental = submit(scheduler, new TestProcess("incremental", 0, true, "h3", "d3"));
+    TestProcess urgent = submit(scheduler, new TestProcess("urgent", 5, false, "h4", "d4"));
+
+    blocker.complete();
+    urgent.complete();
+    incremental.complete();
+    full1.complete();
+    full2.complete();
+    assertEquals(Arrays.asList("blocker", "urgent", "incremental", "full1", "full2"), started);
+  }
+
+  @Test
+  public void testAgedFullHarvestIsNotStarved() {
+    ProcessScheduler scheduler = new ProcessScheduler(1, 0, 0, 0);
+    TestProcess blocker = submit(scheduler, new TestProcess("blocker", 0, false, "h0", "d0"));
+    TestProcess full = submit(scheduler, new TestProcess("full", 0, false, "h1", "d1"));
+    TestProcess incremental = submit(scheduler, new TestProcess("incremental", 0, true, "h2", "d2"));
+
+    blocker.complete();
+    full.complete();
+    incremental.complete();
+    assertEquals(Arrays.asList("blocker", "full", "incremental"), started);
+  }
+
+  @Test
+  public void testAbortQueuedProcess() {
+    ProcessScheduler scheduler = new ProcessScheduler(1, 0, 0, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess a = submit(scheduler, new TestProcess("a", 0, false, "h1", "d1"));
+    TestProcess b = submit(scheduler, new TestProcess("b", 0, false, "h2", "d2"));
+    List<ProcessInstance.Status> statuses = listen(b);
+
+    b.scheduled.abort();
+    assertEquals(ProcessInstance.Status.completed, b.scheduled.getStatus());
+    assertEquals(Collections.singletonList(ProcessInstance.Status.completed), statuses);
+    assertEquals(0, scheduler.getQueued());
+
+    a.complete();
+    assertEquals(Collections.singletonList("a"), started);
+  }
+
+  @Test
+  public void testFailedStartCompletesProcess() {
+    ProcessScheduler scheduler = new ProcessScheduler(1, 0, 0, ProcessScheduler.DEFAULT_AGING_TIME);
+    TestProcess a = submit(scheduler, new TestProcess("a", 0, false, "h1", "d1"));
+    TestProcess failing = new TestProcess("failing", 0, false, "h2", "d2");
+    failing.failing = true;
+    submit(scheduler, failing);
+    List<ProcessInstance.Status> statuses = listen(failing);
+    TestProcess c = submit(scheduler, new TestProcess("c", 0, false, "h3", "d3"));
+
+    a.complete();
+    assertEquals(ProcessInstance.Status.completed, failing.scheduled.getStatus());
+    assertEquals(Collections.singletonList(ProcessInstance.Status.completed), statuses);
+    assertEquals(Arrays.asList("a", "c"), started);
+    assertEquals(ProcessInstance.Status.working, c.scheduled.getStatus());
+    assertEquals(1, scheduler.getRunning());
+  }
+
+  private TestProcess submit(ProcessScheduler scheduler, TestProcess process) {
+    process.scheduled = scheduler.schedule(process);
+    process.scheduled.begin();
+    return process;
+  }
+
+  private static List<ProcessInstance.Status> listen(TestProcess process) {
+    List<ProcessInstance.Status> statuses = new ArrayList<>();
+    process.scheduled.addListener(new BaseListener() {
+      @Override
+      public void onStatusChange(ProcessInstance.Status status) {
+        statuses.add(status);
+      }
+    });
+    return statuses;
+  }
+
+  /**
+   * Process recording the order of starting.
+   */
+  private class TestProcess implements ProcessInstance {
+    private final String name;
+    private final Task task;
+    private final List<ProcessInstance.Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ProcessInstance.Status status = ProcessInstance.Status.submitted;
+    private boolean failing;
+    private ProcessInstance scheduled;
+
+    TestProcess(String name, int priority, boolean incremental, String host, String destination) {
+      this.name = name;
+      this.task = createTask(
+              null, 
+              Collections.singletonMap(ProcessScheduler.P_PRIORITY, Integer.toString(priority)), 
+              incremental, 
+              new StubInputBroker().property("url", String.format("http://%s/path", host)), 
+              new StubOutputBroker(false).property("name", destination));
+    }
+
+    void complete() {
+      status = ProcessInstance.Status.completed;
+      listeners.forEach(l -> l.onStatusChange(status));
+    }
+
+    @Override
+    public Task getTask() {
+      return task;
+    }
+
+    @Override
+    public void init() {
+    }
+
+    @Override
+    public void begin() {
+      if (failing) {
+        throw new IllegalStateException("Failing process");
+      }
+      started.add(name);
+      status = ProcessInstance.Status.working;
+    }
+
+    @Override
+    public void abort() {
+      complete();
+    }
+
+    @Override
+    public ProcessInstance.Status getStatus() {
+      return status;
+    }
+
+    @Override
+    public void addListener(ProcessInstance.Listener listener) {
+      listeners.add(listener);
+    }
+  }
+
+  /**
+   * Listener ignoring all the events.
+   */
+  private static class BaseListener implements ProcessInstance.Listener {
+    @Override
+    public void onStatusChange(ProcessInstance.Status status) {
+    }
+
+    @Override
+    public void onDataAcquired(DataReference dataReference) {
+    }
+
+    @Override
+    public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+    }
+
+    @Override
+    public void onError(DataException ex) {
+    }
+  }
+}
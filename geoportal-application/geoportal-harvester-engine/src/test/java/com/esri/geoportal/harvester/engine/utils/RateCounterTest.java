@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Rate counter test.
+ */
+public class RateCounterTest {
+
+  @Test
+  public void testSumOverWindow() {
+    RateCounter counter = new RateCounter(60);
+    counter.add(5);
+    counter.increment();
+    
+    assertEquals(6, counter.getTotal());
+    assertEquals(6, counter.getSum(60));
+    assertTrue(counter.getRate(60) > 0);
+  }
+
+  @Test
+  public void testClockSteppingBackwards() {
+    AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+    RateCounter counter = new RateCounter(60, clock::get);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    counter.add(2);
+    clock.addAndGet(-TimeUnit.SECONDS.toNanos(500));
+    counter.add(3);
+    
+    assertEquals(5, counter.getTotal());
+    assertEquals(5, counter.getSum(1));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1000));
+    counter.increment();
+    assertEquals(1, counter.getSum(1));
+    assertEquals(1, counter.getSum(60));
+  }
+
+  @Test
+  public void testNoCountLostWhenBucketsAreRecycled() throws Exception {
+    RateCounter counter = new RateCounter(60);
+    long end = System.currentTimeMillis() + 2500;
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        while (System.currentTimeMillis() < end) {
+          counter.increment();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    
+    assertEquals(counter.getTotal(), counter.getSum(60));
+  }
+}
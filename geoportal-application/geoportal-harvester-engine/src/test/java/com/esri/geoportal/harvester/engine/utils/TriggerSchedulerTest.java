@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.engine.utils;
+
+import com.esri.geoportal.harvester.engine.utils.TriggerScheduler.Timeout;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Trigger scheduler test.
+ * <p>
+ * Wheels are advanced by the test through a manual clock, so the outcome
+ * doesn't depend on timing of the test machine.
+ */
+public class TriggerSchedulerTest {
+  private static final long START = 4096000;
+  
+  private final AtomicLong clock = new AtomicLong(START);
+  private final List<Long> fired = new ArrayList<>();
+  
+  private TriggerScheduler createScheduler(long tick, int wheelSize) {
+    return new TriggerScheduler(tick, wheelSize, Runnable::run, clock::get, false);
+  }
+  
+  private Timeout schedule(TriggerScheduler scheduler, long delay) {
+    return scheduler.schedule(() -> fired.add(clock.get()), new Date(START + delay), delay);
+  }
+  
+  private void advanceTo(TriggerScheduler scheduler, long time) {
+    clock.set(time);
+    scheduler.advanceTo(time);
+  }
+
+  @Test
+  public void testNeverFiresEarly() {
+    TriggerScheduler scheduler = createScheduler(1000, 4);
+    schedule(scheduler, 2500);
+    
+    advanceTo(scheduler, START + 2999);
+    assertTrue(fired.isEmpty());
+    
+    advanceTo(scheduler, START + 3000);
+    assertEquals(1, fired.size());
+    assertEquals(0, scheduler.getPending());
+  }
+
+  @Test
+  public void testPlacementAndCascade() {
+    TriggerScheduler scheduler = createScheduler(1, 4);
+    Timeout near = schedule(scheduler, 2);
+    Timeout middle = schedule(scheduler, 10);
+    Timeout far = schedule(scheduler, 40);
+    
+    assertEquals(0, scheduler.getLevel(near));
+    assertEquals(1, scheduler.getLevel(middle));
+    assertEquals(2, scheduler.getLevel(far));
+    assertEquals(3, scheduler.getPending());
+    
+    advanceTo(scheduler, START + 7);
+    assertEquals(1, scheduler.getLevel(middle));
+    advanceTo(scheduler, START + 8);
+    assertEquals(0, scheduler.getLevel(middle));
+    
+    advanceTo(scheduler, START + 9);
+    assertTrue(middle.isPending());
+    advanceTo(scheduler, START + 10);
+    assertFalse(middle.isPending());
+    
+    advanceTo(scheduler, START + 32);
+    assertEquals(1, scheduler.getLevel(far));
+    advanceTo(scheduler, START + 39);
+    assertTrue(far.isPending());
+    advanceTo(scheduler, START + 40);
+    assertFalse(far.isPending());
+    
+    assertEquals(3, fired.size());
+    assertEquals(0, scheduler.getPending());
+  }
+
+  @Test
+  public void testCancel() {
+    TriggerScheduler scheduler = createScheduler(1, 4);
+    Timeout cancelled = schedule(scheduler, 20);
+    Timeout kept = schedule(scheduler, 30);
+    
+    assertTrue(cancelled.cancel());
+    assertFalse(cancelled.isPending());
+    assertFalse(cancelled.cancel());
+    assertEquals(1, scheduler.getPending());
+    
+    for (long time = START + 1; time <= START + 100; time++) {
+      advanceTo(scheduler, time);
+    }
+    assertEquals(1, fired.size());
+    assertEquals(START + 30, (long) fired.get(0));
+    assertFalse(kept.cancel());
+  }
+
+  @Test
+  public void testPastFireTimeRunsRightAway() {
+    TriggerScheduler scheduler = createScheduler(1000, 4);
+    Timeout timeout = schedule(scheduler, -5000);
+    
+    assertEquals(1, fired.size());
+    assertFalse(timeout.isPending());
+    assertEquals(0, scheduler.getPending());
+  }
+
+  @Test
+  public void testRandomScheduleFiresWithinTick() {
+    long tick = 10;
+    TriggerScheduler scheduler = createScheduler(tick, 4);
+    Random random = new Random(42);
+    Map<Long, Long> fireTimes = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      long delay = random.nextInt(100000);
+      long id = i;
+      scheduler.schedule(() -> fireTimes.put(id, clock.get()), new Date(START + delay), delay);
+      fireTimes.put(id, -delay);
+    }
+    
+    while (scheduler.getPending() > 0) {
+      advanceTo(scheduler, clock.get() + 1 + random.nextInt(3));
+    }
+    
+    Random replay = new Random(42);
+    for (long i = 0; i < 1000; i++) {
+      long fireTime = START + replay.nextInt(100000);
+      long firedAt = fireTimes.get(i);
+      assertTrue(String.format("Fired early: %d < %d", firedAt, fireTime), firedAt >= fireTime);
+      assertTrue(String.format("Fired late: %d >= %d", firedAt, fireTime + tick + 3), firedAt < fireTime + tick + 3);
+    }
+  }
+
+  @Test
+  public void testTickerFiresOnTime() throws Exception {
+    TriggerScheduler scheduler = new TriggerScheduler(10, 8, 1);
+    try {
+      CountDownLatch latch = new CountDownLatch(1);
+      AtomicLong firedAt = new AtomicLong();
+      long fireTime = System.currentTimeMillis() + 100;
+      scheduler.schedule(() -> {
+        firedAt.set(System.currentTimeMillis());
+        latch.countDown();
+      }, new Date(fireTime), null);
+      
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertTrue(firedAt.get() >= fireTime);
+    } finally {
+      scheduler.close();
+    }
+  }
+}
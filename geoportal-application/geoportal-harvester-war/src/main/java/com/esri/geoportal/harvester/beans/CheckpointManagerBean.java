@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.io.StringReader;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Checkpoint manager bean.
+ */
+@Service
+public class CheckpointManagerBean implements CheckpointManager {
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointManagerBean.class);
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("CREATE TABLE IF NOT EXISTS CHECKPOINTS ( taskid varchar(38) PRIMARY KEY, processid varchar(38), cursordata CLOB NOT NULL, lastharvest TIMESTAMP, updated TIMESTAMP NOT NULL )");
+        ) {
+      st.execute();
+      LOG.info("CheckpointManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing checkpoint database", ex);
+    }
+  }
+  
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("CheckpointManagerBean destroyed."));
+  }
+
+  @Override
+  public void store(UUID taskId, Checkpoint checkpoint) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement update = connection.prepareStatement("UPDATE CHECKPOINTS SET processid = ?, cursordata = ?, lastharvest = ?, updated = ? WHERE taskid = ?");
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO CHECKPOINTS (processid,cursordata,lastharvest,updated,taskid) VALUES (?,?,?,?,?)");
+        ) {
+      if (execute(update, taskId, checkpoint)==0) {
+        execute(insert, taskId, checkpoint);
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error storing checkpoint", ex);
+    }
+  }
+
+  @Override
+  public Checkpoint read(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT processid,cursordata,lastharvest,updated FROM CHECKPOINTS WHERE taskid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      ResultSet rs = st.executeQuery();
+      if (rs.next()) {
+        Clob cursor = rs.getClob(2);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.setProcessId(rs.getString(1)!=null? UUID.fromString(rs.getString(1)): null);
+        checkpoint.setCursor(cursor.getSubString(1, (int)cursor.length()));
+        checkpoint.setLastHarvestDate(rs.getTimestamp(3)!=null? new Date(rs.getTimestamp(3).getTime()): null);
+        checkpoint.setTimestamp(new Date(rs.getTimestamp(4).getTime()));
+        return checkpoint;
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error reading checkpoint", ex);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean delete(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM CHECKPOINTS WHERE taskid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      return st.executeUpdate()>0;
+    } catch (SQLException ex) {
+      throw new CrudlException("Error deleting checkpoint", ex);
+    }
+  }
+  
+  private int execute(PreparedStatement st, UUID taskId, Checkpoint checkpoint) throws SQLException {
+    st.setString(1, checkpoint.getProcessId()!=null? checkpoint.getProcessId().toString(): null);
+    st.setClob(2, new StringReader(checkpoint.getCursor()));
+    st.setTimestamp(3, checkpoint.getLastHarvestDate()!=null? new Timestamp(checkpoint.getLastHarvestDate().getTime()): null);
+    st.setTimestamp(4, new Timestamp(checkpoint.getTimestamp()!=null? checkpoint.getTimestamp().getTime(): System.currentTimeMillis()));
+    st.setString(5, taskId.toString());
+    return st.executeUpdate();
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.engine.managers.ClusterManager;
+import com.esri.geoportal.harvester.engine.managers.ProcessManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cluster manager bean.
+ * <p>
+ * Keeps leases and running processes of all the nodes in the harvester
+ * database, thus nodes have to share the same data source (e.g. H2 in server
+ * mode or an external database). Each node renews its leases and publishes its
+ * processes with a heartbeat; leases and processes of a node which stopped
+ * the heartbeat expire after the lease time. Node clocks are expected to be
+ * synchronized well within the lease time.
+ */
+@Service
+public class ClusterManagerBean implements ClusterManager {
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterManagerBean.class);
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private ProcessManager processManager;
+
+  @Value("${cluster.node.id:}")
+  private String nodeId;
+
+  @Value("${cluster.lease.ttl:120000}")
+  private long leaseTime;
+
+  private ScheduledExecutorService heartbeat;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    if (StringUtils.isBlank(nodeId)) {
+      nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    }
+    leaseTime = Math.max(leaseTime, 1000);
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement leases = connection.prepareStatement("CREATE TABLE IF NOT EXISTS LEASES ( leasekey varchar(256) PRIMARY KEY, owner varchar(256) NOT NULL, expires TIMESTAMP NOT NULL)");
+            PreparedStatement processes = connection.prepareStatement("CREATE TABLE IF NOT EXISTS CLUSTER_PROCESSES ( id varchar(38) PRIMARY KEY, node varchar(256) NOT NULL, taskid varchar(38), name varchar(1024), status varchar(32) NOT NULL, updated TIMESTAMP NOT NULL)");
+        ) {
+      leases.execute();
+      processes.execute();
+    } catch (SQLException ex) {
+      LOG.info("Error initializing cluster database", ex);
+    }
+    heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "CLUSTER-HEARTBEAT");
+      thread.setDaemon(true);
+      return thread;
+    });
+    heartbeat.scheduleWithFixedDelay(this::beat, 0, leaseTime / 4, TimeUnit.MILLISECONDS);
+    LOG.info(formatForLog("ClusterManagerBean initialized for node: %s", nodeId));
+  }
+
+  /**
+   * Destroys bean. Leases held by this node are released.
+   */
+  @PreDestroy
+  public void destroy() {
+    if (heartbeat != null) {
+      heartbeat.shutdownNow();
+    }
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement leases = connection.prepareStatement("DELETE FROM LEASES WHERE owner = ?");
+            PreparedStatement processes = connection.prepareStatement("DELETE FROM CLUSTER_PROCESSES WHERE node = ?");
+        ) {
+      leases.setString(1, nodeId);
+      leases.executeUpdate();
+      processes.setString(1, nodeId);
+      processes.executeUpdate();
+    } catch (SQLException ex) {
+      LOG.warn("Error releasing leases", ex);
+    }
+    LOG.info(String.format("ClusterManagerBean destroyed."));
+  }
+
+  @Override
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public long getLeaseTime() {
+    return leaseTime;
+  }
+
+  @Override
+  public boolean acquire(String key) throws CrudlException {
+    long now = System.currentTimeMillis();
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement update = connection.prepareStatement("UPDATE LEASES SET owner = ?, expires = ? WHERE leasekey = ? AND (owner = ? OR expires < ?)");
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO LEASES (leasekey,owner,expires) VALUES (?,?,?)");
+        ) {
+      update.setString(1, nodeId);
+      update.setTimestamp(2, new Timestamp(now + leaseTime));
+      update.setString(3, key);
+      update.setString(4, nodeId);
+      update.setTimestamp(5, new Timestamp(now));
+      if (update.executeUpdate() > 0) {
+        return true;
+      }
+      insert.setString(1, key);
+      insert.setString(2, nodeId);
+      insert.setTimestamp(3, new Timestamp(now + leaseTime));
+      try {
+        return insert.executeUpdate() > 0;
+      } catch (SQLException ex) {
+        if (ex.getSQLState() != null && ex.getSQLState().startsWith("23")) {
+          // lease held by another node
+          return false;
+        }
+        throw ex;
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException(formatForLog("Error acquiring lease: %s", key), ex);
+    }
+  }
+
+  @Override
+  public void release(String key) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM LEASES WHERE leasekey = ? AND owner = ?");
+        ) {
+      st.setString(1, key);
+      st.setString(2, nodeId);
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException(formatForLog("Error releasing lease: %s", key), ex);
+    }
+  }
+
+  @Override
+  public List<NodeProcess> listProcesses() throws CrudlException {
+    List<NodeProcess> processes = new ArrayList<>();
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT id,node,taskid,name,status,updated FROM CLUSTER_PROCESSES WHERE updated >= ? ORDER BY node,updated");
+        ) {
+      st.setTimestamp(1, new Timestamp(System.currentTimeMillis() - leaseTime));
+      ResultSet rs = st.executeQuery();
+      while (rs.next()) {
+        try {
+          NodeProcess process = new NodeProcess();
+          process.setUuid(UUID.fromString(rs.getString(1)));
+          process.setNodeId(rs.getString(2));
+          process.setTaskId(rs.getString(3));
+          process.setName(rs.getString(4));
+          process.setStatus(ProcessInstance.Status.valueOf(rs.getString(5)));
+          process.setUpdated(new Date(rs.getTimestamp(6).getTime()));
+          processes.add(process);
+        } catch (IllegalArgumentException ex) {
+          LOG.warn("Error reading cluster process", ex);
+        }
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error listing cluster processes", ex);
+    }
+    return processes;
+  }
+
+  /**
+   * Renews leases of this node, publishes running processes of this node and
+   * purges whatever has expired.
+   */
+  private void beat() {
+    long now = System.currentTimeMillis();
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement renew = connection.prepareStatement("UPDATE LEASES SET expires = ? WHERE owner = ?");
+            PreparedStatement purgeLeases = connection.prepareStatement("DELETE FROM LEASES WHERE expires < ?");
+            PreparedStatement clear = connection.prepareStatement("DELETE FROM CLUSTER_PROCESSES WHERE node = ? OR updated < ?");
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO CLUSTER_PROCESSES (id,node,taskid,name,status,updated) VALUES (?,?,?,?,?,?)");
+        ) {
+      renew.setTimestamp(1, new Timestamp(now + leaseTime));
+      renew.setString(2, nodeId);
+      renew.executeUpdate();
+
+      purgeLeases.setTimestamp(1, new Timestamp(now));
+      purgeLeases.executeUpdate();
+
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        clear.setString(1, nodeId);
+        clear.setTimestamp(2, new Timestamp(now - leaseTime));
+        clear.executeUpdate();
+        for (Map.Entry<UUID, ProcessInstance> e: processManager.list()) {
+          ProcessInstance process = e.getValue();
+          ProcessInstance.Status status = process.getStatus();
+          if (status == ProcessInstance.Status.completed) {
+            continue;
+          }
+          insert.setString(1, e.getKey().toString());
+          insert.setString(2, nodeId);
+          insert.setString(3, process.getTask().getRef());
+          insert.setString(4, StringUtils.abbreviate(process.getTask().getName(), 1024));
+          insert.setString(5, status.name());
+          insert.setTimestamp(6, new Timestamp(now));
+          insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+      } catch (SQLException | CrudlException | RuntimeException ex) {
+        connection.rollback();
+        throw ex;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException | CrudlException | RuntimeException ex) {
+      LOG.warn(formatForLog("Error sending heartbeat of node: %s", nodeId), ex);
+    }
+  }
+}
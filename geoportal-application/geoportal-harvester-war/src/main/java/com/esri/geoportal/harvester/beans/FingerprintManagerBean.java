@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fingerprint manager bean.
+ * <p>
+ * Fingerprints are kept in the embedded database indexed by task id and record
+ * id. Each session holds a single connection; writes are sent in batches.
+ */
+@Service
+public class FingerprintManagerBean implements FingerprintManager {
+  private static final Logger LOG = LoggerFactory.getLogger(FingerprintManagerBean.class);
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("CREATE TABLE IF NOT EXISTS FINGERPRINTS ( taskid varchar(38) NOT NULL, recordid varchar(4096) NOT NULL, fingerprint varchar(64) NOT NULL, lastseen TIMESTAMP NOT NULL, PRIMARY KEY (taskid, recordid) )");
+        ) {
+      st.execute();
+      LOG.info("FingerprintManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing fingerprint database", ex);
+    }
+  }
+  
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("FingerprintManagerBean destroyed."));
+  }
+
+  @Override
+  public Session open(UUID taskId) throws CrudlException {
+    try {
+      return new DbSession(taskId, dataSource.getConnection());
+    } catch (SQLException ex) {
+      throw new CrudlException("Error opening fingerprints", ex);
+    }
+  }
+
+  @Override
+  public void purge(UUID taskId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("DELETE FROM FINGERPRINTS WHERE taskid = ?");
+        ) {
+      st.setString(1, taskId.toString());
+      st.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException("Error purging fingerprints", ex);
+    }
+  }
+
+  /**
+   * Database session.
+   */
+  private static class DbSession implements Session {
+    private final String taskId;
+    private final Connection connection;
+    private final PreparedStatement select;
+    private final PreparedStatement merge;
+    private final PreparedStatement touch;
+    private int pending;
+
+    public DbSession(UUID taskId, Connection connection) throws SQLException {
+      this.taskId = taskId.toString();
+      this.connection = connection;
+      try {
+        this.select = connection.prepareStatement("SELECT fingerprint FROM FINGERPRINTS WHERE taskid = ? AND recordid = ?");
+        this.merge = connection.prepareStatement("MERGE INTO FINGERPRINTS (taskid, recordid, fingerprint, lastseen) KEY (taskid, recordid) VALUES (?,?,?,?)");
+        this.touch = connection.prepareStatement("UPDATE FINGERPRINTS SET lastseen = ? WHERE taskid = ? AND recordid = ?");
+      } catch (SQLException ex) {
+        connection.close();
+        throw ex;
+      }
+    }
+
+    @Override
+    public synchronized String read(String recordId) throws CrudlException {
+      try {
+        select.setString(1, taskId);
+        select.setString(2, recordId);
+        try (ResultSet rs = select.executeQuery()) {
+          return rs.next()? rs.getString(1): null;
+        }
+      } catch (SQLException ex) {
+        throw new CrudlException("Error reading fingerprint", ex);
+      }
+    }
+
+    @Override
+    public synchronized void store(String recordId, String fingerprint) throws CrudlException {
+      try {
+        merge.setString(1, taskId);
+        merge.setString(2, recordId);
+        merge.setString(3, fingerprint);
+        merge.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+        merge.addBatch();
+        flushIfFull();
+      } catch (SQLException ex) {
+        throw new CrudlException("Error storing fingerprint", ex);
+      }
+    }
+
+    @Override
+    public synchronized void touch(String recordId) throws CrudlException {
+      try {
+        touch.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+        touch.setString(2, taskId);
+        touch.setString(3, recordId);
+        touch.addBatch();
+        flushIfFull();
+      } catch (SQLException ex) {
+        throw new CrudlException("Error updating fingerprint", ex);
+      }
+    }
+
+    @Override
+    public synchronized void close() throws CrudlException {
+      try {
+        flush();
+      } catch (SQLException ex) {
+        throw new CrudlException("Error storing fingerprints", ex);
+      } finally {
+        try {
+          connection.close();
+        } catch (SQLException ex) {
+          LOG.debug("Error closing connection", ex);
+        }
+      }
+    }
+
+    private void flushIfFull() throws SQLException {
+      if (++pending >= BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    private void flush() throws SQLException {
+      merge.executeBatch();
+      touch.executeBatch();
+      pending = 0;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.esri.geoportal.harvester.beans;
 
+import com.esri.geoportal.commons.utils.MetricsRegistry;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
@@ -32,12 +33,20 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import static com.esri.geoportal.harvester.engine.utils.JsonSerializer.deserialize;
 import java.util.ArrayList;
@@ -45,19 +54,59 @@ import java.util.List;
 
 /**
  * History manager bean.
+ * <p>
+ * Failed data ids are written behind: they are buffered and inserted in
+ * batches by a background thread once enough of them accumulate or the flush
+ * interval elapses, so a harvest with many failures doesn't make a database
+ * round trip per failure. The buffer is flushed before the history event is
+ * created at the end of the process and before failed data are read or
+ * deleted. When the buffer is full the caller flushes it itself. A batch
+ * which fails to be written is written again row by row; a row rejected by the
+ * database (i.e. data id too long) is logged and dropped. Rows are kept and 
+ * written again by the next flush only if the database is unavailable, so
+ * failed data ids are not lost during an outage; once the buffer fills up, 
+ * the error is reported to the caller.
  */
 @Service
 public class HistoryManagerBean implements HistoryManager {
   private static final Logger LOG = LoggerFactory.getLogger(HistoryManagerBean.class);
+  private static final String WRITE_METRIC = "harvester_history_write_seconds";
+  private static final String WRITE_METRIC_HELP = "History write latency.";
+  private static final String INSERT_FAILED_DATA = "INSERT INTO FAILED_DATA (eventid,dataid) VALUES (?,?)";
+  private static final int VALIDATION_TIMEOUT = 5;
 
   @Autowired
   private DataSource dataSource;
 
+  @Value("${history.buffer.batchSize:500}")
+  private int batchSize;
+
+  @Value("${history.buffer.interval:1000}")
+  private long flushInterval;
+
+  @Value("${history.buffer.capacity:50000}")
+  private int capacity;
+
+  private BlockingQueue<String[]> failedData;
+  private ScheduledExecutorService flusher;
+  private final Object flushLock = new Object();
+  private final List<String[]> unwritten = new ArrayList<>();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
   /**
    * Initializes bean.
    */
   @PostConstruct
   public void init() {
+    batchSize = Math.max(batchSize, 1);
+    failedData = new LinkedBlockingQueue<>(Math.max(capacity, batchSize));
+    flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "HISTORY-WRITER");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flushQuietly, Math.max(flushInterval, 10), Math.max(flushInterval, 10), TimeUnit.MILLISECONDS);
+    MetricsRegistry.getInstance().gauge("harvester_history_buffer_depth", "Number of failed data ids waiting to be written.", failedData::size);
     initEventsTable();
   }
   
@@ -95,12 +144,18 @@ public class HistoryManagerBean implements HistoryManager {
    */
   @PreDestroy
   public void destroy() {
+    if (flusher != null) {
+      flusher.shutdownNow();
+    }
+    flushQuietly();
     LOG.info(String.format("HistoryManagerBean destroyed."));
   }
 
   @Override
   public UUID create(History.Event data) throws CrudlException {
     UUID id = UUID.randomUUID();
+    flushQuietly();
+    long start = System.nanoTime();
     try (
             Connection connection = dataSource.getConnection();
             PreparedStatement st = connection.prepareStatement("INSERT INTO EVENTS (taskid,started,completed,report,id) VALUES (?,?,?,?,?)");
@@ -114,6 +169,8 @@ public class HistoryManagerBean implements HistoryManager {
       st.executeUpdate();
     } catch (IOException|SQLException ex) {
       throw new CrudlException("Error creating history event", ex);
+    } finally {
+      MetricsRegistry.getInstance().timer(WRITE_METRIC, WRITE_METRIC_HELP, "operation", "create").recordSince(start);
     }
     return id;
   }
@@ -185,6 +242,7 @@ public class HistoryManagerBean implements HistoryManager {
 
   @Override
   public boolean update(UUID id, History.Event data) throws CrudlException {
+    long start = System.nanoTime();
     try (
             Connection connection = dataSource.getConnection();
             PreparedStatement st = connection.prepareStatement("UPDATE EVENTS SET (taskid = ?, started = ?, completed = ?, report = ?) WHERE ID = ?");
@@ -198,6 +256,8 @@ public class HistoryManagerBean implements HistoryManager {
       return st.executeUpdate()>0;
     } catch (IOException|SQLException ex) {
       throw new CrudlException("Error updating history event", ex);
+    } finally {
+      MetricsRegistry.getInstance().timer(WRITE_METRIC, WRITE_METRIC_HELP, "operation", "update").recordSince(start);
     }
   }
 
@@ -246,20 +306,121 @@ public class HistoryManagerBean implements HistoryManager {
   
   @Override
   public void storeFailedDataId(UUID eventId, String dataId) throws CrudlException {
+    String[] entry = new String[] { eventId.toString(), dataId };
+    while (!failedData.offer(entry)) {
+      // buffer is full; database is behind, so the caller is slowed down
+      flush();
+    }
+    if (failedData.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(this::flushQuietly);
+      } catch (RejectedExecutionException ex) {
+        flushRequested.set(false);
+        flush();
+      }
+    }
+  }
+  
+  /**
+   * Writes all the buffered failed data ids.
+   * @throws CrudlException if database is unavailable; ids which could not 
+   * be written are kept and written first by the next flush
+   */
+  private void flush() throws CrudlException {
+    synchronized (flushLock) {
+      flushRequested.set(false);
+      if (unwritten.isEmpty()) {
+        failedData.drainTo(unwritten, batchSize);
+      }
+      while (!unwritten.isEmpty()) {
+        try {
+          write(unwritten);
+        } catch (CrudlException ex) {
+          LOG.warn(String.format("Error storing batch of %d failed data ids; storing one by one", unwritten.size()), ex);
+          writeEach(unwritten);
+        }
+        unwritten.clear();
+        failedData.drainTo(unwritten, batchSize);
+      }
+    }
+  }
+  
+  /**
+   * Writes batch of failed data ids in a single transaction.
+   * @param batch batch of event id and data id pairs
+   * @throws CrudlException if writing failed data ids fails
+   */
+  private void write(List<String[]> batch) throws CrudlException {
+    long start = System.nanoTime();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try (PreparedStatement st = connection.prepareStatement(INSERT_FAILED_DATA)) {
+        for (String[] entry: batch) {
+          st.setString(1, entry[0]);
+          st.setString(2, entry[1]);
+          st.addBatch();
+        }
+        st.executeBatch();
+        connection.commit();
+      } catch (SQLException ex) {
+        connection.rollback();
+        throw ex;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException(String.format("Error storing %d failed data ids", batch.size()), ex);
+    } finally {
+      MetricsRegistry.getInstance().timer(WRITE_METRIC, WRITE_METRIC_HELP, "operation", "storeFailedDataId").recordSince(start);
+    }
+  }
+  
+  /**
+   * Writes failed data ids one by one. A row rejected by the database while 
+   * the connection remains valid is logged and dropped.
+   * @param batch batch of event id and data id pairs; processed pairs are 
+   * removed from the batch
+   * @throws CrudlException if database is unavailable
+   */
+  private void writeEach(List<String[]> batch) throws CrudlException {
+    long start = System.nanoTime();
+    int processed = 0;
     try (
             Connection connection = dataSource.getConnection();
-            PreparedStatement st = connection.prepareStatement("INSERT INTO FAILED_DATA (eventid,dataid) VALUES (?,?)");
+            PreparedStatement st = connection.prepareStatement(INSERT_FAILED_DATA);
         ) {
-      st.setString(1, eventId.toString());
-      st.setString(2, dataId);
-      st.executeUpdate();
+      for (String[] entry: batch) {
+        st.setString(1, entry[0]);
+        st.setString(2, entry[1]);
+        try {
+          st.executeUpdate();
+        } catch (SQLException ex) {
+          if (!connection.isValid(VALIDATION_TIMEOUT)) {
+            throw ex;
+          }
+          LOG.error(String.format("Dropping failed data id %s of event %s which can't be stored", entry[1], entry[0]), ex);
+        }
+        processed++;
+      }
     } catch (SQLException ex) {
-      throw new CrudlException("Error storing failed data id", ex);
+      throw new CrudlException(String.format("Error storing %d failed data ids", batch.size() - processed), ex);
+    } finally {
+      batch.subList(0, processed).clear();
+      MetricsRegistry.getInstance().timer(WRITE_METRIC, WRITE_METRIC_HELP, "operation", "storeFailedDataId").recordSince(start);
+    }
+  }
+  
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (CrudlException ex) {
+      LOG.error("Error writing failed data ids", ex);
     }
   }
   
   @Override
   public List<String> listFailedData(UUID eventId) throws CrudlException {
+    flush();
     try (
             Connection connection = dataSource.getConnection();
             PreparedStatement st = connection.prepareStatement("SELECT dataid FROM FAILED_DATA WHERE eventid = ?");
@@ -278,6 +439,7 @@ public class HistoryManagerBean implements HistoryManager {
   }
   
   private boolean deleteFailedData(UUID eventId) throws CrudlException {
+    flush();
     try (
             Connection connection = dataSource.getConnection();
             PreparedStatement st = connection.prepareStatement("DELETE FROM FAILED_DATA WHERE eventid = ?");
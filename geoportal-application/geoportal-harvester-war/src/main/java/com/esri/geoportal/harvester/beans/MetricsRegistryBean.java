@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.commons.utils.MetricsRegistry;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Metrics registry bean. Registers metrics registry within JMX.
+ */
+@Service
+public class MetricsRegistryBean {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsRegistryBean.class);
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try {
+      MetricsRegistry.getInstance().register();
+      LOG.info("MetricsRegistryBean initialized.");
+    } catch (JMException ex) {
+      LOG.warn("Error registering metrics within JMX.", ex);
+    }
+  }
+
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    try {
+      MetricsRegistry.getInstance().unregister();
+      LOG.info("MetricsRegistryBean destroyed.");
+    } catch (JMException ex) {
+      LOG.warn("Error unregistering metrics from JMX.", ex);
+    }
+  }
+
+  /**
+   * Gets metrics registry.
+   * @return metrics registry
+   */
+  public MetricsRegistry getRegistry() {
+    return MetricsRegistry.getInstance();
+  }
+}
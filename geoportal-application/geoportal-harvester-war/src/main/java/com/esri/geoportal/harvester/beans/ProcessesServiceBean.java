@@ -21,12 +21,14 @@ import com.esri.geoportal.harvester.engine.managers.ProcessManager;
 import com.esri.geoportal.harvester.engine.managers.ReportManager;
 import com.esri.geoportal.harvester.engine.registers.StatisticsRegistry;
 import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.ProcessScheduler;
 import java.util.Map;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -41,10 +43,16 @@ public class ProcessesServiceBean extends DefaultProcessesService {
    * @param processManager process manager
    * @param reportManager report manager
    * @param statisticsRegistry statistics registry
+   * @param maxProcesses maximum number of running processes
+   * @param maxPerDestination maximum number of running processes publishing to the same destination
+   * @param maxPerHost maximum number of running processes harvesting the same host
    */
   @Autowired
-  public ProcessesServiceBean(ProcessManager processManager, ReportManager reportManager, StatisticsRegistry statisticsRegistry) {
-    super(processManager, reportManager, statisticsRegistry);
+  public ProcessesServiceBean(ProcessManager processManager, ReportManager reportManager, StatisticsRegistry statisticsRegistry,
+          @Value("${process.max.running:0}") int maxProcesses,
+          @Value("${process.max.perDestination:0}") int maxPerDestination,
+          @Value("${process.max.perHost:0}") int maxPerHost) {
+    super(processManager, reportManager, statisticsRegistry, new ProcessScheduler(maxProcesses, maxPerDestination, maxPerHost, ProcessScheduler.DEFAULT_AGING_TIME));
   }
   
   /**
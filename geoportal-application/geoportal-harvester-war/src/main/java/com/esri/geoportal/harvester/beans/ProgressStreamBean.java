@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.engine.services.Engine;
+import com.esri.geoportal.harvester.engine.utils.Statistics;
+import com.esri.geoportal.harvester.support.ProgressResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Progress stream bean.
+ * <p>
+ * Pushes progress of the processes to the subscribed clients as server-sent
+ * events, so clients don't have to poll for statistics of all the processes.
+ * A single thread samples the processes while there are any clients and
+ * compares the sample with the previous one; only processes which changed are
+ * handed to the clients. Each client receives changes no more often than the
+ * interval it asked for; changes of the same process in between are coalesced,
+ * so the client always gets the latest state.
+ * <p>
+ * Events:
+ * <pre><code>
+ * snapshot - progress of all the processes; sent once after subscribing
+ * progress - progress of the processes which changed since the previous event
+ * </code></pre>
+ */
+@Service
+public class ProgressStreamBean {
+  private static final Logger LOG = LoggerFactory.getLogger(ProgressStreamBean.class);
+  private static final long HEARTBEAT = 15000;
+
+  @Autowired
+  private Engine engine;
+
+  @Value("${progress.stream.interval:1000}")
+  private long interval;
+
+  @Value("${progress.stream.maxClients:100}")
+  private int maxClients;
+
+  @Value("${progress.stream.timeout:1800000}")
+  private long timeout;
+
+  private final List<Client> clients = new CopyOnWriteArrayList<>();
+  private Map<UUID, ProgressResponse> last = new HashMap<>();
+  private ScheduledExecutorService sampler;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    interval = Math.max(interval, 100);
+    sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "PROGRESS-STREAM");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    LOG.info("ProgressStreamBean initialized.");
+  }
+
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    if (sampler != null) {
+      sampler.shutdownNow();
+    }
+    clients.forEach(client -> client.emitter.complete());
+    clients.clear();
+    LOG.info(String.format("ProgressStreamBean destroyed."));
+  }
+
+  /**
+   * Subscribes a new client.
+   * @param clientInterval minimal interval (ms) between events sent to the client; limited by the sampling interval
+   * @return emitter or <code>null</code> if too many clients
+   */
+  public SseEmitter subscribe(long clientInterval) {
+    if (clients.size() >= maxClients) {
+      return null;
+    }
+    SseEmitter emitter = new SseEmitter(timeout);
+    Client client = new Client(emitter, Math.max(clientInterval, interval));
+    emitter.onCompletion(() -> clients.remove(client));
+    emitter.onTimeout(emitter::complete);
+    emitter.onError(ex -> clients.remove(client));
+    clients.add(client);
+    try {
+      // snapshot is sent by the sampler to keep it ordered with the changes
+      sampler.execute(this::sample);
+    } catch (RejectedExecutionException ex) {
+      clients.remove(client);
+      return null;
+    }
+    return emitter;
+  }
+
+  /**
+   * Gets number of subscribed clients.
+   * @return number of clients
+   */
+  public int getClients() {
+    return clients.size();
+  }
+
+  /**
+   * Samples processes and sends changes to the clients.
+   */
+  private void sample() {
+    if (clients.isEmpty()) {
+      last = new HashMap<>();
+      return;
+    }
+    try {
+      Map<UUID, ProgressResponse> current = read();
+      List<ProgressResponse> changes = new ArrayList<>();
+      current.values().stream().filter(p -> !p.equals(last.get(p.getUuid()))).forEach(changes::add);
+      last.keySet().stream().filter(uuid -> !current.containsKey(uuid)).map(ProgressResponse::removed).forEach(changes::add);
+      last = current;
+
+      long now = System.currentTimeMillis();
+      for (Client client: clients) {
+        try {
+          if (!client.initialized) {
+            client.initialized = true;
+            client.pending.clear();
+            client.send("snapshot", new ArrayList<>(current.values()), now);
+            continue;
+          }
+          changes.forEach(p -> client.pending.put(p.getUuid(), p));
+          if (!client.pending.isEmpty() && now - client.sent >= client.interval) {
+            List<ProgressResponse> events = new ArrayList<>(client.pending.values());
+            client.pending.clear();
+            client.send("progress", events, now);
+          } else if (now - client.sent >= HEARTBEAT) {
+            client.emitter.send(SseEmitter.event().comment("heartbeat"));
+            client.sent = now;
+          }
+        } catch (IOException | IllegalStateException ex) {
+          LOG.debug("Progress stream client disconnected", ex);
+          clients.remove(client);
+          client.emitter.completeWithError(ex);
+        }
+      }
+    } catch (DataProcessorException | RuntimeException ex) {
+      LOG.warn("Error sampling progress of the processes", ex);
+    }
+  }
+
+  /**
+   * Reads progress of all the processes. Completed processes no longer have
+   * statistics, thus the last known progress is kept for them.
+   * @return progress by process id
+   * @throws DataProcessorException if reading processes fails
+   */
+  private Map<UUID, ProgressResponse> read() throws DataProcessorException {
+    Map<UUID, ProgressResponse> progress = new LinkedHashMap<>();
+    for (Map.Entry<UUID, ProcessInstance> e: engine.getProcessesService().selectProcesses(e -> true)) {
+      UUID uuid = e.getKey();
+      ProcessInstance process = e.getValue();
+      Statistics statistics = engine.getProcessesService().getStatistics(uuid);
+      if (statistics != null) {
+        progress.put(uuid, new ProgressResponse(
+                uuid,
+                process.getTask().getName(),
+                process.getStatus(),
+                statistics.getAcquired(),
+                statistics.getSucceeded(),
+                statistics.getHarvestFailed() + statistics.getPublishFailed(),
+                statistics.getBytes(),
+                statistics.getRecordsPerSecond1m(),
+                statistics.getFailureRate1m()));
+      } else if (last.containsKey(uuid)) {
+        progress.put(uuid, last.get(uuid).withStatus(process.getStatus()));
+      } else {
+        progress.put(uuid, new ProgressResponse(uuid, process.getTask().getName(), process.getStatus(), 0, 0, 0, 0, 0, 0));
+      }
+    }
+    return progress;
+  }
+
+  /**
+   * Subscribed client. Accessed only by the sampler thread.
+   */
+  private static final class Client {
+    private final SseEmitter emitter;
+    private final long interval;
+    private final Map<UUID, ProgressResponse> pending = new LinkedHashMap<>();
+    private boolean initialized;
+    private long sent;
+
+    public Client(SseEmitter emitter, long interval) {
+      this.emitter = emitter;
+      this.interval = interval;
+    }
+
+    public void send(String name, List<ProgressResponse> events, long now) throws IOException {
+      emitter.send(SseEmitter.event().name(name).data(events, MediaType.APPLICATION_JSON));
+      sent = now;
+    }
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.beans;
+
+import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
+import static com.esri.geoportal.harvester.engine.utils.JsonSerializer.deserialize;
+import static com.esri.geoportal.harvester.engine.utils.JsonSerializer.serialize;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.engine.managers.History;
+import com.esri.geoportal.harvester.engine.managers.WorkManager;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Work manager bean.
+ * <p>
+ * Keeps distributed jobs and their partitions in the harvester database shared
+ * by the nodes of the cluster. A job is finished by whichever call, closing
+ * the job or completing a partition, first finds all the partitions completed;
+ * a conditional update makes sure only one call wins.
+ */
+@Service
+public class WorkManagerBean implements WorkManager {
+  private static final Logger LOG = LoggerFactory.getLogger(WorkManagerBean.class);
+
+  private static final String FINISH = "UPDATE WORK_JOBS SET finished = ? WHERE id = ? AND finished IS NULL AND partitions IS NOT NULL AND partitions = (SELECT COUNT(*) FROM WORK_PARTITIONS WHERE jobid = ? AND done = TRUE)";
+
+  @Autowired
+  private DataSource dataSource;
+
+  /**
+   * Initializes bean.
+   */
+  @PostConstruct
+  public void init() {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement jobs = connection.prepareStatement("CREATE TABLE IF NOT EXISTS WORK_JOBS ( id varchar(38) PRIMARY KEY, taskid varchar(38), definition CLOB NOT NULL, started TIMESTAMP NOT NULL, partitions INT, finished TIMESTAMP)");
+            PreparedStatement partitions = connection.prepareStatement("CREATE TABLE IF NOT EXISTS WORK_PARTITIONS ( jobid varchar(38) NOT NULL, idx INT NOT NULL, ids CLOB NOT NULL, done BOOLEAN NOT NULL, report CLOB, PRIMARY KEY (jobid, idx))");
+        ) {
+      jobs.execute();
+      partitions.execute();
+      LOG.info("WorkManagerBean initialized.");
+    } catch (SQLException ex) {
+      LOG.info("Error initializing work database", ex);
+    }
+  }
+
+  /**
+   * Destroys bean.
+   */
+  @PreDestroy
+  public void destroy() {
+    LOG.info(String.format("WorkManagerBean destroyed."));
+  }
+
+  @Override
+  public void createJob(Job job) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("INSERT INTO WORK_JOBS (id,taskid,definition,started) VALUES (?,?,?,?)");
+            Reader definitionReader = new StringReader(serialize(job.getTaskDefinition()));
+        ) {
+      st.setString(1, job.getUuid().toString());
+      st.setString(2, job.getTaskId() != null ? job.getTaskId().toString() : null);
+      st.setClob(3, definitionReader);
+      st.setTimestamp(4, new Timestamp(job.getStartTimestamp().getTime()));
+      st.executeUpdate();
+    } catch (SQLException | IOException ex) {
+      throw new CrudlException(formatForLog("Error creating job: %s", job.getUuid()), ex);
+    }
+  }
+
+  @Override
+  public Job readJob(UUID jobId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT taskid,definition,started,partitions,(SELECT COUNT(*) FROM WORK_PARTITIONS WHERE jobid = ? AND done = TRUE) FROM WORK_JOBS WHERE id = ?");
+        ) {
+      st.setString(1, jobId.toString());
+      st.setString(2, jobId.toString());
+      ResultSet rs = st.executeQuery();
+      if (rs.next()) {
+        try (Reader definitionReader = rs.getClob(2).getCharacterStream();) {
+          Job job = new Job();
+          job.setUuid(jobId);
+          String taskId = rs.getString(1);
+          job.setTaskId(taskId != null ? UUID.fromString(taskId) : null);
+          job.setTaskDefinition(deserialize(definitionReader, TaskDefinition.class));
+          job.setStartTimestamp(new Date(rs.getTimestamp(3).getTime()));
+          int partitions = rs.getInt(4);
+          job.setPartitions(rs.wasNull() ? null : partitions);
+          job.setCompleted(rs.getInt(5));
+          return job;
+        }
+      }
+    } catch (SQLException | IOException ex) {
+      throw new CrudlException(formatForLog("Error reading job: %s", jobId), ex);
+    }
+    return null;
+  }
+
+  @Override
+  public void deleteJob(UUID jobId) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement partitions = connection.prepareStatement("DELETE FROM WORK_PARTITIONS WHERE jobid = ?");
+            PreparedStatement jobs = connection.prepareStatement("DELETE FROM WORK_JOBS WHERE id = ?");
+        ) {
+      partitions.setString(1, jobId.toString());
+      partitions.executeUpdate();
+      jobs.setString(1, jobId.toString());
+      jobs.executeUpdate();
+    } catch (SQLException ex) {
+      throw new CrudlException(formatForLog("Error deleting job: %s", jobId), ex);
+    }
+  }
+
+  @Override
+  public void addPartition(UUID jobId, int index, List<String> ids) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("INSERT INTO WORK_PARTITIONS (jobid,idx,ids,done) VALUES (?,?,?,FALSE)");
+            Reader idsReader = new StringReader(serialize(ids));
+        ) {
+      st.setString(1, jobId.toString());
+      st.setInt(2, index);
+      st.setClob(3, idsReader);
+      st.executeUpdate();
+    } catch (SQLException | IOException ex) {
+      throw new CrudlException(formatForLog("Error adding partition %d of job: %s", index, jobId), ex);
+    }
+  }
+
+  @Override
+  public List<String> readPartition(UUID jobId, int index) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT ids FROM WORK_PARTITIONS WHERE jobid = ? AND idx = ?");
+        ) {
+      st.setString(1, jobId.toString());
+      st.setInt(2, index);
+      ResultSet rs = st.executeQuery();
+      if (rs.next()) {
+        try (Reader idsReader = rs.getClob(1).getCharacterStream();) {
+          return Arrays.asList(deserialize(idsReader, String[].class));
+        }
+      }
+    } catch (SQLException | IOException ex) {
+      throw new CrudlException(formatForLog("Error reading partition %d of job: %s", index, jobId), ex);
+    }
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<Partition> listOpenPartitions() throws CrudlException {
+    List<Partition> partitions = new ArrayList<>();
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT jobid,idx FROM WORK_PARTITIONS WHERE done = FALSE ORDER BY jobid,idx");
+        ) {
+      ResultSet rs = st.executeQuery();
+      while (rs.next()) {
+        partitions.add(new Partition(UUID.fromString(rs.getString(1)), rs.getInt(2)));
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException("Error listing open partitions", ex);
+    }
+    return partitions;
+  }
+
+  @Override
+  public boolean closeJob(UUID jobId, int partitions) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement close = connection.prepareStatement("UPDATE WORK_JOBS SET partitions = ? WHERE id = ?");
+        ) {
+      close.setInt(1, partitions);
+      close.setString(2, jobId.toString());
+      close.executeUpdate();
+      return finish(connection, jobId);
+    } catch (SQLException ex) {
+      throw new CrudlException(formatForLog("Error closing job: %s", jobId), ex);
+    }
+  }
+
+  @Override
+  public boolean completePartition(UUID jobId, int index, History.Report report) throws CrudlException {
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement complete = connection.prepareStatement("UPDATE WORK_PARTITIONS SET done = TRUE, report = ? WHERE jobid = ? AND idx = ? AND done = FALSE");
+            Reader reportReader = new StringReader(serialize(report));
+        ) {
+      complete.setClob(1, reportReader);
+      complete.setString(2, jobId.toString());
+      complete.setInt(3, index);
+      return complete.executeUpdate() > 0 && finish(connection, jobId);
+    } catch (SQLException | IOException ex) {
+      throw new CrudlException(formatForLog("Error completing partition %d of job: %s", index, jobId), ex);
+    }
+  }
+
+  @Override
+  public List<History.Report> listReports(UUID jobId) throws CrudlException {
+    List<History.Report> reports = new ArrayList<>();
+    try (
+            Connection connection = dataSource.getConnection();
+            PreparedStatement st = connection.prepareStatement("SELECT report FROM WORK_PARTITIONS WHERE jobid = ? AND done = TRUE ORDER BY idx");
+        ) {
+      st.setString(1, jobId.toString());
+      ResultSet rs = st.executeQuery();
+      while (rs.next()) {
+        try (Reader reportReader = rs.getClob(1).getCharacterStream();) {
+          reports.add(deserialize(reportReader, History.Report.class));
+        } catch (IOException ex) {
+          LOG.warn(formatForLog("Error reading partition report of job: %s", jobId), ex);
+        }
+      }
+    } catch (SQLException ex) {
+      throw new CrudlException(formatForLog("Error listing reports of job: %s", jobId), ex);
+    }
+    return reports;
+  }
+
+  /**
+   * Marks job as finished if closed and all its partitions are completed.
+   * @param connection connection
+   * @param jobId job id
+   * @return <code>true</code> if this call finished the job
+   * @throws SQLException if marking job fails
+   */
+  private boolean finish(Connection connection, UUID jobId) throws SQLException {
+    try (PreparedStatement st = connection.prepareStatement(FINISH);) {
+      st.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+      st.setString(2, jobId.toString());
+      st.setString(3, jobId.toString());
+      return st.executeUpdate() > 0;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.rest;
+
+import com.esri.geoportal.harvester.beans.MetricsRegistryBean;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Metrics controller.
+ * Provides access to the harvester metrics.
+ * <pre><code>
+   GET /rest/harvester/metrics      - gets all metrics in Prometheus text format
+ * </code></pre>
+ */
+@RestController
+@Tag(name = "Metrics Controller", description = "Provides access to the harvester metrics.")
+public class MetricsController {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsController.class);
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  @Autowired
+  private MetricsRegistryBean metricsRegistry;
+
+  /**
+   * Gets all metrics.
+   * @return metrics in Prometheus text exposition format
+   */
+  @Operation(description = "Gets all metrics in Prometheus text exposition format.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Operation is successful",
+                   content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))),
+      @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.", content = @Content(schema = @Schema()))
+  })
+  @RequestMapping(value = "/rest/harvester/metrics", method = RequestMethod.GET, produces = PROMETHEUS_CONTENT_TYPE)
+  public ResponseEntity<String> getMetrics() {
+    LOG.debug(String.format("GET /rest/harvester/metrics"));
+    try {
+      StringWriter writer = new StringWriter();
+      metricsRegistry.getRegistry().writePrometheus(writer);
+      return new ResponseEntity<>(writer.toString(), HttpStatus.OK);
+    } catch (IOException ex) {
+      LOG.error(String.format("Error getting metrics"), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+}
@@ -18,13 +18,22 @@ package com.esri.geoportal.harvester.rest;
 import static com.esri.geoportal.commons.utils.CrlfUtils.formatForLog;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.defs.UITemplate;
+import com.esri.geoportal.harvester.beans.ProgressStreamBean;
 import com.esri.geoportal.harvester.support.ProcessResponse;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
+import com.esri.geoportal.harvester.engine.managers.ClusterManager;
+import com.esri.geoportal.harvester.engine.managers.ClusterManager.NodeProcess;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.History.Event;
 import com.esri.geoportal.harvester.engine.services.Engine;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.DestinationStatistics;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.ResilienceStatistics;
 import com.esri.geoportal.harvester.engine.utils.Statistics;
+import com.esri.geoportal.harvester.support.ProcessMetricsResponse;
 import com.esri.geoportal.harvester.support.ProcessStatisticsResponse;
+import com.esri.geoportal.harvester.support.ProgressResponse;
 import com.esri.geoportal.harvester.support.TaskResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -33,6 +42,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -49,14 +59,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Process controller.
  * Provides access to processes.
  * <pre><code>
    GET /rest/harvester/processes                  - gets a list of all processes
+   GET /rest/harvester/processes/cluster          - gets a list of running processes of all the nodes of the cluster
+   GET /rest/harvester/processes/stream           - streams progress of the processes as server-sent events ('interval' limits rate of the events in ms)
    GET /rest/harvester/processes/{processId}      - gets a single process
+   GET /rest/harvester/processes/{processId}/metrics - gets metrics of a single process
    DELETE /rest/harvester/processes/{processId}   - aborts a single process
  * </code></pre>
  */
@@ -68,6 +83,12 @@ public class ProcessController {
   @Autowired
   private Engine engine;
   
+  @Autowired
+  private ClusterManager clusterManager;
+  
+  @Autowired
+  private ProgressStreamBean progressStream;
+  
   /**
    * List all processes.
    * @return all processes
@@ -92,6 +113,57 @@ public class ProcessController {
     }
   }
   
+  /**
+   * List running processes of all the nodes of the cluster.
+   * @return running processes
+   */
+  @Operation(description = "Lists running processes of all the nodes of the cluster.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful",
+                     content = @Content( mediaType = "application/json", 
+                     array = @ArraySchema(    
+                             schema = @Schema(implementation = NodeProcess.class)))
+                    ),        
+        @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
+    })
+  @RequestMapping(value = "/rest/harvester/processes/cluster", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<NodeProcess[]> listClusterProcesses() {
+    try {
+      LOG.debug(String.format("GET /rest/harvester/processes/cluster"));
+      return new ResponseEntity<>(clusterManager.listProcesses().toArray(new NodeProcess[0]),HttpStatus.OK);
+    } catch (CrudlException ex) {
+      LOG.error(String.format("Error listing cluster processes"), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+  
+  /**
+   * Streams progress of the processes. A 'snapshot' event with progress of all
+   * the processes is sent first, followed by 'progress' events with progress
+   * of the processes which changed since the previous event.
+   * @param interval optional minimal interval (ms) between the events
+   * @return event stream
+   */
+  @Operation(description = "Streams progress of the processes as server-sent events.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful",
+                     content = @Content( mediaType = "text/event-stream", 
+                     array = @ArraySchema(    
+                             schema = @Schema(implementation = ProgressResponse.class)))
+                    ),        
+        @ApiResponse(responseCode = "503", description = "Too many clients.",content = @Content(schema = @Schema()))
+    })
+  @RequestMapping(value = "/rest/harvester/processes/stream", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamProcesses(@RequestParam(required = false) Long interval) {
+    LOG.debug(String.format("GET /rest/harvester/processes/stream"));
+    SseEmitter emitter = progressStream.subscribe(interval != null? interval: 0);
+    if (emitter == null) {
+      LOG.warn(String.format("Progress stream subscription rejected; too many clients"));
+      return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return new ResponseEntity<>(emitter, HttpStatus.OK);
+  }
+  
   /**
    * Get access to the given process.
    * @param processId process id
@@ -132,6 +204,61 @@ public class ProcessController {
     }
   }
   
+  /**
+   * Gets metrics of the given process. Time remaining is estimated based on
+   * the number of records acquired by the previous harvest of the same task.
+   * @param processId process id
+   * @return process metrics
+   */
+  @Operation(description = "Gets latency, throughput and estimated time remaining for the given process id.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful.",
+                     content = @Content(schema = @Schema(implementation = ProcessMetricsResponse.class))),
+        @ApiResponse(responseCode = "404", description = "No metrics available.",content = @Content(schema = @Schema())),
+        @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
+    })
+  @RequestMapping(value = "/rest/harvester/processes/{processId}/metrics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ProcessMetricsResponse> getProcessMetrics(@PathVariable UUID processId) {
+    try {
+      LOG.debug(formatForLog("GET /rest/harvester/processes/%s/metrics", processId));
+      ProcessInstance process = engine.getProcessesService().getProcess(processId);
+      ProcessMetrics metrics = engine.getProcessesService().getMetrics(processId);
+      if (process==null || metrics==null) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(new ProcessMetricsResponse(processId, process.getStatus(), metrics, getExpectedRecords(process, processId)),HttpStatus.OK);
+    } catch (DataProcessorException ex) {
+      LOG.error(formatForLog("Error getting process metrics: %s", processId), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+  
+  /**
+   * Gets number of records acquired by the most recent previous harvest of the task.
+   * @param process process
+   * @param processId process id
+   * @return number of records or <code>null</code> if unknown
+   */
+  private Long getExpectedRecords(ProcessInstance process, UUID processId) {
+    if (process.getTask().getRef()==null) {
+      return null;
+    }
+    try {
+      UUID taskId = UUID.fromString(process.getTask().getRef());
+      History history = engine.getTasksService().getHistory(taskId);
+      if (history!=null) {
+        return history.stream()
+                .filter(evt -> !evt.getUuid().equals(processId) && evt.getReport()!=null && evt.getReport().acquired>0 && evt.getStartTimestamp()!=null)
+                .max((left,right)->left.getStartTimestamp().compareTo(right.getStartTimestamp()))
+                .map(evt -> evt.getReport().acquired)
+                .orElse(null);
+      }
+    } catch (IllegalArgumentException|DataProcessorException ex) {
+      LOG.debug(formatForLog("Unable to get history of the process: %s", processId), ex);
+    }
+    return null;
+  }
+  
   private Statistics createStatistics(Event evt, History.Report rpt) {
     return new Statistics() {
       @Override
@@ -168,6 +295,51 @@ public class ProcessController {
       public boolean isFailure() {
         return rpt.failed > 0;
       }
+
+      @Override
+      public long getBytes() {
+        return 0;
+      }
+
+      @Override
+      public double getRecordsPerSecond1m() {
+        return 0;
+      }
+
+      @Override
+      public double getRecordsPerSecond5m() {
+        return 0;
+      }
+
+      @Override
+      public double getBytesPerSecond1m() {
+        return 0;
+      }
+
+      @Override
+      public double getBytesPerSecond5m() {
+        return 0;
+      }
+
+      @Override
+      public double getFailureRate1m() {
+        return 0;
+      }
+
+      @Override
+      public double getFailureRate5m() {
+        return 0;
+      }
+
+      @Override
+      public List<DestinationStatistics> getDestinations() {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public List<ResilienceStatistics> getResilience() {
+        return Collections.emptyList();
+      }
     };
   }
   
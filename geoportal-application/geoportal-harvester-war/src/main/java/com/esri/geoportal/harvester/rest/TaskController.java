@@ -28,9 +28,17 @@ import com.esri.geoportal.harvester.api.defs.TriggerDefinition;
 import com.esri.geoportal.harvester.api.ex.DataException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager;
+import com.esri.geoportal.harvester.engine.managers.CheckpointManager.Checkpoint;
+import com.esri.geoportal.harvester.engine.managers.FingerprintManager;
 import com.esri.geoportal.harvester.engine.managers.History;
 import com.esri.geoportal.harvester.engine.managers.HistoryManager;
+import com.esri.geoportal.harvester.engine.managers.WorkManager;
 import com.esri.geoportal.harvester.engine.services.Engine;
+import com.esri.geoportal.harvester.engine.utils.CheckpointManagerAdaptor;
+import com.esri.geoportal.harvester.engine.utils.CrudlException;
+import com.esri.geoportal.harvester.engine.utils.DistributedExecutor;
+import com.esri.geoportal.harvester.engine.utils.FailedDataInputBroker;
 import com.esri.geoportal.harvester.engine.utils.HistoryManagerAdaptor;
 import static com.esri.geoportal.harvester.engine.utils.JsonSerializer.deserialize;
 import com.esri.geoportal.harvester.engine.utils.ProcessReference;
@@ -52,6 +60,7 @@ import org.apache.http.client.HttpResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -86,7 +95,9 @@ import io.swagger.v3.oas.annotations.media.Content;
  * PUT /rest/harvester/tasks/{taskId}             - updates a task by task id (task definition in the request body)
  * GET /rest/harvester/tasks/{taskId}/history     - gets task harvesting history
  *
- * POST /rest/harvester/tasks/{taskId}/execute    - executes immediatelly a task by task id
+ * POST /rest/harvester/tasks/{taskId}/execute    - executes immediatelly a task by task id ('resume=true' continues from the last checkpoint)
+ * POST /rest/harvester/tasks/{taskId}/execute/distributed - executes a task by task id sharing the harvest among the nodes of the cluster
+ * GET /rest/harvester/tasks/{taskId}/execute/distributed/{jobId} - gets progress of the distributed harvest
  * POST /rest/harvester/tasks/{taskId}/schedule   - schedule a task by task id (trigger definition in the request body)
  * POST /rest/harvester/tasks/execute             - executes a task (task definition in the request body)
  * POST /rest/harvester/tasks/schedule            - schedules a task (trigger instance definition in the request body)
@@ -177,6 +188,18 @@ public class TaskController {
   @Autowired
   private HistoryManager historyManager;
 
+  @Autowired
+  private CheckpointManager checkpointManager;
+
+  @Autowired
+  private FingerprintManager fingerprintManager;
+
+  @Autowired
+  private DistributedExecutor distributedExecutor;
+
+  @Value("${failed.parallelism.max:32}")
+  private int maxParallelism;
+
   /**
    * Lists all available tasks.
    *
@@ -366,6 +389,11 @@ public class TaskController {
           engine.getTriggersService().deactivateTriggerInstance(ref.getUuid());
         }
         engine.getTasksService().deleteTaskDefinition(taskId);
+        try {
+          fingerprintManager.purge(taskId);
+        } catch (CrudlException ex) {
+          LOG.warn(formatForLog("Error purging fingerprints of task: %s", taskId), ex);
+        }
       }
       return new ResponseEntity<>(new TaskResponse(taskId, taskDefinition), HttpStatus.OK);
     } catch (DataProcessorException|InvalidDefinitionException ex) {
@@ -443,6 +471,7 @@ public class TaskController {
    * @param taskId task id
    * @param ignoreRobots optional flag to ignore robots.txt
    * @param incremental optional incremental harvest flag
+   * @param resume optional flag to resume from the last checkpoint
    * @return task info of the deleted task or <code>null</code> if no tasks have
    * been deleted
    */
@@ -455,7 +484,7 @@ public class TaskController {
         @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
     })   
   @RequestMapping(value = "/rest/harvester/tasks/{taskId}/execute", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<ProcessResponse> executeTask(@PathVariable UUID taskId, @RequestParam(required = false) Boolean ignoreRobots, @RequestParam(required = false) Boolean incremental) {
+  public ResponseEntity<ProcessResponse> executeTask(@PathVariable UUID taskId, @RequestParam(required = false) Boolean ignoreRobots, @RequestParam(required = false) Boolean incremental, @RequestParam(required = false) Boolean resume) {
     try {
       LOG.debug(formatForLog("POST /rest/harvester/tasks/%s/execute", taskId));
       TaskDefinition taskDefinition = engine.getTasksService().readTaskDefinition(taskId);
@@ -478,9 +507,22 @@ public class TaskController {
       // make iterator context
       SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
       iteratorContext.setLastHarvest(incremental && lastEvent != null ? lastEvent.getStartTimestamp() : null);
+      
+      // continue from the last checkpoint
+      if (resume != null && resume) {
+        Checkpoint checkpoint = checkpointManager.read(taskId);
+        if (checkpoint != null) {
+          LOG.info(formatForLog("Resuming task %s from %s", taskId, checkpoint));
+          iteratorContext.setCursor(checkpoint.getCursor());
+          iteratorContext.setLastHarvest(checkpoint.getLastHarvestDate());
+        } else {
+          LOG.info(formatForLog("No checkpoint to resume task %s from; executing from the beginning", taskId));
+        }
+      }
 
       ProcessReference ref = engine.getExecutionService().execute(taskDefinition, iteratorContext);
       ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref, historyManager));
+      ref.getProcess().addListener(new CheckpointManagerAdaptor(taskId, ref, iteratorContext.getLastHarvestDate(), checkpointManager));
       ref.getProcess().init();
       ref.getProcess().begin();
       return new ResponseEntity<>(new ProcessResponse(
@@ -497,6 +539,127 @@ public class TaskController {
     } 
   }
 
+  /**
+   * Executes task by id harvesting again only the data which failed during the
+   * given harvest.
+   *
+   * @param taskId task id
+   * @param eventId id of the harvest event (see task history)
+   * @param parallelism optional maximum number of data read concurrently; limited by <i>failed.parallelism.max</i>
+   * @return process info
+   */
+   @Operation(description = "Execute task by task id harvesting again only the data which failed during the given harvest")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful.",
+                     content = @Content(schema = @Schema(implementation = ProcessResponse.class))), 
+         @ApiResponse(responseCode = "400", description = "Task or event not found or source doesn't support reading data by id.",
+                content = @Content(schema = @Schema())),
+        @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
+    })   
+  @RequestMapping(value = "/rest/harvester/tasks/{taskId}/execute/failed/{eventId}", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ProcessResponse> executeFailed(@PathVariable UUID taskId, @PathVariable UUID eventId, @RequestParam(required = false) Integer parallelism) {
+    try {
+      LOG.debug(formatForLog("POST /rest/harvester/tasks/%s/execute/failed/%s", taskId, eventId));
+      TaskDefinition taskDefinition = engine.getTasksService().readTaskDefinition(taskId);
+      if (taskDefinition == null) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+      History history = engine.getTasksService().getHistory(taskId);
+      if (history == null || history.stream().noneMatch(e -> eventId.equals(e.getUuid()))) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+      
+      List<String> failedDocuments = engine.getTasksService().getFailedDocuments(eventId);
+      LOG.info(formatForLog("Harvesting again %d failed documents of task %s from event %s", failedDocuments.size(), taskId, eventId));
+      
+      int reads = Math.min(parallelism != null? parallelism: FailedDataInputBroker.DEFAULT_PARALLELISM, Math.max(maxParallelism, 1));
+      ProcessReference ref = engine.getExecutionService().execute(taskDefinition, failedDocuments, reads);
+      ref.getProcess().addListener(new HistoryManagerAdaptor(taskId, ref, historyManager));
+      ref.getProcess().init();
+      ref.getProcess().begin();
+      return new ResponseEntity<>(new ProcessResponse(
+              ref.getProcessId(), 
+              taskDefinition, 
+              ref.getProcess().getStatus()), HttpStatus.OK);
+    } catch (InvalidDefinitionException ex) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    } catch (DataProcessorException ex) {
+      LOG.error(formatForLog("Error executing failed documents of task: %s, event: %s", taskId, eventId), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    } catch (Exception ex) {
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    } 
+  }
+
+  /**
+   * Executes task by id sharing the harvest among the nodes of the cluster.
+   * Source is split into partitions of data ids; each partition is harvested by
+   * whichever node claims it first. Source has to support reading data by id.
+   * Ids are collected by iterating over the source on this node, which for most
+   * of the sources downloads the content of each data as well.
+   *
+   * @param taskId task id
+   * @param partitionSize optional number of data ids in a partition
+   * @return distributed job
+   */
+   @Operation(description = "Execute task by task id sharing the harvest among the nodes of the cluster. Ids are collected by iterating over the source on the receiving node, which for most of the sources reads the content of each data as well")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful.",
+                     content = @Content(schema = @Schema(implementation = WorkManager.Job.class))), 
+         @ApiResponse(responseCode = "400", description = "Task not found or source doesn't support reading data by id.",
+                content = @Content(schema = @Schema())),
+        @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
+    })   
+  @RequestMapping(value = "/rest/harvester/tasks/{taskId}/execute/distributed", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<WorkManager.Job> executeDistributed(@PathVariable UUID taskId, @RequestParam(required = false) Integer partitionSize) {
+    try {
+      LOG.debug(formatForLog("POST /rest/harvester/tasks/%s/execute/distributed", taskId));
+      TaskDefinition taskDefinition = engine.getTasksService().readTaskDefinition(taskId);
+      if (taskDefinition == null) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+      WorkManager.Job job = distributedExecutor.submit(taskId, taskDefinition, partitionSize != null? partitionSize: DistributedExecutor.DEFAULT_PARTITION_SIZE);
+      return new ResponseEntity<>(job, HttpStatus.OK);
+    } catch (InvalidDefinitionException ex) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    } catch (DataProcessorException ex) {
+      LOG.error(formatForLog("Error executing distributed task: %s", taskId), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    } catch (Exception ex) {
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    } 
+  }
+
+  /**
+   * Gets progress of the distributed harvest.
+   *
+   * @param taskId task id
+   * @param jobId job id
+   * @return distributed job
+   */
+   @Operation(description = "Get progress of the distributed harvest")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful.",
+                     content = @Content(schema = @Schema(implementation = WorkManager.Job.class))), 
+         @ApiResponse(responseCode = "404", description = "Job not found or already completed (see task history).",
+                content = @Content(schema = @Schema())),
+        @ApiResponse(responseCode = "500", description = "Inetrnal Server Error.",content = @Content(schema = @Schema()))
+    })   
+  @RequestMapping(value = "/rest/harvester/tasks/{taskId}/execute/distributed/{jobId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<WorkManager.Job> getDistributed(@PathVariable UUID taskId, @PathVariable UUID jobId) {
+    try {
+      LOG.debug(formatForLog("GET /rest/harvester/tasks/%s/execute/distributed/%s", taskId, jobId));
+      WorkManager.Job job = distributedExecutor.readJob(jobId);
+      if (job == null || !taskId.equals(job.getTaskId())) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(job, HttpStatus.OK);
+    } catch (DataProcessorException ex) {
+      LOG.error(formatForLog("Error reading distributed job: %s", jobId), ex);
+      return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Executes task immediately using task definition.
    *
@@ -21,6 +21,7 @@ import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
 import com.esri.geoportal.harvester.engine.services.Engine;
 import com.esri.geoportal.harvester.engine.utils.TriggerReference;
+import com.esri.geoportal.harvester.support.ScheduleResponse;
 import com.esri.geoportal.harvester.support.TaskResponse;
 import com.esri.geoportal.harvester.support.TriggerResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -51,6 +52,7 @@ import org.springframework.web.bind.annotation.RestController;
  * <pre><code>
    GET /rest/harvester/triggers/types          - gets a list of all triggers
    GET /rest/harvester/triggers                - gets a list of all active trigger instances
+   GET /rest/harvester/triggers/scheduled      - gets a list of upcoming fire times of all active trigger instances
    DELETE /rest/harvester/triggers/{triggerId} - deactivates a single trigger
  * </code></pre>
  */
@@ -102,6 +104,27 @@ public class TriggerController {
     return new ResponseEntity<>(triggerResponses,HttpStatus.OK);
   }
   
+  /**
+   * Lists upcoming fire times of all active triggers.
+   * @return list of schedules ordered by fire time
+   */
+  @Operation(description = "Lists upcoming fire times of all active triggers.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Operation is successful",
+                     content = @Content( mediaType = "application/json", 
+                     array = @ArraySchema(    
+                             schema = @Schema(implementation = ScheduleResponse.class)))
+                    )
+    })
+  @RequestMapping(value = "/rest/harvester/triggers/scheduled", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<ScheduleResponse>> listScheduled() {
+    LOG.debug(String.format("GET /rest/harvester/triggers/scheduled"));
+    List<ScheduleResponse> scheduleResponses = engine.getTriggersService().listScheduled().stream()
+            .map(s->new ScheduleResponse(s.getTriggerReference().getUuid(), s.getTriggerReference().getTaskId(), s.getTriggerReference().getTriggerDefinition(), s.getFireTime()))
+            .collect(Collectors.toList());
+    return new ResponseEntity<>(scheduleResponses,HttpStatus.OK);
+  }
+  
   /**
    * Deactivates trigger.
    * @param triggerId trigger id
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.support;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.engine.utils.LatencyHistogram;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Process metrics response.
+ */
+public final class ProcessMetricsResponse {
+  private final UUID uuid;
+  private final ProcessInstance.Status status;
+  private final long records;
+  private final long bytes;
+  private final long elapsed;
+  private final double recordsPerSecond;
+  private final double bytesPerSecond;
+  private final Long expected;
+  private final Long eta;
+  private final Map<String, Latency> stages = new LinkedHashMap<>();
+  private final Map<String, Latency> links = new LinkedHashMap<>();
+
+  /**
+   * Creates instance of the response.
+   * @param uuid process uuid
+   * @param status process status
+   * @param metrics process metrics
+   * @param expected expected number of records or <code>null</code> if unknown
+   */
+  public ProcessMetricsResponse(UUID uuid, ProcessInstance.Status status, ProcessMetrics metrics, Long expected) {
+    this.uuid = uuid;
+    this.status = status;
+    this.records = metrics.getRecords();
+    this.bytes = metrics.getBytes();
+    this.elapsed = metrics.getElapsed();
+    this.recordsPerSecond = metrics.getRecordsPerSecond();
+    this.bytesPerSecond = metrics.getBytesPerSecond();
+    this.expected = expected;
+    long remaining = expected!=null? metrics.getEta(expected): -1;
+    this.eta = remaining >= 0? remaining: null;
+    for (ProcessMetrics.Stage stage: ProcessMetrics.Stage.values()) {
+      stages.put(stage.name(), new Latency(metrics.getStage(stage)));
+    }
+    metrics.getLinks().forEach((name, histogram) -> links.put(name, new Latency(histogram)));
+  }
+
+  /**
+   * Gets process uuid.
+   * @return process uuid
+   */
+  public UUID getUuid() {
+    return uuid;
+  }
+
+  /**
+   * Gets status.
+   * @return status
+   */
+  public ProcessInstance.Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets number of acquired records.
+   * @return number of acquired records
+   */
+  public long getRecords() {
+    return records;
+  }
+
+  /**
+   * Gets number of bytes of the loaded records.
+   * @return number of bytes
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets elapsed time.
+   * @return elapsed time (ms)
+   */
+  public long getElapsed() {
+    return elapsed;
+  }
+
+  /**
+   * Gets records throughput.
+   * @return records per second
+   */
+  public double getRecordsPerSecond() {
+    return recordsPerSecond;
+  }
+
+  /**
+   * Gets bytes throughput.
+   * @return bytes per second
+   */
+  public double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * Gets expected number of records.
+   * @return expected number of records or <code>null</code> if unknown
+   */
+  public Long getExpected() {
+    return expected;
+  }
+
+  /**
+   * Gets estimated time remaining.
+   * @return remaining time (ms) or <code>null</code> if unable to estimate
+   */
+  public Long getEta() {
+    return eta;
+  }
+
+  /**
+   * Gets latency of each stage.
+   * @return map of stage name to latency
+   */
+  public Map<String, Latency> getStages() {
+    return stages;
+  }
+
+  /**
+   * Gets latency of each link.
+   * @return map of link name to latency
+   */
+  public Map<String, Latency> getLinks() {
+    return links;
+  }
+  
+  @Override
+  public String toString() {
+    return String.format("PROCESS/METRICS :: id: %s, status: %s, records: %d, records/s: %.1f, bytes/s: %.1f, eta: %s", uuid, status, records, recordsPerSecond, bytesPerSecond, eta);
+  }
+
+  /**
+   * Latency (all values in milliseconds).
+   */
+  public static final class Latency {
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p95;
+    private final double p99;
+    private final double max;
+
+    /**
+     * Creates instance of the latency.
+     * @param histogram latency histogram
+     */
+    public Latency(LatencyHistogram histogram) {
+      this.count = histogram.getCount();
+      this.mean = histogram.getMean();
+      this.p50 = histogram.getPercentile(50);
+      this.p90 = histogram.getPercentile(90);
+      this.p95 = histogram.getPercentile(95);
+      this.p99 = histogram.getPercentile(99);
+      this.max = histogram.getMax();
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public double getP50() {
+      return p50;
+    }
+
+    public double getP90() {
+      return p90;
+    }
+
+    public double getP95() {
+      return p95;
+    }
+
+    public double getP99() {
+      return p99;
+    }
+
+    public double getMax() {
+      return max;
+    }
+  }
+}
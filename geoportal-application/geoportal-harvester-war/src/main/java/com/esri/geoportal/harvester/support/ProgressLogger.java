@@ -19,20 +19,25 @@ import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilder;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Progress logger.
+ * <p>
+ * Logs progress every few acquired records. Safe to be called concurrently;
+ * each step is logged once.
  */
 public abstract class ProgressLogger implements ReportBuilder {
   private final Logger LOG = LoggerFactory.getLogger(ProgressLogger.class);
   private final long STATUS_LOG_MODULO = 250;
-  private int counter;
+  private final AtomicLong counter = new AtomicLong();
+  private final AtomicLong logged = new AtomicLong();
 
   @Override
   public void acquire(ProcessInstance process, DataReference dataReference) {
-    counter++;
+    counter.incrementAndGet();
   }
 
   @Override
@@ -45,9 +50,20 @@ public abstract class ProgressLogger implements ReportBuilder {
     printStatusLog(process);
   }
 
+  /**
+   * Gets progress details appended to the progress log.
+   * @return progress details or empty string if no details
+   */
+  protected String getProgressDetails() {
+    return "";
+  }
+
   private void printStatusLog(ProcessInstance process) {
-    if (counter % STATUS_LOG_MODULO == 0) {
-      LOG.info(String.format("Harvesting of %s progress: %d", process, counter));
+    long count = counter.get();
+    long step = count / STATUS_LOG_MODULO;
+    long last = logged.get();
+    if (step > last && logged.compareAndSet(last, step)) {
+      LOG.info(String.format("Harvesting of %s progress: %d%s", process, count, getProgressDetails()));
     }
   }
 }
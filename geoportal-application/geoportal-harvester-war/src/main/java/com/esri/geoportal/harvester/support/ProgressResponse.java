@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.support;
+
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Progress response.
+ * <p>
+ * Compact progress of a single process pushed through the progress stream.
+ */
+public final class ProgressResponse {
+  private final UUID uuid;
+  private final String name;
+  private final ProcessInstance.Status status;
+  private final long acquired;
+  private final long succeeded;
+  private final long failed;
+  private final long bytes;
+  private final double recordsPerSecond;
+  private final double failureRate;
+  private final boolean removed;
+
+  /**
+   * Creates instance of the response.
+   * @param uuid process id
+   * @param name task name
+   * @param status process status
+   * @param acquired number of acquired records
+   * @param succeeded number of successfully processed records
+   * @param failed number of failed records
+   * @param bytes number of processed bytes
+   * @param recordsPerSecond records per second over the last minute
+   * @param failureRate failure rate over the last minute
+   */
+  public ProgressResponse(UUID uuid, String name, ProcessInstance.Status status, long acquired, long succeeded, long failed, long bytes, double recordsPerSecond, double failureRate) {
+    this(uuid, name, status, acquired, succeeded, failed, bytes, recordsPerSecond, failureRate, false);
+  }
+
+  private ProgressResponse(UUID uuid, String name, ProcessInstance.Status status, long acquired, long succeeded, long failed, long bytes, double recordsPerSecond, double failureRate, boolean removed) {
+    this.uuid = uuid;
+    this.name = name;
+    this.status = status;
+    this.acquired = acquired;
+    this.succeeded = succeeded;
+    this.failed = failed;
+    this.bytes = bytes;
+    this.recordsPerSecond = Math.round(recordsPerSecond * 10) / 10.0;
+    this.failureRate = Math.round(failureRate * 1000) / 1000.0;
+    this.removed = removed;
+  }
+
+  /**
+   * Creates response of the process which is no longer available.
+   * @param uuid process id
+   * @return response
+   */
+  public static ProgressResponse removed(UUID uuid) {
+    return new ProgressResponse(uuid, null, null, 0, 0, 0, 0, 0, 0, true);
+  }
+
+  /**
+   * Creates copy of the response with the new status; used once statistics of
+   * the completed process are gone, thus the last known counters are kept.
+   * @param status new status
+   * @return response
+   */
+  public ProgressResponse withStatus(ProcessInstance.Status status) {
+    return new ProgressResponse(uuid, name, status, acquired, succeeded, failed, bytes, 0, 0, false);
+  }
+
+  /**
+   * Gets process id.
+   * @return process id
+   */
+  public UUID getUuid() {
+    return uuid;
+  }
+
+  /**
+   * Gets task name.
+   * @return task name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets process status.
+   * @return process status or <code>null</code> if process has been removed
+   */
+  public ProcessInstance.Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets number of acquired records.
+   * @return number of acquired records
+   */
+  public long getAcquired() {
+    return acquired;
+  }
+
+  /**
+   * Gets number of successfully processed records.
+   * @return number of successfully processed records
+   */
+  public long getSucceeded() {
+    return succeeded;
+  }
+
+  /**
+   * Gets number of failed records.
+   * @return number of failed records
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Gets number of processed bytes.
+   * @return number of processed bytes
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets records per second over the last minute.
+   * @return records per second
+   */
+  public double getRecordsPerSecond() {
+    return recordsPerSecond;
+  }
+
+  /**
+   * Gets failure rate over the last minute.
+   * @return failure rate (0 to 1)
+   */
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  /**
+   * Checks if process has been removed.
+   * @return <code>true</code> if process is no longer available
+   */
+  public boolean isRemoved() {
+    return removed;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ProgressResponse)) {
+      return false;
+    }
+    ProgressResponse other = (ProgressResponse) obj;
+    return acquired == other.acquired && succeeded == other.succeeded && failed == other.failed && bytes == other.bytes
+            && recordsPerSecond == other.recordsPerSecond && failureRate == other.failureRate && removed == other.removed
+            && status == other.status && Objects.equals(uuid, other.uuid) && Objects.equals(name, other.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(uuid, status, acquired, succeeded, failed);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PROGRESS :: id: %s, status: %s, acquired: %d, succeeded: %d, failed: %d, bytes: %d, records/s: %.1f, removed: %b", uuid, status, acquired, succeeded, failed, bytes, recordsPerSecond, removed);
+  }
+}
@@ -20,27 +20,47 @@ import com.esri.geoportal.harvester.api.ex.DataOutputException;
 import com.esri.geoportal.harvester.api.DataReference;
 import com.esri.geoportal.harvester.api.ProcessInstance;
 import com.esri.geoportal.harvester.api.ex.DataInputException;
+import com.esri.geoportal.harvester.engine.utils.DestinationStatistics;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.RateCounter;
 import com.esri.geoportal.harvester.engine.utils.ReportBuilder;
+import com.esri.geoportal.harvester.engine.utils.ResilienceStatistics;
+import java.io.IOException;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Report statistics.
+ * <p>
+ * Updated concurrently by the workers of the process and read by the REST
+ * layer; counters are striped, so neither side blocks the other. Throughput
+ * and failure rate are given over the last one and five minutes.
  */
 public class ReportStatistics extends ProgressLogger implements ReportBuilder, Statistics {
   private final Logger LOG = LoggerFactory.getLogger(ReportStatistics.class);
+  private static final int ONE_MINUTE = 60;
+  private static final int FIVE_MINUTES = 300;
   
-  private Date startDate;
-  private Date endDate;
+  private volatile Date startDate;
+  private volatile Date endDate;
   
-  private long acquired;
-  private long succeeded;
-  private long harvestFailed;
-  private long publishFailed;
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder harvestFailed = new LongAdder();
+  private final LongAdder publishFailed = new LongAdder();
   
-  private boolean failure;
+  private final RateCounter processed = new RateCounter(FIVE_MINUTES);
+  private final RateCounter failed = new RateCounter(FIVE_MINUTES);
+  private final RateCounter bytes = new RateCounter(FIVE_MINUTES);
+  
+  private volatile boolean failure;
+  
+  private volatile ProcessInstance process;
   
   @Override
   public Date getStartDate() {
@@ -54,17 +74,52 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
 
   @Override
   public long getSucceeded() {
-    return succeeded;
+    return succeeded.sum();
   }
 
   @Override
   public long getHarvestFailed() {
-    return harvestFailed;
+    return harvestFailed.sum();
   }
 
   @Override
   public long getPublishFailed() {
-    return publishFailed;
+    return publishFailed.sum();
+  }
+
+  @Override
+  public long getBytes() {
+    return bytes.getTotal();
+  }
+
+  @Override
+  public double getRecordsPerSecond1m() {
+    return processed.getRate(ONE_MINUTE);
+  }
+
+  @Override
+  public double getRecordsPerSecond5m() {
+    return processed.getRate(FIVE_MINUTES);
+  }
+
+  @Override
+  public double getBytesPerSecond1m() {
+    return bytes.getRate(ONE_MINUTE);
+  }
+
+  @Override
+  public double getBytesPerSecond5m() {
+    return bytes.getRate(FIVE_MINUTES);
+  }
+
+  @Override
+  public double getFailureRate1m() {
+    return failureRate(ONE_MINUTE);
+  }
+
+  @Override
+  public double getFailureRate5m() {
+    return failureRate(FIVE_MINUTES);
   }
 
   @Override
@@ -72,44 +127,67 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
     return failure;
   }
 
+  @Override
+  public List<DestinationStatistics> getDestinations() {
+    ProcessMetrics metrics = process != null? ProcessMetrics.of(process): null;
+    return metrics != null? metrics.getDestinations(): Collections.emptyList();
+  }
+
+  @Override
+  public List<ResilienceStatistics> getResilience() {
+    ProcessMetrics metrics = process != null? ProcessMetrics.of(process): null;
+    return metrics != null? metrics.getResilience(): Collections.emptyList();
+  }
+
   @Override
   public void started(ProcessInstance process) {
+    this.process = process;
     startDate = Calendar.getInstance().getTime();
     LOG.info(String.format("Harvesting of %s started at %s", process, startDate));
   }
 
   @Override
   public void acquire(ProcessInstance process, DataReference dataReference) {
-    acquired++;
+    acquired.increment();
     super.acquire(process, dataReference);
   }
 
   @Override
   public void completed(ProcessInstance process) {
     endDate = Calendar.getInstance().getTime();
-    LOG.info(String.format("Harvesting of %s completed at %s. No. succeded: %d, no. failed: %d", process, endDate, succeeded, harvestFailed+publishFailed));
+    LOG.info(String.format("Harvesting of %s completed at %s. No. succeded: %d, no. failed: %d, bytes: %d", process, endDate, getSucceeded(), getHarvestFailed()+getPublishFailed(), getBytes()));
   }
 
   @Override
   public long getAcquired() {
-    return acquired;
+    return acquired.sum();
   }
 
   @Override
   public void success(ProcessInstance process, DataReference dataReference) {
-    ++succeeded;
+    succeeded.increment();
+    processed.increment();
+    try {
+      bytes.add(Math.max(dataReference.getContentLength(), 0));
+    } catch (IOException ex) {
+      LOG.debug(String.format("Unable to determine content length of: %s", dataReference), ex);
+    }
     super.success(process, dataReference);
   }
 
   @Override
   public void error(ProcessInstance process, DataInputException ex) {
-    ++harvestFailed;
+    harvestFailed.increment();
+    processed.increment();
+    failed.increment();
     super.error(process, ex);
   }
 
   @Override
   public void error(ProcessInstance process, DataOutputException ex) {
-    ++publishFailed;
+    publishFailed.increment();
+    processed.increment();
+    failed.increment();
   }
 
   @Override
@@ -117,8 +195,18 @@ public class ReportStatistics extends ProgressLogger implements ReportBuilder, S
     failure = true;
   }
   
+  @Override
+  protected String getProgressDetails() {
+    return String.format(" (%.1f records/s, %.1f%% failed over the last minute)", getRecordsPerSecond1m(), getFailureRate1m() * 100);
+  }
+
+  private double failureRate(int period) {
+    long total = processed.getSum(period);
+    return total > 0? (double) failed.getSum(period) / total: 0;
+  }
+  
   @Override
   public String toString() {
-    return String.format("STATISTICS :: start: %s, end: %s, succeeded: %d, harvested failed: %d, published failed: %d, failure: %b", startDate, endDate, succeeded, harvestFailed, publishFailed, failure);
+    return String.format("STATISTICS :: start: %s, end: %s, succeeded: %d, harvested failed: %d, published failed: %d, bytes: %d, failure: %b", startDate, endDate, getSucceeded(), getHarvestFailed(), getPublishFailed(), getBytes(), failure);
   }
 }
@@ -59,11 +59,12 @@ define(["dojo/_base/declare",
             lang.hitch(this,function(result){
               html.set(this.statusNode, result.status);
               domClass.remove(this.statusNode,"h-status-submitted");
+              domClass.remove(this.statusNode,"h-status-queued");
               domClass.remove(this.statusNode,"h-status-working");
               domClass.remove(this.statusNode,"h-status-aborting");
               domClass.remove(this.statusNode,"h-status-completed");
               domClass.add(this.statusNode,"h-status-"+result.status);
-              domStyle.set(this.cancelNode,"display",result.status==="working"? "inline": "none");
+              domStyle.set(this.cancelNode,"display",result.status==="working" || result.status==="queued"? "inline": "none");
               
               if (result.status==="working" || result.status==="aborting") {
                 if (result.statistics) {
@@ -79,6 +80,10 @@ define(["dojo/_base/declare",
                 this.timerHandler = setTimeout(update,2000);
               }
               
+              if (result.status==="queued") {
+                this.timerHandler = setTimeout(update,2000);
+              }
+              
               if (result.status==="completed") {
                 this.data.statistics = result.statistics;
                 
@@ -100,7 +105,7 @@ define(["dojo/_base/declare",
             })
         );
         });
-        if (this.data.status==="working") {
+        if (this.data.status==="working" || this.data.status==="queued") {
           domStyle.set(this.cancelNode,"display","inline");
         }
         if (this.data.status!=="completed") {
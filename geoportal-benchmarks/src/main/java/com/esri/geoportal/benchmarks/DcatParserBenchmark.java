@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.dcat.client.DcatParser;
+import com.esri.geoportal.commons.dcat.client.DcatParserAdaptor;
+import com.esri.geoportal.commons.dcat.client.dcat.DcatRecord;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * DCAT parser benchmark.
+ * <p>
+ * Iterates over DCAT 1.1 catalog of 100 datasets the same way DCAT broker
+ * does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DcatParserBenchmark {
+  private byte[] catalog;
+
+  @Setup
+  public void setup() throws IOException {
+    catalog = Fixtures.readBytes("dcat.json");
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) throws IOException {
+    DcatParserAdaptor adaptor = new DcatParserAdaptor(new DcatParser(new ByteArrayInputStream(catalog)));
+    try {
+      for (DcatRecord record: adaptor) {
+        bh.consume(record);
+      }
+    } finally {
+      adaptor.close();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.harvester.folderbig.LargeDataSetDirectoryAssigner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Large data set directory assigner benchmark.
+ * <p>
+ * Measures assigning directory to the next record as done by the big folder
+ * output broker for every published record. Each iteration starts with a fresh
+ * root folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectoryAssignerBenchmark {
+
+  @Param({"1000"})
+  public int maxNumOfFilesPerDir;
+
+  private File rootDir;
+  private LargeDataSetDirectoryAssigner assigner;
+
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+    rootDir = Files.createTempDirectory("benchmark-folderbig").toFile();
+    assigner = LargeDataSetDirectoryAssigner.getInstance(rootDir.getAbsolutePath(), maxNumOfFilesPerDir, true);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(rootDir);
+  }
+
+  @Benchmark
+  public File getNextDirPath() {
+    return assigner.getNextDirPath();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.utils.XmlUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Benchmark fixtures.
+ * <p>
+ * Fixtures are representative documents stored in the <i>fixtures</i> folder of
+ * the module resources.
+ */
+final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  /**
+   * Reads fixture as bytes.
+   * @param name fixture name
+   * @return fixture content
+   * @throws IOException if reading fixture fails
+   */
+  static byte[] readBytes(String name) throws IOException {
+    try (InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+      if (input == null) {
+        throw new IOException(String.format("Missing fixture: %s", name));
+      }
+      return IOUtils.toByteArray(input);
+    }
+  }
+
+  /**
+   * Reads class path resource as string.
+   * @param path resource path
+   * @return resource content
+   * @throws IOException if reading resource fails
+   */
+  static String readClasspath(String path) throws IOException {
+    try (InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+      if (input == null) {
+        throw new IOException(String.format("Missing resource: %s", path));
+      }
+      return IOUtils.toString(input, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Reads fixture as string.
+   * @param name fixture name
+   * @return fixture content
+   * @throws IOException if reading fixture fails
+   */
+  static String readString(String name) throws IOException {
+    return new String(readBytes(name), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads fixture as XML document.
+   * @param name fixture name
+   * @return fixture document
+   * @throws IOException if reading fixture fails
+   * @throws SAXException if parsing fixture fails
+   * @throws ParserConfigurationException if parser is not configured properly
+   */
+  static Document readDocument(String name) throws IOException, SAXException, ParserConfigurationException {
+    return XmlUtils.toDocument(readString(name));
+  }
+}
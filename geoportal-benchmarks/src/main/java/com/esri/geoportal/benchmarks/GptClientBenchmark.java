@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.gpt.client.Client;
+import com.esri.geoportal.commons.gpt.client.PublishRequest;
+import com.esri.geoportal.commons.meta.StringAttribute;
+import static com.esri.geoportal.commons.meta.util.WKAConstants.WKA_BBOX;
+import static com.esri.geoportal.commons.meta.util.WKAConstants.WKA_DESCRIPTION;
+import static com.esri.geoportal.commons.meta.util.WKAConstants.WKA_MODIFIED;
+import static com.esri.geoportal.commons.meta.util.WKAConstants.WKA_RESOURCE_URL;
+import static com.esri.geoportal.commons.meta.util.WKAConstants.WKA_TITLE;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Geoportal client benchmark.
+ * <p>
+ * Measures building of the JSON publish request for a record carrying both XML
+ * metadata and ArcGIS service JSON, as done by the Geoportal output broker for
+ * every published record. No request is sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GptClientBenchmark {
+  private Client client;
+  private PublishRequest data;
+  private Map<String, Object> attributes;
+  private String xml;
+  private String json;
+  private final String[] collections = {"hydrography", " colorado ", ""};
+
+  @Setup
+  public void setup() throws IOException {
+    client = new Client(new URL("http://localhost:8080/geoportal"), null, null, "src_collections_s");
+
+    data = new PublishRequest();
+    data.src_source_type_s = "AGS";
+    data.src_source_uri_s = "https://data.example.gov/arcgis/rest/services";
+    data.src_source_name_s = "Example ArcGIS Server";
+    data.src_uri_s = "https://data.example.gov/arcgis/rest/services/Hydrography/MapServer";
+    data.src_lastupdate_dt = "2019-06-14T00:00:00Z";
+    data.sys_owner_s = "admin";
+    data.sys_owner_txt = "admin";
+    data.src_source_ref_s = "5c1e0d2a9b8f4e7d8c6b5a4f3e2d1c0b";
+    data.src_task_ref_s = "0b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5e";
+
+    attributes = new HashMap<>();
+    attributes.put(WKA_TITLE, "Hydrography of Colorado 2019");
+    attributes.put(WKA_DESCRIPTION, "Statewide hydrography base layer.");
+    attributes.put(WKA_MODIFIED, "2019-06-14");
+    attributes.put(WKA_RESOURCE_URL, data.src_uri_s);
+    attributes.put(WKA_BBOX, new StringAttribute("-109.06 36.99,-102.04 41.0"));
+
+    xml = Fixtures.readString("iso19139.xml");
+    json = Fixtures.readString("service.json");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    client.close();
+  }
+
+  @Benchmark
+  public String createPublishRequest() throws IOException {
+    return client.createPublishRequest(data, attributes, xml, json, collections);
+  }
+
+  @Benchmark
+  public String createPublishRequestXmlOnly() throws IOException {
+    return client.createPublishRequest(data, attributes, xml, null, collections);
+  }
+}
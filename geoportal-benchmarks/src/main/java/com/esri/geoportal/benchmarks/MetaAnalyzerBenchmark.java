@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.meta.MapAttribute;
+import com.esri.geoportal.commons.meta.MetaAnalyzer;
+import com.esri.geoportal.commons.meta.MetaException;
+import com.esri.geoportal.commons.meta.util.MultiMetaAnalyzerWrapper;
+import com.esri.geoportal.commons.meta.xml.SimpleArcGISMetaAnalyzer;
+import com.esri.geoportal.commons.meta.xml.SimpleDcMetaAnalyzer;
+import com.esri.geoportal.commons.meta.xml.SimpleFgdcMetaAnalyzer;
+import com.esri.geoportal.commons.meta.xml.SimpleIso19115MetaAnalyzer;
+import com.esri.geoportal.commons.meta.xml.SimpleIso19115_2MetaAnalyzer;
+import com.esri.geoportal.commons.meta.xml.SimpleIso19119MetaAnalyzer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Meta analyzers benchmark.
+ * <p>
+ * Measures the analyzer matching the metadata format of the fixture and the
+ * multi analyzer wrapper configured the same way as the harvester configures it,
+ * so the cost of probing the non-matching analyzers is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaAnalyzerBenchmark {
+
+  @Param({"arcgis", "dc", "fgdc", "iso19139"})
+  public String format;
+
+  private Document document;
+  private MetaAnalyzer analyzer;
+  private MetaAnalyzer multiAnalyzer;
+
+  @Setup
+  public void setup() throws Exception {
+    document = Fixtures.readDocument(format + ".xml");
+    switch (format) {
+      case "arcgis":
+        analyzer = new SimpleArcGISMetaAnalyzer();
+        break;
+      case "dc":
+        analyzer = new SimpleDcMetaAnalyzer();
+        break;
+      case "fgdc":
+        analyzer = new SimpleFgdcMetaAnalyzer();
+        break;
+      default:
+        analyzer = new SimpleIso19115MetaAnalyzer();
+        break;
+    }
+    multiAnalyzer = new MultiMetaAnalyzerWrapper(
+            new SimpleArcGISMetaAnalyzer(),
+            new SimpleDcMetaAnalyzer(),
+            new SimpleFgdcMetaAnalyzer(),
+            new SimpleIso19115MetaAnalyzer(),
+            new SimpleIso19115_2MetaAnalyzer(),
+            new SimpleIso19119MetaAnalyzer()
+    );
+  }
+
+  @Benchmark
+  public MapAttribute extract() throws MetaException {
+    return analyzer.extract(document);
+  }
+
+  @Benchmark
+  public String transform2ArcGISXML() throws MetaException {
+    return analyzer.transform2ArcGISXML(document);
+  }
+
+  @Benchmark
+  public MapAttribute multiExtract() throws MetaException {
+    return multiAnalyzer.extract(document);
+  }
+
+  @Benchmark
+  public String multiTransform2ArcGISXML() throws MetaException {
+    return multiAnalyzer.transform2ArcGISXML(document);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.robots.Access;
+import com.esri.geoportal.commons.robots.Bots;
+import com.esri.geoportal.commons.robots.BotsConfig;
+import com.esri.geoportal.commons.robots.BotsParser;
+import com.esri.geoportal.commons.robots.BotsUtils;
+import com.esri.geoportal.commons.robots.MatchingStrategy;
+import com.esri.geoportal.commons.robots.WinningStrategy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Robots benchmark.
+ * <p>
+ * Measures pattern matching strategy alone and access evaluation of the parsed
+ * robots.txt for a set of typical record paths; both are executed for every
+ * harvested record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotsBenchmark {
+  private static final String[][] PATTERNS = {
+    {"/admin/", "/admin/users/list"},
+    {"/search?", "/search?q=roads&start=20"},
+    {"/*.php$", "/catalog/index.php"},
+    {"/*.php$", "/catalog/index.php?page=2"},
+    {"/*/draft/", "/metadata/draft/record-0042.xml"},
+    {"/archive/*/old/", "/archive/2019/old/record-0042.xml"},
+    {"/*.xml$", "/metadata/iso/record-0042.xml"},
+    {"/private/public/", "/private/data/record-0042.xml"},
+  };
+
+  private static final String[] PATHS = {
+    "/metadata/iso/record-0042.xml",
+    "/metadata/raw/record-0042.json",
+    "/admin/users/list",
+    "/search?q=public+roads",
+    "/search?q=roads&start=20",
+    "/catalog/index.php",
+    "/metadata/draft/record-0042.xml",
+    "/archive/2019/old/record-0042.xml",
+    "/archive/2019/new/record-0042.xml",
+    "/private/public/record-0042.xml",
+    "/tmp/record-0042.xml",
+    "/dataset/0042",
+  };
+
+  private final MatchingStrategy matchingStrategy = MatchingStrategy.SIMPLE_PATTERN_STRATEGY;
+  private BotsParser parser;
+  private byte[] robotsTxt;
+  private Bots bots;
+
+  @Setup
+  public void setup() throws IOException {
+    parser = BotsParser.getInstance(BotsConfig.DEFAULT, null);
+    robotsTxt = Fixtures.readBytes("robots.txt");
+    bots = parse();
+  }
+
+  @Benchmark
+  public void matchPattern(Blackhole bh) {
+    for (String[] pattern: PATTERNS) {
+      bh.consume(matchingStrategy.matches(pattern[0], pattern[1]));
+    }
+  }
+
+  @Benchmark
+  public void requestAccess(Blackhole bh) {
+    for (String path: PATHS) {
+      Access access = BotsUtils.requestAccess(bots, path);
+      bh.consume(access);
+    }
+  }
+
+  @Benchmark
+  public Bots parse() {
+    return parser.readRobotsTxt(matchingStrategy, WinningStrategy.LONGEST_PATH_STRATEGY, new ByteArrayInputStream(robotsTxt));
+  }
+}
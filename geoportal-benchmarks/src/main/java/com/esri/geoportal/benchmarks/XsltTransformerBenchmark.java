@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks;
+
+import com.esri.geoportal.commons.constants.MimeType;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.TransformerInstance;
+import com.esri.geoportal.harvester.api.base.SimpleDataReference;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.ex.DataTransformerException;
+import com.esri.geoportal.harvester.api.ex.InvalidDefinitionException;
+import com.esri.geoportal.harvester.engine.transformers.XsltTransformer;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * XSLT transformer benchmark.
+ * <p>
+ * Transforms ISO 19139 record into ArcGIS metadata with the stylesheet used by
+ * the ISO meta analyzers. Instance creation measures the compiled templates
+ * cache; transformation is measured single and multi threaded to cover the
+ * transformer pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XsltTransformerBenchmark {
+  private final XsltTransformer transformer = new XsltTransformer();
+  private EntityDefinition definition;
+  private TransformerInstance instance;
+  private byte[] record;
+
+  @Setup
+  public void setup() throws IOException, InvalidDefinitionException {
+    Map<String, String> properties = new HashMap<>();
+    properties.put(XsltTransformer.X_XSLT_XSLT, Fixtures.readClasspath("meta/ISO19139_to_ArcGIS.xsl"));
+    definition = new EntityDefinition();
+    definition.setType(XsltTransformer.TYPE);
+    definition.setProperties(properties);
+    instance = transformer.createInstance(definition);
+    record = Fixtures.readBytes("iso19139.xml");
+  }
+
+  @TearDown
+  public void tearDown() {
+    instance.terminate();
+  }
+
+  @Benchmark
+  public TransformerInstance createInstance() throws InvalidDefinitionException {
+    return transformer.createInstance(definition);
+  }
+
+  @Benchmark
+  public List<DataReference> transform() throws DataTransformerException {
+    return instance.transform(createReference());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public List<DataReference> transformConcurrent() throws DataTransformerException {
+    return instance.transform(createReference());
+  }
+
+  private DataReference createReference() {
+    SimpleDataReference ref = new SimpleDataReference(URI.create("urn:benchmark"), "benchmark", "iso19139", null, URI.create("urn:benchmark:iso19139"), null, null);
+    ref.addContext(MimeType.APPLICATION_XML, record);
+    return ref;
+  }
+}
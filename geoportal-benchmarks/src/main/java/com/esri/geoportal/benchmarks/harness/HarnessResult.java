@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks.harness;
+
+import com.esri.geoportal.harvester.engine.utils.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput harness result.
+ * <p>
+ * Serialized as JSON; durations are in milliseconds, sizes in bytes.
+ */
+public class HarnessResult {
+  public String timestamp;
+  public String javaVersion;
+  public int availableProcessors;
+  public long maxHeap;
+  public Settings settings = new Settings();
+  public List<Scenario> scenarios = new ArrayList<>();
+
+  /**
+   * Harness settings.
+   */
+  public static class Settings {
+    public int records;
+    public int size;
+    public long latency;
+    public long timeout;
+  }
+
+  /**
+   * Result of harvesting single source.
+   */
+  public static class Scenario {
+    public String connector;
+    public boolean completed;
+    public long acquired;
+    public long published;
+    public long failed;
+    public long created;
+    public long updated;
+    public long requests;
+    public long elapsed;
+    public long bytes;
+    public double recordsPerSecond;
+    public double bytesPerSecond;
+    public Latency record;
+    public Map<String, Latency> stages = new LinkedHashMap<>();
+    public Heap heap;
+  }
+
+  /**
+   * Latency distribution.
+   */
+  public static class Latency {
+    public long count;
+    public double mean;
+    public double p50;
+    public double p95;
+    public double p99;
+    public double max;
+
+    /**
+     * Creates latency distribution from histogram.
+     * @param histogram histogram
+     * @return latency distribution
+     */
+    public static Latency of(LatencyHistogram histogram) {
+      Latency latency = new Latency();
+      latency.count = histogram.getCount();
+      latency.mean = histogram.getMean();
+      latency.p50 = histogram.getPercentile(50);
+      latency.p95 = histogram.getPercentile(95);
+      latency.p99 = histogram.getPercentile(99);
+      latency.max = histogram.getMax();
+      return latency;
+    }
+  }
+
+  /**
+   * Heap usage.
+   */
+  public static class Heap {
+    public long peak;
+    public long after;
+    public long gcCount;
+    public long gcTime;
+  }
+}
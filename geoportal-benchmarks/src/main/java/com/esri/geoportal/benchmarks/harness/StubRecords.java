@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks.harness;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Synthetic records served by the stub servers.
+ * <p>
+ * Every record is a copy of the ISO 19139 fixture with its own identifier,
+ * title and date stamp, padded with supplemental information up to the
+ * requested size.
+ */
+class StubRecords {
+  private static final String TEMPLATE_ID = "7f3a9c1e-2d4b-4f6a-9e8d-0c1b2a3f4e5d";
+  private static final String TEMPLATE_TITLE = "Hydrography of Colorado 2019";
+  private static final String TEMPLATE_DATE = "2019-06-14";
+  private static final String PADDING_ANCHOR = "</gmd:MD_DataIdentification>";
+  private static final LocalDate BASE_DATE = LocalDate.of(2019, 1, 1);
+
+  private final String template;
+  private final int count;
+  private final int size;
+
+  /**
+   * Creates instance of the records.
+   * @param count number of records
+   * @param size approximate size of each record in bytes (0 - fixture size)
+   * @throws IOException if reading template fails
+   */
+  public StubRecords(int count, int size) throws IOException {
+    try (InputStream input = StubRecords.class.getResourceAsStream("/fixtures/iso19139.xml")) {
+      if (input == null) {
+        throw new IOException("Missing fixture: iso19139.xml");
+      }
+      this.template = IOUtils.toString(input, StandardCharsets.UTF_8);
+    }
+    this.count = Math.max(count, 0);
+    this.size = Math.max(size, 0);
+  }
+
+  /**
+   * Gets number of records.
+   * @return number of records
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets record id.
+   * @param index record index (0-based)
+   * @return record id
+   */
+  public String getId(int index) {
+    return String.format("rec-%06d", index);
+  }
+
+  /**
+   * Gets record index.
+   * @param id record id
+   * @return record index or <code>-1</code> if no such record
+   */
+  public int indexOf(String id) {
+    if (id == null || !id.matches("rec-\\d{6}")) {
+      return -1;
+    }
+    int index = Integer.parseInt(id.substring(4));
+    return index < count? index: -1;
+  }
+
+  /**
+   * Gets record title.
+   * @param index record index
+   * @return title
+   */
+  public String getTitle(int index) {
+    return String.format("Synthetic record %d", index);
+  }
+
+  /**
+   * Gets record date stamp.
+   * @param index record index
+   * @return date stamp (yyyy-MM-dd)
+   */
+  public String getDate(int index) {
+    return BASE_DATE.plusDays(index % 1000).toString();
+  }
+
+  /**
+   * Gets record as ISO 19139 XML.
+   * @param index record index
+   * @return XML document
+   */
+  public String getXml(int index) {
+    String xml = template
+            .replace(TEMPLATE_ID, getId(index))
+            .replace(TEMPLATE_TITLE, getTitle(index))
+            .replace(TEMPLATE_DATE, getDate(index));
+    int missing = size - xml.length();
+    if (missing > 0) {
+      String padding = String.format("<gmd:supplementalInformation><gco:CharacterString>%s</gco:CharacterString></gmd:supplementalInformation>", StringUtils.repeat("lorem ipsum ", missing / 12 + 1));
+      xml = xml.replace(PADDING_ANCHOR, padding + PADDING_ANCHOR);
+    }
+    return xml;
+  }
+
+  /**
+   * Gets record as XML fragment with no XML declaration.
+   * @param index record index
+   * @return XML fragment
+   */
+  public String getFragment(int index) {
+    return getXml(index).replaceFirst("^<\\?xml[^>]*\\?>\\s*", "");
+  }
+
+  /**
+   * Gets padding for the description of the non-XML records.
+   * @return padding text
+   */
+  public String getDescription() {
+    return StringUtils.repeat("lorem ipsum ", Math.max(size, 120) / 12);
+  }
+}
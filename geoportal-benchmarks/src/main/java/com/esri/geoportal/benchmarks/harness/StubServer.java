@@ -0,0 +1,356 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Stub server.
+ * <p>
+ * Embedded HTTP server serving the same set of synthetic records through
+ * several protocols:
+ * <ul>
+ * <li><i>/waf/</i> - WAF directory listing</li>
+ * <li><i>/csw</i> - CSW 2.0.2 GetCapabilities, GetRecords and GetRecordById (ISO AP)</li>
+ * <li><i>/oai</i> - OAI-PMH ListIdentifiers and GetRecord</li>
+ * <li><i>/api/3/action/package_search</i> - CKAN package search</li>
+ * <li><i>/geoportal/</i> - Geoportal token, item publishing and Elasticsearch lookup</li>
+ * </ul>
+ * Every response is delayed by the configured latency.
+ */
+public class StubServer implements Closeable {
+  private static final int OAI_PAGE_SIZE = 100;
+  private static final String CSW_PROFILE_ID = "urn:ogc:CSW:2.0.2:HTTP:OGCISO:ESRI:GPT";
+  private static final Pattern START_POSITION = Pattern.compile("startPosition=\"(\\d+)\"");
+  private static final Pattern MAX_RECORDS = Pattern.compile("maxRecords=\"(\\d+)\"");
+
+  static {
+    // without TCP_NODELAY small responses stall on delayed ACK and skew latency
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final StubRecords records;
+  private final long latency;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  private final Map<String, String> published = new ConcurrentHashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder updated = new LongAdder();
+
+  /**
+   * Creates instance of the server.
+   * @param records records to serve
+   * @param latency latency of each response (ms)
+   * @throws IOException if creating server fails
+   */
+  public StubServer(StubRecords records, long latency) throws IOException {
+    this.records = records;
+    this.latency = Math.max(latency, 0);
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.executor = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "stub-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/waf/", this::handleWaf);
+    server.createContext("/csw", this::handleCsw);
+    server.createContext("/oai", this::handleOai);
+    server.createContext("/api/3/action/package_search", this::handleCkan);
+    server.createContext("/geoportal/", this::handleGeoportal);
+  }
+
+  /**
+   * Starts the server.
+   */
+  public void start() {
+    server.start();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Gets URL of the server.
+   * @param path path
+   * @return URL
+   */
+  public String getUrl(String path) {
+    return String.format("http://%s:%d%s", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+  }
+
+  /**
+   * Gets CSW profile id matching the CSW responses.
+   * @return profile id
+   */
+  public String getCswProfileId() {
+    return CSW_PROFILE_ID;
+  }
+
+  /**
+   * Gets number of handled requests.
+   * @return number of requests
+   */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * Gets number of items created in the Geoportal.
+   * @return number of created items
+   */
+  public long getCreated() {
+    return created.sum();
+  }
+
+  /**
+   * Gets number of items updated in the Geoportal.
+   * @return number of updated items
+   */
+  public long getUpdated() {
+    return updated.sum();
+  }
+
+  // <editor-fold defaultstate="collapsed" desc="WAF">
+  private void handleWaf(HttpExchange exchange) throws IOException {
+    String name = exchange.getRequestURI().getPath().substring("/waf/".length());
+    if (name.isEmpty()) {
+      StringBuilder html = new StringBuilder("<html><body><h1>Index of /waf</h1><ul>");
+      for (int i = 0; i < records.getCount(); i++) {
+        html.append(String.format("<li><a href=\"%s.xml\">%s.xml</a></li>", records.getId(i), records.getId(i)));
+      }
+      html.append("</ul></body></html>");
+      respond(exchange, 200, "text/html", html.toString());
+      return;
+    }
+    int index = records.indexOf(name.replaceAll("\\.xml$", ""));
+    if (index < 0) {
+      respond(exchange, 404, "text/plain", "Not found");
+    } else {
+      respond(exchange, 200, "application/xml", records.getXml(index));
+    }
+  }
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="CSW">
+  private void handleCsw(HttpExchange exchange) throws IOException {
+    if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+      String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+      int start = Math.max(matchInt(START_POSITION, body, 1), 1);
+      int max = Math.max(matchInt(MAX_RECORDS, body, 10), 0);
+      int end = Math.min(start - 1 + max, records.getCount());
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+      xml.append("<csw:GetRecordsResponse xmlns:csw=\"http://www.opengis.net/cat/csw/2.0.2\">");
+      xml.append(String.format("<csw:SearchResults numberOfRecordsMatched=\"%d\" numberOfRecordsReturned=\"%d\" nextRecord=\"%d\">", 
+              records.getCount(), Math.max(end - start + 1, 0), end < records.getCount()? end + 1: 0));
+      for (int i = start - 1; i < end; i++) {
+        xml.append(records.getFragment(i));
+      }
+      xml.append("</csw:SearchResults></csw:GetRecordsResponse>");
+      respond(exchange, 200, "application/xml", xml.toString());
+      return;
+    }
+    Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+    String request = params.getOrDefault("request", "");
+    if ("GetCapabilities".equalsIgnoreCase(request)) {
+      String url = getUrl("/csw");
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+              + "<csw:Capabilities xmlns:csw=\"http://www.opengis.net/cat/csw/2.0.2\" xmlns:ows=\"http://www.opengis.net/ows\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"2.0.2\">"
+              + "<ows:ServiceIdentification><ows:Title>Stub CSW</ows:Title><ows:Abstract>Stub CSW</ows:Abstract></ows:ServiceIdentification>"
+              + "<ows:OperationsMetadata>"
+              + "<ows:Operation name=\"GetRecords\"><ows:DCP><ows:HTTP><ows:Post xlink:href=\"" + url + "\"/></ows:HTTP></ows:DCP></ows:Operation>"
+              + "<ows:Operation name=\"GetRecordById\"><ows:DCP><ows:HTTP><ows:Get xlink:href=\"" + url + "\"/></ows:HTTP></ows:DCP></ows:Operation>"
+              + "</ows:OperationsMetadata>"
+              + "</csw:Capabilities>";
+      respond(exchange, 200, "application/xml", xml);
+    } else if ("GetRecordById".equalsIgnoreCase(request)) {
+      int index = records.indexOf(params.getOrDefault("ID", params.get("id")));
+      if (index < 0) {
+        respond(exchange, 404, "text/plain", "Not found");
+      } else {
+        respond(exchange, 200, "application/xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<csw:GetRecordByIdResponse xmlns:csw=\"http://www.opengis.net/cat/csw/2.0.2\">"
+                + records.getFragment(index)
+                + "</csw:GetRecordByIdResponse>");
+      }
+    } else {
+      respond(exchange, 400, "text/plain", "Unsupported request");
+    }
+  }
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="OAI-PMH">
+  private void handleOai(HttpExchange exchange) throws IOException {
+    Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+    String verb = params.getOrDefault("verb", "");
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><OAI-PMH>");
+    if ("ListIdentifiers".equals(verb)) {
+      int start = Math.max(NumberUtils.toInt(params.get("resumptionToken"), 0), 0);
+      int end = Math.min(start + OAI_PAGE_SIZE, records.getCount());
+      xml.append("<ListIdentifiers>");
+      for (int i = start; i < end; i++) {
+        xml.append(String.format("<header><identifier>%s</identifier><datestamp>%s</datestamp></header>", records.getId(i), records.getDate(i)));
+      }
+      xml.append(String.format("<resumptionToken>%s</resumptionToken>", end < records.getCount()? Integer.toString(end): ""));
+      xml.append("</ListIdentifiers>");
+    } else if ("GetRecord".equals(verb)) {
+      int index = records.indexOf(params.get("identifier"));
+      if (index < 0) {
+        xml.append("<error code=\"idDoesNotExist\"/>");
+      } else {
+        xml.append(String.format("<GetRecord><record><header><identifier>%s</identifier><datestamp>%s</datestamp></header><metadata>", records.getId(index), records.getDate(index)));
+        xml.append(records.getFragment(index));
+        xml.append("</metadata></record></GetRecord>");
+      }
+    } else {
+      xml.append("<error code=\"badVerb\"/>");
+    }
+    xml.append("</OAI-PMH>");
+    respond(exchange, 200, "text/xml", xml.toString());
+  }
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="CKAN">
+  private void handleCkan(HttpExchange exchange) throws IOException {
+    Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+    int start = Math.max(NumberUtils.toInt(params.get("start"), 0), 0);
+    int rows = Math.max(NumberUtils.toInt(params.get("rows"), 10), 0);
+    int end = Math.min(start + rows, records.getCount());
+
+    ObjectNode root = mapper.createObjectNode();
+    root.put("success", true);
+    ObjectNode result = root.putObject("result");
+    result.put("count", records.getCount());
+    ArrayNode results = result.putArray("results");
+    String description = records.getDescription();
+    for (int i = start; i < end; i++) {
+      ObjectNode dataset = results.addObject();
+      dataset.put("id", records.getId(i));
+      dataset.put("name", records.getId(i));
+      dataset.put("title", records.getTitle(i));
+      dataset.put("notes", description);
+      dataset.put("metadata_modified", records.getDate(i) + "T00:00:00");
+      dataset.putArray("resources").addObject().put("url", String.format("https://data.example.gov/%s.zip", records.getId(i)));
+    }
+    respond(exchange, 200, "application/json", mapper.writeValueAsString(root));
+  }
+  // </editor-fold>
+
+  // <editor-fold defaultstate="collapsed" desc="Geoportal">
+  private void handleGeoportal(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath().substring("/geoportal/".length());
+    String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+    if (path.startsWith("elastic/") && path.endsWith("/_search")) {
+      JsonNode request = mapper.readTree(body);
+      String srcUri = request.path("query").path("match").path("src_uri_s").asText(null);
+      String id = srcUri != null? published.get(srcUri): null;
+      ObjectNode root = mapper.createObjectNode();
+      ObjectNode hits = root.putObject("hits");
+      hits.put("total", id != null? 1: 0);
+      ArrayNode hitList = hits.putArray("hits");
+      if (id != null) {
+        hitList.addObject().put("_id", id);
+      }
+      respond(exchange, 200, "application/json", mapper.writeValueAsString(root));
+    } else if (path.equals("oauth/token")) {
+      ObjectNode root = mapper.createObjectNode();
+      root.put("access_token", "stub");
+      root.put("token_type", "bearer");
+      root.put("expires_in", 3600);
+      respond(exchange, 200, "application/json", mapper.writeValueAsString(root));
+    } else if (path.startsWith("rest/metadata/item") && "PUT".equalsIgnoreCase(exchange.getRequestMethod())) {
+      String[] segments = path.split("/");
+      String id = segments.length > 3? segments[3]: UUID.randomUUID().toString().replaceAll("-", "");
+      String srcUri = mapper.readTree(body).path("src_uri_s").asText(null);
+      String previous = srcUri != null? published.put(srcUri, id): null;
+      boolean existing = previous != null || segments.length > 3;
+      (existing? updated: created).increment();
+      ObjectNode root = mapper.createObjectNode();
+      root.put("id", id);
+      root.put("status", existing? "updated": "created");
+      respond(exchange, 200, "application/json", mapper.writeValueAsString(root));
+    } else {
+      respond(exchange, 404, "application/json", "{\"error\":{\"message\":\"Not found\"}}");
+    }
+  }
+  // </editor-fold>
+
+  private void respond(HttpExchange exchange, int status, String contentType, String content) throws IOException {
+    requests.increment();
+    if (latency > 0) {
+      try {
+        Thread.sleep(latency);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query != null) {
+      for (String pair: query.split("&")) {
+        int eq = pair.indexOf('=');
+        if (eq > 0) {
+          params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return params;
+  }
+
+  private static int matchInt(Pattern pattern, String text, int defaultValue) {
+    Matcher matcher = pattern.matcher(text);
+    return matcher.find()? Integer.parseInt(matcher.group(1)): defaultValue;
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.benchmarks.harness;
+
+import com.esri.geoportal.cli.boot.Bootstrap;
+import com.esri.geoportal.cli.boot.MemReportManager;
+import com.esri.geoportal.harvester.api.DataReference;
+import com.esri.geoportal.harvester.api.ProcessInstance;
+import com.esri.geoportal.harvester.api.base.BaseProcessInstanceListener;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.LinkDefinition;
+import com.esri.geoportal.harvester.api.defs.PublishingStatus;
+import com.esri.geoportal.harvester.api.defs.TaskDefinition;
+import com.esri.geoportal.harvester.api.ex.DataException;
+import com.esri.geoportal.harvester.engine.services.Engine;
+import com.esri.geoportal.harvester.engine.utils.LatencyHistogram;
+import com.esri.geoportal.harvester.engine.utils.ProcessMetrics;
+import com.esri.geoportal.harvester.engine.utils.ProcessReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * End-to-end throughput harness.
+ * <p>
+ * Starts {@link StubServer} serving synthetic records, then harvests it with
+ * each of the selected connectors and publishes to the stub Geoportal through
+ * the real engine created by {@link Bootstrap}. For every connector it reports
+ * records throughput, latency of each record from acquiring to publishing,
+ * per stage latencies and heap usage. Results are written as JSON so runs can
+ * be compared.
+ * <p>
+ * Example:
+ * <pre><code>
+ *   java -cp benchmarks.jar com.esri.geoportal.benchmarks.harness.ThroughputHarness -n 5000 -l 5 -o results.json
+ * </code></pre>
+ */
+public class ThroughputHarness {
+  /**
+   * Supported connectors.
+   */
+  public static final List<String> CONNECTORS = Arrays.asList("WAF", "CSW", "OAI-PMH", "CKAN");
+
+  private static final String GEOMETRY_SERVICE = "http://localhost/arcgis/rest/services/Geometry/GeometryServer";
+  private static final long HEAP_SAMPLING = 20;
+
+  private final HarnessResult.Settings settings;
+  private final List<String> connectors;
+  private final int warmup;
+
+  /**
+   * Creates instance of the harness.
+   * @param settings settings
+   * @param connectors connectors to harvest with
+   * @param warmup number of warm-up runs of each connector
+   */
+  public ThroughputHarness(HarnessResult.Settings settings, List<String> connectors, int warmup) {
+    this.settings = settings;
+    this.connectors = connectors;
+    this.warmup = Math.max(warmup, 0);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = createOptions();
+    CommandLine cli;
+    try {
+      cli = new DefaultParser().parse(options, args);
+    } catch (ParseException ex) {
+      System.err.println(ex.getMessage());
+      printHelp(options);
+      return;
+    }
+    if (cli.hasOption('h')) {
+      printHelp(options);
+      return;
+    }
+
+    HarnessResult.Settings settings = new HarnessResult.Settings();
+    settings.records = NumberUtils.toInt(cli.getOptionValue('n'), 1000);
+    settings.size = NumberUtils.toInt(cli.getOptionValue('s'), 0);
+    settings.latency = NumberUtils.toLong(cli.getOptionValue('l'), 0);
+    settings.timeout = NumberUtils.toLong(cli.getOptionValue('t'), 600);
+    List<String> connectors = cli.hasOption('c')
+            ? Arrays.stream(cli.getOptionValue('c').split(",")).map(String::trim).map(String::toUpperCase).collect(Collectors.toList())
+            : CONNECTORS;
+    for (String connector: connectors) {
+      if (!CONNECTORS.contains(connector)) {
+        System.err.println(String.format("Unsupported connector: %s", connector));
+        printHelp(options);
+        return;
+      }
+    }
+
+    ThroughputHarness harness = new ThroughputHarness(settings, connectors, NumberUtils.toInt(cli.getOptionValue('w'), 0));
+    HarnessResult result = harness.run();
+
+    File output = new File(cli.getOptionValue('o', "harness-results.json"));
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, result);
+    System.out.println(String.format("Results written to: %s", output.getAbsolutePath()));
+  }
+
+  /**
+   * Runs the harness.
+   * @return result
+   * @throws Exception if running harness fails
+   */
+  public HarnessResult run() throws Exception {
+    HarnessResult result = new HarnessResult();
+    result.timestamp = Instant.now().toString();
+    result.javaVersion = System.getProperty("java.version");
+    result.availableProcessors = Runtime.getRuntime().availableProcessors();
+    result.maxHeap = Runtime.getRuntime().maxMemory();
+    result.settings = settings;
+
+    StubRecords records = new StubRecords(settings.records, settings.size);
+    Engine engine = new Bootstrap(GEOMETRY_SERVICE, null, new MemReportManager()).createEngine();
+
+    for (String connector: connectors) {
+      for (int i = 0; i < warmup; i++) {
+        harvest(engine, records, connector);
+      }
+      HarnessResult.Scenario scenario = harvest(engine, records, connector);
+      System.out.println(String.format("%s: %d records in %d ms (%.1f/s), record p99: %.2f ms, peak heap: %d MB", 
+              connector, scenario.acquired, scenario.elapsed, scenario.recordsPerSecond, scenario.record.p99, scenario.heap.peak / (1024 * 1024)));
+      result.scenarios.add(scenario);
+    }
+    return result;
+  }
+
+  /**
+   * Harvests fresh stub server with a single connector.
+   * @param engine engine
+   * @param records records
+   * @param connector connector type
+   * @return scenario result
+   * @throws Exception if harvesting fails
+   */
+  private HarnessResult.Scenario harvest(Engine engine, StubRecords records, String connector) throws Exception {
+    try (StubServer server = new StubServer(records, settings.latency)) {
+      server.start();
+
+      System.gc();
+      HeapMonitor heap = new HeapMonitor();
+      RecordTracker tracker = new RecordTracker();
+
+      ProcessReference ref = engine.getExecutionService().execute(createTaskDefinition(server, connector), new SimpleIteratorContext());
+      ProcessInstance process = ref.getProcess();
+      process.addListener(tracker);
+      process.begin();
+
+      boolean completed = tracker.await(settings.timeout);
+      if (!completed) {
+        process.abort();
+      }
+
+      HarnessResult.Scenario scenario = new HarnessResult.Scenario();
+      scenario.connector = connector;
+      scenario.completed = completed;
+      scenario.acquired = tracker.acquired.sum();
+      scenario.published = tracker.published.sum();
+      scenario.failed = tracker.failed.sum();
+      scenario.created = server.getCreated();
+      scenario.updated = server.getUpdated();
+      scenario.requests = server.getRequests();
+      scenario.record = HarnessResult.Latency.of(tracker.latency);
+      ProcessMetrics metrics = ProcessMetrics.of(process);
+      if (metrics != null) {
+        scenario.elapsed = metrics.getElapsed();
+        scenario.bytes = metrics.getBytes();
+        scenario.recordsPerSecond = metrics.getRecordsPerSecond();
+        scenario.bytesPerSecond = metrics.getBytesPerSecond();
+        for (ProcessMetrics.Stage stage: ProcessMetrics.Stage.values()) {
+          scenario.stages.put(stage.name(), HarnessResult.Latency.of(metrics.getStage(stage)));
+        }
+      }
+      scenario.heap = heap.stop();
+      return scenario;
+    }
+  }
+
+  /**
+   * Creates task definition harvesting stub server with the connector and
+   * publishing to the stub Geoportal.
+   * @param server stub server
+   * @param connector connector type
+   * @return task definition
+   */
+  private TaskDefinition createTaskDefinition(StubServer server, String connector) {
+    Map<String, String> sourceProperties = new HashMap<>();
+    switch (connector) {
+      case "WAF":
+        sourceProperties.put("waf-host-url", server.getUrl("/waf/"));
+        break;
+      case "CSW":
+        sourceProperties.put("csw-host-url", server.getUrl("/csw"));
+        sourceProperties.put("csw-profile-id", server.getCswProfileId());
+        break;
+      case "OAI-PMH":
+        sourceProperties.put("oai-host-url", server.getUrl("/oai"));
+        sourceProperties.put("oai-prefix", "iso19139");
+        break;
+      case "CKAN":
+        sourceProperties.put("ckan-host-url", server.getUrl("/"));
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported connector: %s", connector));
+    }
+    EntityDefinition source = new EntityDefinition();
+    source.setType(connector);
+    source.setLabel(String.format("%s stub", connector));
+    source.setProperties(sourceProperties);
+
+    Map<String, String> destinationProperties = new HashMap<>();
+    destinationProperties.put("gpt-host-url", server.getUrl("/geoportal/"));
+    destinationProperties.put("gpt-index", "metadata");
+    destinationProperties.put("gpt-cleanup", "false");
+    destinationProperties.put("cred-username", "harness");
+    destinationProperties.put("cred-password", "harness");
+    EntityDefinition action = new EntityDefinition();
+    action.setType("GPT");
+    action.setLabel("Geoportal stub");
+    action.setProperties(destinationProperties);
+    LinkDefinition destination = new LinkDefinition();
+    destination.setAction(action);
+
+    TaskDefinition taskDefinition = new TaskDefinition();
+    taskDefinition.setName(String.format("harness-%s", connector.toLowerCase()));
+    taskDefinition.setSource(source);
+    taskDefinition.setDestinations(Arrays.asList(destination));
+    return taskDefinition;
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(new Option("h", "help", false, "print this message"));
+    options.addOption(Option.builder("n").longOpt("records").hasArg().argName("count").desc("number of records served by each source (default: 1000)").build());
+    options.addOption(Option.builder("s").longOpt("size").hasArg().argName("bytes").desc("approximate size of each record (default: size of the fixture)").build());
+    options.addOption(Option.builder("l").longOpt("latency").hasArg().argName("ms").desc("latency of each stub response (default: 0)").build());
+    options.addOption(Option.builder("c").longOpt("connectors").hasArg().argName("list").desc("comma separated connectors to run (default: " + String.join(",", CONNECTORS) + ")").build());
+    options.addOption(Option.builder("w").longOpt("warmup").hasArg().argName("count").desc("number of unreported warm-up runs of each connector (default: 0)").build());
+    options.addOption(Option.builder("t").longOpt("timeout").hasArg().argName("seconds").desc("time limit of each run (default: 600)").build());
+    options.addOption(Option.builder("o").longOpt("output").hasArg().argName("file").desc("results file (default: harness-results.json)").build());
+    return options;
+  }
+
+  private static void printHelp(Options options) {
+    new HelpFormatter().printHelp("java -cp benchmarks.jar " + ThroughputHarness.class.getName() + " [options]", options);
+  }
+
+  /**
+   * Tracks records of the process.
+   * <p>
+   * Latency of the record spans from acquiring it to publishing it, as seen by
+   * the process listeners.
+   */
+  private static class RecordTracker extends BaseProcessInstanceListener {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Override
+    public void onStatusChange(ProcessInstance.Status status) {
+      if (status == ProcessInstance.Status.completed) {
+        done.countDown();
+      }
+    }
+
+    @Override
+    public void onDataAcquired(DataReference dataReference) {
+      acquired.increment();
+      pending.put(dataReference.getId(), System.nanoTime());
+    }
+
+    @Override
+    public void onDataProcessed(DataReference dataReference, PublishingStatus status) {
+      Long start = pending.remove(dataReference.getId());
+      if (start != null) {
+        latency.record(System.nanoTime() - start);
+      }
+      published.increment();
+    }
+
+    @Override
+    public void onError(DataException ex) {
+      failed.increment();
+    }
+
+    /**
+     * Waits for the process to complete.
+     * @param timeout timeout (seconds)
+     * @return <code>true</code> if process has completed
+     * @throws InterruptedException if waiting interrupted
+     */
+    public boolean await(long timeout) throws InterruptedException {
+      return done.await(timeout, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Samples heap usage until stopped.
+   */
+  private static class HeapMonitor {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "heap-monitor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    private final AtomicLong peak = new AtomicLong();
+    private final long gcCount = gcCount();
+    private final long gcTime = gcTime();
+
+    public HeapMonitor() {
+      sampler.scheduleAtFixedRate(this::sample, 0, HEAP_SAMPLING, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+      long used = memory.getHeapMemoryUsage().getUsed();
+      peak.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * Stops sampling.
+     * @return heap usage
+     */
+    public HarnessResult.Heap stop() {
+      sampler.shutdownNow();
+      sample();
+      HarnessResult.Heap heap = new HarnessResult.Heap();
+      heap.peak = peak.get();
+      heap.after = memory.getHeapMemoryUsage().getUsed();
+      heap.gcCount = gcCount() - gcCount;
+      heap.gcTime = gcTime() - gcTime;
+      return heap;
+    }
+
+    private static long gcCount() {
+      return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    private static long gcTime() {
+      return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+    }
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * JMH micro-benchmarks of the per-record hot paths.
+ * <p>
+ * Build and run with:
+ * <pre><code>
+ *   mvn install -Pbenchmarks -DskipTests
+ *   java -jar geoportal-benchmarks/target/benchmarks.jar
+ * </code></pre>
+ */
+package com.esri.geoportal.benchmarks;
@@ -168,6 +168,7 @@ public class Client implements IClient {
         // perform transformation
         StringWriter writer = new StringWriter();
         DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+        builderFactory.setNamespaceAware(true);
         builderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
         builderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
         builderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
@@ -318,6 +319,7 @@ public class Client implements IClient {
     StringWriter writer = new StringWriter();
   
     DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+    builderFactory.setNamespaceAware(true);
     builderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
     builderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
     builderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
@@ -128,6 +128,24 @@ public class ClientTest {
     assertNotNull("No records", records);
   }
   
+  @Test
+  public void testGetRecordsNamespaced() throws Exception {
+    ProfilesService profilesService = new ProfilesService(null);
+    profilesService.initialize();
+    
+    IProfiles profiles = profilesService.newProfiles();
+    IProfile defaultProfile = profiles.getDefaultProfile();
+    
+    Bots bots = BotsUtils.readBots("http://localhost:5000/robots.txt");
+    BotsHttpClient httpClient = new BotsHttpClient(bots);
+    
+    Client cswClient = new Client(profilesService, httpClient, new URL("http://localhost:5000/csw"), defaultProfile, null);
+    IRecords records = cswClient.findRecords(1, 10, null, null);
+    
+    assertEquals("Records of the namespaced response not read", 10, records.size());
+    assertEquals("{093CBDB1-9D7A-4602-9937-2EC89359E633}", records.get(0).getId());
+  }
+  
   @Test
   public void testReadMetadata() throws Exception {
     ProfilesService profilesService = new ProfilesService(null);
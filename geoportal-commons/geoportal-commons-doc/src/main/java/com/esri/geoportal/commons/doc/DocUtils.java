@@ -25,6 +25,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -83,9 +84,15 @@ public class DocUtils {
 
     // Class Used By Geoportal Harvester
     public static byte[] generateMetadataXML(byte[] file_bytes, String file_name, Integer sizeLimit) throws IOException {
+        try (ByteArrayInputStream base_input = new ByteArrayInputStream(file_bytes)) {
+            return generateMetadataXML(base_input, file_name, sizeLimit);
+        }
+    }
+
+    // Streaming Variant; Stream Is Not Closed
+    public static byte[] generateMetadataXML(InputStream base_input, String file_name, Integer sizeLimit) throws IOException {
     	
-    	// Input & Output Variables
-    	ByteArrayInputStream base_input = new ByteArrayInputStream(file_bytes);
+    	// Output Variables
     	byte[]               xml_bytes  = null;
     	
     	// Tika Parser Objects
@@ -155,8 +162,6 @@ public class DocUtils {
         		
         } catch (Exception ex) {
           LOG.error(String.format("Error reading data."), ex);
-        } finally {
-        	base_input.close();
         }
     	
     	return xml_bytes;
@@ -65,7 +65,7 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.apache.http.message.BasicNameValuePair;
 import org.slf4j.Logger;
@@ -124,7 +124,7 @@ public class Client implements Closeable {
      * @param collectionsFieldName collections field name
      */
     public Client(URL url, SimpleCredentials cred, String index, String collectionsFieldName) {
-        this(HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build(), url, cred, index, collectionsFieldName);
+        this(HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build(), url, cred, index, collectionsFieldName);
     }
 
     /**
@@ -149,6 +149,42 @@ public class Client implements Closeable {
             boolean forceAdd,
             String[] collections) throws IOException, URISyntaxException {
 
+        String strRequest = createPublishRequest(data, attributes, xml, json, collections);
+        StringEntity entity = new StringEntity(strRequest, "UTF-8");
+
+        List<String> ids = !forceAdd ? queryIds("src_uri_s", data.src_uri_s, 1) : Collections.emptyList();
+
+        URI pubUri = id != null ? createItemUri(id) : !ids.isEmpty() ? createItemUri(ids.get(0)) : createItemsUri();
+        try {
+            return publish(pubUri, entity, data.sys_owner_s);
+        } catch (HttpResponseException ex) {
+            if (ex.getStatusCode() == 401) {
+                clearToken();
+                pubUri = id != null ? createItemUri(id) : !ids.isEmpty() ? createItemUri(ids.get(0)) : createItemsUri();
+                return publish(pubUri, entity, data.sys_owner_s);
+            } else {
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Creates JSON publish request.
+     *
+     * @param data data to publish
+     * @param attributes extra attributes
+     * @param xml xml
+     * @param json json
+     * @param collections list of collections
+     * @return JSON publish request
+     * @throws IOException if creating request fails
+     */
+    public String createPublishRequest(
+            PublishRequest data,
+            Map<String, Object> attributes,
+            String xml, String json,
+            String[] collections) throws IOException {
+
         ObjectNode jsonRequest = mapper.convertValue(data, ObjectNode.class);
         if (xml != null) {
             jsonRequest.put("xml", xml);
@@ -303,23 +339,7 @@ public class Client implements Closeable {
             }
         }
 
-        String strRequest = mapper.writeValueAsString(jsonRequest);
-        StringEntity entity = new StringEntity(strRequest, "UTF-8");
-
-        List<String> ids = !forceAdd ? queryIds("src_uri_s", data.src_uri_s, 1) : Collections.emptyList();
-
-        URI pubUri = id != null ? createItemUri(id) : !ids.isEmpty() ? createItemUri(ids.get(0)) : createItemsUri();
-        try {
-            return publish(pubUri, entity, data.sys_owner_s);
-        } catch (HttpResponseException ex) {
-            if (ex.getStatusCode() == 401) {
-                clearToken();
-                pubUri = id != null ? createItemUri(id) : !ids.isEmpty() ? createItemUri(ids.get(0)) : createItemsUri();
-                return publish(pubUri, entity, data.sys_owner_s);
-            } else {
-                throw ex;
-            }
-        }
+        return mapper.writeValueAsString(jsonRequest);
     }
 
     private Double parseDouble(String val) {
@@ -17,6 +17,7 @@
 package com.esri.geoportal.commons.pdf;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -47,6 +48,7 @@ import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -65,6 +67,11 @@ public class PdfUtils {
     private static final String DEFAULT_BBOX = "-90 -180, 90 180";
     private static final int WGS84_WKID = 4326;
     
+    /**
+     * Maximum number of bytes of the PDF read from a stream kept in memory.
+     */
+    public static final long MAX_MAIN_MEMORY = 4 * 1024 * 1024;
+    
     private static final Logger LOG = LoggerFactory.getLogger(PdfUtils.class);
 
     // Metadata properties read from PDF file
@@ -100,10 +107,35 @@ public class PdfUtils {
      * @throws java.io.IOException if error reading metadata
      */
     public static byte[] generateMetadataXML(byte[] pdfBytes, String fileName, String url, String geometryServiceUrl) throws IOException {
-        byte[] bytes = null;
+        return generateMetadataXML(readMetadata(pdfBytes, fileName, geometryServiceUrl), url);
+    }
 
-        // Read in the PDF metadata.
-        Properties metaProps = readMetadata(pdfBytes, fileName, geometryServiceUrl);
+    /**
+     * Generates a Dublin-Core XML string from the PDF read from the stream. 
+     * PDF larger than {@link #MAX_MAIN_MEMORY} is buffered in a temporary file.
+     * 
+     * @param pdfStream the PDF file to parse; stream is not closed
+     * @param fileName the name of the PDF file. Used if the PDF metadata doesn't specify a title.
+     * @param url the source location of the PDF file. Used to set the XML's "resource URL".
+     * @param geometryServiceUrl url of a <a href="https://developers.arcgis.com/rest/services-reference/geometry-service.htm">geometry service</a> for reprojecting coordinates. 
+     * 
+     * @return Dublin-Core XML metadata
+     * @throws java.io.IOException if error reading metadata
+     */
+    public static byte[] generateMetadataXML(InputStream pdfStream, String fileName, String url, String geometryServiceUrl) throws IOException {
+        return generateMetadataXML(readMetadata(pdfStream, fileName, geometryServiceUrl), url);
+    }
+
+    /**
+     * Generates a Dublin-Core XML string from the PDF metadata properties.
+     * 
+     * @param metaProps metadata properties
+     * @param url the source location of the PDF file
+     * @return Dublin-Core XML metadata or <code>null</code> if no metadata properties
+     * @throws IOException if error generating metadata
+     */
+    private static byte[] generateMetadataXML(Properties metaProps, String url) throws IOException {
+        byte[] bytes = null;
 
         // Build out the XML metadata
         if (metaProps != null) {
@@ -140,76 +172,111 @@ public class PdfUtils {
      * @throws IOException on parsing error
      */
     public static Properties readMetadata(byte[] rawBytes, String defaultTitle, String geometryServiceUrl) throws IOException {
-        Properties ret = new Properties();
-
         // Attempt to read in the PDF file
         try (PDDocument document = PDDocument.load(rawBytes)) {
+            return readMetadata(document, defaultTitle, geometryServiceUrl);
+        } catch (IOException ex) {
+            LOG.error("Exception reading PDF", ex);
+            throw ex;
+        }
+    }
 
-            // See if we can read the PDF
-            if (!document.isEncrypted()) {
-                // Get document metadata
-                PDDocumentInformation info = document.getDocumentInformation();
-
-                if (info != null) {
-
-                    if (info.getTitle() != null) {
-                        ret.put(PROP_TITLE, info.getTitle());
-                    } else {
-                        ret.put(PROP_TITLE, defaultTitle);
-                    }
+    /**
+     * Reads metadata values from a PDF stream. PDF larger than 
+     * {@link #MAX_MAIN_MEMORY} is buffered in a temporary file.
+     * 
+     * @param input the PDF to read; stream is not closed
+     * @param defaultTitle title to be used if the PDF metadata doesn't have one
+     * @param geometryServiceUrl url of a <a href="https://developers.arcgis.com/rest/services-reference/geometry-service.htm">geometry service</a> for reprojecting coordinates. 
+     * 
+     * @return metadata properties or null if the PDF cannot be read.
+     * 
+     * @throws IOException on parsing error
+     */
+    public static Properties readMetadata(InputStream input, String defaultTitle, String geometryServiceUrl) throws IOException {
+        // Attempt to read in the PDF file
+        try (PDDocument document = PDDocument.load(input, MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY))) {
+            return readMetadata(document, defaultTitle, geometryServiceUrl);
+        } catch (IOException ex) {
+            LOG.error("Exception reading PDF", ex);
+            throw ex;
+        }
+    }
 
-                    if (info.getSubject() != null) {
-                        ret.put(PROP_SUBJECT, info.getSubject());
-                    } else {
+    /**
+     * Reads metadata values from a PDF document.
+     * 
+     * @param document the PDF document
+     * @param defaultTitle title to be used if the PDF metadata doesn't have one
+     * @param geometryServiceUrl url of a geometry service for reprojecting coordinates. 
+     * 
+     * @return metadata properties or null if the PDF cannot be read.
+     * 
+     * @throws IOException on parsing error
+     */
+    private static Properties readMetadata(PDDocument document, String defaultTitle, String geometryServiceUrl) throws IOException {
+        Properties ret = new Properties();
 
-                        StringBuilder psudoSubject = new StringBuilder("");
-                        psudoSubject.append("\nAuthor: " + info.getAuthor());
-                        psudoSubject.append("\nCreator: " + info.getCreator());
-                        psudoSubject.append("\nProducer: " + info.getProducer());
+        // See if we can read the PDF
+        if (!document.isEncrypted()) {
+            // Get document metadata
+            PDDocumentInformation info = document.getDocumentInformation();
 
-                        ret.put(PROP_SUBJECT, psudoSubject.toString());
-                    }
+            if (info != null) {
 
-                    if (info.getModificationDate() != null) {
-                        ret.put(PROP_MODIFICATION_DATE, info.getModificationDate().getTime());
-                    } else if (info.getCreationDate() != null) {
-                        ret.put(PROP_MODIFICATION_DATE, info.getCreationDate().getTime());
-                    }
+                if (info.getTitle() != null) {
+                    ret.put(PROP_TITLE, info.getTitle());
                 } else {
-                    LOG.warn("Got null metadata for PDF file");
-                    return null;
+                    ret.put(PROP_TITLE, defaultTitle);
                 }
 
-                // Attempt to read in geospatial PDF data
-                COSObject measure = document.getDocument().getObjectByType(COSName.getPDFName("Measure"));
-                String bBox = null;
-                if (measure != null) {
-                    // This is a Geospatial PDF (i.e. Adobe's standard)
-                    COSDictionary dictionary = (COSDictionary) measure.getObject();
+                if (info.getSubject() != null) {
+                    ret.put(PROP_SUBJECT, info.getSubject());
+                } else {
 
-                    float[] coords = ((COSArray) dictionary.getItem("GPTS")).toFloatArray();
+                    StringBuilder psudoSubject = new StringBuilder("");
+                    psudoSubject.append("\nAuthor: " + info.getAuthor());
+                    psudoSubject.append("\nCreator: " + info.getCreator());
+                    psudoSubject.append("\nProducer: " + info.getProducer());
 
-                    bBox = generateBbox(coords);
-                } else {
-                    PDPage page = document.getPage(0);
-                    if (page.getCOSObject().containsKey(COSName.getPDFName("LGIDict"))) {
-                        // This is a GeoPDF (i.e. TerraGo's standard)
-                        bBox = extractGeoPDFProps(page, geometryServiceUrl);
-                    }
+                    ret.put(PROP_SUBJECT, psudoSubject.toString());
                 }
 
-                if (bBox != null) {
-                    ret.put(PROP_BBOX, bBox);
+                if (info.getModificationDate() != null) {
+                    ret.put(PROP_MODIFICATION_DATE, info.getModificationDate().getTime());
+                } else if (info.getCreationDate() != null) {
+                    ret.put(PROP_MODIFICATION_DATE, info.getCreationDate().getTime());
                 }
-
             } else {
-                LOG.warn("Cannot read encrypted PDF file");
+                LOG.warn("Got null metadata for PDF file");
                 return null;
             }
 
-        } catch (IOException ex) {
-            LOG.error("Exception reading PDF", ex);
-            throw ex;
+            // Attempt to read in geospatial PDF data
+            COSObject measure = document.getDocument().getObjectByType(COSName.getPDFName("Measure"));
+            String bBox = null;
+            if (measure != null) {
+                // This is a Geospatial PDF (i.e. Adobe's standard)
+                COSDictionary dictionary = (COSDictionary) measure.getObject();
+
+                float[] coords = ((COSArray) dictionary.getItem("GPTS")).toFloatArray();
+
+                bBox = generateBbox(coords);
+            } else {
+                PDPage page = document.getPage(0);
+                if (page.getCOSObject().containsKey(COSName.getPDFName("LGIDict"))) {
+                    // This is a GeoPDF (i.e. TerraGo's standard)
+                    bBox = extractGeoPDFProps(page, geometryServiceUrl);
+                }
+            }
+
+            if (bBox != null) {
+                ret.put(PROP_BBOX, bBox);
+            }
+
+        } else {
+            LOG.warn("Cannot read encrypted PDF file");
+            return null;
         }
 
         return ret;
@@ -17,7 +17,7 @@ package com.esri.geoportal.commons.robots;
 import java.net.URL;
 import java.util.List;
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 
 /**
@@ -33,7 +33,7 @@ public final class BotsUtils {
    * @return default parser (never <code>null</code>)
    */
   public static BotsParser parser() {
-    return parser(BotsConfig.DEFAULT,HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build());
+    return parser(BotsConfig.DEFAULT,HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build());
   }
   
   /**
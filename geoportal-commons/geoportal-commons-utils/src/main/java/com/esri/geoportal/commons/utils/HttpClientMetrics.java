@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.commons.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.ToIntFunction;
+import javax.net.ssl.SSLSocketFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.util.PublicSuffixMatcherLoader;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * HTTP client metrics.
+ * <p>
+ * Instruments HTTP client builder to report per-host request latency and
+ * response status codes as well as connection pool utilization to the
+ * {@link MetricsRegistry}.
+ */
+public class HttpClientMetrics {
+  private static final String START_ATTR = HttpClientMetrics.class.getName() + ".start";
+  private static final Set<PoolingHttpClientConnectionManager> MANAGERS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  static {
+    MetricsRegistry registry = MetricsRegistry.getInstance();
+    String help = "HTTP client connection pool utilization.";
+    registry.gauge("harvester_http_pool_connections", help, () -> sum(PoolStats::getLeased), "state", "leased");
+    registry.gauge("harvester_http_pool_connections", help, () -> sum(PoolStats::getAvailable), "state", "available");
+    registry.gauge("harvester_http_pool_connections", help, () -> sum(PoolStats::getPending), "state", "pending");
+    registry.gauge("harvester_http_pool_connections", help, () -> sum(PoolStats::getMax), "state", "max");
+  }
+
+  /**
+   * Creates instrumented HTTP client builder. Builder uses system properties the
+   * same way as {@link HttpClientBuilder#useSystemProperties()} does.
+   * @return HTTP client builder
+   */
+  public static HttpClientBuilder create() {
+    return instrument(HttpClientBuilder.create().useSystemProperties());
+  }
+
+  /**
+   * Instruments HTTP client builder. Builder is given its own pooling connection
+   * manager configured from the system properties.
+   * @param builder HTTP client builder
+   * @return the same HTTP client builder
+   */
+  public static HttpClientBuilder instrument(HttpClientBuilder builder) {
+    PoolingHttpClientConnectionManager manager = createConnectionManager();
+    MANAGERS.add(manager);
+    return builder
+            .setConnectionManager(manager)
+            .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> {
+              if (context.getAttribute(START_ATTR) == null) {
+                context.setAttribute(START_ATTR, System.nanoTime());
+              }
+            })
+            .addInterceptorLast((HttpResponseInterceptor) (response, context) -> {
+              Long start = (Long) context.getAttribute(START_ATTR);
+              context.removeAttribute(START_ATTR);
+              String host = host(context);
+              MetricsRegistry registry = MetricsRegistry.getInstance();
+              if (start != null) {
+                registry.timer("harvester_http_request_seconds", "HTTP request latency per host.", "host", host).recordSince(start);
+              }
+              registry.counter("harvester_http_responses_total", "HTTP responses per host and status code.",
+                      "host", host, "status", Integer.toString(response.getStatusLine().getStatusCode())).inc();
+            });
+  }
+
+  private static String host(HttpContext context) {
+    HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+    return target != null ? target.getHostName().toLowerCase() : "";
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager() {
+    SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(
+            (SSLSocketFactory) SSLSocketFactory.getDefault(),
+            split(System.getProperty("https.protocols")),
+            split(System.getProperty("https.cipherSuites")),
+            new DefaultHostnameVerifier(PublicSuffixMatcherLoader.getDefault()));
+    PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", sslSocketFactory)
+            .build()) {
+      @Override
+      public void shutdown() {
+        MANAGERS.remove(this);
+        super.shutdown();
+      }
+    };
+    if ("true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))) {
+      int max = Integer.parseInt(System.getProperty("http.maxConnections", "5"));
+      manager.setDefaultMaxPerRoute(max);
+      manager.setMaxTotal(2 * max);
+    }
+    return manager;
+  }
+
+  private static String[] split(String s) {
+    return s != null && !s.trim().isEmpty() ? s.split(" *, *") : null;
+  }
+
+  private static int sum(ToIntFunction<PoolStats> stat) {
+    List<PoolingHttpClientConnectionManager> managers;
+    synchronized (MANAGERS) {
+      managers = new ArrayList<>(MANAGERS);
+    }
+    return managers.stream().mapToInt(m -> stat.applyAsInt(m.getTotalStats())).sum();
+  }
+}
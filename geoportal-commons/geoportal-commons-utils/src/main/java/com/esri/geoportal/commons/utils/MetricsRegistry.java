@@ -0,0 +1,458 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.commons.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * JVM-wide metrics registry.
+ * <p>
+ * Holds counters, gauges and timers identified by name and labels. Metrics are
+ * exposed through JMX (see {@link #register()}) and in the Prometheus text
+ * exposition format (see {@link #writePrometheus(java.io.Writer)}).
+ * <p>
+ * Labels are given as alternating names and values, for example:
+ * <pre><code>
+ *   MetricsRegistry.getInstance().counter("harvester_records_total", "Records.", "connector", "WAF").inc();
+ * </code></pre>
+ */
+public final class MetricsRegistry {
+  /**
+   * JMX object name of the registry.
+   */
+  public static final String OBJECT_NAME = "com.esri.geoportal.harvester:type=Metrics";
+
+  /**
+   * Upper bounds (seconds) of the timer buckets.
+   */
+  private static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+  /**
+   * Gets registry instance.
+   * @return registry instance
+   */
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  private MetricsRegistry() {
+  }
+
+  /**
+   * Gets or creates counter.
+   * @param name metric name
+   * @param help metric description
+   * @param labels labels as alternating names and values
+   * @return counter
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter) family(name, help, Type.counter).metrics.computeIfAbsent(labels(labels), l -> new Counter());
+  }
+
+  /**
+   * Gets or creates timer.
+   * @param name metric name
+   * @param help metric description
+   * @param labels labels as alternating names and values
+   * @return timer
+   */
+  public Timer timer(String name, String help, String... labels) {
+    return (Timer) family(name, help, Type.histogram).metrics.computeIfAbsent(labels(labels), l -> new Timer());
+  }
+
+  /**
+   * Registers gauge. Gauge registered before under the same name and labels is
+   * replaced.
+   * @param name metric name
+   * @param help metric description
+   * @param supplier value supplier
+   * @param labels labels as alternating names and values
+   */
+  public void gauge(String name, String help, Supplier<? extends Number> supplier, String... labels) {
+    family(name, help, Type.gauge).metrics.put(labels(labels), new Gauge(supplier));
+  }
+
+  /**
+   * Writes all metrics in the Prometheus text exposition format.
+   * @param writer writer
+   * @throws IOException if writing fails
+   */
+  public void writePrometheus(Writer writer) throws IOException {
+    for (Family family: new TreeMap<>(families).values()) {
+      writer.write(String.format("# HELP %s %s\n", family.name, family.help.replace("\\", "\\\\").replace("\n", "\\n")));
+      writer.write(String.format("# TYPE %s %s\n", family.name, family.type));
+      for (Map.Entry<String, Metric> e: new TreeMap<>(family.metrics).entrySet()) {
+        e.getValue().write(writer, family.name, e.getKey());
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Registers registry within platform MBean server.
+   * @throws JMException if registering fails
+   */
+  public void register() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(OBJECT_NAME);
+    try {
+      server.registerMBean(new MetricsMBean(), objectName);
+    } catch (InstanceAlreadyExistsException ex) {
+      server.unregisterMBean(objectName);
+      server.registerMBean(new MetricsMBean(), objectName);
+    }
+  }
+
+  /**
+   * Unregisters registry from platform MBean server.
+   * @throws JMException if unregistering fails
+   */
+  public void unregister() throws JMException {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (InstanceNotFoundException ex) {
+      // not registered
+    }
+  }
+
+  private Family family(String name, String help, Type type) {
+    Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+    if (family.type != type) {
+      throw new IllegalArgumentException(String.format("Metric %s is already registered as %s", name, family.type));
+    }
+    return family;
+  }
+
+  private static String labels(String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels have to be given as names and values");
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (sb.length() > 0) {
+        sb.append(",");
+      }
+      String value = labels[i + 1] != null ? labels[i + 1] : "";
+      sb.append(labels[i]).append("=\"").append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append("\"");
+    }
+    return sb.toString();
+  }
+
+  private static String series(String name, String labels) {
+    return labels.isEmpty() ? name : String.format("%s{%s}", name, labels);
+  }
+
+  private static String format(double value) {
+    if (value == Double.POSITIVE_INFINITY) {
+      return "+Inf";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return String.format(Locale.ENGLISH, "%s", value);
+  }
+
+  /**
+   * Metric type.
+   */
+  private enum Type {
+    counter, gauge, histogram
+  }
+
+  /**
+   * Metric family; all metrics of the same name.
+   */
+  private static final class Family {
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public Family(String name, String help, Type type) {
+      this.name = name;
+      this.help = help != null ? help : name;
+      this.type = type;
+    }
+  }
+
+  /**
+   * Metric.
+   */
+  private interface Metric {
+    /**
+     * Writes metric in Prometheus format.
+     * @param writer writer
+     * @param name metric name
+     * @param labels formatted labels
+     * @throws IOException if writing fails
+     */
+    void write(Writer writer, String name, String labels) throws IOException;
+
+    /**
+     * Collects JMX attributes.
+     * @param name attribute name
+     * @param attributes attributes to populate
+     */
+    void collect(String name, Map<String, Number> attributes);
+  }
+
+  /**
+   * Counter.
+   */
+  public static final class Counter implements Metric {
+    private final LongAdder value = new LongAdder();
+
+    private Counter() {
+    }
+
+    /**
+     * Increments counter.
+     */
+    public void inc() {
+      value.increment();
+    }
+
+    /**
+     * Adds to the counter.
+     * @param amount amount
+     */
+    public void add(long amount) {
+      value.add(amount);
+    }
+
+    /**
+     * Gets counter value.
+     * @return counter value
+     */
+    public long get() {
+      return value.sum();
+    }
+
+    @Override
+    public void write(Writer writer, String name, String labels) throws IOException {
+      writer.write(String.format("%s %d\n", series(name, labels), get()));
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> attributes) {
+      attributes.put(name, get());
+    }
+  }
+
+  /**
+   * Gauge.
+   */
+  private static final class Gauge implements Metric {
+    private final Supplier<? extends Number> supplier;
+
+    public Gauge(Supplier<? extends Number> supplier) {
+      this.supplier = supplier;
+    }
+
+    private double get() {
+      Number value = supplier.get();
+      return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    @Override
+    public void write(Writer writer, String name, String labels) throws IOException {
+      double value = get();
+      if (!Double.isNaN(value)) {
+        writer.write(String.format("%s %s\n", series(name, labels), format(value)));
+      }
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> attributes) {
+      attributes.put(name, get());
+    }
+  }
+
+  /**
+   * Timer; histogram of durations.
+   */
+  public static final class Timer implements Metric {
+    private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private Timer() {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records duration.
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+      nanos = Math.max(nanos, 0);
+      double seconds = nanos / 1e9;
+      for (int i = 0; i < BUCKETS.length; i++) {
+        if (seconds <= BUCKETS[i]) {
+          buckets[i].increment();
+          break;
+        }
+      }
+      count.increment();
+      total.add(nanos);
+      max.accumulate(nanos);
+    }
+
+    /**
+     * Records duration since the given start time.
+     * @param startNanos start time as given by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets number of recorded durations.
+     * @return number of recorded durations
+     */
+    public long getCount() {
+      return count.sum();
+    }
+
+    /**
+     * Gets mean duration.
+     * @return mean duration in milliseconds
+     */
+    public double getMean() {
+      long n = getCount();
+      return n > 0 ? total.sum() / 1e6 / n : 0;
+    }
+
+    /**
+     * Gets maximum duration.
+     * @return maximum duration in milliseconds
+     */
+    public double getMax() {
+      return max.get() / 1e6;
+    }
+
+    @Override
+    public void write(Writer writer, String name, String labels) throws IOException {
+      String prefix = labels.isEmpty() ? "" : labels + ",";
+      long cumulative = 0;
+      for (int i = 0; i < BUCKETS.length; i++) {
+        cumulative += buckets[i].sum();
+        writer.write(String.format("%s_bucket{%sle=\"%s\"} %d\n", name, prefix, format(BUCKETS[i]), cumulative));
+      }
+      long n = getCount();
+      writer.write(String.format("%s_bucket{%sle=\"+Inf\"} %d\n", name, prefix, n));
+      writer.write(String.format(Locale.ENGLISH, "%s %s\n", series(name + "_sum", labels), format(total.sum() / 1e9)));
+      writer.write(String.format("%s %d\n", series(name + "_count", labels), n));
+    }
+
+    @Override
+    public void collect(String name, Map<String, Number> attributes) {
+      attributes.put(name + ".count", getCount());
+      attributes.put(name + ".mean", getMean());
+      attributes.put(name + ".max", getMax());
+    }
+  }
+
+  /**
+   * Dynamic MBean exposing every metric as read-only attribute.
+   */
+  private final class MetricsMBean implements DynamicMBean {
+
+    private Map<String, Number> collect() {
+      Map<String, Number> attributes = new LinkedHashMap<>();
+      for (Family family: new TreeMap<>(families).values()) {
+        for (Map.Entry<String, Metric> e: new TreeMap<>(family.metrics).entrySet()) {
+          e.getValue().collect(series(family.name, e.getKey()), attributes);
+        }
+      }
+      return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Number value = collect().get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(attribute);
+      }
+      return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Number> values = collect();
+      AttributeList list = new AttributeList();
+      for (String attribute: attributes) {
+        if (values.containsKey(attribute)) {
+          list.add(new Attribute(attribute, values.get(attribute)));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException(String.format("Attribute is read-only: %s", attribute.getName()));
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException(String.format("Operation not supported: %s", actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> infos = new ArrayList<>();
+      collect().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name, value.getClass().getName(), name, true, false, false)));
+      return new MBeanInfo(MetricsRegistry.class.getName(), "Harvester metrics", infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+  }
+
+}
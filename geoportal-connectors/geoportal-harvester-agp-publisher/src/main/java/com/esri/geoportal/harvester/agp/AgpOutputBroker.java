@@ -78,7 +78,7 @@ import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -139,8 +139,12 @@ import org.commonmark.renderer.html.HtmlRenderer;
 
       byte[] content    = null;
 
-      if (ref.getContent(MimeType.APPLICATION_PDF) != null) {
-        content = PdfUtils.generateMetadataXML(ref.getContent(MimeType.APPLICATION_PDF), ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+      InputStream pdfContent = ref.getContentStream(MimeType.APPLICATION_PDF);
+
+      if (pdfContent != null) {
+        try (InputStream input = pdfContent) {
+          content = PdfUtils.generateMetadataXML(input, ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+        }
         
       } else if (ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML) != null) {        	
         content = ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML);
@@ -151,8 +155,9 @@ import org.commonmark.renderer.html.HtmlRenderer;
                   .filter(t->!Arrays.stream(toBeSkipped).anyMatch(s->s==t))
                   .collect(Collectors.toSet());
           if (!types.isEmpty()) {
-            byte[] rawContent = ref.getContent(types.toArray(new MimeType[types.size()]));
-            content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName(), sizeLimit) : null;
+            try (InputStream rawContent = ref.getContentStream(types.toArray(new MimeType[types.size()]))) {
+              content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName(), sizeLimit) : null;
+            }
           }
       }
         
@@ -745,7 +750,7 @@ import org.commonmark.renderer.html.HtmlRenderer;
   @Override
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
-    this.httpClient = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    this.httpClient = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     this.client = new AgpClient(httpClient, definition.getHostUrl(), definition.getCredentials(), definition.getMaxRedirects());
 
     if (!context.canCleanup()) {
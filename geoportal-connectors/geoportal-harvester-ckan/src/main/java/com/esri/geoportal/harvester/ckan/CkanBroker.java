@@ -66,8 +66,9 @@ import java.util.List;
 import java.util.Map;
 import javax.xml.transform.TransformerException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -118,7 +119,7 @@ public class CkanBroker implements InputBroker {
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
-    CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    CloseableHttpClient http = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
       httpClient = http;
     } else {
@@ -326,9 +327,15 @@ public class CkanBroker implements InputBroker {
     private final int limit = 10;
     private int offset = 0;
     private boolean lastPage;
+    
+    private final int skip;
+    private int taken;
 
     public CkanIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      this.skip = Math.max(NumberUtils.toInt(iteratorContext.getCursor(), 0), 0);
+      this.offset = skip;
+      this.taken = skip;
     }
 
     private void listPackages() throws IOException, URISyntaxException {
@@ -368,7 +375,8 @@ public class CkanBroker implements InputBroker {
               }
             });
           }
-          providerIter = list.iterator();
+          taken = Math.min(skip, list.size());
+          providerIter = list.subList(taken, list.size()).iterator();
         }
       }
     }
@@ -382,6 +390,7 @@ public class CkanBroker implements InputBroker {
         
         if (providerIter != null && providerIter.hasNext()) {
           dataIter = providerIter.next().get().iterator();
+          taken++;
           return hasNext();
         }
         
@@ -408,6 +417,15 @@ public class CkanBroker implements InputBroker {
         throw new DataInputException(CkanBroker.this, String.format("Error reading data from: %s Exception: "+ex, this), ex);
       }
     }
+
+    /**
+     * Gets cursor; index of the package of the next dataset.
+     * @return cursor
+     */
+    @Override
+    public String getCursor() {
+      return dataIter!=null && dataIter.hasNext()? Integer.toString(taken-1): null;
+    }
   }
 
   /**
@@ -37,8 +37,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Date;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,8 @@ import org.slf4j.LoggerFactory;
   private java.util.Iterator<IRecord> recs;
   private IRecord nextRecord;
   private int start = 1;
+  private int position;
+  private int nextPosition;
   private boolean noMore;
   private TaskDefinition td;
 
@@ -74,7 +77,7 @@ import org.slf4j.LoggerFactory;
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
-    httpclient = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    httpclient = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
       client = new Client(connector.getProfilesService(), httpclient, definition.getHostUrl(), definition.getProfile(), definition.getCredentials());
     } else {
@@ -142,6 +145,8 @@ import org.slf4j.LoggerFactory;
   
   /**
    * CSW iterator.
+   * <p>
+   * Cursor is a start position of the next record.
    */
   private class CswIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
@@ -152,6 +157,9 @@ import org.slf4j.LoggerFactory;
      */
     public CswIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      if (iteratorContext.getCursor()!=null) {
+        start = Math.max(NumberUtils.toInt(iteratorContext.getCursor(), 1), 1);
+      }
     }
     
     
@@ -168,6 +176,7 @@ import org.slf4j.LoggerFactory;
             noMore = true;
           } else {
             recs = r.iterator();
+            position = start;
           }
           return hasNext();
         }
@@ -179,12 +188,14 @@ import org.slf4j.LoggerFactory;
         }
         
         IRecord rec = recs.next();
+        int recPosition = position++;
         
         if (rec.getLastModifiedDate()!=null && iteratorContext.getLastHarvestDate()!=null && !(rec.getLastModifiedDate().getTime()>=iteratorContext.getLastHarvestDate().getTime())) {
           return hasNext();
         }
 
         nextRecord = rec;
+        nextPosition = recPosition;
         return true;
       } catch (Exception ex) {
         throw new DataInputException(CswBroker.this, "Error reading data.", ex);
@@ -200,6 +211,11 @@ import org.slf4j.LoggerFactory;
       nextRecord=null;
       return readContent(rec.getId(), rec.getLastModifiedDate());
     }
+
+    @Override
+    public String getCursor() {
+      return nextRecord!=null? Integer.toString(nextPosition): null;
+    }
   }
   
 }
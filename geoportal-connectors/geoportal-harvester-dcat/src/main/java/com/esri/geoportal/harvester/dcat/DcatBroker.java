@@ -51,7 +51,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.esri.geoportal.harvester.api.DataContent;
@@ -118,7 +118,7 @@ import org.w3c.dom.Document;
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
-    CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    CloseableHttpClient http = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
       httpClient = http;
     } else {
@@ -353,6 +353,11 @@ import org.w3c.dom.Document;
     return null;
   }
 
+  @Override
+  public boolean supportsReadContent() {
+    return false;
+  }
+
   private String generateSchemeName(String url) {
     String serviceType = url != null ? ItemType.matchPattern(url).stream()
             .filter(it -> it.getServiceType() != null)
@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -145,8 +146,8 @@ import static com.esri.geoportal.harvester.folderbig.PathUtil.splitPath;
           boolean created = !Files.exists(f);
 
           Files.createDirectories(f.getParent());
-          try (OutputStream output = Files.newOutputStream(f)) {
-            output.write(ref.getContent(ct));
+          try (OutputStream output = Files.newOutputStream(f); InputStream input = ref.getContentStream(ct)) {
+            input.transferTo(output);
             existing.remove(f.toRealPath().toString());
             //return created ? PublishingStatus.CREATED : PublishingStatus.UPDATED;
           } catch (Exception ex) {
@@ -32,6 +32,7 @@ import java.io.OutputStream;
 import java.net.URI;
 import static com.esri.geoportal.harvester.folder.PathUtil.splitPath;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -144,8 +145,8 @@ import org.slf4j.LoggerFactory;
           Path f = generateFileName(ref.getBrokerUri(), ref.getSourceUri(), title, extension);
           boolean created = !Files.exists(f);
           Files.createDirectories(f.getParent());
-          try (OutputStream output = Files.newOutputStream(f)) {
-            output.write(ref.getContent(ct));
+          try (OutputStream output = Files.newOutputStream(f); InputStream input = ref.getContentStream(ct)) {
+            input.transferTo(output);
             existing.remove(f.toRealPath().toString());
             //return created ? PublishingStatus.CREATED : PublishingStatus.UPDATED;
           } catch (Exception ex) {
@@ -18,6 +18,7 @@ package com.esri.geoportal.harvester.gpt;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
 import java.time.ZoneId;
@@ -174,8 +175,12 @@ import org.apache.commons.lang3.StringUtils;
     	  
         byte[] content    = null;
         
-        if (ref.getContent(MimeType.APPLICATION_PDF) != null && definition.isTranslatePdf()) {
-        	content = PdfUtils.generateMetadataXML(ref.getContent(MimeType.APPLICATION_PDF), ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+        InputStream pdfContent = definition.isTranslatePdf()? ref.getContentStream(MimeType.APPLICATION_PDF): null;
+        
+        if (pdfContent != null) {
+          try (InputStream input = pdfContent) {
+            content = PdfUtils.generateMetadataXML(input, ref.getSourceUri().getPath(), ref.getSourceUri().toASCIIString(), geometryServiceUrl); 
+          }
         
         } else if (ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML) != null) {        	
         	content = ref.getContent(MimeType.APPLICATION_XML, MimeType.TEXT_XML);
@@ -186,8 +191,9 @@ import org.apache.commons.lang3.StringUtils;
                     .filter(t->!Arrays.stream(toBeSkipped).anyMatch(s->s==t))
                     .collect(Collectors.toSet());
             if (!types.isEmpty()) {
-              byte[]         rawContent = ref.getContent(types.toArray(new MimeType[types.size()]));
-              content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName(), sizeLimit) : null;
+              try (InputStream rawContent = ref.getContentStream(types.toArray(new MimeType[types.size()]))) {
+                content = rawContent!=null ? DocUtils.generateMetadataXML(rawContent, new File(ref.getId()).getName(), sizeLimit) : null;
+              }
             }
         }
 
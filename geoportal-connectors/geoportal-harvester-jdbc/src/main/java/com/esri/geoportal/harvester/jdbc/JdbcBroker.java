@@ -829,6 +829,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
   private class JdbcIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
+    private long skip;
+    private long rows;
+    private boolean current;
 
     /**
      * Creates instance of the iterator.
@@ -836,12 +839,24 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
      */
     public JdbcIterator(IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      this.skip = Math.max(NumberUtils.toLong(iteratorContext.getCursor(), 0), 0);
     }
 
     @Override
     public boolean hasNext() throws DataInputException {
       try {
-        return resultSet.next();
+        for (; skip > 0; skip--) {
+          if (!resultSet.next()) {
+            skip = 0;
+            return current = false;
+          }
+          rows++;
+        }
+        current = resultSet.next();
+        if (current) {
+          rows++;
+        }
+        return current;
       } catch (SQLException ex) {
         throw new DataInputException(JdbcBroker.this, String.format("Error iterating data. : Exception: "+ex), ex);
       }
@@ -855,5 +870,14 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
         throw new DataInputException(JdbcBroker.this, String.format("Error reading data : Exception: "+ex), ex);
       }
     }
+
+    /**
+     * Gets cursor; number of rows preceding the current row.
+     * @return cursor
+     */
+    @Override
+    public String getCursor() {
+      return current? Long.toString(rows - 1): null;
+    }
   }
 }
@@ -113,6 +113,11 @@ import org.slf4j.LoggerFactory;
     return null;
   }
 
+  @Override
+  public boolean supportsReadContent() {
+    return false;
+  }
+
   @Override
   public boolean hasAccess(SimpleCredentials creds) {
     return true;
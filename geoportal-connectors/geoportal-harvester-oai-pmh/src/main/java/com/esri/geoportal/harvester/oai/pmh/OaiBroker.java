@@ -33,8 +33,10 @@ import com.esri.geoportal.harvester.api.ex.DataInputException;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
 import com.esri.geoportal.harvester.api.specs.InputConnector;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -80,7 +82,7 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
   public void initialize(Initializable.InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
-    CloseableHttpClient http = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    CloseableHttpClient http = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
       httpClient = http;
     } else {
@@ -151,6 +153,10 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
 
   /**
    * OAI-PMH iterator.
+   * <p>
+   * Cursor is a number of headers already taken from the current page followed
+   * by the resumption token used to request the current page, for example: 
+   * <code>5:token</code>.
    */
   private class OaiIterator implements InputBroker.Iterator {
 
@@ -159,9 +165,17 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
     private java.util.Iterator<Header> idIter;
     private String resumptionToken;
     private boolean lastCall = false; // no resumption token
+    private String pageToken;
+    private int taken;
+    private int skip;
 
     public OaiIterator(InputBroker.IteratorContext iteratorContext) {
       this.iteratorContext = iteratorContext;
+      String cursor = iteratorContext.getCursor();
+      if (cursor != null && cursor.contains(":")) {
+        skip = Math.max(NumberUtils.toInt(cursor.substring(0, cursor.indexOf(":")), 0), 0);
+        resumptionToken = StringUtils.trimToNull(cursor.substring(cursor.indexOf(":") + 1));
+      }
     }
 
     @Override
@@ -175,6 +189,8 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
         }
 
         ListIdsResponse listIds = client.listIds(resumptionToken, iteratorContext.getLastHarvestDate());
+        pageToken = resumptionToken;
+        taken = 0;
         resumptionToken = listIds.resumptionToken;
         if (listIds.resumptionToken == null || listIds.resumptionToken.isEmpty()) {
           lastCall = true;
@@ -183,10 +199,13 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
         }
 
 
-        if (listIds.headers.length > 0) {
-          idIter = Arrays.asList(listIds.headers).iterator();
+        if (listIds.headers.length > skip) {
+          idIter = Arrays.asList(listIds.headers).subList(skip, listIds.headers.length).iterator();
+          taken = skip;
+          skip = 0;
           return true;
         } else if (listIds.resumptionToken != null) {
+          skip = 0;
 
           return hasNext();
         }
@@ -204,9 +223,15 @@ import org.apache.http.impl.client.LaxRedirectStrategy;
       }
 
       Header header = idIter.next();
+      taken++;
       return readContent(header.identifier, parseIsoDate(header.datestamp));
     }
 
+    @Override
+    public String getCursor() {
+      return String.format("%d:%s", taken, pageToken != null? pageToken: "");
+    }
+
   }
 
   /**
@@ -27,7 +27,6 @@ import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Date;
-import org.apache.commons.io.IOUtils;
 
 /**
  * Sink file.
@@ -59,7 +58,7 @@ import org.apache.commons.io.IOUtils;
     MimeType contentType = readContentType();
     try (InputStream input = attemptToOpenStream(ctx.attemptCount, ctx.attemptDelay);) {
       SimpleDataReference ref = new SimpleDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), file.toAbsolutePath().toString(), lastModifiedDate, file.toUri(), broker.td.getSource().getRef(), broker.td.getRef());
-      ref.addContext(contentType, IOUtils.toByteArray(input));
+      ref.addContext(contentType, input);
       return ref;
     } finally {
       // once file is read, delete it
@@ -26,6 +26,7 @@ import com.esri.geoportal.harvester.api.defs.EntityDefinition;
 import com.esri.geoportal.harvester.api.defs.TaskDefinition;
 import com.esri.geoportal.harvester.api.ex.DataProcessorException;
 import com.esri.geoportal.harvester.api.specs.InputBroker;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
 import com.esri.geoportal.harvester.api.specs.InputConnector;
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -35,9 +36,10 @@ import java.net.URL;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Set;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import com.esri.geoportal.commons.utils.HttpClientMetrics;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,7 +73,7 @@ import org.slf4j.LoggerFactory;
   public void initialize(InitContext context) throws DataProcessorException {
     definition.override(context.getParams());
     td = context.getTask().getTaskDefinition();
-    CloseableHttpClient client = HttpClientBuilder.create().useSystemProperties().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
+    CloseableHttpClient client = HttpClientMetrics.create().setRedirectStrategy(LaxRedirectStrategy.INSTANCE).build();
     if (context.getTask().getTaskDefinition().isIgnoreRobotsTxt()) {
       httpClient = client;
     } else {
@@ -133,6 +135,25 @@ import org.slf4j.LoggerFactory;
     }
   }
   
+  /**
+   * Gets base URL of the WAF; host URL with trailing slash.
+   * @return base URL
+   */
+  private String getBaseUrl() {
+    return definition.getHostUrl().toExternalForm().replaceAll("/$", "")+"/";
+  }
+  
+  /**
+   * Makes URL relative to the base URL if it is located below the base URL.
+   * @param base base URL
+   * @param url URL
+   * @return relative or absolute URL
+   */
+  private static String relativize(String base, URL url) {
+    String externalForm = url.toExternalForm();
+    return externalForm.startsWith(base) && externalForm.length() > base.length()? "./" + externalForm.substring(base.length()): externalForm;
+  }
+
   /**
    * Checks if the given fileUrl is within the allowed hostUrl.
    * Only allows access to URLs that are subpaths of the hostUrl.
@@ -176,6 +197,8 @@ import org.slf4j.LoggerFactory;
   private class WafIterator implements InputBroker.Iterator {
     private final IteratorContext iteratorContext;
     private DataReference nextFile;
+    private URL folderUrl;
+    private int taken;
 
     /**
      * Creates instance of the iterator.
@@ -195,7 +218,7 @@ import org.slf4j.LoggerFactory;
       try {
         if (files!=null && !files.isEmpty()) {
           nextFile = readContent();
-          if (nextFile==null || nextFile.getContent(nextFile.getContentType().stream().findFirst().orElse(null))==null) {
+          if (nextFile==null || (!(nextFile instanceof LazyDataReference) && nextFile.getContent(nextFile.getContentType().stream().findFirst().orElse(null))==null)) {
             nextFile = null;
             return hasNext();
           }
@@ -211,14 +234,23 @@ import org.slf4j.LoggerFactory;
           WafFolderContent content = subFolder.readContent(httpClient);
           content.getSubFolders().forEach(f->subFolders.offer(f));
           files = new LinkedList<>(content.getFiles());
+          folderUrl = subFolder.getFolderUrl();
+          taken = 0;
+          return hasNext();
+        }
+
+        if (subFolders==null && iteratorContext.getCursor()!=null) {
+          resume(iteratorContext.getCursor());
           return hasNext();
         }
 
         if (subFolders==null) {
-          URL startUrl = new URL(definition.getHostUrl().toExternalForm().replaceAll("/$", "")+"/");
+          URL startUrl = new URL(getBaseUrl());
           WafFolderContent content = new WafFolder(WafBroker.this, startUrl, definition.getPattern(), definition.getCredentials()).readContent(httpClient);
           subFolders = new LinkedList<>(content.getSubFolders());
           files = new LinkedList<>(content.getFiles());
+          folderUrl = startUrl;
+          taken = 0;
           return hasNext();
         }
 
@@ -238,8 +270,67 @@ import org.slf4j.LoggerFactory;
       return result;
     }
     
+    /**
+     * Gets cursor.
+     * <p>
+     * Cursor consists of lines: number of files of the current folder preceding
+     * the next file, url of the current folder, followed by the urls of the
+     * folders to visit (prefixed with "F "), relative to the host url. Visited 
+     * folders are not stored; folders listed by the server are always below
+     * the folder they are listed in, so folders visited before the cursor are 
+     * not reachable from the frontier. This keeps the cursor proportional to 
+     * the frontier rather than to the whole WAF.
+     * @return cursor
+     */
+    @Override
+    public String getCursor() {
+      if (nextFile==null || folderUrl==null) {
+        return null;
+      }
+      String base = getBaseUrl();
+      StringBuilder sb = new StringBuilder();
+      sb.append(taken - 1).append("\n").append(folderUrl.toExternalForm());
+      subFolders.forEach(f -> sb.append("\nF ").append(relativize(base, f.getFolderUrl())));
+      return sb.toString();
+    }
+    
+    /**
+     * Restores iterator state from the cursor. Current folder is read again and
+     * files preceding the next file are skipped.
+     * @param cursor cursor
+     */
+    private void resume(String cursor) throws IOException, URISyntaxException {
+      String[] lines = cursor.split("\n");
+      int skip = Math.max(NumberUtils.toInt(lines[0], 0), 0);
+      URL baseUrl = new URL(getBaseUrl());
+      folderUrl = new URL(lines.length > 1? lines[1]: baseUrl.toExternalForm());
+      visited.add(folderUrl);
+      subFolders = new LinkedList<>();
+      for (int i=2; i<lines.length; i++) {
+        if (lines[i].startsWith("F ")) {
+          subFolders.offer(new WafFolder(WafBroker.this, new URL(baseUrl, lines[i].substring(2)), definition.getPattern(), definition.getCredentials()));
+        }
+      }
+      WafFolderContent content = new WafFolder(WafBroker.this, folderUrl, definition.getPattern(), definition.getCredentials()).readContent(httpClient);
+      files = new LinkedList<>(content.getFiles());
+      for (taken = 0; taken < skip && !files.isEmpty(); taken++) {
+        files.poll();
+      }
+    }
+    
+    /**
+     * Reads content of the next file. Unless harvest is incremental, content is
+     * fetched only when requested, so files rejected by the filters are not
+     * downloaded at all; in incremental harvest the response is needed to tell
+     * if the file has been modified.
+     * @return data reference or <code>null</code> if file is unavailable or not modified
+     */
     private DataReference readContent() throws IOException, URISyntaxException {
       WafFile file = files.poll();
+      taken++;
+      if (iteratorContext.getLastHarvestDate()==null) {
+        return file.lazyContent(httpClient);
+      }
       try {
         return file.readContent(httpClient, iteratorContext.getLastHarvestDate());
       } catch (HttpResponseException ex) {
@@ -23,6 +23,7 @@ import com.esri.geoportal.commons.meta.util.WKAConstants;
 import static com.esri.geoportal.commons.utils.Constants.DEFAULT_REQUEST_CONFIG;
 import static com.esri.geoportal.commons.utils.HttpClientContextBuilder.createHttpClientContext;
 import com.esri.geoportal.commons.utils.SimpleCredentials;
+import com.esri.geoportal.harvester.api.base.LazyDataReference;
 import com.esri.geoportal.harvester.api.base.SimpleDataReference;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,7 +32,6 @@ import java.net.URL;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpResponseException;
@@ -87,7 +87,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
       MimeType contentType = readContentType(httpResponse);
       boolean readBody = since==null || lastModifiedDate==null || lastModifiedDate.getTime()>=since.getTime();
       SimpleDataReference ref = new SimpleDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), fileUrl.toExternalForm(), lastModifiedDate, fileUrl.toURI(), broker.td.getSource().getRef(), broker.td.getRef());
-      ref.addContext(contentType, readBody? IOUtils.toByteArray(input): null);
+      ref.addContext(contentType, readBody? input: null);
 
       // Adding in resource map attributes for saving to AGP...
       ref.getAttributesMap().put(WKAConstants.WKA_RESOURCE_URL, fileUrl.toURI());
@@ -96,6 +96,24 @@ import org.apache.http.impl.client.CloseableHttpClient;
     }
   }
 
+  /**
+   * Creates lazy content reference. Content is read only when requested.
+   * @param httpClient HTTP client
+   * @return lazy content reference
+   * @throws URISyntaxException if file url is an invalid URI
+   */
+  public LazyDataReference lazyContent(CloseableHttpClient httpClient) throws URISyntaxException {
+    LazyDataReference ref = new LazyDataReference(broker.getBrokerUri(), broker.getEntityDefinition().getLabel(), fileUrl.toExternalForm(), fileUrl.toURI(), broker.td.getSource().getRef(), broker.td.getRef(), () -> {
+      try {
+        return readContent(httpClient, null);
+      } catch (URISyntaxException ex) {
+        throw new IOException(ex);
+      }
+    });
+    ref.getAttributesMap().put(WKAConstants.WKA_RESOURCE_URL, fileUrl.toURI());
+    return ref;
+  }
+
   /**
    * Reads last modified date.
    * @param response HTTP response
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Esri, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.esri.geoportal.harvester.waf;
+
+import com.esri.geoportal.harvester.api.base.SimpleInitContext;
+import com.esri.geoportal.harvester.api.base.SimpleIteratorContext;
+import com.esri.geoportal.harvester.api.defs.EntityDefinition;
+import com.esri.geoportal.harvester.api.defs.Task;
+import com.esri.geoportal.harvester.api.specs.InputBroker;
+import static com.esri.geoportal.harvester.waf.WafConstants.P_HOST_URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.mockserver.client.MockServerClient;
+import org.mockserver.integration.ClientAndServer;
+import static org.mockserver.integration.ClientAndServer.startClientAndServer;
+import org.mockserver.model.Header;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * WAF broker test.
+ */
+public class WafBrokerTest {
+  private static final int PORT = 5003;
+  private static final String ROOT = String.format("http://localhost:%d/waf/", PORT);
+  
+  public static ClientAndServer server;
+  
+  public static MockServerClient client;
+
+  @BeforeClass
+  public static void setup() {
+    server = startClientAndServer(PORT);
+    client = new MockServerClient("localhost", PORT);
+    folder("/waf/", "a.xml", "b.xml", "s1/", "s2/");
+    folder("/waf/s1/", "c.xml", "t/");
+    folder("/waf/s2/", "d.xml");
+    folder("/waf/s1/t/", "e.xml");
+  }
+  
+  @AfterClass
+  public static void after()  {
+    server.stop();
+    client.stop();
+  }
+  
+  private static void folder(String path, String...links) {
+    StringBuilder sb = new StringBuilder("<html><body>");
+    Arrays.stream(links).forEach(l -> sb.append(String.format("<a href=\"%s\">%s</a>", l, l)));
+    sb.append("</body></html>");
+    client.when(request().withMethod("GET").withPath(path))
+            .respond(response()
+                    .withStatusCode(200)
+                    .withHeaders(new Header("Content-Type", "text/html; charset=utf-8"))
+                    .withBody(sb.toString()));
+  }
+  
+  private static WafBroker createBroker() throws Exception {
+    EntityDefinition entityDefinition = new EntityDefinition();
+    entityDefinition.setType(WafConnector.TYPE);
+    Map<String, String> properties = new HashMap<>();
+    properties.put(P_HOST_URL, ROOT);
+    entityDefinition.setProperties(properties);
+    WafBroker broker = new WafBroker(new WafConnector(), new WafBrokerDefinitionAdaptor(entityDefinition));
+    Task task = new Task("test", null, null, null, broker, Collections.emptyList(), Collections.emptyList(), false, true);
+    broker.initialize(new SimpleInitContext(task, new ArrayList<>()));
+    return broker;
+  }
+
+  @Test
+  public void testResumeFromCursor() throws Exception {
+    List<String> ids = new ArrayList<>();
+    String cursor = null;
+    WafBroker broker = createBroker();
+    try {
+      InputBroker.Iterator iterator = broker.iterator(new SimpleIteratorContext());
+      while (iterator.hasNext()) {
+        if (ids.size() == 3) {
+          cursor = iterator.getCursor();
+        }
+        ids.add(iterator.next().getId());
+      }
+    } finally {
+      broker.terminate();
+    }
+    assertEquals(Arrays.asList(ROOT+"a.xml", ROOT+"b.xml", ROOT+"s1/c.xml", ROOT+"s2/d.xml", ROOT+"s1/t/e.xml"), ids);
+    
+    // frontier only; no visited folders
+    assertEquals(String.format("0\n%ss2/\nF ./s1/t/", ROOT), cursor);
+    
+    List<String> remaining = new ArrayList<>();
+    broker = createBroker();
+    try {
+      SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
+      iteratorContext.setCursor(cursor);
+      InputBroker.Iterator resumed = broker.iterator(iteratorContext);
+      while (resumed.hasNext()) {
+        remaining.add(resumed.next().getId());
+      }
+    } finally {
+      broker.terminate();
+    }
+    assertEquals(ids.subList(3, ids.size()), remaining);
+  }
+
+  @Test
+  public void testResumeWithinFolder() throws Exception {
+    WafBroker broker = createBroker();
+    try {
+      SimpleIteratorContext iteratorContext = new SimpleIteratorContext();
+      iteratorContext.setCursor(String.format("1\n%s\nF ./s1/\nF %ss2/", ROOT, ROOT));
+      InputBroker.Iterator resumed = broker.iterator(iteratorContext);
+      List<String> ids = new ArrayList<>();
+      while (resumed.hasNext()) {
+        ids.add(resumed.next().getId());
+      }
+      assertEquals(Arrays.asList(ROOT+"b.xml", ROOT+"s1/c.xml", ROOT+"s2/d.xml", ROOT+"s1/t/e.xml"), ids);
+    } finally {
+      broker.terminate();
+    }
+  }
+}